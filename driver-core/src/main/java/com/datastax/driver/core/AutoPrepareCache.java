@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.utils.Bytes;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps track of the {@link SimpleStatement}s executed by a session, prepares the most frequent
+ * ones in the background and substitutes them with equivalent {@link BoundStatement}s.
+ * <p/>
+ * Executions are counted in a {@link FrequencySketch}, and a query only gets an entry in the
+ * (size-bounded, least recently used) cache once it reaches the threshold. Queries that are only
+ * executed once or twice therefore never evict the frequent ones, and the counts of frequent queries
+ * survive evictions.
+ *
+ * @see QueryOptions#setAutoPrepareEnabled(boolean)
+ */
+abstract class AutoPrepareCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoPrepareCache.class);
+
+    private final QueryOptions queryOptions;
+
+    // Replaced when the maximum size changes, since Guava caches can't be resized
+    private volatile Cache<Key, Candidate> candidates;
+    private volatile FrequencySketch executions;
+    private volatile int maximumSize;
+
+    AutoPrepareCache(QueryOptions queryOptions) {
+        this.queryOptions = queryOptions;
+        this.maximumSize = queryOptions.getAutoPrepareCacheSize();
+        this.candidates = newCache(maximumSize);
+        this.executions = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Prepares the given query; only called once per query string and keyspace, unless the
+     * entry gets evicted.
+     */
+    abstract ListenableFuture<PreparedStatement> prepare(String query);
+
+    /**
+     * @return the metrics to update, or {@code null} if metrics are disabled.
+     */
+    abstract Metrics metrics();
+
+    /**
+     * Returns the statement to execute in place of the given one: either a {@link BoundStatement}
+     * if the query has already been auto-prepared, or the original statement otherwise.
+     */
+    Statement maybeBind(Statement statement, String loggedKeyspace, ProtocolVersion protocolVersion, CodecRegistry codecRegistry) {
+        if (!queryOptions.isAutoPrepareEnabled()
+                || protocolVersion == ProtocolVersion.V1
+                || !(statement instanceof SimpleStatement))
+            return statement;
+
+        SimpleStatement simpleStatement = (SimpleStatement) statement;
+        if (simpleStatement.usesNamedValues() || simpleStatement.valuesCount() == 0)
+            return statement;
+
+        Cache<Key, Candidate> candidates = candidates();
+        String query = simpleStatement.getQueryString(codecRegistry);
+        Key key = new Key(loggedKeyspace, query);
+        Candidate candidate = candidates.getIfPresent(key);
+        if (candidate == null) {
+            if (executions.increment(key) < queryOptions.getAutoPrepareThreshold()) {
+                Metrics metrics = metrics();
+                if (metrics != null)
+                    metrics.getAutoPrepareMisses().inc();
+                return statement;
+            }
+            candidate = new Candidate();
+            Candidate previous = candidates.asMap().putIfAbsent(key, candidate);
+            if (previous != null)
+                candidate = previous;
+        }
+
+        PreparedStatement prepared = candidate.prepared;
+        if (prepared != null) {
+            BoundStatement bound = bind(prepared, simpleStatement, loggedKeyspace, protocolVersion, codecRegistry);
+            if (bound != null) {
+                Metrics metrics = metrics();
+                if (metrics != null)
+                    metrics.getAutoPrepareHits().inc();
+                return bound;
+            }
+        } else {
+            maybePrepare(key, candidate);
+        }
+        Metrics metrics = metrics();
+        if (metrics != null)
+            metrics.getAutoPrepareMisses().inc();
+        return statement;
+    }
+
+    int size() {
+        return (int) candidates.size();
+    }
+
+    private Cache<Key, Candidate> candidates() {
+        int maximumSize = queryOptions.getAutoPrepareCacheSize();
+        if (maximumSize != this.maximumSize)
+            resize(maximumSize);
+        return candidates;
+    }
+
+    // Candidates added concurrently might be lost, they will simply be tracked again on their next execution
+    private synchronized void resize(int maximumSize) {
+        if (maximumSize == this.maximumSize)
+            return;
+        Cache<Key, Candidate> newCache = newCache(maximumSize);
+        newCache.putAll(candidates.asMap());
+        candidates = newCache;
+        executions = new FrequencySketch(maximumSize);
+        this.maximumSize = maximumSize;
+    }
+
+    private static Cache<Key, Candidate> newCache(int maximumSize) {
+        // Guava evicts the least recently used entries, in amortized constant time
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    private void maybePrepare(final Key key, final Candidate candidate) {
+        if (!candidate.preparing.compareAndSet(false, true))
+            return;
+        ListenableFuture<PreparedStatement> future;
+        try {
+            future = prepare(key.query);
+        } catch (RuntimeException e) {
+            logger.debug(String.format("Could not auto-prepare query %s", key.query), e);
+            return;
+        }
+        Futures.addCallback(future, new FutureCallback<PreparedStatement>() {
+            @Override
+            public void onSuccess(PreparedStatement result) {
+                logger.debug("Auto-prepared query {}", key.query);
+                candidate.prepared = result;
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // Leave the preparing flag set, so that we don't retry a query that can't be prepared
+                // (for example a query that is syntactically invalid); it will eventually get evicted.
+                logger.debug(String.format("Could not auto-prepare query %s", key.query), t);
+            }
+        });
+    }
+
+    /**
+     * Returns a bound statement equivalent to the given simple statement, or {@code null} if the
+     * simple statement can't be executed with the given prepared statement.
+     */
+    private BoundStatement bind(PreparedStatement prepared, SimpleStatement statement, String loggedKeyspace,
+                                ProtocolVersion protocolVersion, CodecRegistry codecRegistry) {
+        if (!Objects.equal(prepared.getQueryKeyspace(), loggedKeyspace)
+                || prepared.getVariables().size() != statement.valuesCount())
+            return null;
+
+        BoundStatement bound = prepared.bind();
+        // Use the values serialized exactly as they would have been for the QUERY message, since
+        // their Java types do not necessarily match the CQL types of the prepared variables.
+        ByteBuffer[] values = statement.getValues(protocolVersion, codecRegistry);
+        System.arraycopy(values, 0, bound.wrapper.values, 0, values.length);
+
+        if (statement.getConsistencyLevel() != null)
+            bound.setConsistencyLevel(statement.getConsistencyLevel());
+        if (statement.getSerialConsistencyLevel() != null)
+            bound.setSerialConsistencyLevel(statement.getSerialConsistencyLevel());
+        if (statement.isTracing())
+            bound.enableTracing();
+        if (statement.getRetryPolicy() != null)
+            bound.setRetryPolicy(statement.getRetryPolicy());
+        if (statement.isIdempotent() != null)
+            bound.setIdempotent(statement.isIdempotent());
+        bound.setFetchSize(statement.getFetchSize());
+        bound.setDefaultTimestamp(statement.getDefaultTimestamp());
+        if (statement.getReadTimeoutMillis() != Integer.MIN_VALUE)
+            bound.setReadTimeoutMillis(statement.getReadTimeoutMillis());
+        bound.setOutgoingPayload(statement.getOutgoingPayload());
+        if (statement.getPagingState() != null)
+            bound.setPagingStateUnsafe(Bytes.getArray(statement.getPagingState()));
+
+        ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+        if (routingKey != null)
+            bound.setRoutingKey(routingKey);
+        if (statement.getRoutingToken() != null)
+            bound.setRoutingToken(statement.getRoutingToken());
+        return bound;
+    }
+
+    private static class Key {
+        private final String keyspace;
+        private final String query;
+
+        Key(String keyspace, String query) {
+            this.keyspace = keyspace;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof Key))
+                return false;
+            Key that = (Key) other;
+            return Objects.equal(this.keyspace, that.keyspace) && this.query.equals(that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(keyspace, query);
+        }
+    }
+
+    private static class Candidate {
+        final AtomicBoolean preparing = new AtomicBoolean();
+        volatile PreparedStatement prepared;
+    }
+}
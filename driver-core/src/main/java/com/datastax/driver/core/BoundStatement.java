@@ -98,6 +98,18 @@ public class BoundStatement extends Statement implements SettableData<BoundState
         return statement;
     }
 
+    /**
+     * Returns the total size in bytes of the values bound so far.
+     */
+    int valuesSize() {
+        int size = 0;
+        for (ByteBuffer value : wrapper.values) {
+            if (value != null)
+                size += value.remaining();
+        }
+        return size;
+    }
+
     /**
      * Returns whether the {@code i}th variable has been bound.
      *
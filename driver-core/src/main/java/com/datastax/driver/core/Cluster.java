@@ -28,6 +28,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.datastax.driver.core.SchemaElement.KEYSPACE;
 
@@ -70,6 +71,9 @@ public class Cluster implements Closeable {
 
     private static final int NOTIF_LOCK_TIMEOUT_SECONDS = SystemProperties.getInt("com.datastax.driver.NOTIF_LOCK_TIMEOUT_SECONDS", 60);
 
+    // Roughly one execution out of 128 of a registered prepared statement is recorded in the registry
+    private static final int PREPARED_TOUCH_SAMPLE_MASK = 127;
+
     final Manager manager;
 
     /**
@@ -411,6 +415,31 @@ public class Cluster implements Closeable {
         return manager.metrics;
     }
 
+    /**
+     * Returns the driver's I/O threads (Netty event loops).
+     * <p/>
+     * Each element is a single thread, that processes the network I/O of a subset of the connections. They can be used
+     * to run application code without any thread hop: in particular, if {@link PoolingOptions#setEventLoopAffinity(boolean)
+     * event loop affinity} is enabled, requests executed from one of these threads use a connection owned by that thread
+     * (if possible), and their callbacks, if registered with a direct executor, also run on it.
+     * <p/>
+     * Tasks submitted to these executors <b>must never block</b> (no synchronous driver calls, no blocking I/O, no
+     * waiting on locks or futures), otherwise they will delay the processing of every request on the connections owned
+     * by the thread, or deadlock it. Their lifecycle is managed by the driver: {@code shutdown()} and
+     * {@code shutdownNow()} throw an {@link UnsupportedOperationException}, the loops stop when the cluster is
+     * {@link #close() closed}.
+     * <p/>
+     * If the cluster is not initialized yet, this method will initialize it.
+     *
+     * @return the event loops, one per I/O thread.
+     * @throws NoHostAvailableException if the Cluster has not been initialized yet and no host amongst the contact
+     *                                  points can be reached.
+     */
+    public List<ScheduledExecutorService> getEventLoops() {
+        manager.init();
+        return manager.connectionFactory.eventLoopExecutors;
+    }
+
     /**
      * Registers the provided listener to be notified on hosts
      * up/down/added/removed events.
@@ -501,6 +530,39 @@ public class Cluster implements Closeable {
         return this;
     }
 
+    /**
+     * Registers the provided tracer to receive the client-side timing breakdown of the requests it accepts.
+     * <p/>
+     * Registering the same tracer multiple times is a no-op.
+     *
+     * @param tracer the new {@link RequestTracer} to register.
+     * @return this {@code Cluster} object;
+     */
+    public Cluster register(RequestTracer tracer) {
+        checkNotClosed(manager);
+        boolean added = manager.requestTracers.add(tracer);
+        if (added)
+            tracer.onRegister(this);
+        return this;
+    }
+
+    /**
+     * Unregisters the provided request tracer.
+     * <p/>
+     * This method is a no-op if {@code tracer} hasn't previously been registered against this Cluster. Requests that
+     * were already accepted by the tracer will still be reported to it.
+     *
+     * @param tracer the {@link RequestTracer} to unregister.
+     * @return this {@code Cluster} object;
+     */
+    public Cluster unregister(RequestTracer tracer) {
+        checkNotClosed(manager);
+        boolean removed = manager.requestTracers.remove(tracer);
+        if (removed)
+            tracer.onUnregister(this);
+        return this;
+    }
+
     /**
      * Registers the provided listener to be updated with schema change events.
      * <p/>
@@ -1082,6 +1144,34 @@ public class Cluster implements Closeable {
             return this;
         }
 
+        /**
+         * Configures the request throttler to use for the new cluster.
+         * <p/>
+         * If no throttler is set through this method, {@link Policies#defaultRequestThrottler()}
+         * will be used instead.
+         *
+         * @param throttler the throttler to use.
+         * @return this Builder.
+         */
+        public Builder withRequestThrottler(RequestThrottler throttler) {
+            policiesBuilder.withRequestThrottler(throttler);
+            return this;
+        }
+
+        /**
+         * Configures the retry budget to use for the new cluster.
+         * <p/>
+         * If no budget is set through this method, {@link Policies#defaultRetryBudget()}
+         * will be used instead.
+         *
+         * @param budget the budget to use.
+         * @return this Builder.
+         */
+        public Builder withRetryBudget(RetryBudget budget) {
+            policiesBuilder.withRetryBudget(budget);
+            return this;
+        }
+
 
         /**
          * Configures the {@link CodecRegistry} instance to use for the new cluster.
@@ -1345,6 +1435,7 @@ public class Cluster implements Closeable {
     class Manager implements Connection.DefaultResponseHandler {
 
         final String clusterName;
+        private final ReentrantLock initLock = new ReentrantLock();
         private boolean isInit;
         private volatile boolean isFullyInit;
 
@@ -1376,13 +1467,15 @@ public class Cluster implements Closeable {
         final AtomicReference<CloseFuture> closeFuture = new AtomicReference<CloseFuture>();
 
         // All the queries that have been prepared (we keep them so we can re-prepared them when a node fail or a
-        // new one join the cluster).
+        // new one join the cluster). The registry is bounded, and keeps track of when each statement was last
+        // used so that the most recent ones are re-prepared first.
         // Note: we could move this down to the session level, but since prepared statement are global to a node,
         // this would yield a slightly less clear behavior.
-        ConcurrentMap<MD5Digest, PreparedStatement> preparedQueries;
+        PreparedStatementRegistry preparedQueries;
 
         final Set<Host.StateListener> listeners;
         final Set<LatencyTracker> latencyTrackers = new CopyOnWriteArraySet<LatencyTracker>();
+        final Set<RequestTracer> requestTracers = new CopyOnWriteArraySet<RequestTracer>();
         final Set<SchemaChangeListener> schemaChangeListeners = new CopyOnWriteArraySet<SchemaChangeListener>();
 
         EventDebouncer<NodeListRefreshRequest> nodeListRefreshRequestDebouncer;
@@ -1396,9 +1489,23 @@ public class Cluster implements Closeable {
             this.listeners = new CopyOnWriteArraySet<Host.StateListener>(listeners);
         }
 
-        // Initialization is not too performance intensive and in practice there shouldn't be contention
-        // on it so synchronized is good enough.
-        synchronized void init() {
+        void init() {
+            // Fast path: this is called by many public methods, don't acquire the lock once we're initialized.
+            if (isFullyInit) {
+                checkNotClosed(this);
+                return;
+            }
+            // Initialization blocks on network I/O, use a lock instead of a monitor so that a virtual thread that
+            // performs it (or waits for it) does not pin its carrier thread.
+            initLock.lock();
+            try {
+                doInit();
+            } finally {
+                initLock.unlock();
+            }
+        }
+
+        private void doInit() {
             checkNotClosed(this);
             if (isInit)
                 return;
@@ -1436,8 +1543,8 @@ public class Cluster implements Closeable {
             this.metadata = new Metadata(this);
             this.connectionFactory = new Connection.Factory(this, configuration);
             this.controlConnection = new ControlConnection(this);
+            this.preparedQueries = new PreparedStatementRegistry(configuration.getQueryOptions().getMaxPreparedStatements());
             this.metrics = configuration.getMetricsOptions().isEnabled() ? new Metrics(this) : null;
-            this.preparedQueries = new MapMaker().weakValues().makeMap();
 
             // create debouncers - at this stage, they are not running yet
             final QueryOptions queryOptions = configuration.getQueryOptions();
@@ -1526,7 +1633,9 @@ public class Cluster implements Closeable {
                 loadBalancingPolicy().init(Cluster.this, contactPointHosts);
 
                 speculativeExecutionPolicy().init(Cluster.this);
+                requestThrottler().init(Cluster.this);
                 configuration.getPolicies().getRetryPolicy().init(Cluster.this);
+                retryBudget().init(Cluster.this);
                 reconnectionPolicy().init(Cluster.this);
                 configuration.getPolicies().getAddressTranslator().init(Cluster.this);
                 for (LatencyTracker tracker : latencyTrackers)
@@ -1624,6 +1733,14 @@ public class Cluster implements Closeable {
             return configuration.getPolicies().getSpeculativeExecutionPolicy();
         }
 
+        RequestThrottler requestThrottler() {
+            return configuration.getPolicies().getRequestThrottler();
+        }
+
+        RetryBudget retryBudget() {
+            return configuration.getPolicies().getRetryBudget();
+        }
+
         ReconnectionPolicy reconnectionPolicy() {
             return configuration.getPolicies().getReconnectionPolicy();
         }
@@ -1645,8 +1762,16 @@ public class Cluster implements Closeable {
         }
 
         void reportQuery(Host host, Statement statement, Exception exception, long latencyNanos) {
+            reportQuery(host, statement, exception, latencyNanos, null);
+        }
+
+        void reportQuery(Host host, Statement statement, Exception exception, long latencyNanos, Message.Response response) {
             for (LatencyTracker tracker : latencyTrackers) {
-                tracker.update(host, statement, exception, latencyNanos);
+                // StatementMetricsTracker also records the size of the response, which is not part of the public API
+                if (tracker instanceof StatementMetricsTracker)
+                    ((StatementMetricsTracker) tracker).update(host, statement, exception, latencyNanos, response);
+                else
+                    tracker.update(host, statement, exception, latencyNanos);
             }
         }
 
@@ -1683,11 +1808,15 @@ public class Cluster implements Closeable {
 
                 loadBalancingPolicy().close();
                 speculativeExecutionPolicy().close();
+                requestThrottler().close();
                 configuration.getPolicies().getRetryPolicy().close();
+                retryBudget().close();
                 reconnectionPolicy().close();
                 configuration.getPolicies().getAddressTranslator().close();
                 for (LatencyTracker tracker : latencyTrackers)
                     tracker.onUnregister(Cluster.this);
+                for (RequestTracer tracer : requestTracers)
+                    tracer.onUnregister(Cluster.this);
                 for (Host.StateListener listener : listeners)
                     listener.onUnregister(Cluster.this);
                 for (SchemaChangeListener listener : schemaChangeListeners)
@@ -2168,6 +2297,9 @@ public class Cluster implements Closeable {
                 for (SessionManager s : sessions)
                     s.onRemove(host);
 
+                if (metrics != null)
+                    metrics.getTrafficMetrics().removeHost(host);
+
                 for (Host.StateListener listener : listeners)
                     listener.onRemove(host);
             } finally {
@@ -2209,18 +2341,75 @@ public class Cluster implements Closeable {
         }
 
         public PreparedStatement addPrepared(PreparedStatement stmt) {
-            PreparedStatement previous = preparedQueries.putIfAbsent(stmt.getPreparedId().id, stmt);
+            return addPrepared(stmt, true);
+        }
+
+        PreparedStatement addPrepared(PreparedStatement stmt, boolean warnIfAlreadyPrepared) {
+            PreparedStatement previous = preparedQueries.putIfAbsent(stmt);
             if (previous != null) {
-                logger.warn("Re-preparing already prepared query {}. Please note that preparing the same query more than once is "
-                        + "generally an anti-pattern and will likely affect performance. Consider preparing the statement only once.", stmt.getQueryString());
+                if (warnIfAlreadyPrepared)
+                    logger.warn("Re-preparing already prepared query {}. Please note that preparing the same query more than once is "
+                            + "generally an anti-pattern and will likely affect performance. Consider preparing the statement only once.", stmt.getQueryString());
 
-                // The one object in the cache will get GCed once it's not referenced by the client anymore since we use a weak reference.
-                // So we need to make sure that the instance we do return to the user is the one that is in the cache.
+                // Make sure that the instance we return to the user is the one that is in the cache, so that
+                // executions of both instances are accounted for as the same statement.
                 return previous;
             }
             return stmt;
         }
 
+        /**
+         * Checks that the prepared statement of the given bound statement is registered, and registers it again
+         * if it was evicted from the registry in the meantime.
+         * <p/>
+         * This is called for every execution, so only a sample of the executions are recorded in the registry.
+         *
+         * @return whether the statement is known by this cluster.
+         */
+        boolean touchPrepared(BoundStatement bs) {
+            PreparedStatement stmt = bs.preparedStatement();
+            if (preparedQueries.contains(stmt.getPreparedId().id)) {
+                // Identity hash codes are pseudo-random and don't touch any shared state, so they make a cheap
+                // sampling source.
+                if ((System.identityHashCode(bs) & PREPARED_TOUCH_SAMPLE_MASK) == 0)
+                    preparedQueries.touch(stmt);
+                return true;
+            }
+            // It was either evicted, or prepared by another Cluster instance
+            if (!(stmt instanceof DefaultPreparedStatement) || ((DefaultPreparedStatement) stmt).cluster != Cluster.this)
+                return false;
+            preparedQueries.putIfAbsent(stmt);
+            return true;
+        }
+
+        /**
+         * Returns the prepared statement to re-prepare after an UNPREPARED error for the given id.
+         * <p/>
+         * If the statement was evicted from the registry since the request was sent, it is looked up
+         * in the statement that was executed.
+         */
+        PreparedStatement findPrepared(MD5Digest id, Statement statement) {
+            PreparedStatement stmt = preparedQueries.get(id);
+            if (stmt != null)
+                return stmt;
+            if (statement instanceof StatementWrapper)
+                statement = ((StatementWrapper) statement).getWrappedStatement();
+            if (statement instanceof BoundStatement) {
+                stmt = ((BoundStatement) statement).preparedStatement();
+                if (id.equals(stmt.getPreparedId().id))
+                    return addPrepared(stmt, false);
+            } else if (statement instanceof BatchStatement) {
+                for (Statement child : ((BatchStatement) statement).getStatements()) {
+                    if (child instanceof BoundStatement) {
+                        stmt = ((BoundStatement) child).preparedStatement();
+                        if (id.equals(stmt.getPreparedId().id))
+                            return addPrepared(stmt, false);
+                    }
+                }
+            }
+            return null;
+        }
+
         /**
          * @param reusedConnection an existing connection (from a reconnection attempt) that we want to
          *                         reuse to prepare the statements (might be null).
@@ -2231,7 +2420,17 @@ public class Cluster implements Closeable {
             if (preparedQueries.isEmpty())
                 return reusedConnection;
 
-            logger.debug("Preparing {} prepared queries on newly up node {}", preparedQueries.size(), host);
+            QueryOptions queryOptions = configuration.getQueryOptions();
+            // Most used statements first. Statements beyond the limit will be re-prepared
+            // lazily, the first time they are executed on this host (see RequestHandler's UNPREPARED handling).
+            List<PreparedStatement> toPrepare = preparedQueries.valuesByUsage();
+            int limit = queryOptions.getMaxRepreparedStatementsOnUp();
+            if (toPrepare.size() > limit)
+                toPrepare = toPrepare.subList(0, limit);
+            if (toPrepare.isEmpty())
+                return reusedConnection;
+
+            logger.debug("Preparing {} prepared queries (out of {}) on newly up node {}", toPrepare.size(), preparedQueries.size(), host);
             Connection connection = null;
             try {
                 connection = (reusedConnection == null)
@@ -2252,34 +2451,46 @@ public class Cluster implements Closeable {
                 // We need to make sure we prepared every query with the right current keyspace, i.e. the one originally
                 // used for preparing it. However, since we are likely that all prepared query belong to only a handful
                 // of different keyspace (possibly only one), and to avoid setting the current keyspace more than needed,
-                // we first sort the query per keyspace.
-                SetMultimap<String, String> perKeyspace = HashMultimap.create();
-                for (PreparedStatement ps : preparedQueries.values()) {
+                // we first sort the query per keyspace (preserving the usage order within each keyspace).
+                ListMultimap<String, String> perKeyspace = LinkedListMultimap.create();
+                for (PreparedStatement ps : toPrepare) {
                     // It's possible for a query to not have a current keyspace. But since null doesn't work well as
                     // map keys, we use the empty string instead (that is not a valid keyspace name).
                     String keyspace = ps.getQueryKeyspace() == null ? "" : ps.getQueryKeyspace();
                     perKeyspace.put(keyspace, ps.getQueryString());
                 }
 
+                // Pipeline the requests, but bound the number of in-flight requests so that we don't run out of
+                // stream ids on the connection.
+                int concurrency = queryOptions.getReprepareConcurrency();
+                final Semaphore permits = new Semaphore(concurrency);
                 for (String keyspace : perKeyspace.keySet()) {
                     // Empty string mean no particular keyspace to set
                     if (!keyspace.isEmpty())
                         connection.setKeyspace(keyspace);
 
-                    List<Connection.Future> futures = new ArrayList<Connection.Future>(preparedQueries.size());
                     for (String query : perKeyspace.get(keyspace)) {
-                        futures.add(connection.write(new Requests.Prepare(query)));
-                    }
-                    for (Connection.Future future : futures) {
-                        try {
-                            future.get();
-                        } catch (ExecutionException e) {
-                            // This "might" happen if we drop a CF but haven't removed it's prepared queries (which we don't do
-                            // currently). It's not a big deal however as if it's a more serious problem it'll show up later when
-                            // the query is tried for execution.
-                            logger.debug("Unexpected error while preparing queries on new/newly up host", e);
-                        }
+                        permits.acquire();
+                        Connection.Future future = connection.write(new Requests.Prepare(query));
+                        Futures.addCallback(future, new FutureCallback<Message.Response>() {
+                            @Override
+                            public void onSuccess(Message.Response result) {
+                                permits.release();
+                            }
+
+                            @Override
+                            public void onFailure(Throwable t) {
+                                permits.release();
+                                // This "might" happen if we drop a CF but haven't removed it's prepared queries (which we don't do
+                                // currently). It's not a big deal however as if it's a more serious problem it'll show up later when
+                                // the query is tried for execution.
+                                logger.debug("Unexpected error while preparing queries on new/newly up host", t);
+                            }
+                        });
                     }
+                    // Wait for all the queries of this keyspace before switching to the next one
+                    permits.acquire(concurrency);
+                    permits.release(concurrency);
                 }
 
                 return connection;
@@ -2425,6 +2636,8 @@ public class Cluster implements Closeable {
                         return;
 
                     ProtocolEvent.SchemaChange scc = (ProtocolEvent.SchemaChange) event;
+                    if (!configuration.getQueryOptions().isMetadataKeyspace(scc.targetKeyspace))
+                        return;
                     switch (scc.change) {
                         case CREATED:
                         case UPDATED:
@@ -17,12 +17,14 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.datastax.driver.core.DataType.Name.*;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -217,6 +219,87 @@ public final class CodecRegistry {
 
     }
 
+    /**
+     * Cache key for the value-based lookups cache: the runtime classes of the value and, for collections, of the first
+     * element (or key and value for maps).
+     */
+    private static final class ValueCacheKey {
+
+        private final DataType cqlType;
+
+        private final Class<?> javaClass;
+
+        private final Class<?> firstElementClass;
+
+        private final Class<?> secondElementClass;
+
+        private ValueCacheKey(DataType cqlType, Class<?> javaClass, Class<?> firstElementClass, Class<?> secondElementClass) {
+            this.cqlType = cqlType;
+            this.javaClass = javaClass;
+            this.firstElementClass = firstElementClass;
+            this.secondElementClass = secondElementClass;
+        }
+
+        /**
+         * @return the key, or {@code null} if the lookup for this value can never be cached.
+         */
+        static ValueCacheKey of(DataType cqlType, Object value) {
+            if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                if (collection.isEmpty())
+                    return new ValueCacheKey(cqlType, value.getClass(), null, null);
+                Object element = collection.iterator().next();
+                return isKeyable(element)
+                        ? new ValueCacheKey(cqlType, value.getClass(), element.getClass(), null)
+                        : null;
+            }
+            if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                if (map.isEmpty())
+                    return new ValueCacheKey(cqlType, value.getClass(), null, null);
+                Map.Entry<?, ?> entry = map.entrySet().iterator().next();
+                return isKeyable(entry.getKey()) && isKeyable(entry.getValue())
+                        ? new ValueCacheKey(cqlType, value.getClass(), entry.getKey().getClass(), entry.getValue().getClass())
+                        : null;
+            }
+            // codecs for tuples and UDTs depend on the type attached to the value
+            if (value instanceof TupleValue || value instanceof UDTValue)
+                return null;
+            return new ValueCacheKey(cqlType, value.getClass(), null, null);
+        }
+
+        // the codec for a nested collection depends on elements that are not part of the key
+        private static boolean isKeyable(Object element) {
+            return element != null && !(element instanceof Collection) && !(element instanceof Map)
+                    && !(element instanceof TupleValue) && !(element instanceof UDTValue);
+        }
+
+        boolean mayBeAcceptedBy(TypeCodec<?> codec) {
+            Class<?> rawType = codec.getJavaType().getRawType();
+            return rawType.isAssignableFrom(javaClass)
+                    || (firstElementClass != null && rawType.isAssignableFrom(firstElementClass))
+                    || (secondElementClass != null && rawType.isAssignableFrom(secondElementClass));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            ValueCacheKey that = (ValueCacheKey) o;
+            return MoreObjects.equal(cqlType, that.cqlType)
+                    && javaClass == that.javaClass
+                    && firstElementClass == that.firstElementClass
+                    && secondElementClass == that.secondElementClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return MoreObjects.hashCode(cqlType, javaClass, firstElementClass, secondElementClass);
+        }
+    }
+
     /**
      * Cache loader for the codecs cache.
      */
@@ -313,12 +396,31 @@ public final class CodecRegistry {
      */
     private final LoadingCache<CacheKey, TypeCodec<?>> cache;
 
+    /**
+     * Serves value-based lookups ({@link #codecFor(Object)} and {@link #codecFor(DataType, Object)}), when their result
+     * only depends on the runtime classes in the {@link ValueCacheKey}.
+     */
+    private final Cache<ValueCacheKey, TypeCodec<?>> valueCache;
+
+    /**
+     * Incremented by each registration, so that a value lookup that raced with a registration does not leave a codec
+     * computed from the previous set of codecs in {@link #valueCache}.
+     */
+    private final AtomicInteger valueCacheGeneration = new AtomicInteger();
+
+    /**
+     * The registered codecs that inspect the contents of values; lookups for values they might accept are not cached.
+     */
+    private final List<TypeCodec<?>> contentInspectingCodecs;
+
     /**
      * Creates a new instance initialized with built-in codecs for all the base CQL types.
      */
     public CodecRegistry() {
         this.codecs = new CopyOnWriteArrayList<TypeCodec<?>>();
         this.cache = defaultCacheBuilder().build(new TypeCodecCacheLoader());
+        this.valueCache = CacheBuilder.newBuilder().maximumSize(1000).build();
+        this.contentInspectingCodecs = new CopyOnWriteArrayList<TypeCodec<?>>();
     }
 
     private CacheBuilder<CacheKey, TypeCodec<?>> defaultCacheBuilder() {
@@ -365,6 +467,11 @@ public final class CodecRegistry {
             return this;
         }
         this.codecs.add(newCodec);
+        if (!acceptsByClass(newCodec))
+            contentInspectingCodecs.add(newCodec);
+        // the new codec may now be picked instead of a generated one
+        valueCacheGeneration.incrementAndGet();
+        valueCache.invalidateAll();
         return this;
     }
 
@@ -399,9 +506,7 @@ public final class CodecRegistry {
      * <p/>
      * This method takes an arbitrary Java object and tries to locate a suitable codec for it.
      * Codecs must perform a {@link TypeCodec#accepts(Object) runtime inspection} of the object to determine
-     * if they can accept it or not, which, depending on the implementations, can be expensive; besides, the
-     * resulting codec cannot be cached.
-     * Therefore there might be a performance penalty when using this method.
+     * if they can accept it or not, which, depending on the implementations, can be expensive.
      * <p/>
      * Furthermore, this method returns the first matching codec, regardless of its accepted CQL type.
      * It should be reserved for situations where the target CQL type is not available or unknown.
@@ -409,8 +514,10 @@ public final class CodecRegistry {
      * {@link SimpleStatement#SimpleStatement(String, Object...) SimpleStatement} or in the
      * {@link com.datastax.driver.core.querybuilder.QueryBuilder}, where no CQL type information is available.
      * <p/>
-     * Codecs returned by this method are <em>NOT</em> cached (see the {@link CodecRegistry top-level documentation}
-     * of this class for more explanations about caching).
+     * Codecs returned by this method are cached by the runtime class of the value (and, for collections, of their first
+     * element), but only when the result can't depend on anything else: if a codec that inspects the contents of
+     * values (by overriding {@link TypeCodec#accepts(Object)}) could accept the value, the lookup is not cached (see the
+     * {@link CodecRegistry top-level documentation} of this class for more explanations about caching).
      *
      * @param value The value the codec should accept; must not be {@code null}.
      * @return A suitable codec.
@@ -482,12 +589,12 @@ public final class CodecRegistry {
      * <p/>
      * This method takes an arbitrary Java object and tries to locate a suitable codec for it.
      * Codecs must perform a {@link TypeCodec#accepts(Object) runtime inspection} of the object to determine
-     * if they can accept it or not, which, depending on the implementations, can be expensive; besides, the
-     * resulting codec cannot be cached.
-     * Therefore there might be a performance penalty when using this method.
+     * if they can accept it or not, which, depending on the implementations, can be expensive.
      * <p/>
-     * Codecs returned by this method are <em>NOT</em> cached (see the {@link CodecRegistry top-level documentation}
-     * of this class for more explanations about caching).
+     * Codecs returned by this method are cached by the runtime class of the value (and, for collections, of their first
+     * element), but only when the result can't depend on anything else: if a codec that inspects the contents of
+     * values (by overriding {@link TypeCodec#accepts(Object)}) could accept the value, the lookup is not cached (see the
+     * {@link CodecRegistry top-level documentation} of this class for more explanations about caching).
      *
      * @param cqlType The {@link DataType CQL type} the codec should accept; can be {@code null}.
      * @param value   The value the codec should accept; must not be {@code null}.
@@ -552,6 +659,62 @@ public final class CodecRegistry {
     @SuppressWarnings("unchecked")
     private <T> TypeCodec<T> findCodec(DataType cqlType, T value) {
         checkNotNull(value, "Parameter value cannot be null");
+        ValueCacheKey key = ValueCacheKey.of(cqlType, value);
+        if (key != null) {
+            TypeCodec<?> codec = valueCache.getIfPresent(key);
+            if (codec != null)
+                return (TypeCodec<T>) codec;
+        }
+        int generation = valueCacheGeneration.get();
+        TypeCodec<T> codec = scanCodecs(cqlType, value);
+        if (key != null && isCacheable(codec, key)) {
+            valueCache.put(key, codec);
+            // If a codec was registered since the scan, its invalidateAll() might have run before our put: undo it
+            if (valueCacheGeneration.get() != generation)
+                valueCache.invalidate(key);
+        }
+        return codec;
+    }
+
+    private boolean isCacheable(TypeCodec<?> codec, ValueCacheKey key) {
+        if (!acceptsByClass(codec))
+            return false;
+        // a codec registered before the one we found might accept other values of the same classes
+        for (TypeCodec<?> inspecting : contentInspectingCodecs) {
+            if (key.mayBeAcceptedBy(inspecting))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the codec's {@link TypeCodec#accepts(Object)} only depends on the runtime class of the value (and, for
+     * collections, of its first element).
+     */
+    private static boolean acceptsByClass(TypeCodec<?> codec) {
+        Class<?> declaringClass = acceptsDeclaringClass(codec);
+        if (declaringClass == TypeCodec.class)
+            return true;
+        if (declaringClass == TypeCodec.AbstractCollectionCodec.class)
+            return acceptsDeclaringClass(((TypeCodec.AbstractCollectionCodec<?, ?>) codec).eltCodec) == TypeCodec.class;
+        if (declaringClass == TypeCodec.AbstractMapCodec.class) {
+            TypeCodec.AbstractMapCodec<?, ?> mapCodec = (TypeCodec.AbstractMapCodec<?, ?>) codec;
+            return acceptsDeclaringClass(mapCodec.keyCodec) == TypeCodec.class
+                    && acceptsDeclaringClass(mapCodec.valueCodec) == TypeCodec.class;
+        }
+        return false;
+    }
+
+    private static Class<?> acceptsDeclaringClass(TypeCodec<?> codec) {
+        try {
+            return codec.getClass().getMethod("accepts", Object.class).getDeclaringClass();
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e); // can't happen, the method is public in TypeCodec
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> TypeCodec<T> scanCodecs(DataType cqlType, T value) {
         if (logger.isTraceEnabled())
             logger.trace("Looking for codec [{} <-> {}]", toString(cqlType), value.getClass());
 
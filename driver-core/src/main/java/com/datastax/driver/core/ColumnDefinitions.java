@@ -8,6 +8,8 @@ package com.datastax.driver.core;
 
 import java.util.*;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Metadata describing the columns returned in a {@link ResultSet} or a
  * {@link PreparedStatement}.
@@ -229,6 +231,14 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
     }
 
     int[] findAllIdx(String name) {
+        // Fast path: the keys are lower-cased names, so an unquoted name that matches a key exactly is already in its
+        // normalized form (this is the common case of lower-case string literals, and it avoids lower-casing).
+        if (name.length() == 0 || name.charAt(0) != '"') {
+            int[] indexes = byName.get(name);
+            if (indexes != null)
+                return indexes;
+        }
+
         boolean caseSensitive = false;
         if (name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
             name = name.substring(1, name.length() - 1);
@@ -247,6 +257,8 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
 
         if (nbMatch == indexes.length)
             return indexes;
+        if (nbMatch == 0)
+            return null;
 
         int[] result = new int[nbMatch];
         int j = 0;
@@ -271,6 +283,86 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
         return getAllIdx(name)[0];
     }
 
+    /**
+     * Creates a reusable handle to access the column with the given name.
+     * <p/>
+     * Accessing a column by name requires a lookup (and possibly a case conversion) on every call. A handle
+     * remembers the index it resolved for the last {@code ColumnDefinitions} instance it was used with, so that it only
+     * looks the name up again when used with different metadata. All the rows of a result set page share the same
+     * metadata, and so do all the bound statements created from the same prepared statement, so the following code
+     * only resolves the name once per page:
+     * <pre>
+     * ColumnDefinitions.Handle name = ColumnDefinitions.handle("name");
+     * for (Row row : resultSet) {
+     *     String value = row.getString(name.getIndex(row.getColumnDefinitions()));
+     * }
+     * </pre>
+     * Handles are thread-safe, and are typically stored in constants.
+     *
+     * @param name the name of the column, following the same case-sensitivity rules as the by-name getters and setters
+     *             (see the {@link ColumnDefinitions top-level documentation}).
+     * @return the handle.
+     */
+    public static Handle handle(String name) {
+        return new Handle(name);
+    }
+
+    /**
+     * A reusable reference to a column, created with {@link ColumnDefinitions#handle(String)}.
+     */
+    public static class Handle {
+
+        private final String name;
+
+        // The last resolution; replaced as a whole so that the metadata and its index are always read consistently.
+        private volatile Resolution last;
+
+        private Handle(String name) {
+            this.name = checkNotNull(name, "name cannot be null");
+        }
+
+        /**
+         * Returns the name this handle refers to, as it was provided when the handle was created.
+         *
+         * @return the name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the index of the first occurrence of this handle's column in the given metadata.
+         *
+         * @param definitions the metadata, for example {@link Row#getColumnDefinitions()} or
+         *                    {@link PreparedStatement#getVariables()}.
+         * @return the index.
+         * @throws IllegalArgumentException if the column is not part of the metadata.
+         */
+        public int getIndex(ColumnDefinitions definitions) {
+            Resolution resolution = last;
+            if (resolution == null || resolution.definitions != definitions) {
+                resolution = new Resolution(definitions, definitions.getFirstIdx(name));
+                last = resolution;
+            }
+            return resolution.index;
+        }
+
+        @Override
+        public String toString() {
+            return "Handle(" + name + ")";
+        }
+
+        private static class Resolution {
+            final ColumnDefinitions definitions;
+            final int index;
+
+            Resolution(ColumnDefinitions definitions, int index) {
+                this.definitions = definitions;
+                this.index = index;
+            }
+        }
+    }
+
     /**
      * A column definition.
      */
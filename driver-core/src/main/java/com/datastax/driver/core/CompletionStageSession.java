@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.dse.IgnoreJDK6Requirement;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * A session that can return results as Java 8 {@link CompletionStage}s.
+ * <p/>
+ * This interface requires Java 8 or higher. It exists separately from {@code Session} so that the driver remains
+ * usable with older JDKs, and to avoid breaking clients that implemented {@code Session}. In practice, when running on
+ * Java 8 or higher, any session returned by the driver (including {@link com.datastax.driver.dse.DseSession}) is also
+ * a completion stage session, and can be safely casted.
+ * <p/>
+ * For regular queries, the returned stages are completed directly by the driver's request handler: contrary to
+ * adapting the result of {@link #executeAsync(Statement)}, this does not create any intermediary future.
+ */
+@IgnoreJDK6Requirement
+public interface CompletionStageSession extends Session {
+
+    /**
+     * Executes the provided query asynchronously, and returns the result as a completion stage.
+     * <p/>
+     * This is the equivalent of {@link #executeAsync(Statement)}. The stage is completed on the thread that receives
+     * the response (usually one of the driver's I/O threads), so any non-async dependent action registered on it
+     * must not block. Use {@link #executeAsyncStage(Statement, Executor)} to complete it on another executor.
+     * <p/>
+     * Cancelling the {@link CompletionStage#toCompletableFuture() corresponding future} cancels the request driver
+     * side, like {@link ResultSetFuture#cancel(boolean)}.
+     *
+     * @param statement the CQL query to execute (that can be any {@code Statement}).
+     * @return a stage that will complete with the result of the query.
+     */
+    CompletionStage<ResultSet> executeAsyncStage(Statement statement);
+
+    /**
+     * Executes the provided query asynchronously, and returns the result as a completion stage that is completed on
+     * the given executor.
+     * <p/>
+     * Non-async dependent actions registered on the stage before it completes will run on that executor. If the
+     * executor rejects the completion task, the stage completes exceptionally with the rejection.
+     *
+     * @param statement the CQL query to execute (that can be any {@code Statement}).
+     * @param executor  the executor that completes the stage.
+     * @return a stage that will complete with the result of the query.
+     */
+    CompletionStage<ResultSet> executeAsyncStage(Statement statement, Executor executor);
+
+    /**
+     * Executes the provided query asynchronously, and returns the result as a completion stage.
+     * <p/>
+     * This is a convenience method for {@code executeAsyncStage(new SimpleStatement(query))}.
+     *
+     * @param query the CQL query to execute.
+     * @return a stage that will complete with the result of the query.
+     */
+    CompletionStage<ResultSet> executeAsyncStage(String query);
+
+    /**
+     * Prepares the provided query string asynchronously, and returns the result as a completion stage.
+     * <p/>
+     * This is the equivalent of {@link #prepareAsync(String)}.
+     *
+     * @param query the CQL query string to prepare.
+     * @return a stage that will complete with the prepared statement.
+     */
+    CompletionStage<PreparedStatement> prepareAsyncStage(String query);
+
+    /**
+     * Prepares the provided query asynchronously, and returns the result as a completion stage.
+     * <p/>
+     * This is the equivalent of {@link #prepareAsync(RegularStatement)}.
+     *
+     * @param statement the statement to prepare.
+     * @return a stage that will complete with the prepared statement.
+     */
+    CompletionStage<PreparedStatement> prepareAsyncStage(RegularStatement statement);
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.dse.IgnoreJDK6Requirement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Implementation of {@link CompletionStageSession}.
+ * <p/>
+ * All the code that references Java 8 types lives here (instead of {@code SessionManager}), so that the sessions can
+ * still be loaded by older JVMs: methods that return {@code CompletionStage} only delegate to this class, and are never
+ * linked unless they are invoked.
+ */
+@IgnoreJDK6Requirement
+class CompletionStages {
+
+    private CompletionStages() {
+    }
+
+    static CompletionStage<ResultSet> executeAsync(final SessionManager session, final Statement statement, Executor executor) {
+        final ResultSetStage stage = new ResultSetStage(executor);
+        if (session.isInit()) {
+            stage.start(session, statement);
+        } else {
+            // See SessionManager.executeAsync: we can't build the request message until the session is initialized.
+            session.initAsync().addListener(new Runnable() {
+                @Override
+                public void run() {
+                    stage.start(session, statement);
+                }
+            }, session.executor());
+        }
+        return stage;
+    }
+
+    static <T> CompletionStage<T> fromListenableFuture(ListenableFuture<T> future) {
+        ListenableFutureStage<T> stage = new ListenableFutureStage<T>(future);
+        Futures.addCallback(future, stage);
+        return stage;
+    }
+
+    /**
+     * A stage that is completed directly by the request handler.
+     * <p/>
+     * The handler expects a {@link DefaultResultSetFuture} (which handles the various kinds of responses), so we pass
+     * it a subclass that forwards its result to this stage instead of storing it.
+     */
+    @IgnoreJDK6Requirement
+    static class ResultSetStage extends CompletableFuture<ResultSet> {
+
+        private final Executor executor;
+        private volatile DefaultResultSetFuture source;
+
+        ResultSetStage(Executor executor) {
+            this.executor = executor;
+        }
+
+        void start(SessionManager session, Statement statement) {
+            DefaultResultSetFuture callback;
+            Statement toExecute;
+            try {
+                toExecute = session.maybeAutoPrepare(statement);
+                callback = new Callback(session, session.cluster.manager.protocolVersion(),
+                        session.makeRequestMessage(toExecute, null));
+            } catch (RuntimeException e) {
+                completeExceptionally(e);
+                return;
+            }
+            source = callback;
+            // The stage might have been cancelled before we set the source
+            if (isCancelled())
+                return;
+            session.execute(callback, toExecute);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning))
+                return false;
+            DefaultResultSetFuture source = this.source;
+            if (source != null)
+                source.cancel(mayInterruptIfRunning);
+            return true;
+        }
+
+        private void completeWith(final ResultSet rs, final Throwable error) {
+            if (executor == null) {
+                doComplete(rs, error);
+            } else {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            doComplete(rs, error);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    completeExceptionally(e);
+                }
+            }
+        }
+
+        private void doComplete(ResultSet rs, Throwable error) {
+            if (error == null)
+                complete(rs);
+            else
+                completeExceptionally(error);
+        }
+
+        private class Callback extends DefaultResultSetFuture {
+
+            Callback(SessionManager session, ProtocolVersion protocolVersion, Message.Request request) {
+                super(session, protocolVersion, request);
+            }
+
+            @Override
+            protected boolean set(ResultSet rs) {
+                completeWith(rs, null);
+                return true;
+            }
+
+            @Override
+            protected boolean setException(Throwable throwable) {
+                completeWith(null, throwable);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A stage that adapts a Guava future with a single callback, and propagates cancellation to it.
+     */
+    @IgnoreJDK6Requirement
+    static class ListenableFutureStage<T> extends CompletableFuture<T> implements FutureCallback<T> {
+
+        private final ListenableFuture<T> source;
+
+        ListenableFutureStage(ListenableFuture<T> source) {
+            this.source = source;
+        }
+
+        @Override
+        public void onSuccess(T result) {
+            complete(result);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            completeExceptionally(t);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning))
+                return false;
+            source.cancel(mayInterruptIfRunning);
+            return true;
+        }
+    }
+}
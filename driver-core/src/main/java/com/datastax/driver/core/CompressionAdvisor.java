@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+/**
+ * Decides whether outgoing frames of a given type are worth compressing, based on the ratio measured on previous
+ * frames of the same type (see {@link ProtocolOptions#setAdaptiveCompression(boolean)}).
+ * <p/>
+ * For each opcode, the advisor measures the ratio over a window of compressed frames. If compression saved less than
+ * {@code 1 - MAX_RATIO} of the bytes, it stops compressing that opcode, and probes it again (with a new window) after
+ * a number of frames were sent uncompressed, in case the payloads have changed.
+ * <p/>
+ * One instance is created per connection, and it is only accessed from the channel's event loop (in the frame
+ * compressor), so it does not need any synchronization.
+ */
+class CompressionAdvisor {
+
+    // Number of compressed frames over which the ratio is measured
+    static final int WINDOW = 64;
+
+    // Compression is disabled if the compressed size is more than this fraction of the uncompressed size
+    static final double MAX_RATIO = 0.9;
+
+    // Number of frames sent uncompressed before we measure again
+    static final int PROBE_INTERVAL = 1024;
+
+    // Indexed by opcode, created lazily
+    private final Stats[] stats = new Stats[256];
+
+    boolean shouldCompress(int opcode) {
+        Stats s = stats[opcode & 0xFF];
+        if (s == null || !s.disabled)
+            return true;
+        s.skipped += 1;
+        if (s.skipped >= PROBE_INTERVAL) {
+            s.reset();
+            return true;
+        }
+        return false;
+    }
+
+    void record(int opcode, int uncompressedSize, int compressedSize) {
+        Stats s = stats[opcode & 0xFF];
+        if (s == null) {
+            s = new Stats();
+            stats[opcode & 0xFF] = s;
+        }
+        s.uncompressed += uncompressedSize;
+        s.compressed += compressedSize;
+        s.samples += 1;
+        if (s.samples >= WINDOW) {
+            if (s.compressed > MAX_RATIO * s.uncompressed)
+                s.disabled = true;
+            else
+                // keep compressing, but start a new window
+                s.reset();
+        }
+    }
+
+    boolean isDisabled(int opcode) {
+        Stats s = stats[opcode & 0xFF];
+        return s != null && s.disabled;
+    }
+
+    private static class Stats {
+        long uncompressed;
+        long compressed;
+        int samples;
+        boolean disabled;
+        int skipped;
+
+        void reset() {
+            uncompressed = 0;
+            compressed = 0;
+            samples = 0;
+            disabled = false;
+            skipped = 0;
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.datastax.driver.core.exceptions.*;
 import com.datastax.driver.core.utils.MoreFutures;
 import com.datastax.driver.core.utils.MoreObjects;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.util.concurrent.*;
@@ -26,6 +27,7 @@ import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import io.netty.util.TimerTask;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -90,6 +92,11 @@ class Connection {
 
     private final AtomicReference<Owner> ownerRef = new AtomicReference<Owner>();
 
+    // set before the channel is initialized
+    private volatile ConnectionTraffic traffic;
+    // set before the channel is initialized, null if read timeouts are scheduled on the timer
+    private volatile DeadlineSweeper deadlineSweeper;
+
     /**
      * Create a new connection to a Cassandra node and associate it with the given pool.
      *
@@ -125,10 +132,14 @@ class Connection {
         final SettableFuture<Void> channelReadyFuture = SettableFuture.create();
 
         try {
-            Bootstrap bootstrap = factory.newBootstrap();
+            Bootstrap bootstrap = factory.newBootstrap(affineEventLoop());
             ProtocolOptions protocolOptions = factory.configuration.getProtocolOptions();
+            traffic = ConnectionTraffic.create(factory.manager.metrics, this);
+            int sweepIntervalMillis = factory.configuration.getSocketOptions().getReadTimeoutSweepIntervalMillis();
+            if (sweepIntervalMillis > 0)
+                deadlineSweeper = new DeadlineSweeper(sweepIntervalMillis);
             bootstrap.handler(
-                    new Initializer(this, protocolVersion, protocolOptions.getCompression().compressor(), protocolOptions.getSSLOptions(),
+                    new Initializer(this, traffic, protocolVersion, protocolOptions.getCompression().compressor(), protocolOptions.getSSLOptions(),
                             factory.configuration.getPoolingOptions().getHeartbeatIntervalSeconds(),
                             factory.configuration.getNettyOptions(),
                             factory.configuration.getCodecRegistry()));
@@ -156,7 +167,10 @@ class Connection {
                             channelReadyFuture.setException(new TransportException(Connection.this.address, "Cannot connect", future.cause()));
                         } else {
                             logger.debug("{} Connection established, initializing transport", Connection.this);
+                            traffic.register();
                             channel.closeFuture().addListener(new ChannelCloseListener());
+                            if (deadlineSweeper != null)
+                                deadlineSweeper.start(channel.eventLoop());
                             channelReadyFuture.set(null);
                         }
                     }
@@ -208,6 +222,22 @@ class Connection {
         return initFuture;
     }
 
+    // With event loop affinity, the pool picks the event loop of its connections
+    private EventLoop affineEventLoop() {
+        Owner owner = ownerRef.get();
+        return (owner instanceof HostConnectionPool && factory.configuration.getPoolingOptions().isEventLoopAffinity())
+                ? ((HostConnectionPool) owner).nextEventLoop()
+                : null;
+    }
+
+    /**
+     * @return whether this connection's channel is registered with the given event loop.
+     */
+    boolean isOwnedBy(EventLoop eventLoop) {
+        Channel channel = this.channel;
+        return channel != null && channel.eventLoop() == eventLoop;
+    }
+
     private static String extractMessage(Throwable t) {
         if (t == null)
             return "";
@@ -565,8 +595,18 @@ class Connection {
 
     ResponseHandler write(ResponseCallback callback, long statementReadTimeoutMillis, boolean startTimeout, boolean multipleResponses)
             throws ConnectionException, BusyConnectionException {
+        return write(callback, statementReadTimeoutMillis, startTimeout, multipleResponses, null);
+    }
+
+    /**
+     * @param attempt if not {@code null}, the trace attempt that will record when the request is written and when its
+     *                response is received.
+     */
+    ResponseHandler write(ResponseCallback callback, long statementReadTimeoutMillis, boolean startTimeout, boolean multipleResponses,
+                          RequestTrace.Attempt attempt)
+            throws ConnectionException, BusyConnectionException {
 
-        ResponseHandler handler = new ResponseHandler(this, statementReadTimeoutMillis, callback, multipleResponses);
+        ResponseHandler handler = new ResponseHandler(this, statementReadTimeoutMillis, callback, multipleResponses, attempt);
         dispatcher.add(handler);
 
         Message.Request request = callback.request().setStreamId(handler.streamId);
@@ -635,6 +675,8 @@ class Connection {
                             }
                         });
                 } else {
+                    if (handler.attempt != null)
+                        handler.attempt.written();
                     logger.trace("{}, stream {}, request sent successfully", Connection.this, request.getStreamId());
                 }
             }
@@ -684,7 +726,13 @@ class Connection {
             return closeFuture.get();
         }
 
-        logger.debug("{} closing connection", this);
+        if (logger.isDebugEnabled()) {
+            ConnectionTraffic traffic = this.traffic;
+            if (traffic == null)
+                logger.debug("{} closing connection", this);
+            else
+                logger.debug("{} closing connection (sent {} bytes, received {} bytes)", this, traffic.bytesSent(), traffic.bytesReceived());
+        }
 
         // Only signal if defunct hasn't done it already
         if (signaled.compareAndSet(false, true)) {
@@ -744,6 +792,11 @@ class Connection {
         final Timer timer;
 
         final EventLoopGroup eventLoopGroup;
+        // the individual loops of eventLoopGroup
+        final List<EventLoop> eventLoops;
+        // eventLoops, as exposed to the application by Cluster.getEventLoops()
+        final List<ScheduledExecutorService> eventLoopExecutors;
+        private final AtomicInteger eventLoopOffset = new AtomicInteger();
         private final Class<? extends Channel> channelClass;
 
         private final ChannelGroup allChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
@@ -770,6 +823,11 @@ class Connection {
             this.nettyOptions = configuration.getNettyOptions();
             this.eventLoopGroup = nettyOptions.eventLoopGroup(
                     manager.configuration.getThreadingOptions().createThreadFactory(manager.clusterName, "nio-worker"));
+            this.eventLoops = listEventLoops(eventLoopGroup);
+            ImmutableList.Builder<ScheduledExecutorService> executors = ImmutableList.builder();
+            for (EventLoop eventLoop : eventLoops)
+                executors.add(new EventLoopExecutor(eventLoop));
+            this.eventLoopExecutors = executors.build();
             this.channelClass = nettyOptions.channelClass();
             this.timer = nettyOptions.timer(
                     manager.configuration.getThreadingOptions().createThreadFactory(manager.clusterName, "timeouter"));
@@ -779,6 +837,35 @@ class Connection {
             return configuration.getProtocolOptions().getPort();
         }
 
+        private static List<EventLoop> listEventLoops(EventLoopGroup eventLoopGroup) {
+            ImmutableList.Builder<EventLoop> builder = ImmutableList.builder();
+            for (EventExecutor executor : eventLoopGroup) {
+                if (executor instanceof EventLoop)
+                    builder.add((EventLoop) executor);
+            }
+            return builder.build();
+        }
+
+        /**
+         * @return the event loop that the current thread is running, or {@code null} if it's not one of the driver's
+         * I/O threads.
+         */
+        EventLoop currentEventLoop() {
+            for (EventLoop eventLoop : eventLoops) {
+                if (eventLoop.inEventLoop())
+                    return eventLoop;
+            }
+            return null;
+        }
+
+        /**
+         * @return the index of the event loop that a new pool should start from, so that pools don't all put their
+         * first connection on the same loop.
+         */
+        int nextEventLoopOffset() {
+            return eventLoopOffset.getAndIncrement() & Integer.MAX_VALUE;
+        }
+
         /**
          * Opens a new connection to the node this factory points to.
          *
@@ -864,9 +951,9 @@ class Connection {
             return configuration.getSocketOptions().getReadTimeoutMillis();
         }
 
-        private Bootstrap newBootstrap() {
+        private Bootstrap newBootstrap(EventLoop eventLoop) {
             Bootstrap b = new Bootstrap();
-            b.group(eventLoopGroup)
+            b.group(eventLoop == null ? eventLoopGroup : eventLoop)
                     .channel(channelClass);
 
             SocketOptions options = configuration.getSocketOptions();
@@ -1047,6 +1134,9 @@ class Connection {
             if (logger.isTraceEnabled())
                 logger.trace("{}, stream {}, received: {}", Connection.this, streamId, asDebugString(response));
 
+            if (response instanceof Responses.Result.Rows)
+                traffic.pageReceived(((Responses.Result.Rows) response).data.size());
+
             if (streamId < 0) {
                 factory.defaultHandler.handle(response);
                 return;
@@ -1077,6 +1167,8 @@ class Connection {
                 handler.release();
 
             handler.cancelTimeout();
+            if (handler.attempt != null)
+                handler.attempt.responseReceived();
             handler.callback.onSet(Connection.this, response, System.nanoTime() - handler.startTime, handler.retryCount);
 
             // If we happen to be closed and we're the last outstanding request, we need to terminate the connection
@@ -1152,6 +1244,9 @@ class Connection {
     private class ChannelCloseListener implements ChannelFutureListener {
         @Override
         public void operationComplete(ChannelFuture future) throws Exception {
+            if (deadlineSweeper != null)
+                deadlineSweeper.stop();
+            traffic.unregister();
             // If we've closed the channel client side then we don't really want to defunct the connection, but
             // if there is remaining thread waiting on us, we still want to wake them up
             if (!isInitialized || isClosed()) {
@@ -1332,7 +1427,7 @@ class Connection {
         boolean onTimeout(Connection connection, long latency, int retryCount);
     }
 
-    static class ResponseHandler {
+    static class ResponseHandler extends DeadlineSweeper.Entry {
 
         final Connection connection;
         final int streamId;
@@ -1343,6 +1438,7 @@ class Connection {
          */
         private final boolean multipleResponses;
         private final long readTimeoutMillis;
+        final RequestTrace.Attempt attempt;
 
         private final long startTime;
         private volatile Timeout timeout;
@@ -1351,6 +1447,12 @@ class Connection {
 
         ResponseHandler(Connection connection, long statementReadTimeoutMillis, ResponseCallback callback, boolean multipleResponses)
                 throws BusyConnectionException {
+            this(connection, statementReadTimeoutMillis, callback, multipleResponses, null);
+        }
+
+        ResponseHandler(Connection connection, long statementReadTimeoutMillis, ResponseCallback callback, boolean multipleResponses,
+                        RequestTrace.Attempt attempt)
+                throws BusyConnectionException {
             this.connection = connection;
             this.readTimeoutMillis = (statementReadTimeoutMillis >= 0) ? statementReadTimeoutMillis : connection.factory.getReadTimeoutMillis();
             this.streamId = connection.dispatcher.streamIdHandler.next();
@@ -1359,17 +1461,25 @@ class Connection {
             this.callback = callback;
             this.retryCount = callback.retryCount();
             this.multipleResponses = multipleResponses;
+            this.attempt = attempt;
 
             this.startTime = System.nanoTime();
         }
 
         void startTimeout() {
-            this.timeout = this.readTimeoutMillis <= 0 ? null : connection.factory.timer.newTimeout(onTimeoutTask(), this.readTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (readTimeoutMillis <= 0)
+                this.timeout = null;
+            else if (connection.deadlineSweeper != null)
+                connection.deadlineSweeper.add(this, TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis));
+            else
+                this.timeout = connection.factory.timer.newTimeout(onTimeoutTask(), readTimeoutMillis, TimeUnit.MILLISECONDS);
         }
 
         void cancelTimeout() {
             if (timeout != null)
                 timeout.cancel();
+            else if (connection.deadlineSweeper != null)
+                connection.deadlineSweeper.remove(this);
         }
 
         boolean cancelHandler() {
@@ -1396,16 +1506,21 @@ class Connection {
             return new TimerTask() {
                 @Override
                 public void run(Timeout timeout) {
-                    if (callback.onTimeout(connection, System.nanoTime() - startTime, retryCount)
-                            // With multiple responses, can't cancel the handler: the first response would release the
-                            // streamId, and the next ones would produce corrupt data if the streamId was reused in the
-                            // meantime.
-                            && !multipleResponses) {
-                        cancelHandler();
-                    }
+                    onExpired();
                 }
             };
         }
+
+        @Override
+        void onExpired() {
+            if (callback.onTimeout(connection, System.nanoTime() - startTime, retryCount)
+                    // With multiple responses, can't cancel the handler: the first response would release the
+                    // streamId, and the next ones would produce corrupt data if the streamId was reused in the
+                    // meantime.
+                    && !multipleResponses) {
+                cancelHandler();
+            }
+        }
     }
 
     interface DefaultResponseHandler {
@@ -1421,18 +1536,19 @@ class Connection {
         private static final Message.ProtocolEncoder messageEncoderV4 = new Message.ProtocolEncoder(ProtocolVersion.V4);
         private static final Message.ProtocolEncoder messageEncoderV5 = new Message.ProtocolEncoder(ProtocolVersion.V5);
         private static final Message.ProtocolEncoder messageEncoderDSE_V1 = new Message.ProtocolEncoder(ProtocolVersion.DSE_V1);
-        private static final Frame.Encoder frameEncoder = new Frame.Encoder();
 
         private final ProtocolVersion protocolVersion;
         private final Connection connection;
+        private final ConnectionTraffic traffic;
         private final FrameCompressor compressor;
         private final SSLOptions sslOptions;
         private final NettyOptions nettyOptions;
         private final ChannelHandler idleStateHandler;
         private final CodecRegistry codecRegistry;
 
-        Initializer(Connection connection, ProtocolVersion protocolVersion, FrameCompressor compressor, SSLOptions sslOptions, int heartBeatIntervalSeconds, NettyOptions nettyOptions, CodecRegistry codecRegistry) {
+        Initializer(Connection connection, ConnectionTraffic traffic, ProtocolVersion protocolVersion, FrameCompressor compressor, SSLOptions sslOptions, int heartBeatIntervalSeconds, NettyOptions nettyOptions, CodecRegistry codecRegistry) {
             this.connection = connection;
+            this.traffic = traffic;
             this.protocolVersion = protocolVersion;
             this.compressor = compressor;
             this.sslOptions = sslOptions;
@@ -1462,12 +1578,15 @@ class Connection {
 
             // pipeline.addLast("debug", new LoggingHandler(LogLevel.INFO));
 
-            pipeline.addLast("frameDecoder", new Frame.Decoder());
-            pipeline.addLast("frameEncoder", frameEncoder);
+            pipeline.addLast("frameDecoder", new Frame.Decoder(traffic));
+            pipeline.addLast("frameEncoder", new Frame.Encoder(traffic));
 
             if (compressor != null) {
-                pipeline.addLast("frameDecompressor", new Frame.Decompressor(compressor));
-                pipeline.addLast("frameCompressor", new Frame.Compressor(compressor));
+                pipeline.addLast("frameDecompressor", new Frame.Decompressor(compressor, traffic));
+                ProtocolOptions protocolOptions = connection.factory.configuration.getProtocolOptions();
+                pipeline.addLast("frameCompressor", new Frame.Compressor(compressor, traffic,
+                        protocolOptions.getCompressionThreshold(),
+                        protocolOptions.isAdaptiveCompression() ? new CompressionAdvisor() : null));
             }
 
             pipeline.addLast("messageDecoder", messageDecoder);
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+/**
+ * Records the bytes exchanged over a connection. If metrics are enabled, the cluster-wide {@link Metrics.Traffic}
+ * reads these counters when it gets {@link #register() registered}, and keeps their final values once the connection
+ * is {@link #unregister() closed}.
+ * <p/>
+ * All the recording methods are invoked from the frame handlers of the connection's pipeline, which always run on
+ * the channel's event loop; therefore the counters have a single writer, and don't need atomic updates (they are
+ * volatile so that the metrics can read them from other threads).
+ */
+class ConnectionTraffic {
+
+    // Only one frame out of this number is recorded in the frame size histograms (must be a power of two)
+    static final int FRAME_SIZE_SAMPLING = 16;
+
+    private final Metrics.Traffic clusterTraffic;
+    private final Metrics.HostTraffic hostTraffic;
+
+    private volatile long bytesSent;
+    private volatile long bytesReceived;
+    private volatile long largestResponseFrame;
+    private volatile long uncompressedBytes;
+    private volatile long compressedBytes;
+    private volatile long compressionTime;
+    private volatile long compressionSkipped;
+
+    private int framesSent;
+    private int framesReceived;
+
+    ConnectionTraffic(Metrics.Traffic clusterTraffic, Metrics.HostTraffic hostTraffic) {
+        this.clusterTraffic = clusterTraffic;
+        this.hostTraffic = hostTraffic;
+    }
+
+    static ConnectionTraffic create(Metrics metrics, Connection connection) {
+        if (metrics == null)
+            return new ConnectionTraffic(null, null);
+        Metrics.Traffic traffic = metrics.getTrafficMetrics();
+        return new ConnectionTraffic(traffic, traffic.forAddress(connection.address));
+    }
+
+    /**
+     * Starts reporting this connection's counters to the metrics.
+     */
+    void register() {
+        if (clusterTraffic != null)
+            clusterTraffic.register(this, hostTraffic);
+    }
+
+    /**
+     * Stops reporting this connection's counters; their current values are added to the totals of the closed
+     * connections. This must be called once no more frames can go through the connection.
+     */
+    void unregister() {
+        if (clusterTraffic != null)
+            clusterTraffic.unregister(this, hostTraffic);
+    }
+
+    void frameSent(int size) {
+        bytesSent += size;
+        if (clusterTraffic != null && (framesSent++ & (FRAME_SIZE_SAMPLING - 1)) == 0)
+            clusterTraffic.frameSent(size);
+    }
+
+    void frameReceived(int size) {
+        bytesReceived += size;
+        if (size > largestResponseFrame)
+            largestResponseFrame = size;
+        if (clusterTraffic != null && (framesReceived++ & (FRAME_SIZE_SAMPLING - 1)) == 0)
+            clusterTraffic.frameReceived(size);
+    }
+
+    void compressed(int uncompressedSize, int compressedSize, long elapsedNanos) {
+        uncompressedBytes += uncompressedSize;
+        compressedBytes += compressedSize;
+        compressionTime += elapsedNanos;
+    }
+
+    void compressionSkipped() {
+        compressionSkipped += 1;
+    }
+
+    void pageReceived(int rows) {
+        if (clusterTraffic != null)
+            clusterTraffic.pageReceived(rows);
+    }
+
+    long bytesSent() {
+        return bytesSent;
+    }
+
+    long bytesReceived() {
+        return bytesReceived;
+    }
+
+    long largestResponseFrame() {
+        return largestResponseFrame;
+    }
+
+    long uncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    long compressedBytes() {
+        return compressedBytes;
+    }
+
+    long compressionTime() {
+        return compressionTime;
+    }
+
+    long compressionSkippedCount() {
+        return compressionSkipped;
+    }
+}
@@ -9,10 +9,13 @@ package com.datastax.driver.core;
 import com.datastax.driver.core.exceptions.*;
 import com.datastax.driver.core.utils.MoreObjects;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
@@ -263,8 +266,10 @@ class ControlConnection implements Connection.Owner {
 
             // refresh schema will also update the token map again,
             // this time with information about keyspaces
-            logger.debug("[Control connection] Refreshing schema");
-            refreshSchema(connection, null, null, null, null, cluster);
+            if (!isInitialConnection || !loadSchemaSnapshot(connection, cluster)) {
+                logger.debug("[Control connection] Refreshing schema");
+                refreshSchema(connection, null, null, null, null, cluster);
+            }
 
             return connection;
         } catch (BusyConnectionException e) {
@@ -310,6 +315,10 @@ class ControlConnection implements Connection.Owner {
     }
 
     static void refreshSchema(Connection connection, SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature, Cluster.Manager cluster) throws ConnectionException, BusyConnectionException, ExecutionException, InterruptedException {
+        if (targetType != null && !cluster.configuration.getQueryOptions().isMetadataKeyspace(targetKeyspace)) {
+            logger.trace("[Control connection] Ignoring schema refresh for keyspace {}, it is not in the metadata keyspaces", targetKeyspace);
+            return;
+        }
         Host host = cluster.metadata.getHost(connection.address);
         // Neither host, nor it's version should be null. But instead of dying if there is a race or something, we can kind of try to infer
         // a Cassandra version from the protocol version (this is not full proof, we can have the protocol 1 against C* 2.0+, but it's worth
@@ -329,6 +338,62 @@ class ControlConnection implements Connection.Owner {
                         connection, cassandraVersion);
     }
 
+    /**
+     * Builds the schema metadata from the local snapshot, if there is one that matches the version of the
+     * control host, and checks in the background that it is still up to date.
+     *
+     * @return whether the schema was loaded from the snapshot.
+     */
+    private static boolean loadSchemaSnapshot(Connection connection, final Cluster.Manager cluster) throws ConnectionException, BusyConnectionException {
+        QueryOptions queryOptions = cluster.configuration.getQueryOptions();
+        File file = queryOptions.getSchemaSnapshotFile();
+        if (file == null || !queryOptions.isMetadataEnabled())
+            return false;
+
+        Host host = cluster.metadata.getHost(connection.address);
+        if (host == null || host.getCassandraVersion() == null)
+            return false;
+
+        final SchemaSnapshot snapshot = SchemaSnapshot.read(file, cluster.getCluster());
+        if (snapshot == null)
+            return false;
+        if (!snapshot.cassandraVersion.equals(host.getCassandraVersion())) {
+            logger.debug("[Control connection] Ignoring schema snapshot {}: it was produced by Cassandra {}, but the control host runs {}",
+                    file, snapshot.cassandraVersion, host.getCassandraVersion());
+            return false;
+        }
+        if (!snapshot.keyspaces.equals(queryOptions.getMetadataKeyspaces())) {
+            logger.debug("[Control connection] Ignoring schema snapshot {}: it was restricted to keyspaces {}, but the driver is configured with {}",
+                    file, snapshot.keyspaces, queryOptions.getMetadataKeyspaces());
+            return false;
+        }
+
+        logger.debug("[Control connection] Loading schema from snapshot {} (version {})", file, snapshot.schemaVersion);
+        SchemaParser.forVersion(snapshot.cassandraVersion).refresh(cluster.getCluster(), snapshot);
+
+        DefaultResultSetFuture versionFuture = new DefaultResultSetFuture(null, cluster.protocolVersion(), new Requests.Query(SELECT_SCHEMA_LOCAL));
+        connection.write(versionFuture);
+        Futures.addCallback(versionFuture, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet rs) {
+                Row row = rs.one();
+                UUID schemaVersion = (row == null || row.isNull("schema_version")) ? null : row.getUUID("schema_version");
+                if (!snapshot.schemaVersion.equals(schemaVersion)) {
+                    logger.debug("[Control connection] Schema snapshot is stale (version {}, current {}), refreshing schema",
+                            snapshot.schemaVersion, schemaVersion);
+                    cluster.submitSchemaRefresh(null, null, null, null);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                logger.debug("[Control connection] Could not validate schema snapshot, refreshing schema", t);
+                cluster.submitSchemaRefresh(null, null, null, null);
+            }
+        });
+        return true;
+    }
+
     void refreshNodeListAndTokenMap() {
         Connection c = connectionRef.get();
         // At startup, when we add the initial nodes, this will be null, which is ok
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.channel.EventLoop;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the read timeouts of a connection's in-flight requests, as an alternative to scheduling a timer task per
+ * request (see {@link SocketOptions#setReadTimeoutSweepIntervalMillis(int)}).
+ * <p/>
+ * Entries are linked intrusively (they extend {@link Entry}), so tracking a request does not allocate. Requests that
+ * share the same timeout expire in the order they were added, so we keep one FIFO "lane" per distinct timeout value
+ * (there are usually very few: the default read timeout, and maybe a couple of per-statement values). A task running
+ * periodically on the connection's event loop pops the expired entries at the head of each lane, so a sweep only
+ * visits the entries that have expired.
+ * <p/>
+ * Additions and removals come from arbitrary threads, so the lanes are guarded by a lock; the lock is per connection
+ * and never held while invoking callbacks. Since additions happen on the threads that execute requests, we use a
+ * {@link ReentrantLock} rather than a monitor, so that contended virtual threads park instead of pinning their carrier.
+ */
+class DeadlineSweeper implements Runnable {
+
+    // Empty lanes are kept to avoid churn, unless a connection sees many distinct timeouts
+    private static final int MAX_LANES = 4;
+
+    private final long intervalMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final List<Lane> lanes = new ArrayList<Lane>(2);
+
+    private volatile ScheduledFuture<?> task;
+
+    DeadlineSweeper(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    void start(EventLoop eventLoop) {
+        task = eventLoop.scheduleWithFixedDelay(this, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        ScheduledFuture<?> task = this.task;
+        if (task != null)
+            task.cancel(false);
+    }
+
+    void add(Entry entry, long timeoutNanos) {
+        lock.lock();
+        try {
+            // Read the time while holding the lock, so that deadlines are increasing within each lane
+            doAdd(entry, timeoutNanos, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    void add(Entry entry, long timeoutNanos, long now) {
+        lock.lock();
+        try {
+            doAdd(entry, timeoutNanos, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doAdd(Entry entry, long timeoutNanos, long now) {
+        assert entry.lane == null;
+        Lane lane = null;
+        for (int i = 0; i < lanes.size(); i++) {
+            Lane candidate = lanes.get(i);
+            if (candidate.timeoutNanos == timeoutNanos) {
+                lane = candidate;
+                break;
+            }
+        }
+        if (lane == null) {
+            lane = new Lane(timeoutNanos);
+            lanes.add(lane);
+        }
+        entry.deadlineNanos = now + timeoutNanos;
+        lane.append(entry);
+    }
+
+    /**
+     * @return whether the entry was still tracked (in other words, it had not expired yet).
+     */
+    boolean remove(Entry entry) {
+        lock.lock();
+        try {
+            if (entry.lane == null)
+                return false;
+            entry.lane.unlink(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Entry> expired = sweep(System.nanoTime());
+        if (expired != null) {
+            for (Entry entry : expired)
+                entry.onExpired();
+        }
+    }
+
+    /**
+     * Removes the entries that have expired at {@code now}.
+     *
+     * @return the expired entries, or {@code null} if there are none.
+     */
+    List<Entry> sweep(long now) {
+        lock.lock();
+        try {
+            List<Entry> expired = null;
+            for (Iterator<Lane> iterator = lanes.iterator(); iterator.hasNext(); ) {
+                Lane lane = iterator.next();
+                while (lane.head != null && lane.head.deadlineNanos - now <= 0) {
+                    Entry entry = lane.head;
+                    lane.unlink(entry);
+                    if (expired == null)
+                        expired = new ArrayList<Entry>();
+                    expired.add(entry);
+                }
+                if (lane.head == null && lanes.size() > MAX_LANES)
+                    iterator.remove();
+            }
+            return expired;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            int size = 0;
+            for (Lane lane : lanes)
+                size += lane.size;
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * An element that can be tracked by a sweeper. All fields are guarded by the sweeper's lock.
+     */
+    static abstract class Entry {
+        private Lane lane;
+        private Entry previous;
+        private Entry next;
+        private long deadlineNanos;
+
+        /**
+         * Invoked on the sweeper's thread (and without holding its lock) when the entry has expired.
+         */
+        abstract void onExpired();
+    }
+
+    private static class Lane {
+        final long timeoutNanos;
+        Entry head;
+        Entry tail;
+        int size;
+
+        Lane(long timeoutNanos) {
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        void append(Entry entry) {
+            entry.lane = this;
+            entry.previous = tail;
+            if (tail == null)
+                head = entry;
+            else
+                tail.next = entry;
+            tail = entry;
+            size += 1;
+        }
+
+        void unlink(Entry entry) {
+            if (entry.previous == null)
+                head = entry.next;
+            else
+                entry.previous.next = entry.next;
+            if (entry.next == null)
+                tail = entry.previous;
+            else
+                entry.next.previous = entry.previous;
+            entry.lane = null;
+            entry.previous = null;
+            entry.next = null;
+            size -= 1;
+        }
+    }
+}
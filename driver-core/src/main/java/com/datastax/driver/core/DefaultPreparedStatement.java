@@ -33,6 +33,11 @@ public class DefaultPreparedStatement implements PreparedStatement {
     volatile ImmutableMap<String, ByteBuffer> outgoingPayload;
     volatile Boolean idempotent;
 
+    // How many times this statement was registered, re-prepared or (for a sample of the executions) executed, and
+    // when that last happened, see PreparedStatementRegistry
+    volatile long uses;
+    volatile long lastUsed;
+
     private DefaultPreparedStatement(PreparedId id, String query, String queryKeyspace, Map<String, ByteBuffer> incomingPayload, Cluster cluster) {
         this.preparedId = id;
         this.query = query;
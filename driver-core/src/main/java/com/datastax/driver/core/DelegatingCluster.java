@@ -10,6 +10,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.net.InetSocketAddress;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Base class for custom {@link Cluster} implementations that wrap another instance (delegate / decorator pattern).
@@ -92,6 +94,11 @@ public abstract class DelegatingCluster extends Cluster {
         return delegate().getMetrics();
     }
 
+    @Override
+    public List<ScheduledExecutorService> getEventLoops() {
+        return delegate().getEventLoops();
+    }
+
     @Override
     public Cluster register(Host.StateListener listener) {
         return delegate().register(listener);
@@ -112,6 +119,16 @@ public abstract class DelegatingCluster extends Cluster {
         return delegate().unregister(tracker);
     }
 
+    @Override
+    public Cluster register(RequestTracer tracer) {
+        return delegate().register(tracer);
+    }
+
+    @Override
+    public Cluster unregister(RequestTracer tracer) {
+        return delegate().unregister(tracer);
+    }
+
     @Override
     public Cluster register(SchemaChangeListener listener) {
         return delegate().register(listener);
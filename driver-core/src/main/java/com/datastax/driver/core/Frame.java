@@ -9,7 +9,6 @@ package com.datastax.driver.core;
 import com.datastax.driver.core.exceptions.DriverInternalError;
 import com.datastax.driver.core.exceptions.FrameTooLongException;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.*;
 
@@ -186,8 +185,13 @@ class Frame {
     }
 
     static final class Decoder extends ByteToMessageDecoder {
+        private final ConnectionTraffic traffic;
         private DecoderForStreamIdSize decoder;
 
+        Decoder(ConnectionTraffic traffic) {
+            this.traffic = traffic;
+        }
+
         @Override
         protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
             if (buffer.readableBytes() < 1)
@@ -202,9 +206,11 @@ class Frame {
                 decoder = new DecoderForStreamIdSize(version, version >= 3 ? 2 : 1);
             }
 
-            Object frame = decoder.decode(ctx, buffer);
-            if (frame != null)
+            Frame frame = (Frame) decoder.decode(ctx, buffer);
+            if (frame != null) {
+                traffic.frameReceived(Header.lengthFor(frame.header.version) + frame.body.readableBytes());
                 out.add(frame);
+            }
         }
 
         private static byte peekFirst(ByteBuf buffer) {
@@ -254,13 +260,20 @@ class Frame {
         }
     }
 
-    @ChannelHandler.Sharable
     static class Encoder extends MessageToMessageEncoder<Frame> {
 
+        private final ConnectionTraffic traffic;
+
+        Encoder(ConnectionTraffic traffic) {
+            this.traffic = traffic;
+        }
+
         @Override
         protected void encode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
             ProtocolVersion protocolVersion = frame.header.version;
-            ByteBuf header = ctx.alloc().ioBuffer(Frame.Header.lengthFor(protocolVersion));
+            int headerLength = Frame.Header.lengthFor(protocolVersion);
+            traffic.frameSent(headerLength + frame.body.readableBytes());
+            ByteBuf header = ctx.alloc().ioBuffer(headerLength);
             // We don't bother with the direction, we only send requests.
             header.writeByte(frame.header.version.toInt());
             header.writeByte(Header.Flag.serialize(frame.header.flags));
@@ -293,10 +306,12 @@ class Frame {
     static class Decompressor extends MessageToMessageDecoder<Frame> {
 
         private final FrameCompressor compressor;
+        private final ConnectionTraffic traffic;
 
-        Decompressor(FrameCompressor compressor) {
+        Decompressor(FrameCompressor compressor, ConnectionTraffic traffic) {
             assert compressor != null;
             this.compressor = compressor;
+            this.traffic = traffic;
         }
 
         @Override
@@ -306,7 +321,11 @@ class Frame {
                 // we have a reference to the compressed body (and therefore a chance to release it).
                 ByteBuf compressedBody = frame.body;
                 try {
-                    out.add(compressor.decompress(frame));
+                    int compressedSize = compressedBody.readableBytes();
+                    long start = System.nanoTime();
+                    Frame decompressed = compressor.decompress(frame);
+                    traffic.compressed(decompressed.body.readableBytes(), compressedSize, System.nanoTime() - start);
+                    out.add(decompressed);
                 } finally {
                     compressedBody.release();
                 }
@@ -319,23 +338,41 @@ class Frame {
     static class Compressor extends MessageToMessageEncoder<Frame> {
 
         private final FrameCompressor compressor;
+        private final ConnectionTraffic traffic;
+        private final int threshold;
+        private final CompressionAdvisor advisor; // null if adaptive compression is disabled
 
-        Compressor(FrameCompressor compressor) {
+        Compressor(FrameCompressor compressor, ConnectionTraffic traffic, int threshold, CompressionAdvisor advisor) {
             assert compressor != null;
             this.compressor = compressor;
+            this.traffic = traffic;
+            this.threshold = threshold;
+            this.advisor = advisor;
         }
 
         @Override
         protected void encode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
+            int opcode = frame.header.opcode;
             // Never compress STARTUP messages
-            if (frame.header.opcode == Message.Request.Type.STARTUP.opcode) {
+            if (opcode == Message.Request.Type.STARTUP.opcode) {
+                out.add(frame);
+            } else if (frame.body.readableBytes() < threshold || (advisor != null && !advisor.shouldCompress(opcode))) {
+                // The COMPRESSED flag is per frame, so we can send this one as is
+                traffic.compressionSkipped();
                 out.add(frame);
             } else {
                 frame.header.flags.add(Header.Flag.COMPRESSED);
                 // See comment in decode()
                 ByteBuf uncompressedBody = frame.body;
                 try {
-                    out.add(compressor.compress(frame));
+                    int uncompressedSize = uncompressedBody.readableBytes();
+                    long start = System.nanoTime();
+                    Frame compressed = compressor.compress(frame);
+                    int compressedSize = compressed.body.readableBytes();
+                    traffic.compressed(uncompressedSize, compressedSize, System.nanoTime() - start);
+                    if (advisor != null)
+                        advisor.record(opcode, uncompressedSize, compressedSize);
+                    out.add(compressed);
                 } finally {
                     uncompressedBody.release();
                 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates how often objects were recently seen, in constant space (a count-min sketch).
+ * <p/>
+ * Estimates can only be higher than the actual counts, because of hash collisions. To favor recent activity, and to
+ * keep the noise from collisions low, all the counts are halved each time the number of increments reaches half the
+ * width of the sketch. Concurrent increments might occasionally be lost while the counts are halved, which is fine for an
+ * estimate.
+ */
+class FrequencySketch {
+
+    private static final int DEPTH = 4;
+
+    private static final int MAX_WIDTH = 1 << 16;
+
+    // odd multipliers, so that each row spreads the same hash code differently
+    private static final int[] SEEDS = new int[]{0x97cb3127, 0x9e3779b9, 0xc2b2ae35, 0x85ebca6b};
+
+    private final AtomicIntegerArray counts;
+    private final int mask;
+    private final long sampleSize;
+    private final AtomicLong increments = new AtomicLong();
+
+    /**
+     * @param capacity the number of frequent objects to tell apart from the others.
+     */
+    FrequencySketch(int capacity) {
+        int width = (int) Math.min(MAX_WIDTH, Long.highestOneBit(Math.max(capacity, 8) * 8L - 1) << 1);
+        this.counts = new AtomicIntegerArray(DEPTH * width);
+        this.mask = width - 1;
+        this.sampleSize = width / 2;
+    }
+
+    /**
+     * Records an occurrence of the given object.
+     *
+     * @return the estimated frequency of the object, including this occurrence.
+     */
+    int increment(Object o) {
+        int hash = spread(o.hashCode());
+        int min = frequency(hash);
+        // conservative update: only the counters that hold the estimate are incremented, the others are already
+        // inflated by collisions, and leaving them alone reduces the noise for other objects
+        for (int i = 0; i < DEPTH; i++)
+            counts.compareAndSet(indexOf(hash, i), min, min + 1);
+        if (increments.incrementAndGet() % sampleSize == 0)
+            halve();
+        return min + 1;
+    }
+
+    /**
+     * @return the estimated frequency of the given object.
+     */
+    int frequency(Object o) {
+        return frequency(spread(o.hashCode()));
+    }
+
+    private int frequency(int hash) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++)
+            min = Math.min(min, counts.get(indexOf(hash, i)));
+        return min;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private void halve() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, counts.get(i) >>> 1);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+}
@@ -15,6 +15,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.*;
+import io.netty.channel.EventLoop;
 import io.netty.util.concurrent.EventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +59,9 @@ class HostConnectionPool implements Connection.Owner {
 
     private final EventExecutor timeoutsExecutor;
 
+    // Only used with event loop affinity, to spread connections evenly across loops
+    private final AtomicInteger eventLoopIndex;
+
     private final AtomicReference<CloseFuture> closeFuture = new AtomicReference<CloseFuture>();
 
     private enum Phase {INITIALIZING, READY, INIT_FAILED, CLOSING}
@@ -88,7 +92,20 @@ class HostConnectionPool implements Connection.Owner {
 
         this.minAllowedStreams = options().getMaxRequestsPerConnection(hostDistance) * 3 / 4;
 
-        this.timeoutsExecutor = manager.getCluster().manager.connectionFactory.eventLoopGroup.next();
+        Connection.Factory connectionFactory = manager.getCluster().manager.connectionFactory;
+        this.timeoutsExecutor = connectionFactory.eventLoopGroup.next();
+        this.eventLoopIndex = new AtomicInteger(connectionFactory.nextEventLoopOffset());
+    }
+
+    /**
+     * @return the event loop that the next connection should be registered with, or null to let Netty choose.
+     */
+    EventLoop nextEventLoop() {
+        List<EventLoop> eventLoops = manager.cluster.manager.connectionFactory.eventLoops;
+        if (eventLoops.isEmpty())
+            return null;
+        int index = (eventLoopIndex.getAndIncrement() & Integer.MAX_VALUE) % eventLoops.size();
+        return eventLoops.get(index);
     }
 
     /**
@@ -210,15 +227,29 @@ class HostConnectionPool implements Connection.Owner {
             }
         }
 
+        EventLoop currentEventLoop = options().isEventLoopAffinity()
+                ? manager.cluster.manager.connectionFactory.currentEventLoop()
+                : null;
+
         int minInFlight = Integer.MAX_VALUE;
         Connection leastBusy = null;
+        int minLocalInFlight = Integer.MAX_VALUE;
+        Connection leastBusyLocal = null;
         for (Connection connection : connections) {
             int inFlight = connection.inFlight.get();
             if (inFlight < minInFlight) {
                 minInFlight = inFlight;
                 leastBusy = connection;
             }
+            if (currentEventLoop != null && inFlight < minLocalInFlight && connection.isOwnedBy(currentEventLoop)) {
+                minLocalInFlight = inFlight;
+                leastBusyLocal = connection;
+            }
         }
+        // Prefer a connection of the current event loop, unless it's full
+        if (leastBusyLocal != null
+                && minLocalInFlight < Math.min(leastBusyLocal.maxAvailableStreams(), options().getMaxRequestsPerConnection(hostDistance)))
+            leastBusy = leastBusyLocal;
 
         if (leastBusy == null) {
             // We could have raced with a shutdown since the last check
@@ -241,6 +241,8 @@ abstract class Message {
         final Type type;
         protected volatile UUID tracingId;
         protected volatile List<String> warnings;
+        // the size of the (uncompressed) frame body, or -1 if unknown
+        private volatile int size = -1;
 
         protected Response(Type type) {
             this.type = type;
@@ -259,6 +261,15 @@ abstract class Message {
             this.warnings = warnings;
             return this;
         }
+
+        Response setSize(int size) {
+            this.size = size;
+            return this;
+        }
+
+        int getSize() {
+            return size;
+        }
     }
 
     @ChannelHandler.Sharable
@@ -266,6 +277,7 @@ abstract class Message {
 
         @Override
         protected void decode(ChannelHandlerContext ctx, Frame frame, List<Object> out) throws Exception {
+            int size = frame.body.readableBytes();
             boolean isTracing = frame.header.flags.contains(Frame.Header.Flag.TRACING);
             boolean isCustomPayload = frame.header.flags.contains(Frame.Header.Flag.CUSTOM_PAYLOAD);
             UUID tracingId = isTracing ? CBUtil.readUUID(frame.body) : null;
@@ -287,6 +299,7 @@ abstract class Message {
                         .setWarnings(warnings)
                         .setCustomPayload(customPayload)
                         .setStreamId(frame.header.streamId);
+                response.setSize(size);
                 out.add(response);
             } finally {
                 frame.body.release();
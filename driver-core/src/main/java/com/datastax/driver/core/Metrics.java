@@ -9,9 +9,12 @@ package com.datastax.driver.core;
 import com.codahale.metrics.*;
 import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
 
+import java.net.InetSocketAddress;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -32,9 +35,13 @@ public class Metrics {
     private final MetricRegistry registry = new MetricRegistry();
     private final JmxReporter jmxReporter;
     private final Errors errors = new Errors();
+    private final Traffic traffic = new Traffic();
 
     private final Timer requests = registry.timer("requests");
 
+    private final Counter autoPrepareHits = registry.counter("auto-prepare-hits");
+    private final Counter autoPrepareMisses = registry.counter("auto-prepare-misses");
+
     private final Gauge<Integer> knownHosts = registry.register("known-hosts", new Gauge<Integer>() {
         @Override
         public Integer getValue() {
@@ -71,6 +78,19 @@ public class Metrics {
         }
     });
 
+    private final Gauge<Integer> preparedStatements = registry.register("prepared-statements", new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+            return manager.preparedQueries.size();
+        }
+    });
+    private final Gauge<Long> preparedStatementEvictions = registry.register("prepared-statement-evictions", new Gauge<Long>() {
+        @Override
+        public Long getValue() {
+            return manager.preparedQueries.evictionCount();
+        }
+    });
+
     private final Gauge<Integer> executorQueueDepth;
     private final Gauge<Integer> blockingExecutorQueueDepth;
     private final Gauge<Integer> reconnectionSchedulerQueueSize;
@@ -157,6 +177,31 @@ public class Metrics {
         return requests;
     }
 
+    /**
+     * Returns the number of simple statements that were executed as auto-prepared statements.
+     * <p/>
+     * This is only updated if {@link QueryOptions#setAutoPrepareEnabled(boolean) auto-preparation}
+     * is enabled.
+     *
+     * @return the number of auto-prepare cache hits.
+     */
+    public Counter getAutoPrepareHits() {
+        return autoPrepareHits;
+    }
+
+    /**
+     * Returns the number of simple statements eligible for auto-preparation that were executed as
+     * regular simple statements, because their query string was not prepared (yet).
+     * <p/>
+     * This is only updated if {@link QueryOptions#setAutoPrepareEnabled(boolean) auto-preparation}
+     * is enabled.
+     *
+     * @return the number of auto-prepare cache misses.
+     */
+    public Counter getAutoPrepareMisses() {
+        return autoPrepareMisses;
+    }
+
     /**
      * Returns an object grouping metrics related to the errors encountered.
      *
@@ -166,6 +211,15 @@ public class Metrics {
         return errors;
     }
 
+    /**
+     * Returns an object grouping metrics related to the bytes exchanged with Cassandra nodes.
+     *
+     * @return an object grouping metrics related to the bytes exchanged with Cassandra nodes.
+     */
+    public Traffic getTrafficMetrics() {
+        return traffic;
+    }
+
     /**
      * Returns the number of Cassandra hosts currently known by the driver (that is
      * whether they are currently considered up or down).
@@ -209,6 +263,28 @@ public class Metrics {
         return trashedConnections;
     }
 
+    /**
+     * Returns the number of prepared statements currently registered by the driver (and that will be
+     * re-prepared on nodes that come back up).
+     *
+     * @return The number of registered prepared statements.
+     * @see QueryOptions#setMaxPreparedStatements(int)
+     */
+    public Gauge<Integer> getPreparedStatements() {
+        return preparedStatements;
+    }
+
+    /**
+     * Returns the number of prepared statements that were evicted from the driver's registry, either because
+     * {@link QueryOptions#setMaxPreparedStatements(int) its maximum size} was reached, or because they were
+     * not referenced by the application anymore.
+     *
+     * @return The number of evicted prepared statements.
+     */
+    public Gauge<Long> getPreparedStatementEvictions() {
+        return preparedStatementEvictions;
+    }
+
     /**
      * Returns the number of queued up tasks in the {@link ThreadingOptions#createExecutor(String) main internal executor}.
      * <p/>
@@ -312,6 +388,8 @@ public class Metrics {
         private final Counter retriesOnClientTimeout = registry.counter("retries-on-client-timeout");
         private final Counter retriesOnConnectionError = registry.counter("retries-on-connection-error");
         private final Counter retriesOnOtherErrors = registry.counter("retries-on-other-errors");
+        private final Counter retriesDenied = registry.counter("retries-denied");
+        private final Counter retriesDelayed = registry.counter("retries-delayed");
 
         private final Counter ignores = registry.counter("ignores");
         private final Counter ignoresOnWriteTimeout = registry.counter("ignores-on-write-timeout");
@@ -322,6 +400,9 @@ public class Metrics {
         private final Counter ignoresOnOtherErrors = registry.counter("ignores-on-other-errors");
 
         private final Counter speculativeExecutions = registry.counter("speculative-executions");
+        private final Counter speculativeExecutionsSkipped = registry.counter("speculative-executions-skipped");
+        private final Counter speculativeExecutionsWon = registry.counter("speculative-executions-won");
+        private final Counter speculativeExecutionsWasted = registry.counter("speculative-executions-wasted");
 
         /**
          * Returns the number of errors while connecting to Cassandra nodes.
@@ -490,6 +571,29 @@ public class Metrics {
             return retriesOnOtherErrors;
         }
 
+        /**
+         * Returns the number of times the {@link com.datastax.driver.core.policies.RetryPolicy} decided to retry a
+         * request, but the {@link com.datastax.driver.core.policies.RetryBudget} denied it (the request failed
+         * instead).
+         * <p/>
+         * Denied retries are not included in {@link #getRetries()}, nor in the {@code retries-on-*} counters.
+         *
+         * @return the number of retries denied by the retry budget.
+         */
+        public Counter getRetriesDenied() {
+            return retriesDenied;
+        }
+
+        /**
+         * Returns the number of retries that were delayed by the
+         * {@link com.datastax.driver.core.policies.RetryBudget}, instead of happening immediately.
+         *
+         * @return the number of delayed retries.
+         */
+        public Counter getRetriesDelayed() {
+            return retriesDelayed;
+        }
+
         /**
          * Returns the number of times a request was ignored
          * due to the {@link com.datastax.driver.core.policies.RetryPolicy}, for
@@ -590,5 +694,378 @@ public class Metrics {
         public Counter getSpeculativeExecutions() {
             return speculativeExecutions;
         }
+
+        /**
+         * Returns the number of times a scheduled speculative execution was not started, because the
+         * {@link SpeculativeExecutionPolicy} denied it (for example because its budget was exhausted).
+         *
+         * @return the number of skipped speculative executions.
+         * @see SpeculativeExecutionPolicy.HedgingPlan#acquirePermit()
+         */
+        public Counter getSpeculativeExecutionsSkipped() {
+            return speculativeExecutionsSkipped;
+        }
+
+        /**
+         * Returns the number of requests that were completed by a speculative execution (in other words, requests
+         * for which speculative executions reduced the latency).
+         *
+         * @return the number of speculative executions that completed their request.
+         */
+        public Counter getSpeculativeExecutionsWon() {
+            return speculativeExecutionsWon;
+        }
+
+        /**
+         * Returns the number of speculative executions that did not complete their request, either because another
+         * execution completed it first, or because the request failed.
+         * <p/>
+         * A high ratio of wasted to {@link #getSpeculativeExecutionsWon() won} executions indicates that the
+         * speculative execution delay is too low.
+         *
+         * @return the number of wasted speculative executions.
+         */
+        public Counter getSpeculativeExecutionsWasted() {
+            return speculativeExecutionsWasted;
+        }
+    }
+
+    /**
+     * Metrics on the bytes exchanged with Cassandra nodes.
+     * <p/>
+     * Sizes are measured at the protocol frame level: they include the frame headers, and are measured after
+     * compression for outgoing frames and before decompression for incoming frames (in other words, they correspond
+     * to what goes over the network, TLS overhead excluded).
+     * <p/>
+     * To keep the I/O threads cheap, each connection accumulates its own counters, and they are only aggregated when
+     * these metrics are read. The frame size histograms are sampled (one frame out of
+     * 16 on each connection).
+     * <p/>
+     * The numbers of bytes sent to and received from each host are also registered as gauges named
+     * {@code bytes-sent.<address>:<port>} and {@code bytes-received.<address>:<port>}, for as long as the host is
+     * part of the cluster. The counters of individual connections are not exposed.
+     */
+    public class Traffic {
+
+        private final Histogram requestFrameSizes = registry.histogram("request-frame-sizes");
+        private final Histogram responseFrameSizes = registry.histogram("response-frame-sizes");
+        private final Histogram rowsPerPage = registry.histogram("rows-per-page");
+
+        // Guarded by this. The connections that are still open, and the totals of those that were closed.
+        private final Set<ConnectionTraffic> connections = new HashSet<ConnectionTraffic>();
+        private final Totals closed = new Totals();
+
+        private final Gauge<Long> bytesSent = registry.register("bytes-sent", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return totals().bytesSent;
+            }
+        });
+
+        private final Gauge<Long> bytesReceived = registry.register("bytes-received", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return totals().bytesReceived;
+            }
+        });
+
+        private final Gauge<Long> largestResponseFrame = registry.register("largest-response-frame", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return totals().largestResponseFrame;
+            }
+        });
+
+        private final Gauge<Double> compressionRatio = registry.register("compression-ratio", new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                Totals totals = totals();
+                return totals.uncompressedBytes == 0 ? Double.NaN : (double) totals.compressedBytes / totals.uncompressedBytes;
+            }
+        });
+
+        private final Gauge<Long> compressionBytesSaved = registry.register("compression-bytes-saved", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                Totals totals = totals();
+                return totals.uncompressedBytes - totals.compressedBytes;
+            }
+        });
+
+        private final Gauge<Long> compressionTime = registry.register("compression-time", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return totals().compressionTime;
+            }
+        });
+
+        private final Gauge<Long> compressionSkipped = registry.register("compression-skipped", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return totals().compressionSkipped;
+            }
+        });
+
+        private final ConcurrentMap<InetSocketAddress, HostTraffic> hosts = new ConcurrentHashMap<InetSocketAddress, HostTraffic>();
+
+        /**
+         * Returns the number of bytes sent to Cassandra nodes since the cluster was initialized.
+         *
+         * @return the number of bytes sent.
+         */
+        public Gauge<Long> getBytesSent() {
+            return bytesSent;
+        }
+
+        /**
+         * Returns the number of bytes received from Cassandra nodes since the cluster was initialized.
+         *
+         * @return the number of bytes received.
+         */
+        public Gauge<Long> getBytesReceived() {
+            return bytesReceived;
+        }
+
+        /**
+         * Returns the distribution of the sizes (in bytes) of the frames sent to Cassandra nodes.
+         * <p/>
+         * This histogram is sampled: only one frame out of 16 is recorded on
+         * each connection.
+         *
+         * @return a {@code Histogram} of the request frame sizes.
+         */
+        public Histogram getRequestFrameSizes() {
+            return requestFrameSizes;
+        }
+
+        /**
+         * Returns the distribution of the sizes (in bytes) of the frames received from Cassandra nodes.
+         * <p/>
+         * This histogram is sampled: only one frame out of 16 is recorded on
+         * each connection.
+         *
+         * @return a {@code Histogram} of the response frame sizes.
+         */
+        public Histogram getResponseFrameSizes() {
+            return responseFrameSizes;
+        }
+
+        /**
+         * Returns the size (in bytes) of the largest frame received from a Cassandra node since the cluster was
+         * initialized.
+         * <p/>
+         * This is useful to detect queries that return abnormally large pages.
+         *
+         * @return the size of the largest response frame.
+         */
+        public Gauge<Long> getLargestResponseFrame() {
+            return largestResponseFrame;
+        }
+
+        /**
+         * Returns the ratio between the compressed and uncompressed sizes of the frame bodies, in both directions.
+         * <p/>
+         * This is only updated if {@link ProtocolOptions#getCompression() compression} is enabled; otherwise, it
+         * returns {@code NaN}. A value close to 1 indicates that compression does not save much bandwidth for your
+         * workload.
+         *
+         * @return the compression ratio.
+         */
+        public Gauge<Double> getCompressionRatio() {
+            return compressionRatio;
+        }
+
+        /**
+         * Returns the number of bytes saved by compression, in both directions (in other words, the difference
+         * between the uncompressed and compressed sizes of the frame bodies).
+         * <p/>
+         * This can be negative if compression makes frames larger, which is common for small frames (see
+         * {@link ProtocolOptions#setCompressionThreshold(int)}).
+         *
+         * @return the number of bytes saved by compression.
+         */
+        public Gauge<Long> getCompressionBytesSaved() {
+            return compressionBytesSaved;
+        }
+
+        /**
+         * Returns the total time spent compressing and decompressing frame bodies, in nanoseconds.
+         * <p/>
+         * Comparing this with {@link #getCompressionBytesSaved()} tells whether compression is worth its CPU cost.
+         *
+         * @return the compression time, in nanoseconds.
+         */
+        public Gauge<Long> getCompressionTime() {
+            return compressionTime;
+        }
+
+        /**
+         * Returns the number of outgoing frames that were sent uncompressed although compression is enabled, either
+         * because they were smaller than the {@link ProtocolOptions#setCompressionThreshold(int) threshold}, or
+         * because {@link ProtocolOptions#setAdaptiveCompression(boolean) adaptive compression} disabled it for their
+         * type.
+         *
+         * @return the number of frames sent uncompressed.
+         */
+        public Gauge<Long> getCompressionSkipped() {
+            return compressionSkipped;
+        }
+
+        /**
+         * Returns the distribution of the number of rows per page received.
+         *
+         * @return a {@code Histogram} of the number of rows per page.
+         */
+        public Histogram getRowsPerPage() {
+            return rowsPerPage;
+        }
+
+        /**
+         * Returns the number of bytes sent to a given host since it was added to the cluster.
+         *
+         * @param host the host.
+         * @return the number of bytes sent.
+         */
+        public long getBytesSent(Host host) {
+            HostTraffic hostTraffic = hosts.get(host.getSocketAddress());
+            return hostTraffic == null ? 0 : bytesSent(hostTraffic);
+        }
+
+        /**
+         * Returns the number of bytes received from a given host since it was added to the cluster.
+         *
+         * @param host the host.
+         * @return the number of bytes received.
+         */
+        public long getBytesReceived(Host host) {
+            HostTraffic hostTraffic = hosts.get(host.getSocketAddress());
+            return hostTraffic == null ? 0 : bytesReceived(hostTraffic);
+        }
+
+        HostTraffic forAddress(final InetSocketAddress address) {
+            HostTraffic hostTraffic = hosts.get(address);
+            if (hostTraffic != null)
+                return hostTraffic;
+            // Only called when a connection is created. Synchronized so that the gauges are never registered twice,
+            // or removed after a new instance has been registered for the same address.
+            synchronized (this) {
+                hostTraffic = hosts.get(address);
+                if (hostTraffic == null) {
+                    final HostTraffic newTraffic = new HostTraffic();
+                    registry.register(hostMetricName("bytes-sent", address), new Gauge<Long>() {
+                        @Override
+                        public Long getValue() {
+                            return bytesSent(newTraffic);
+                        }
+                    });
+                    registry.register(hostMetricName("bytes-received", address), new Gauge<Long>() {
+                        @Override
+                        public Long getValue() {
+                            return bytesReceived(newTraffic);
+                        }
+                    });
+                    hosts.put(address, newTraffic);
+                    hostTraffic = newTraffic;
+                }
+                return hostTraffic;
+            }
+        }
+
+        synchronized void removeHost(Host host) {
+            InetSocketAddress address = host.getSocketAddress();
+            if (hosts.remove(address) != null) {
+                registry.remove(hostMetricName("bytes-sent", address));
+                registry.remove(hostMetricName("bytes-received", address));
+            }
+        }
+
+        private synchronized long bytesSent(HostTraffic hostTraffic) {
+            long total = hostTraffic.closedBytesSent;
+            for (ConnectionTraffic connection : hostTraffic.connections)
+                total += connection.bytesSent();
+            return total;
+        }
+
+        private synchronized long bytesReceived(HostTraffic hostTraffic) {
+            long total = hostTraffic.closedBytesReceived;
+            for (ConnectionTraffic connection : hostTraffic.connections)
+                total += connection.bytesReceived();
+            return total;
+        }
+
+        private String hostMetricName(String name, InetSocketAddress address) {
+            return MetricRegistry.name(name, address.getAddress().getHostAddress() + ":" + address.getPort());
+        }
+
+        synchronized void register(ConnectionTraffic connection, HostTraffic hostTraffic) {
+            connections.add(connection);
+            hostTraffic.connections.add(connection);
+        }
+
+        synchronized void unregister(ConnectionTraffic connection, HostTraffic hostTraffic) {
+            if (!connections.remove(connection))
+                return;
+            closed.add(connection);
+            hostTraffic.connections.remove(connection);
+            hostTraffic.closedBytesSent += connection.bytesSent();
+            hostTraffic.closedBytesReceived += connection.bytesReceived();
+        }
+
+        void frameSent(int size) {
+            requestFrameSizes.update(size);
+        }
+
+        void frameReceived(int size) {
+            responseFrameSizes.update(size);
+        }
+
+        void pageReceived(int rows) {
+            rowsPerPage.update(rows);
+        }
+
+        private synchronized Totals totals() {
+            Totals totals = new Totals();
+            totals.add(closed);
+            for (ConnectionTraffic connection : connections)
+                totals.add(connection);
+            return totals;
+        }
+    }
+
+    private static class Totals {
+        long bytesSent;
+        long bytesReceived;
+        long largestResponseFrame;
+        long uncompressedBytes;
+        long compressedBytes;
+        long compressionTime;
+        long compressionSkipped;
+
+        void add(Totals other) {
+            bytesSent += other.bytesSent;
+            bytesReceived += other.bytesReceived;
+            largestResponseFrame = Math.max(largestResponseFrame, other.largestResponseFrame);
+            uncompressedBytes += other.uncompressedBytes;
+            compressedBytes += other.compressedBytes;
+            compressionTime += other.compressionTime;
+            compressionSkipped += other.compressionSkipped;
+        }
+
+        void add(ConnectionTraffic connection) {
+            bytesSent += connection.bytesSent();
+            bytesReceived += connection.bytesReceived();
+            largestResponseFrame = Math.max(largestResponseFrame, connection.largestResponseFrame());
+            uncompressedBytes += connection.uncompressedBytes();
+            compressedBytes += connection.compressedBytes();
+            compressionTime += connection.compressionTime();
+            compressionSkipped += connection.compressionSkippedCount();
+        }
+    }
+
+    // Guarded by the enclosing Traffic instance
+    static class HostTraffic {
+        final Set<ConnectionTraffic> connections = new HashSet<ConnectionTraffic>();
+        long closedBytesSent;
+        long closedBytesReceived;
     }
 }
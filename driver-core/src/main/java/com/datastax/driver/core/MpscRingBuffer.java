@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue that supports multiple producers and a single consumer.
+ * <p/>
+ * Producers claim a slot by incrementing the tail sequence, then publish their element in it; the
+ * consumer clears slots as it goes. When the buffer is full, {@link #offer(Object)} fails
+ * immediately instead of blocking, so that producers (typically I/O threads) are never slowed
+ * down by a lagging consumer.
+ */
+class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // only written by the consumer
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity the minimum capacity, will be rounded up to the next power of two.
+     */
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity, should be > 0, got " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.slots = new AtomicReferenceArray<E>(size);
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an element; may be called concurrently from any thread.
+     *
+     * @return whether the element was added ({@code false} if the buffer was full).
+     */
+    boolean offer(E element) {
+        if (element == null)
+            throw new NullPointerException();
+        long capacity = mask + 1;
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() >= capacity)
+                return false;
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) t & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element; must only be called from the consumer thread.
+     *
+     * @return the element, or {@code null} if the buffer is empty (or if the producer that claimed
+     * the next slot has not published its element yet).
+     */
+    E poll() {
+        long h = head.get();
+        int index = (int) h & mask;
+        E element = slots.get(index);
+        if (element == null)
+            return null;
+        slots.lazySet(index, null);
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    /**
+     * @return whether the buffer is empty. Note that an element may be claimed but not published
+     * yet, in which case this returns {@code false} but {@link #poll()} returns {@code null}.
+     */
+    boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+}
@@ -152,6 +152,8 @@ public class PoolingOptions {
 
     private volatile Executor initializationExecutor = DEFAULT_INITIALIZATION_EXECUTOR;
 
+    private volatile boolean eventLoopAffinity;
+
     public PoolingOptions() {
     }
 
@@ -536,6 +538,45 @@ public class PoolingOptions {
         return this;
     }
 
+    /**
+     * Returns whether event loop affinity is enabled.
+     *
+     * @return whether event loop affinity is enabled.
+     * @see #setEventLoopAffinity(boolean)
+     */
+    public boolean isEventLoopAffinity() {
+        return eventLoopAffinity;
+    }
+
+    /**
+     * Enables event loop affinity.
+     * <p/>
+     * The driver processes network I/O on a fixed set of threads (Netty event loops), each of which owns a subset of
+     * the connections. When this option is enabled:
+     * <ul>
+     * <li>the connections of each pool are spread evenly across event loops (instead of being assigned in a global
+     * round-robin fashion);</li>
+     * <li>when a request is executed from an event loop (for example, in a callback of a previous request, or in a
+     * task submitted to one of {@link Cluster#getEventLoops()}), the driver prefers connections owned by that loop.
+     * The request is then written, and its response processed, on the calling thread, without any thread hop.</li>
+     * </ul>
+     * If no connection owned by the current loop is available, the driver falls back to the least busy connection of
+     * the pool. To make sure that each loop owns a connection to each host, set the number of
+     * {@link #setCoreConnectionsPerHost(HostDistance, int) core connections per host} to (a multiple of) the number
+     * of event loops.
+     * <p/>
+     * This is intended for "thread-per-core" applications, that run their own logic on the driver's event loops and
+     * never block them. This option is disabled by default, and only affects connections created after it was
+     * changed.
+     *
+     * @param eventLoopAffinity whether to enable event loop affinity.
+     * @return this {@code PoolingOptions}
+     */
+    public PoolingOptions setEventLoopAffinity(boolean eventLoopAffinity) {
+        this.eventLoopAffinity = eventLoopAffinity;
+        return this;
+    }
+
     synchronized void setProtocolVersion(ProtocolVersion actualVersion) {
         this.protocolVersion = actualVersion;
 
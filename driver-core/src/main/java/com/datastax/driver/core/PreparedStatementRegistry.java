@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The prepared statements known by a {@link Cluster}, that get re-prepared on nodes that come back up.
+ * <p/>
+ * Statements are held weakly, so that the registry never keeps alive a statement that the application dropped, and
+ * the registry is bounded in size (the least recently used statements are evicted first).
+ * <p/>
+ * To keep the request path cheap, executions are not all recorded: {@link #contains(MD5Digest)} does not count as an
+ * access, and the caller only {@link #touch(PreparedStatement) touches} a sample of the executions. The number of
+ * touches is therefore an estimate of how often a statement is executed, that is good enough to tell the frequently
+ * executed statements apart from the others. An evicted statement remains usable: it is registered again the next
+ * time it is executed.
+ */
+class PreparedStatementRegistry {
+
+    private static final AtomicLongFieldUpdater<DefaultPreparedStatement> USES =
+            AtomicLongFieldUpdater.newUpdater(DefaultPreparedStatement.class, "uses");
+
+    // Replaced when the maximum size changes, since Guava caches can't be resized
+    private volatile Cache<MD5Digest, PreparedStatement> cache;
+    private volatile long previousEvictions;
+
+    PreparedStatementRegistry(int maximumSize) {
+        this.cache = newCache(maximumSize);
+    }
+
+    /**
+     * Changes the maximum size. The statements registered concurrently might be lost, this is not a problem since
+     * they will be registered again when they get executed.
+     */
+    synchronized void setMaximumSize(int maximumSize) {
+        Cache<MD5Digest, PreparedStatement> previous = cache;
+        Cache<MD5Digest, PreparedStatement> newCache = newCache(maximumSize);
+        newCache.putAll(previous.asMap());
+        cache = newCache;
+        previousEvictions += previous.stats().evictionCount();
+    }
+
+    /**
+     * Registers the statement if there is no statement for its id yet.
+     *
+     * @return the previously registered statement, or {@code null} if the statement was added.
+     */
+    PreparedStatement putIfAbsent(PreparedStatement stmt) {
+        markUsed(stmt);
+        return cache.asMap().putIfAbsent(stmt.getPreparedId().id, stmt);
+    }
+
+    /**
+     * Whether a statement is registered for the id. This does not count as an access.
+     */
+    boolean contains(MD5Digest id) {
+        return cache.asMap().containsKey(id);
+    }
+
+    /**
+     * Returns the statement registered for the id, and records an access to it.
+     */
+    PreparedStatement get(MD5Digest id) {
+        PreparedStatement stmt = cache.getIfPresent(id);
+        if (stmt != null)
+            markUsed(stmt);
+        return stmt;
+    }
+
+    /**
+     * Records an execution of a registered statement.
+     */
+    void touch(PreparedStatement stmt) {
+        get(stmt.getPreparedId().id);
+    }
+
+    /**
+     * Returns a snapshot of the registered statements, most used first (statements that were used the same number of
+     * times are ordered from the most recently used).
+     */
+    List<PreparedStatement> valuesByUsage() {
+        List<PreparedStatement> values = new ArrayList<PreparedStatement>(cache.asMap().values());
+        final long[] uses = new long[values.size()];
+        final long[] lastUsed = new long[values.size()];
+        List<Integer> order = new ArrayList<Integer>(values.size());
+        for (int i = 0; i < uses.length; i++) {
+            // snapshot the counters so that concurrent updates don't break the sort contract
+            PreparedStatement stmt = values.get(i);
+            if (stmt instanceof DefaultPreparedStatement) {
+                uses[i] = ((DefaultPreparedStatement) stmt).uses;
+                lastUsed[i] = ((DefaultPreparedStatement) stmt).lastUsed;
+            } else {
+                lastUsed[i] = Long.MIN_VALUE;
+            }
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                if (uses[i1] != uses[i2])
+                    return uses[i2] < uses[i1] ? -1 : 1;
+                return lastUsed[i2] < lastUsed[i1] ? -1 : (lastUsed[i2] == lastUsed[i1] ? 0 : 1);
+            }
+        });
+        List<PreparedStatement> sorted = new ArrayList<PreparedStatement>(values.size());
+        for (Integer i : order)
+            sorted.add(values.get(i));
+        return sorted;
+    }
+
+    int size() {
+        return (int) cache.size();
+    }
+
+    boolean isEmpty() {
+        return cache.size() == 0;
+    }
+
+    /**
+     * The number of statements that were evicted because the registry was full, or because they were garbage
+     * collected.
+     */
+    long evictionCount() {
+        return previousEvictions + cache.stats().evictionCount();
+    }
+
+    private static Cache<MD5Digest, PreparedStatement> newCache(int maximumSize) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Invalid maximum size, should be > 0, got " + maximumSize);
+        return CacheBuilder.newBuilder()
+                .weakValues()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    private static void markUsed(PreparedStatement stmt) {
+        if (stmt instanceof DefaultPreparedStatement) {
+            DefaultPreparedStatement dps = (DefaultPreparedStatement) stmt;
+            USES.incrementAndGet(dps);
+            dps.lastUsed = System.nanoTime();
+        }
+    }
+}
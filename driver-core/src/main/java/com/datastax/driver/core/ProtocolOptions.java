@@ -79,6 +79,11 @@ public class ProtocolOptions {
      */
     public static final int DEFAULT_MAX_SCHEMA_AGREEMENT_WAIT_SECONDS = 10;
 
+    /**
+     * The default value for {@link #getCompressionThreshold()}: 0 (all frames are compressed).
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 0;
+
     private volatile Cluster.Manager manager;
 
     private final int port;
@@ -91,6 +96,8 @@ public class ProtocolOptions {
     private final AuthProvider authProvider;
 
     private volatile Compression compression = Compression.NONE;
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private volatile boolean adaptiveCompression;
 
     /**
      * Creates a new {@code ProtocolOptions} instance using the {@code DEFAULT_PORT}
@@ -192,6 +199,69 @@ public class ProtocolOptions {
         return this;
     }
 
+    /**
+     * Returns the minimum size of the frames that get compressed.
+     *
+     * @return the threshold, in bytes.
+     * @see #setCompressionThreshold(int)
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Sets the minimum size of the frames that get compressed, if {@link #setCompression(Compression) compression} is
+     * enabled.
+     * <p/>
+     * The protocol allows each frame to be compressed or not, independently of the others. Outgoing frames with a body
+     * smaller than this threshold are sent uncompressed: for small requests (for example, the {@code EXECUTE} of a
+     * prepared statement with a few bound values), the compression overhead in CPU and headers usually exceeds the
+     * savings. Incoming frames are only decompressed if the server compressed them.
+     * <p/>
+     * The default is {@link #DEFAULT_COMPRESSION_THRESHOLD}. Note that while this setting can be changed at any time, it
+     * will only apply to newly created connections.
+     *
+     * @param compressionThreshold the threshold, in bytes.
+     * @return this {@code ProtocolOptions} object.
+     * @throws IllegalArgumentException if {@code compressionThreshold < 0}.
+     */
+    public ProtocolOptions setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0)
+            throw new IllegalArgumentException("Invalid compression threshold, should be >= 0, got " + compressionThreshold);
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    /**
+     * Returns whether adaptive compression is enabled.
+     *
+     * @return whether adaptive compression is enabled.
+     * @see #setAdaptiveCompression(boolean)
+     */
+    public boolean isAdaptiveCompression() {
+        return adaptiveCompression;
+    }
+
+    /**
+     * Enables adaptive compression, if {@link #setCompression(Compression) compression} is enabled.
+     * <p/>
+     * With this option, each connection measures the compression ratio of its outgoing frames, for each type of
+     * request (for example {@code QUERY}, {@code EXECUTE} or {@code BATCH}). If compression saves less than 10% of the
+     * bytes for a request type, the connection stops compressing it. It periodically compresses a few frames again to
+     * check if the payloads have changed.
+     * <p/>
+     * This is disabled by default. Note that while this setting can be changed at any time, it will only apply to
+     * newly created connections. The bytes saved and the time spent compressing are reported in the
+     * {@link Metrics.Traffic traffic metrics}.
+     *
+     * @param adaptiveCompression whether to enable adaptive compression.
+     * @return this {@code ProtocolOptions} object.
+     */
+    public ProtocolOptions setAdaptiveCompression(boolean adaptiveCompression) {
+        this.adaptiveCompression = adaptiveCompression;
+        return this;
+    }
+
     /**
      * Returns the maximum time to wait for schema agreement before returning from a DDL query.
      *
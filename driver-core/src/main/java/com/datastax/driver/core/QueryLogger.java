@@ -13,7 +13,11 @@ import org.slf4j.LoggerFactory;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
@@ -75,6 +79,17 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
  * behavior), or using a {@link Builder#withDynamicThreshold(PercentileTracker, double) dynamic threshold}
  * based on latency percentiles.
  * <p/>
+ * <p/>
+ * <strong>Sampling and asynchronous logging</strong>
+ * <p/>
+ * Formatting statements and their parameters can be expensive, and by default happens on the thread that completes
+ * the request (typically a Netty I/O thread). Under heavy load, you can {@link Builder#withSamplingRate(double) log
+ * only a fraction of normal queries}, and/or {@link Builder#withAsynchronousLogging(int) hand queries off} to
+ * a background thread that does the formatting.
+ * <p/>
+ * Queries can also be reported as structured {@link QueryEvent}s to a {@link QueryEventListener}, for example to
+ * feed an external monitoring system without going through string formatting.
+ * <p/>
  * This class is thread-safe.
  *
  * @since 2.0.10
@@ -114,6 +129,17 @@ public abstract class QueryLogger implements LatencyTracker {
      */
     public static final int DEFAULT_MAX_LOGGED_PARAMETERS = 50;
 
+    /**
+     * The default fraction of successful queries that are logged by the driver (all of them).
+     */
+    public static final double DEFAULT_SAMPLING_RATE = 1.0;
+
+    /**
+     * The default maximum number of queries that can be waiting to be logged when
+     * {@link Builder#withAsynchronousLogging(int) asynchronous logging} is enabled.
+     */
+    public static final int DEFAULT_MAX_PENDING_EVENTS = 8192;
+
     // Loggers
 
     /**
@@ -174,6 +200,11 @@ public abstract class QueryLogger implements LatencyTracker {
     @VisibleForTesting
     static final String FURTHER_PARAMS_OMITTED = " [further parameters omitted]";
 
+    private static final Logger logger = LoggerFactory.getLogger(QueryLogger.class);
+
+    // how long the formatter thread waits for new events before re-checking its state
+    private static final long FORMATTER_PARK_NANOS = MILLISECONDS.toNanos(100);
+
     protected volatile Cluster cluster;
 
     private volatile ProtocolVersion protocolVersion;
@@ -184,6 +215,16 @@ public abstract class QueryLogger implements LatencyTracker {
 
     protected volatile int maxLoggedParameters;
 
+    protected volatile double samplingRate = DEFAULT_SAMPLING_RATE;
+
+    // decides which successful queries are logged
+    private final Sampler sampler = new Sampler();
+
+    private volatile QueryEventListener eventListener;
+
+    // null if queries are logged synchronously
+    private volatile AsyncDispatcher dispatcher;
+
     /**
      * Private constructor. Instances of QueryLogger should be obtained via the {@link #builder()} method.
      */
@@ -205,14 +246,24 @@ public abstract class QueryLogger implements LatencyTracker {
         return new QueryLogger.Builder();
     }
 
+    // not inlined in the builder: "queryLogger.new AsyncDispatcher(...)" compiles to a Java 7 null check on recent JDKs
+    private void enableAsyncDispatch(int maxPendingEvents) {
+        dispatcher = new AsyncDispatcher(maxPendingEvents);
+    }
+
     @Override
     public void onRegister(Cluster cluster) {
         this.cluster = cluster;
+        AsyncDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null)
+            dispatcher.start(cluster.getClusterName() + "-query-logger");
     }
 
     @Override
     public void onUnregister(Cluster cluster) {
-        // nothing to do
+        AsyncDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null)
+            dispatcher.stop();
     }
 
     /**
@@ -256,6 +307,11 @@ public abstract class QueryLogger implements LatencyTracker {
             this.slowQueryLatencyThresholdMillis = slowQueryLatencyThresholdMillis;
         }
 
+        @Override
+        boolean isSlowQuery(Host host, Statement statement, long latencyMs) {
+            return latencyMs > slowQueryLatencyThresholdMillis;
+        }
+
         @Override
         protected void maybeLogNormalOrSlowQuery(Host host, Statement statement, long latencyMs) {
             if (latencyMs > slowQueryLatencyThresholdMillis) {
@@ -343,6 +399,12 @@ public abstract class QueryLogger implements LatencyTracker {
             this.slowQueryLatencyThresholdPercentile = slowQueryLatencyThresholdPercentile;
         }
 
+        @Override
+        boolean isSlowQuery(Host host, Statement statement, long latencyMs) {
+            long threshold = percentileLatencyTracker.getLatencyAtPercentile(host, statement, null, slowQueryLatencyThresholdPercentile);
+            return threshold >= 0 && latencyMs > threshold;
+        }
+
         @Override
         protected void maybeLogNormalOrSlowQuery(Host host, Statement statement, long latencyMs) {
             long threshold = percentileLatencyTracker.getLatencyAtPercentile(host, statement, null, slowQueryLatencyThresholdPercentile);
@@ -389,6 +451,12 @@ public abstract class QueryLogger implements LatencyTracker {
 
         private boolean constantThreshold = true;
 
+        private double samplingRate = DEFAULT_SAMPLING_RATE;
+
+        private int maxPendingEvents;
+
+        private QueryEventListener eventListener;
+
         /**
          * Enables slow query latency tracking based on constant thresholds.
          * <p/>
@@ -485,6 +553,62 @@ public abstract class QueryLogger implements LatencyTracker {
             return this;
         }
 
+        /**
+         * Set the fraction of normal queries that will be logged (or reported to the
+         * {@link #withEventListener(QueryEventListener) event listener}).
+         * <p/>
+         * Sampling is deterministic: with a rate of 0.1, exactly one normal query out of 10 is logged. Slow and
+         * failed queries are never sampled out.
+         *
+         * @param samplingRate The fraction of normal queries to log.
+         *                     It must be comprised between 0 and 1 inclusive.
+         *                     The default value is {@link #DEFAULT_SAMPLING_RATE}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withSamplingRate(double samplingRate) {
+            this.samplingRate = samplingRate;
+            return this;
+        }
+
+        /**
+         * Enables asynchronous logging: instead of being formatted on the thread that completes the request,
+         * queries are handed off to a dedicated background thread.
+         * <p/>
+         * The hand-off is lock-free and never blocks: if the background thread falls behind and there are already
+         * {@code maxPendingEvents} queries waiting, new queries are dropped (see {@link QueryLogger#getDroppedEvents()}).
+         * <p/>
+         * Note that statements are formatted after their execution has completed; if your application modifies a
+         * statement after executing it (for example by re-binding the values of a {@link BoundStatement}), the logs
+         * might show the new values.
+         *
+         * @param maxPendingEvents The maximum number of queries waiting to be logged. It must be strictly positive,
+         *                         and will be rounded up to the next power of two.
+         *                         A good default is {@link #DEFAULT_MAX_PENDING_EVENTS}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withAsynchronousLogging(int maxPendingEvents) {
+            if (maxPendingEvents <= 0)
+                throw new IllegalArgumentException("Invalid maxPendingEvents, should be > 0, got " + maxPendingEvents);
+            this.maxPendingEvents = maxPendingEvents;
+            return this;
+        }
+
+        /**
+         * Set a listener that will be notified of every logged query (after sampling), in the form of a
+         * structured {@link QueryEvent}.
+         * <p/>
+         * The listener is notified regardless of the levels of the loggers. If
+         * {@link #withAsynchronousLogging(int) asynchronous logging} is enabled, it is invoked from the background
+         * thread, otherwise from the thread that completed the request; in the latter case, it should not block.
+         *
+         * @param eventListener the listener, or {@code null} to disable structured events (the default).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withEventListener(QueryEventListener eventListener) {
+            this.eventListener = eventListener;
+            return this;
+        }
+
         /**
          * Build the {@link QueryLogger} instance.
          *
@@ -492,14 +616,20 @@ public abstract class QueryLogger implements LatencyTracker {
          * @throws IllegalArgumentException if the builder is unable to build a valid instance due to incorrect settings.
          */
         public QueryLogger build() {
+            QueryLogger queryLogger;
             if (constantThreshold) {
-                return new ConstantThresholdQueryLogger(maxQueryStringLength, maxParameterValueLength,
+                queryLogger = new ConstantThresholdQueryLogger(maxQueryStringLength, maxParameterValueLength,
                         maxLoggedParameters, slowQueryLatencyThresholdMillis);
             } else {
-                return new DynamicThresholdQueryLogger(maxQueryStringLength, maxParameterValueLength,
+                queryLogger = new DynamicThresholdQueryLogger(maxQueryStringLength, maxParameterValueLength,
                         maxLoggedParameters, slowQueryLatencyThresholdPercentile,
                         percentileLatencyTracker);
             }
+            queryLogger.setSamplingRate(samplingRate);
+            queryLogger.eventListener = eventListener;
+            if (maxPendingEvents > 0)
+                queryLogger.enableAsyncDispatch(maxPendingEvents);
+            return queryLogger;
         }
 
     }
@@ -598,6 +728,41 @@ public abstract class QueryLogger implements LatencyTracker {
         this.maxLoggedParameters = maxLoggedParameters;
     }
 
+    /**
+     * Return the fraction of normal queries that are logged by the driver.
+     * The default value is {@link #DEFAULT_SAMPLING_RATE}.
+     *
+     * @return the fraction of normal queries that are logged by the driver.
+     */
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * Set the fraction of normal queries that are logged by the driver.
+     * Slow and failed queries are never sampled out.
+     *
+     * @param samplingRate the fraction of normal queries to log.
+     *                     It must be comprised between 0 and 1 inclusive.
+     * @throws IllegalArgumentException if {@code samplingRate < 0 || samplingRate > 1}.
+     */
+    public void setSamplingRate(double samplingRate) {
+        if (!(samplingRate >= 0.0 && samplingRate <= 1.0))
+            throw new IllegalArgumentException("Invalid samplingRate, should be >= 0 and <= 1, got " + samplingRate);
+        this.samplingRate = samplingRate;
+    }
+
+    /**
+     * Return the number of queries that were not logged because the background thread was lagging behind.
+     * This is always 0 if {@link Builder#withAsynchronousLogging(int) asynchronous logging} is disabled.
+     *
+     * @return the number of dropped queries.
+     */
+    public long getDroppedEvents() {
+        AsyncDispatcher dispatcher = this.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.dropped.get();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -609,7 +774,46 @@ public abstract class QueryLogger implements LatencyTracker {
         if (statement instanceof StatementWrapper)
             statement = ((StatementWrapper) statement).getWrappedStatement();
 
-        long latencyMs = NANOSECONDS.toMillis(newLatencyNanos);
+        // Only sample out normal queries: slow and failed queries are always logged
+        if (exception == null && !sample(host, statement, newLatencyNanos))
+            return;
+
+        QueryEventListener eventListener = this.eventListener;
+        if (eventListener == null && !isLogEnabled(exception))
+            return;
+
+        AsyncDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null && dispatcher.running) {
+            dispatcher.submit(new QueryEvent(cluster, host, statement, exception, newLatencyNanos));
+        } else if (eventListener != null) {
+            process(new QueryEvent(cluster, host, statement, exception, newLatencyNanos));
+        } else {
+            log(host, statement, exception, newLatencyNanos);
+        }
+    }
+
+    private boolean sample(Host host, Statement statement, long latencyNanos) {
+        double samplingRate = this.samplingRate;
+        return samplingRate >= 1.0
+                || isSlowQuery(host, statement, NANOSECONDS.toMillis(latencyNanos))
+                || sampler.sample(samplingRate);
+    }
+
+    private boolean isLogEnabled(Exception exception) {
+        return exception == null
+                ? NORMAL_LOGGER.isDebugEnabled() || SLOW_LOGGER.isDebugEnabled()
+                : ERROR_LOGGER.isDebugEnabled();
+    }
+
+    private void process(QueryEvent event) {
+        log(event.getHost(), event.getStatement(), event.getException(), event.getLatency(NANOSECONDS));
+        QueryEventListener eventListener = this.eventListener;
+        if (eventListener != null)
+            eventListener.onQuery(event);
+    }
+
+    private void log(Host host, Statement statement, Exception exception, long latencyNanos) {
+        long latencyMs = NANOSECONDS.toMillis(latencyNanos);
         if (exception == null) {
             maybeLogNormalOrSlowQuery(host, statement, latencyMs);
         } else {
@@ -617,6 +821,8 @@ public abstract class QueryLogger implements LatencyTracker {
         }
     }
 
+    abstract boolean isSlowQuery(Host host, Statement statement, long latencyMs);
+
     protected abstract void maybeLogNormalOrSlowQuery(Host host, Statement statement, long latencyMs);
 
     protected void maybeLogNormalQuery(Host host, Statement statement, long latencyMs) {
@@ -881,4 +1087,190 @@ public abstract class QueryLogger implements LatencyTracker {
         return remaining;
     }
 
+    /**
+     * A query reported by a {@link QueryLogger}, in a structured form.
+     * <p/>
+     * Events are created on the request path and only capture references; the other attributes are computed
+     * when the corresponding getters are invoked.
+     */
+    public static final class QueryEvent {
+
+        private final Cluster cluster;
+        private final Host host;
+        private final Statement statement;
+        private final Exception exception;
+        private final long latencyNanos;
+        private final long timestamp;
+
+        QueryEvent(Cluster cluster, Host host, Statement statement, Exception exception, long latencyNanos) {
+            this.cluster = cluster;
+            this.host = host;
+            this.statement = statement;
+            this.exception = exception;
+            this.latencyNanos = latencyNanos;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        /**
+         * @return the host that the query was sent to.
+         */
+        public Host getHost() {
+            return host;
+        }
+
+        /**
+         * @return the statement that was executed.
+         */
+        public Statement getStatement() {
+            return statement;
+        }
+
+        /**
+         * @return the error if the query failed, or {@code null} if it completed normally.
+         */
+        public Exception getException() {
+            return exception;
+        }
+
+        /**
+         * @param unit the unit to express the latency in.
+         * @return the latency of the query.
+         */
+        public long getLatency(TimeUnit unit) {
+            return unit.convert(latencyNanos, NANOSECONDS);
+        }
+
+        /**
+         * @return the time when the query completed, in milliseconds since the epoch.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return the consistency level of the statement, or the cluster's
+         * {@link QueryOptions#getConsistencyLevel() default consistency level} if the statement does not define one.
+         */
+        public ConsistencyLevel getConsistencyLevel() {
+            ConsistencyLevel consistencyLevel = statement.getConsistencyLevel();
+            return consistencyLevel != null
+                    ? consistencyLevel
+                    : cluster.getConfiguration().getQueryOptions().getConsistencyLevel();
+        }
+
+        /**
+         * @return the identifier of the prepared statement if the statement is a {@link BoundStatement},
+         * {@code null} otherwise.
+         */
+        public PreparedId getStatementId() {
+            return statement instanceof BoundStatement
+                    ? ((BoundStatement) statement).preparedStatement().getPreparedId()
+                    : null;
+        }
+
+        /**
+         * @return the total size in bytes of the serialized values of a {@link BoundStatement}, or of the
+         * {@link BoundStatement}s of a {@link BatchStatement}; {@code -1} if it can't be determined without
+         * serializing the values (for example for a {@link SimpleStatement}).
+         */
+        public int getValuesSize() {
+            if (statement instanceof BoundStatement)
+                return ((BoundStatement) statement).valuesSize();
+            if (statement instanceof BatchStatement) {
+                int size = 0;
+                for (Statement inner : ((BatchStatement) statement).getStatements()) {
+                    if (!(inner instanceof BoundStatement))
+                        return -1;
+                    size += ((BoundStatement) inner).valuesSize();
+                }
+                return size;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A listener that receives the queries reported by a {@link QueryLogger} as structured events.
+     *
+     * @see Builder#withEventListener(QueryEventListener)
+     */
+    public interface QueryEventListener {
+
+        /**
+         * Invoked for each reported query.
+         *
+         * @param event the query.
+         */
+        void onQuery(QueryEvent event);
+    }
+
+    /**
+     * Hands queries off to a background thread that logs them.
+     */
+    private class AsyncDispatcher implements Runnable {
+
+        private final MpscRingBuffer<QueryEvent> events;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile Thread thread;
+        private volatile boolean running;
+        // set by the background thread before parking, so that producers know they need to wake it up
+        private volatile boolean waiting;
+
+        AsyncDispatcher(int maxPendingEvents) {
+            this.events = new MpscRingBuffer<QueryEvent>(maxPendingEvents);
+        }
+
+        synchronized void start(String name) {
+            if (running)
+                return;
+            running = true;
+            Thread thread = new Thread(this, name);
+            thread.setDaemon(true);
+            this.thread = thread;
+            thread.start();
+        }
+
+        synchronized void stop() {
+            running = false;
+            Thread thread = this.thread;
+            if (thread != null)
+                LockSupport.unpark(thread);
+        }
+
+        void submit(QueryEvent event) {
+            if (!events.offer(event)) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (waiting) {
+                waiting = false;
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                drain();
+                waiting = true;
+                // re-check after publishing the flag, a producer might have missed it
+                if (events.isEmpty() && running)
+                    LockSupport.parkNanos(this, FORMATTER_PARK_NANOS);
+                waiting = false;
+            }
+            drain();
+        }
+
+        private void drain() {
+            QueryEvent event;
+            while ((event = events.poll()) != null) {
+                try {
+                    process(event);
+                } catch (RuntimeException e) {
+                    logger.warn("Unexpected error while logging query", e);
+                }
+            }
+        }
+    }
+
 }
@@ -10,6 +10,12 @@ import com.datastax.driver.core.exceptions.UnsupportedFeatureException;
 import com.datastax.driver.core.utils.MoreFutures;
 import com.google.common.util.concurrent.Futures;
 
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * Options related to defaults for individual queries.
  */
@@ -47,12 +53,34 @@ public class QueryOptions {
 
     public static final int DEFAULT_REFRESH_SCHEMA_INTERVAL_MILLIS = 1000;
 
+    /**
+     * The default value for {@link #getAutoPrepareThreshold()}: 3.
+     */
+    public static final int DEFAULT_AUTO_PREPARE_THRESHOLD = 3;
+
+    /**
+     * The default value for {@link #getAutoPrepareCacheSize()}: 1000.
+     */
+    public static final int DEFAULT_AUTO_PREPARE_CACHE_SIZE = 1000;
+
+    /**
+     * The default value for {@link #getMaxPreparedStatements()}: 10000.
+     */
+    public static final int DEFAULT_MAX_PREPARED_STATEMENTS = 10000;
+
+    /**
+     * The default value for {@link #getReprepareConcurrency()}: 100.
+     */
+    public static final int DEFAULT_REPREPARE_CONCURRENCY = 100;
+
     private volatile ConsistencyLevel consistency = DEFAULT_CONSISTENCY_LEVEL;
     private volatile ConsistencyLevel serialConsistency = DEFAULT_SERIAL_CONSISTENCY_LEVEL;
     private volatile int fetchSize = DEFAULT_FETCH_SIZE;
     private volatile boolean defaultIdempotence = DEFAULT_IDEMPOTENCE;
 
     private volatile boolean metadataEnabled = true;
+    private volatile Set<String> metadataKeyspaces = Collections.emptySet();
+    private volatile File schemaSnapshotFile;
 
     private volatile int maxPendingRefreshNodeListRequests = DEFAULT_MAX_PENDING_REFRESH_NODE_LIST_REQUESTS;
     private volatile int maxPendingRefreshNodeRequests = DEFAULT_MAX_PENDING_REFRESH_NODE_REQUESTS;
@@ -66,6 +94,14 @@ public class QueryOptions {
     private volatile Cluster.Manager manager;
     private volatile boolean prepareOnAllHosts = true;
 
+    private volatile int maxPreparedStatements = DEFAULT_MAX_PREPARED_STATEMENTS;
+    private volatile int reprepareConcurrency = DEFAULT_REPREPARE_CONCURRENCY;
+    private volatile int maxRepreparedStatementsOnUp = Integer.MAX_VALUE;
+
+    private volatile boolean autoPrepareEnabled = false;
+    private volatile int autoPrepareThreshold = DEFAULT_AUTO_PREPARE_THRESHOLD;
+    private volatile int autoPrepareCacheSize = DEFAULT_AUTO_PREPARE_CACHE_SIZE;
+
     /**
      * Creates a new {@link QueryOptions} instance using the {@link #DEFAULT_CONSISTENCY_LEVEL},
      * {@link #DEFAULT_SERIAL_CONSISTENCY_LEVEL} and {@link #DEFAULT_FETCH_SIZE}.
@@ -264,6 +300,211 @@ public class QueryOptions {
         return this.reprepareOnUp;
     }
 
+    /**
+     * Sets the maximum number of prepared statements that the driver keeps track of, in order to
+     * re-prepare them on nodes that come back up or join the cluster.
+     * <p/>
+     * When this limit is reached, the least recently used statement is evicted from the registry. Statements
+     * are also removed from the registry once the application doesn't reference them anymore.
+     * This does not invalidate the corresponding {@link PreparedStatement} instance: if it gets executed
+     * again, it is registered again, and re-prepared on the fly by nodes that don't know it anymore.
+     * <p/>
+     * The current size of the registry is reported by {@link Metrics#getPreparedStatements()}.
+     *
+     * @param maxPreparedStatements the maximum number of prepared statements. It must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code maxPreparedStatements &lte; 0}.
+     */
+    public QueryOptions setMaxPreparedStatements(int maxPreparedStatements) {
+        if (maxPreparedStatements <= 0)
+            throw new IllegalArgumentException("Invalid maxPreparedStatements, should be > 0, got " + maxPreparedStatements);
+        this.maxPreparedStatements = maxPreparedStatements;
+        if (manager != null && manager.preparedQueries != null)
+            manager.preparedQueries.setMaximumSize(maxPreparedStatements);
+        return this;
+    }
+
+    /**
+     * The maximum number of prepared statements that the driver keeps track of.
+     * <p/>
+     * It defaults to {@link #DEFAULT_MAX_PREPARED_STATEMENTS}.
+     *
+     * @return the value.
+     * @see #setMaxPreparedStatements(int)
+     */
+    public int getMaxPreparedStatements() {
+        return maxPreparedStatements;
+    }
+
+    /**
+     * Sets the maximum number of PREPARE requests that can be in flight at the same time when the driver
+     * {@link #setReprepareOnUp(boolean) re-prepares statements} on a node that comes back up.
+     * <p/>
+     * Requests are pipelined on a single connection, so this should stay well below the number of
+     * stream ids available per connection.
+     *
+     * @param reprepareConcurrency the maximum number of concurrent requests. It must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code reprepareConcurrency &lte; 0}.
+     */
+    public QueryOptions setReprepareConcurrency(int reprepareConcurrency) {
+        if (reprepareConcurrency <= 0)
+            throw new IllegalArgumentException("Invalid reprepareConcurrency, should be > 0, got " + reprepareConcurrency);
+        this.reprepareConcurrency = reprepareConcurrency;
+        return this;
+    }
+
+    /**
+     * The maximum number of concurrent PREPARE requests when re-preparing statements on a node that comes back up.
+     * <p/>
+     * It defaults to {@link #DEFAULT_REPREPARE_CONCURRENCY}.
+     *
+     * @return the value.
+     * @see #setReprepareConcurrency(int)
+     */
+    public int getReprepareConcurrency() {
+        return reprepareConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of statements that get re-prepared when a node comes back up.
+     * <p/>
+     * The most frequently executed statements are re-prepared first; the remaining ones will be
+     * re-prepared on the fly the first time they get executed on that node. Note that the driver only
+     * counts a sample of the executions, so the least executed statements are not told apart reliably
+     * (they are ordered from the most recently used).
+     * <p/>
+     * Lowering this value shortens the time it takes to bring a node back into rotation when many
+     * statements are registered.
+     * <p/>
+     * By default, all registered statements are re-prepared.
+     *
+     * @param maxRepreparedStatementsOnUp the maximum number of statements. It must be positive or zero.
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code maxRepreparedStatementsOnUp &lt; 0}.
+     */
+    public QueryOptions setMaxRepreparedStatementsOnUp(int maxRepreparedStatementsOnUp) {
+        if (maxRepreparedStatementsOnUp < 0)
+            throw new IllegalArgumentException("Invalid maxRepreparedStatementsOnUp, should be >= 0, got " + maxRepreparedStatementsOnUp);
+        this.maxRepreparedStatementsOnUp = maxRepreparedStatementsOnUp;
+        return this;
+    }
+
+    /**
+     * The maximum number of statements that get re-prepared when a node comes back up.
+     *
+     * @return the value.
+     * @see #setMaxRepreparedStatementsOnUp(int)
+     */
+    public int getMaxRepreparedStatementsOnUp() {
+        return maxRepreparedStatementsOnUp;
+    }
+
+    /**
+     * Toggle automatic preparation of frequently executed {@link SimpleStatement}s.
+     * <p/>
+     * This feature is disabled by default. When it is enabled, each session keeps track of the
+     * simple statements with positional values that it executes. Once a given query string has been
+     * executed {@link #setAutoPrepareThreshold(int) a few times}, it gets prepared in the background
+     * (as if {@link Session#prepareAsync(String)} had been called), and subsequent executions of that
+     * query are sent as {@link BoundStatement}s, which spares the coordinator from parsing the query
+     * every time and allows the driver to skip result metadata in responses.
+     * <p/>
+     * Note that:
+     * <ul>
+     * <li>simple statements without values, or with named values, are never auto-prepared;</li>
+     * <li>the statement reported by {@link ExecutionInfo#getStatement()} for an auto-prepared query is the
+     * {@link BoundStatement} that was actually executed;</li>
+     * <li>as with any prepared statement, result metadata is not refreshed if the schema changes, so
+     * {@code SELECT *} queries on tables that get altered might return stale columns;</li>
+     * <li>auto-prepared statements are registered like regular prepared statements, and thus get re-prepared
+     * on nodes that come back up (see {@link #setReprepareOnUp(boolean)}).</li>
+     * </ul>
+     * The number of hits and misses is reported by {@link Metrics#getAutoPrepareHits()} and
+     * {@link Metrics#getAutoPrepareMisses()}.
+     *
+     * @param autoPrepareEnabled whether simple statements should be automatically prepared.
+     * @return this {@code QueryOptions} instance.
+     */
+    public QueryOptions setAutoPrepareEnabled(boolean autoPrepareEnabled) {
+        this.autoPrepareEnabled = autoPrepareEnabled;
+        return this;
+    }
+
+    /**
+     * Whether frequently executed simple statements are automatically prepared.
+     *
+     * @return the value.
+     * @see #setAutoPrepareEnabled(boolean)
+     */
+    public boolean isAutoPrepareEnabled() {
+        return autoPrepareEnabled;
+    }
+
+    /**
+     * Sets the number of executions of a query string after which it gets automatically prepared.
+     * <p/>
+     * Executions are counted approximately, and older executions progressively count less, so that
+     * queries that are executed only occasionally don't get prepared.
+     * <p/>
+     * This is only used if {@link #setAutoPrepareEnabled(boolean) auto-preparation} is enabled.
+     *
+     * @param autoPrepareThreshold the number of executions. It must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code autoPrepareThreshold &lte; 0}.
+     */
+    public QueryOptions setAutoPrepareThreshold(int autoPrepareThreshold) {
+        if (autoPrepareThreshold <= 0)
+            throw new IllegalArgumentException("Invalid autoPrepareThreshold, should be > 0, got " + autoPrepareThreshold);
+        this.autoPrepareThreshold = autoPrepareThreshold;
+        return this;
+    }
+
+    /**
+     * The number of executions of a query string after which it gets automatically prepared.
+     * <p/>
+     * It defaults to {@link #DEFAULT_AUTO_PREPARE_THRESHOLD}.
+     *
+     * @return the value.
+     * @see #setAutoPrepareThreshold(int)
+     */
+    public int getAutoPrepareThreshold() {
+        return autoPrepareThreshold;
+    }
+
+    /**
+     * Sets the maximum number of query strings that each session tracks for automatic preparation.
+     * <p/>
+     * Only queries that have reached the {@link #setAutoPrepareThreshold(int) threshold} are tracked
+     * individually; before that, their executions are counted approximately, in a structure whose size is
+     * proportional to this limit, so that a burst of queries that are executed only once can't evict the
+     * frequent ones. When this limit is reached, the least recently executed query is evicted (and will be
+     * executed as a regular simple statement again, until it becomes frequent enough to be re-admitted).
+     * This is only used if {@link #setAutoPrepareEnabled(boolean) auto-preparation} is enabled.
+     *
+     * @param autoPrepareCacheSize the maximum number of tracked queries per session. It must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code autoPrepareCacheSize &lte; 0}.
+     */
+    public QueryOptions setAutoPrepareCacheSize(int autoPrepareCacheSize) {
+        if (autoPrepareCacheSize <= 0)
+            throw new IllegalArgumentException("Invalid autoPrepareCacheSize, should be > 0, got " + autoPrepareCacheSize);
+        this.autoPrepareCacheSize = autoPrepareCacheSize;
+        return this;
+    }
+
+    /**
+     * The maximum number of query strings that each session tracks for automatic preparation.
+     * <p/>
+     * It defaults to {@link #DEFAULT_AUTO_PREPARE_CACHE_SIZE}.
+     *
+     * @return the value.
+     * @see #setAutoPrepareCacheSize(int)
+     */
+    public int getAutoPrepareCacheSize() {
+        return autoPrepareCacheSize;
+    }
+
     /**
      * Toggle client-side token and schema metadata.
      * <p/>
@@ -319,6 +560,88 @@ public class QueryOptions {
         return metadataEnabled;
     }
 
+    /**
+     * Restricts schema metadata to the given keyspaces.
+     * <p/>
+     * By default, the driver fetches and parses the definitions of all keyspaces, and refreshes them
+     * whenever a schema change is notified. If your application only uses a few keyspaces, this option
+     * restricts schema queries to them, and ignores schema changes in other keyspaces; this reduces
+     * the traffic on the control connection, the memory footprint of {@link Cluster#getMetadata()}
+     * and the CPU time spent in schema refreshes.
+     * <p/>
+     * Other keyspaces will not be returned by {@link Metadata#getKeyspaces()}; note that token-aware
+     * load balancing relies on keyspace metadata to compute replicas, so queries on those keyspaces
+     * will be routed by the child policy of {@link com.datastax.driver.core.policies.TokenAwarePolicy}.
+     * <p/>
+     * If the cluster is already initialized, changing this option triggers a full schema refresh.
+     *
+     * @param keyspaces the keyspace names, as they appear in the schema tables (that is, without quotes
+     *                  and in their exact case). {@code null} or an empty collection means all keyspaces.
+     * @return this {@code QueryOptions} instance.
+     */
+    public QueryOptions setMetadataKeyspaces(Collection<String> keyspaces) {
+        Set<String> newKeyspaces = (keyspaces == null)
+                ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<String>(keyspaces));
+        boolean changed = !newKeyspaces.equals(this.metadataKeyspaces);
+        this.metadataKeyspaces = newKeyspaces;
+        if (changed && metadataEnabled && manager != null)
+            manager.submitSchemaRefresh(null, null, null, null);
+        return this;
+    }
+
+    /**
+     * The keyspaces that schema metadata is restricted to.
+     *
+     * @return the keyspace names, or an empty set if metadata is not restricted.
+     * @see #setMetadataKeyspaces(Collection)
+     */
+    public Set<String> getMetadataKeyspaces() {
+        return metadataKeyspaces;
+    }
+
+    /**
+     * Whether schema metadata should be maintained for the given keyspace.
+     */
+    boolean isMetadataKeyspace(String keyspace) {
+        Set<String> keyspaces = this.metadataKeyspaces;
+        return keyspaces.isEmpty() || keyspaces.contains(keyspace);
+    }
+
+    /**
+     * Sets the file where the driver keeps a local snapshot of the schema metadata.
+     * <p/>
+     * This feature is disabled by default. When a file is set, the driver saves the rows of the schema
+     * system tables to it after each full schema refresh. On the next {@link Cluster#init() initialization},
+     * if the file exists and was produced by the same Cassandra version, the schema metadata is built from
+     * the snapshot instead of being queried from the control host; this can significantly shorten the
+     * initialization of clusters with many tables. The snapshot is then validated in the background against
+     * the current schema version of the control host, and a full schema refresh is triggered if it is stale.
+     * <p/>
+     * Note that, until that validation completes, {@link Cluster#getMetadata()} may expose a slightly
+     * outdated schema. Node information (hosts, data centers, tokens) is always read from the control host.
+     * <p/>
+     * This option is ignored if {@link #setMetadataEnabled(boolean) metadata} is disabled. Also note that
+     * it must be set before the cluster is initialized.
+     *
+     * @param schemaSnapshotFile the snapshot file, or {@code null} to disable the feature.
+     * @return this {@code QueryOptions} instance.
+     */
+    public QueryOptions setSchemaSnapshotFile(File schemaSnapshotFile) {
+        this.schemaSnapshotFile = schemaSnapshotFile;
+        return this;
+    }
+
+    /**
+     * The file where the driver keeps a local snapshot of the schema metadata.
+     *
+     * @return the file, or {@code null} if the feature is disabled.
+     * @see #setSchemaSnapshotFile(File)
+     */
+    public File getSchemaSnapshotFile() {
+        return schemaSnapshotFile;
+    }
+
     /**
      * Sets the default window size in milliseconds used to debounce node list refresh requests.
      * <p/>
@@ -7,9 +7,14 @@
 package com.datastax.driver.core;
 
 import com.datastax.driver.core.exceptions.*;
+import com.datastax.driver.core.policies.PassThroughRequestThrottler;
+import com.datastax.driver.core.policies.RequestThrottler;
+import com.datastax.driver.core.policies.RetryBudget;
 import com.datastax.driver.core.policies.RetryPolicy;
 import com.datastax.driver.core.policies.RetryPolicy.RetryDecision.Type;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy.HedgingPlan;
 import com.datastax.driver.core.policies.SpeculativeExecutionPolicy.SpeculativeExecutionPlan;
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
@@ -22,9 +27,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -49,7 +57,11 @@ class RequestHandler {
     private final QueryPlan queryPlan;
     private final SpeculativeExecutionPlan speculativeExecutionPlan;
     private final boolean allowSpeculativeExecutions;
+    // non-null if the speculative execution policy wants a say when executions start
+    private final HedgingPlan hedgingPlan;
+    private final boolean loadAwareHedging;
     private final Set<SpeculativeExecution> runningExecutions = Sets.newCopyOnWriteArraySet();
+    // speculative executions and delayed retries that are waiting to start
     private final Set<Timeout> scheduledExecutions = Sets.newCopyOnWriteArraySet();
     private final Statement statement;
     private final io.netty.util.Timer scheduler;
@@ -59,6 +71,11 @@ class RequestHandler {
 
     private final Timer.Context timerContext;
     private final long startTime;
+    // null unless a RequestTracer accepted this request
+    private final RequestTrace trace;
+    private final RequestThrottler throttler;
+    // null if the throttler lets all requests through
+    private final ThrottledRequest throttled;
 
     private final AtomicBoolean isDone = new AtomicBoolean();
     private final AtomicInteger executionIndex = new AtomicInteger();
@@ -77,16 +94,25 @@ class RequestHandler {
         this.speculativeExecutionPlan = manager.speculativeExecutionPolicy().newPlan(manager.poolsState.keyspace, statement);
         this.allowSpeculativeExecutions = statement != Statement.DEFAULT
                 && statement.isIdempotentWithDefault(manager.configuration().getQueryOptions());
+        this.hedgingPlan = (speculativeExecutionPlan instanceof HedgingPlan) ? (HedgingPlan) speculativeExecutionPlan : null;
+        this.loadAwareHedging = hedgingPlan != null && hedgingPlan.isLoadAware();
         this.statement = statement;
 
         this.timerContext = metricsEnabled()
                 ? metrics().getRequestsTimer().time()
                 : null;
         this.startTime = System.nanoTime();
+        Set<RequestTracer> tracers = manager.cluster.manager.requestTracers;
+        this.trace = tracers.isEmpty() ? null : RequestTrace.start(tracers, statement, startTime);
+        this.throttler = manager.cluster.manager.requestThrottler();
+        this.throttled = (throttler instanceof PassThroughRequestThrottler) ? null : new ThrottledRequest();
     }
 
     void sendRequest() {
-        startNewExecution();
+        if (throttled == null)
+            startNewExecution();
+        else
+            throttler.register(throttled);
     }
 
     // Called when the corresponding ResultSetFuture is cancelled by the client
@@ -95,6 +121,8 @@ class RequestHandler {
             return;
 
         cancelPendingExecutions(null);
+        if (throttled != null)
+            throttler.signalCancel(throttled);
     }
 
     private void startNewExecution() {
@@ -103,6 +131,8 @@ class RequestHandler {
 
         Message.Request request = callback.request();
         int position = executionIndex.getAndIncrement();
+        if (position == 0)
+            manager.cluster.manager.retryBudget().onRequest();
 
         SpeculativeExecution execution = new SpeculativeExecution(request, position);
         runningExecutions.add(execution);
@@ -126,6 +156,15 @@ class RequestHandler {
                 manager.executor().execute(new Runnable() {
                     @Override
                     public void run() {
+                        if (isDone.get())
+                            return;
+                        if (hedgingPlan != null && !hedgingPlan.acquirePermit()) {
+                            if (logger.isTraceEnabled())
+                                logger.trace("[{}] Speculative execution denied by the policy", id);
+                            if (metricsEnabled())
+                                metrics().getErrorMetrics().getSpeculativeExecutionsSkipped().inc();
+                            return;
+                        }
                         if (metricsEnabled())
                             metrics().getErrorMetrics().getSpeculativeExecutions().inc();
                         startNewExecution();
@@ -154,12 +193,20 @@ class RequestHandler {
 
         cancelPendingExecutions(execution);
 
+        Exception callbackError = null;
         try {
             if (timerContext != null)
                 timerContext.stop();
 
             ExecutionInfo info;
             int speculativeExecutions = executionIndex.get() - 1;
+            if (speculativeExecutions > 0 && metricsEnabled()) {
+                Metrics.Errors errorMetrics = metrics().getErrorMetrics();
+                int won = (execution.position > 0) ? 1 : 0;
+                if (won > 0)
+                    errorMetrics.getSpeculativeExecutionsWon().inc();
+                errorMetrics.getSpeculativeExecutionsWasted().inc(speculativeExecutions - won);
+            }
             // Avoid creating a new instance if we can reuse the host's default one
             if (execution.position == 0 && speculativeExecutions == 0 && triedHosts == null && execution.retryConsistencyLevel == null
                     && response.getCustomPayload() == null) {
@@ -174,31 +221,45 @@ class RequestHandler {
                 }
                 info = new ExecutionInfo(speculativeExecutions, execution.position, hosts, execution.retryConsistencyLevel, response.getCustomPayload());
             }
+            if (trace != null)
+                trace.callbackStarted();
             callback.onSet(connection, response, info, statement, System.nanoTime() - startTime);
         } catch (Exception e) {
-            callback.onException(connection,
-                    new DriverInternalError("Unexpected exception while setting final result from " + response, e),
-                    System.nanoTime() - startTime, /*unused*/0);
+            callbackError = new DriverInternalError("Unexpected exception while setting final result from " + response, e);
+            callback.onException(connection, callbackError, System.nanoTime() - startTime, /*unused*/0);
         }
+        if (throttled != null)
+            throttler.signalSuccess(throttled);
+        if (trace != null)
+            trace.complete(callbackError);
     }
 
     private void setFinalException(SpeculativeExecution execution, Connection connection, Exception exception) {
         if (!isDone.compareAndSet(false, true)) {
             if (logger.isTraceEnabled())
-                logger.trace("[{}] Got beaten to setting final exception", execution.id);
+                logger.trace("[{}] Got beaten to setting final exception", execution == null ? id : execution.id);
             return;
         }
 
         if (logger.isTraceEnabled())
-            logger.trace("[{}] Setting final exception", execution.id);
+            logger.trace("[{}] Setting final exception", execution == null ? id : execution.id);
 
         cancelPendingExecutions(execution);
 
         try {
             if (timerContext != null)
                 timerContext.stop();
+            int speculativeExecutions = executionIndex.get() - 1;
+            if (speculativeExecutions > 0 && metricsEnabled())
+                metrics().getErrorMetrics().getSpeculativeExecutionsWasted().inc(speculativeExecutions);
         } finally {
+            if (throttled != null && !throttled.rejected)
+                throttler.signalError(throttled, exception);
+            if (trace != null)
+                trace.callbackStarted();
             callback.onException(connection, exception, System.nanoTime() - startTime, /*unused*/0);
+            if (trace != null)
+                trace.complete(exception);
         }
     }
 
@@ -225,6 +286,25 @@ class RequestHandler {
                 : statement.getRetryPolicy();
     }
 
+    private class ThrottledRequest implements RequestThrottler.Throttled {
+
+        // set if the throttler rejected the request, in which case it must not be signaled again
+        private volatile boolean rejected;
+
+        @Override
+        public void onThrottleReady(boolean wasDelayed) {
+            if (wasDelayed && logger.isTraceEnabled())
+                logger.trace("[{}] Request was delayed by the throttler", id);
+            startNewExecution();
+        }
+
+        @Override
+        public void onThrottleFailure(RequestThrottlingException error) {
+            rejected = true;
+            setFinalException(null, null, error);
+        }
+    }
+
     interface Callback extends Connection.ResponseCallback {
         void onSet(Connection connection, Message.Response response, ExecutionInfo info, Statement statement, long latency);
 
@@ -249,6 +329,8 @@ class RequestHandler {
         private volatile ConsistencyLevel retryConsistencyLevel;
         private final AtomicReference<QueryState> queryStateRef;
         private final AtomicBoolean nextExecutionScheduled = new AtomicBoolean();
+        // Whether the next host should be picked among the query plan's next candidates, based on their load
+        private volatile boolean pickLeastLoaded;
 
         // This represents the number of times a retry has been triggered by the RetryPolicy (this is different from
         // queryStateRef.get().retryCount, because some retries don't involve the policy, for example after an
@@ -258,11 +340,15 @@ class RequestHandler {
 
         private volatile Connection.ResponseHandler connectionHandler;
 
+        // Only used when the request is traced. The execution makes one attempt at a time, so there is a single writer.
+        private volatile RequestTrace.Attempt attempt;
+
         SpeculativeExecution(Message.Request request, int position) {
             this.id = RequestHandler.this.id + "-" + position;
             this.request = request;
             this.position = position;
             this.queryStateRef = new AtomicReference<QueryState>(QueryState.INITIAL);
+            this.pickLeastLoaded = position > 0 && loadAwareHedging;
             if (logger.isTraceEnabled())
                 logger.trace("[{}] Starting", id);
         }
@@ -270,7 +356,7 @@ class RequestHandler {
         void findNextHostAndQuery() {
             try {
                 Host host;
-                while (!isDone.get() && (host = queryPlan.next()) != null && !queryStateRef.get().isCancelled()) {
+                while (!isDone.get() && (host = nextHost()) != null && !queryStateRef.get().isCancelled()) {
                     if (query(host))
                         return;
                 }
@@ -286,6 +372,14 @@ class RequestHandler {
             }
         }
 
+        private Host nextHost() {
+            if (pickLeastLoaded) {
+                pickLeastLoaded = false;
+                return queryPlan.nextLeastLoaded(manager.pools);
+            }
+            return queryPlan.next();
+        }
+
         private boolean query(final Host host) {
             HostConnectionPool pool = manager.pools.get(host);
             if (pool == null || pool.isClosed())
@@ -297,6 +391,9 @@ class RequestHandler {
             if (allowSpeculativeExecutions && nextExecutionScheduled.compareAndSet(false, true))
                 scheduleExecution(speculativeExecutionPlan.nextExecution(host));
 
+            final RequestTrace.Attempt attempt = (trace == null) ? null : trace.newAttempt(position, retriesByPolicy, host);
+            this.attempt = attempt;
+
             PoolingOptions poolingOptions = manager.configuration().getPoolingOptions();
             ListenableFuture<Connection> connectionFuture = pool.borrowConnection(
                     poolingOptions.getPoolTimeoutMillis(), TimeUnit.MILLISECONDS,
@@ -308,6 +405,8 @@ class RequestHandler {
                         connection.release();
                         return;
                     }
+                    if (attempt != null)
+                        attempt.connectionAcquired();
                     if (current != null) {
                         if (triedHosts == null)
                             triedHosts = new CopyOnWriteArrayList<Host>();
@@ -322,17 +421,23 @@ class RequestHandler {
                             metrics().getErrorMetrics().getConnectionErrors().inc();
                         if (connection != null)
                             connection.release();
+                        if (attempt != null)
+                            attempt.failed(e);
                         logError(host.getSocketAddress(), e);
                         findNextHostAndQuery();
                     } catch (BusyConnectionException e) {
                         // The pool shouldn't have give us a busy connection unless we've maxed up the pool, so move on to the next host.
                         connection.release();
+                        if (attempt != null)
+                            attempt.failed(e);
                         logError(host.getSocketAddress(), e);
                         findNextHostAndQuery();
                     } catch (RuntimeException e) {
                         if (connection != null)
                             connection.release();
                         logger.error("Unexpected error while querying " + host.getAddress(), e);
+                        if (attempt != null)
+                            attempt.failed(e);
                         logError(host.getSocketAddress(), e);
                         findNextHostAndQuery();
                     }
@@ -340,6 +445,8 @@ class RequestHandler {
 
                 @Override
                 public void onFailure(Throwable t) {
+                    if (attempt != null)
+                        attempt.failed(t);
                     if (t instanceof BusyPoolException) {
                         logError(host.getSocketAddress(), t);
                     } else {
@@ -368,7 +475,7 @@ class RequestHandler {
                     break;
             }
 
-            connectionHandler = connection.write(responseCallback, statement.getReadTimeoutMillis(), false, false);
+            connectionHandler = connection.write(responseCallback, statement.getReadTimeoutMillis(), false, false, attempt);
             // Only start the timeout when we're sure connectionHandler is set. This avoids an edge case where onTimeout() was triggered
             // *before* the call to connection.write had returned.
             connectionHandler.startTimeout();
@@ -393,20 +500,14 @@ class RequestHandler {
             if (metricsEnabled()) {
                 if (exception instanceof OperationTimedOutException) {
                     metrics().getErrorMetrics().getClientTimeouts().inc();
-                    if (decision.getType() == Type.RETRY)
-                        metrics().getErrorMetrics().getRetriesOnClientTimeout().inc();
                     if (decision.getType() == Type.IGNORE)
                         metrics().getErrorMetrics().getIgnoresOnClientTimeout().inc();
                 } else if (exception instanceof ConnectionException) {
                     metrics().getErrorMetrics().getConnectionErrors().inc();
-                    if (decision.getType() == Type.RETRY)
-                        metrics().getErrorMetrics().getRetriesOnConnectionError().inc();
                     if (decision.getType() == Type.IGNORE)
                         metrics().getErrorMetrics().getIgnoresOnConnectionError().inc();
                 } else {
                     metrics().getErrorMetrics().getOthers().inc();
-                    if (decision.getType() == Type.RETRY)
-                        metrics().getErrorMetrics().getRetriesOnOtherErrors().inc();
                     if (decision.getType() == Type.IGNORE)
                         metrics().getErrorMetrics().getIgnoresOnOtherErrors().inc();
                 }
@@ -414,18 +515,50 @@ class RequestHandler {
             return decision;
         }
 
-        private void processRetryDecision(RetryPolicy.RetryDecision retryDecision, Connection connection, Exception exceptionToReport) {
+        // The counter of retries for the cause of a request error, see computeRetryDecisionOnRequestError
+        private Counter retriesOnRequestError(DriverException exception) {
+            if (!metricsEnabled())
+                return null;
+            if (exception instanceof OperationTimedOutException)
+                return metrics().getErrorMetrics().getRetriesOnClientTimeout();
+            else if (exception instanceof ConnectionException)
+                return metrics().getErrorMetrics().getRetriesOnConnectionError();
+            else
+                return metrics().getErrorMetrics().getRetriesOnOtherErrors();
+        }
+
+        /**
+         * @param retriesOnCause the counter of retries for the cause of the error, incremented only if the retry is
+         *                       allowed by the retry budget (null if metrics are disabled).
+         */
+        private void processRetryDecision(RetryPolicy.RetryDecision retryDecision, Connection connection, Exception exceptionToReport, Counter retriesOnCause) {
             switch (retryDecision.getType()) {
                 case RETRY:
+                    RetryBudget retryBudget = manager.cluster.manager.retryBudget();
+                    if (!retryBudget.acquireRetry()) {
+                        if (logger.isDebugEnabled())
+                            logger.debug("[{}] Retry budget exhausted, not retrying query {}", id, statement);
+                        if (metricsEnabled())
+                            metrics().getErrorMetrics().getRetriesDenied().inc();
+                        setFinalException(connection, exceptionToReport);
+                        break;
+                    }
+                    long delayMillis = retryBudget.getRetryDelayMillis(retriesByPolicy);
                     retriesByPolicy++;
                     if (logger.isDebugEnabled())
                         logger.debug("[{}] Doing retry {} for query {} at consistency {}", id, retriesByPolicy, statement, retryDecision.getRetryConsistencyLevel());
-                    if (metricsEnabled())
+                    if (metricsEnabled()) {
                         metrics().getErrorMetrics().getRetries().inc();
+                        if (retriesOnCause != null)
+                            retriesOnCause.inc();
+                    }
                     // log error for the current host if we are switching to another one
                     if (!retryDecision.isRetryCurrent())
                         logError(connection.address, exceptionToReport);
-                    retry(retryDecision.isRetryCurrent(), retryDecision.getRetryConsistencyLevel());
+                    if (delayMillis > 0)
+                        scheduleRetry(retryDecision.isRetryCurrent(), retryDecision.getRetryConsistencyLevel(), delayMillis);
+                    else
+                        retry(retryDecision.isRetryCurrent(), retryDecision.getRetryConsistencyLevel());
                     break;
                 case RETHROW:
                     setFinalException(connection, exceptionToReport);
@@ -438,6 +571,27 @@ class RequestHandler {
             }
         }
 
+        private void scheduleRetry(final boolean retryCurrent, final ConsistencyLevel newConsistencyLevel, long delayMillis) {
+            if (logger.isTraceEnabled())
+                logger.trace("[{}] Schedule retry in {} ms", id, delayMillis);
+            if (metricsEnabled())
+                metrics().getErrorMetrics().getRetriesDelayed().inc();
+            scheduledExecutions.add(scheduler.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    scheduledExecutions.remove(timeout);
+                    if (!isDone.get())
+                        // We're on the timer thread so reschedule to another executor
+                        manager.executor().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                retry(retryCurrent, newConsistencyLevel);
+                            }
+                        });
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS));
+        }
+
         private void retry(final boolean retryCurrent, ConsistencyLevel newConsistencyLevel) {
             final Host h = current;
             if (newConsistencyLevel != null)
@@ -515,6 +669,7 @@ class RequestHandler {
                         Responses.Error err = (Responses.Error) response;
                         exceptionToReport = err.asException(connection.address);
                         RetryPolicy.RetryDecision retry = null;
+                        Counter retriesOnCause = null;
                         RetryPolicy retryPolicy = retryPolicy();
                         switch (err.code) {
                             case READ_TIMEOUT:
@@ -529,8 +684,7 @@ class RequestHandler {
                                         retriesByPolicy);
                                 if (metricsEnabled()) {
                                     metrics().getErrorMetrics().getReadTimeouts().inc();
-                                    if (retry.getType() == Type.RETRY)
-                                        metrics().getErrorMetrics().getRetriesOnReadTimeout().inc();
+                                    retriesOnCause = metrics().getErrorMetrics().getRetriesOnReadTimeout();
                                     if (retry.getType() == Type.IGNORE)
                                         metrics().getErrorMetrics().getIgnoresOnReadTimeout().inc();
                                 }
@@ -551,8 +705,7 @@ class RequestHandler {
                                 }
                                 if (metricsEnabled()) {
                                     metrics().getErrorMetrics().getWriteTimeouts().inc();
-                                    if (retry.getType() == Type.RETRY)
-                                        metrics().getErrorMetrics().getRetriesOnWriteTimeout().inc();
+                                    retriesOnCause = metrics().getErrorMetrics().getRetriesOnWriteTimeout();
                                     if (retry.getType() == Type.IGNORE)
                                         metrics().getErrorMetrics().getIgnoresOnWriteTimeout().inc();
                                 }
@@ -568,8 +721,7 @@ class RequestHandler {
                                         retriesByPolicy);
                                 if (metricsEnabled()) {
                                     metrics().getErrorMetrics().getUnavailables().inc();
-                                    if (retry.getType() == Type.RETRY)
-                                        metrics().getErrorMetrics().getRetriesOnUnavailable().inc();
+                                    retriesOnCause = metrics().getErrorMetrics().getRetriesOnUnavailable();
                                     if (retry.getType() == Type.IGNORE)
                                         metrics().getErrorMetrics().getIgnoresOnUnavailable().inc();
                                 }
@@ -579,6 +731,7 @@ class RequestHandler {
                                 assert exceptionToReport instanceof OverloadedException;
                                 logger.warn("Host {} is overloaded.", connection.address);
                                 retry = computeRetryDecisionOnRequestError((OverloadedException) exceptionToReport);
+                                retriesOnCause = retriesOnRequestError((OverloadedException) exceptionToReport);
                                 break;
                             case SERVER_ERROR:
                                 connection.release();
@@ -587,6 +740,7 @@ class RequestHandler {
                                 // Defunct connection
                                 connection.defunct(exceptionToReport);
                                 retry = computeRetryDecisionOnRequestError((ServerError) exceptionToReport);
+                                retriesOnCause = retriesOnRequestError((ServerError) exceptionToReport);
                                 break;
                             case IS_BOOTSTRAPPING:
                                 connection.release();
@@ -602,7 +756,7 @@ class RequestHandler {
                                 // Do not release connection yet, because we might reuse it to send the PREPARE message (see write() call below)
                                 assert err.infos instanceof MD5Digest;
                                 MD5Digest id = (MD5Digest) err.infos;
-                                PreparedStatement toPrepare = manager.cluster.manager.preparedQueries.get(id);
+                                PreparedStatement toPrepare = manager.cluster.manager.findPrepared(id, statement);
                                 if (toPrepare == null) {
                                     // This shouldn't happen
                                     connection.release();
@@ -641,7 +795,7 @@ class RequestHandler {
                         if (retry == null)
                             setFinalResult(connection, response);
                         else {
-                            processRetryDecision(retry, connection, exceptionToReport);
+                            processRetryDecision(retry, connection, exceptionToReport, retriesOnCause);
                         }
                         break;
                     default:
@@ -654,7 +808,7 @@ class RequestHandler {
                 setFinalException(connection, e);
             } finally {
                 if (queriedHost != null && statement != Statement.DEFAULT) {
-                    manager.cluster.manager.reportQuery(queriedHost, statement, exceptionToReport, latency);
+                    manager.cluster.manager.reportQuery(queriedHost, statement, exceptionToReport, latency, response);
                 }
             }
         }
@@ -747,13 +901,17 @@ class RequestHandler {
                 return;
             }
 
+            RequestTrace.Attempt attempt = this.attempt;
+            if (attempt != null)
+                attempt.failed(exception);
+
             Host queriedHost = current;
             try {
                 connection.release();
 
                 if (exception instanceof ConnectionException) {
                     RetryPolicy.RetryDecision decision = computeRetryDecisionOnRequestError((ConnectionException) exception);
-                    processRetryDecision(decision, connection, exception);
+                    processRetryDecision(decision, connection, exception, retriesOnRequestError((ConnectionException) exception));
                     return;
                 }
                 setFinalException(connection, exception);
@@ -780,11 +938,15 @@ class RequestHandler {
 
             OperationTimedOutException timeoutException = new OperationTimedOutException(connection.address, "Timed out waiting for server response");
 
+            RequestTrace.Attempt attempt = this.attempt;
+            if (attempt != null)
+                attempt.failed(timeoutException);
+
             try {
                 connection.release();
 
                 RetryPolicy.RetryDecision decision = computeRetryDecisionOnRequestError(timeoutException);
-                processRetryDecision(decision, connection, timeoutException);
+                processRetryDecision(decision, connection, timeoutException, retriesOnRequestError(timeoutException));
             } catch (Exception e) {
                 // This shouldn't happen, but if it does, we want to signal the callback, not let it hang indefinitely
                 setFinalException(null, new DriverInternalError("An unexpected error happened while handling timeout", e));
@@ -864,6 +1026,8 @@ class RequestHandler {
      */
     static class QueryPlan {
         private final Iterator<Host> iterator;
+        // Hosts that were pulled from the iterator but not used yet, created lazily
+        private Deque<Host> skipped;
 
         QueryPlan(Iterator<Host> iterator) {
             this.iterator = iterator;
@@ -873,7 +1037,37 @@ class RequestHandler {
          * @return null if there are no more hosts
          */
         synchronized Host next() {
+            if (skipped != null && !skipped.isEmpty())
+                return skipped.poll();
             return iterator.hasNext() ? iterator.next() : null;
         }
+
+        /**
+         * Returns the least busy of the next two hosts, the other one stays in the plan.
+         *
+         * @return null if there are no more hosts
+         */
+        synchronized Host nextLeastLoaded(Map<Host, HostConnectionPool> pools) {
+            Host first = next();
+            if (first == null)
+                return null;
+            Host second = next();
+            if (second == null)
+                return first;
+            if (skipped == null)
+                skipped = new ArrayDeque<Host>(2);
+            if (inFlight(pools, second) < inFlight(pools, first)) {
+                skipped.addFirst(first);
+                return second;
+            } else {
+                skipped.addFirst(second);
+                return first;
+            }
+        }
+
+        private static int inFlight(Map<Host, HostConnectionPool> pools, Host host) {
+            HostConnectionPool pool = pools.get(host);
+            return (pool == null || pool.isClosed()) ? Integer.MAX_VALUE : pool.totalInFlight.get();
+        }
     }
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client-side timing breakdown of a request, as reported to {@link RequestTracer}s.
+ * <p/>
+ * A request is made of one or more {@link Attempt attempts}: the driver makes a new attempt each time it sends the
+ * request to a node, which happens for retries and speculative executions. Each attempt records when each of its
+ * stages was reached:
+ * <ol>
+ * <li>{@link Attempt#getStartNanos() start}: the driver starts borrowing a connection from the node's pool;</li>
+ * <li>{@link Attempt#getConnectionAcquiredNanos() connection acquired}: the connection was obtained (the time since
+ * the start is spent waiting in the pool's queue, when all connections are busy);</li>
+ * <li>{@link Attempt#getWrittenNanos() written}: the request was encoded and flushed to the socket (the time since the
+ * connection was acquired is mostly spent waiting in the connection's flush queue);</li>
+ * <li>{@link Attempt#getEndNanos() end}: the response was received and decoded, or the attempt failed (the time since
+ * the write covers the network round trip, the server processing and the response decoding).</li>
+ * </ol>
+ * All timestamps come from {@link System#nanoTime()}, so they are only meaningful relatively to each other. A
+ * timestamp is 0 if the corresponding stage was never reached; this is typically the case for speculative executions
+ * that were still in flight when another one completed the request.
+ */
+public class RequestTrace {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTrace.class);
+
+    private final Statement statement;
+    private final long startNanos;
+    private final List<RequestTracer> tracers;
+    private final List<Attempt> attempts = new ArrayList<Attempt>(2);
+
+    private volatile long callbackStartNanos;
+    private volatile long endNanos;
+    private volatile Exception error;
+
+    private RequestTrace(Statement statement, long startNanos, List<RequestTracer> tracers) {
+        this.statement = statement;
+        this.startNanos = startNanos;
+        this.tracers = tracers;
+    }
+
+    /**
+     * Asks the given tracers if they want to trace a request.
+     *
+     * @return the new trace, or {@code null} if no tracer accepted the request.
+     */
+    static RequestTrace start(Iterable<RequestTracer> candidates, Statement statement, long startNanos) {
+        List<RequestTracer> accepted = null;
+        for (RequestTracer tracer : candidates) {
+            if (tracer.shouldTrace(statement)) {
+                if (accepted == null)
+                    accepted = new ArrayList<RequestTracer>(1);
+                accepted.add(tracer);
+            }
+        }
+        return accepted == null ? null : new RequestTrace(statement, startNanos, accepted);
+    }
+
+    Attempt newAttempt(int execution, int retryCount, Host host) {
+        Attempt attempt = new Attempt(execution, retryCount, host, System.nanoTime());
+        synchronized (attempts) {
+            attempts.add(attempt);
+        }
+        return attempt;
+    }
+
+    void callbackStarted() {
+        callbackStartNanos = System.nanoTime();
+    }
+
+    void complete(Exception error) {
+        this.error = error;
+        this.endNanos = System.nanoTime();
+        for (RequestTracer tracer : tracers) {
+            try {
+                tracer.onTrace(this);
+            } catch (RuntimeException e) {
+                logger.warn("Unexpected error while reporting request trace to " + tracer, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the statement that was executed.
+     *
+     * @return the statement.
+     */
+    public Statement getStatement() {
+        return statement;
+    }
+
+    /**
+     * Returns the time when the request was submitted to the driver.
+     *
+     * @return a {@link System#nanoTime()} timestamp.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Returns the time when the driver started completing the request's future, which notifies the user callbacks
+     * that run synchronously.
+     *
+     * @return a {@link System#nanoTime()} timestamp.
+     */
+    public long getCallbackStartNanos() {
+        return callbackStartNanos;
+    }
+
+    /**
+     * Returns the time when the request's future was completed, and all the user callbacks that run synchronously
+     * returned.
+     *
+     * @return a {@link System#nanoTime()} timestamp.
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    /**
+     * Returns the total duration of the request, from its submission to the completion of its future.
+     *
+     * @param unit the unit of the result.
+     * @return the duration.
+     */
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(endNanos - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the time spent completing the request's future, which includes the execution of the user callbacks
+     * that run synchronously.
+     *
+     * @param unit the unit of the result.
+     * @return the duration.
+     */
+    public long getCallbackDuration(TimeUnit unit) {
+        return unit.convert(endNanos - callbackStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the error the request failed with.
+     *
+     * @return the error, or {@code null} if the request succeeded.
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * Returns the attempts of the request, in the order they were started.
+     *
+     * @return an immutable snapshot of the attempts.
+     */
+    public List<Attempt> getAttempts() {
+        synchronized (attempts) {
+            return ImmutableList.copyOf(attempts);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RequestTrace(duration=%dus, callback=%dus, attempts=%s, error=%s)",
+                getDuration(TimeUnit.MICROSECONDS), getCallbackDuration(TimeUnit.MICROSECONDS), getAttempts(), error);
+    }
+
+    /**
+     * A single attempt to send the request to a node.
+     */
+    public static class Attempt {
+
+        private final int execution;
+        private final int retryCount;
+        private final Host host;
+        private final long startNanos;
+
+        private volatile long connectionAcquiredNanos;
+        private volatile long writtenNanos;
+        private volatile long endNanos;
+        private volatile Throwable error;
+
+        Attempt(int execution, int retryCount, Host host, long startNanos) {
+            this.execution = execution;
+            this.retryCount = retryCount;
+            this.host = host;
+            this.startNanos = startNanos;
+        }
+
+        void connectionAcquired() {
+            connectionAcquiredNanos = System.nanoTime();
+        }
+
+        void written() {
+            writtenNanos = System.nanoTime();
+        }
+
+        void responseReceived() {
+            endNanos = System.nanoTime();
+        }
+
+        void failed(Throwable error) {
+            // keep the first outcome: a late timeout must not override a response that was already received
+            if (endNanos == 0) {
+                this.error = error;
+                endNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * Returns the position of the execution that made this attempt: 0 for the initial execution, 1 for the first
+         * speculative execution, etc.
+         *
+         * @return the position.
+         */
+        public int getExecution() {
+            return execution;
+        }
+
+        /**
+         * Returns the number of times the {@link com.datastax.driver.core.policies.RetryPolicy retry policy} retried the
+         * request in the same execution before this attempt. Moving to the next node because the previous one could not
+         * be reached is not a retry: such attempts keep the count of the attempt they replace.
+         *
+         * @return the retry count.
+         */
+        public int getRetryCount() {
+            return retryCount;
+        }
+
+        /**
+         * Returns the node that this attempt was sent to.
+         *
+         * @return the node.
+         */
+        public Host getHost() {
+            return host;
+        }
+
+        /**
+         * Returns the time when the driver started borrowing a connection.
+         *
+         * @return a {@link System#nanoTime()} timestamp.
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * Returns the time when a connection was obtained from the pool.
+         *
+         * @return a {@link System#nanoTime()} timestamp, or 0 if this stage was not reached.
+         */
+        public long getConnectionAcquiredNanos() {
+            return connectionAcquiredNanos;
+        }
+
+        /**
+         * Returns the time when the request was flushed to the socket.
+         *
+         * @return a {@link System#nanoTime()} timestamp, or 0 if this stage was not reached.
+         */
+        public long getWrittenNanos() {
+            return writtenNanos;
+        }
+
+        /**
+         * Returns the time when the response was received and decoded, or when the attempt failed.
+         *
+         * @return a {@link System#nanoTime()} timestamp, or 0 if the attempt was still in flight when the request
+         * completed.
+         */
+        public long getEndNanos() {
+            return endNanos;
+        }
+
+        /**
+         * Returns the error this attempt failed with (for example a client timeout or a connection error). Note that
+         * an error response from the server is still a response: it is not reported here.
+         *
+         * @return the error, or {@code null} if a response was received or the attempt is still in flight.
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * Returns the time spent waiting for a connection.
+         *
+         * @param unit the unit of the result.
+         * @return the duration, or -1 if this stage was not completed.
+         */
+        public long getConnectionWait(TimeUnit unit) {
+            return between(startNanos, connectionAcquiredNanos, unit);
+        }
+
+        /**
+         * Returns the time spent encoding the request and waiting for it to be flushed.
+         *
+         * @param unit the unit of the result.
+         * @return the duration, or -1 if this stage was not completed.
+         */
+        public long getWriteWait(TimeUnit unit) {
+            return between(connectionAcquiredNanos, writtenNanos, unit);
+        }
+
+        /**
+         * Returns the time between the write of the request and the decoding of the response (or the failure of the
+         * attempt). It includes the network round trip and the server processing time.
+         *
+         * @param unit the unit of the result.
+         * @return the duration, or -1 if this stage was not completed.
+         */
+        public long getResponseWait(TimeUnit unit) {
+            return between(writtenNanos, endNanos, unit);
+        }
+
+        private static long between(long start, long end, TimeUnit unit) {
+            return (start == 0 || end == 0) ? -1 : unit.convert(end - start, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Attempt(execution=%d, retry=%d, host=%s, connectionWait=%dus, writeWait=%dus, responseWait=%dus, error=%s)",
+                    execution, retryCount, host, getConnectionWait(TimeUnit.MICROSECONDS),
+                    getWriteWait(TimeUnit.MICROSECONDS), getResponseWait(TimeUnit.MICROSECONDS), error);
+        }
+    }
+}
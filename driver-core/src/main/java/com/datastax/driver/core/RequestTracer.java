@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+/**
+ * Interface for objects that want to receive a client-side timing breakdown of the driver's requests.
+ * <p/>
+ * An implementation of this interface can be registered against a Cluster object through the
+ * {@link Cluster#register(RequestTracer)} method. For each request, the driver first asks every registered tracer
+ * whether it wants to trace it with {@link #shouldTrace(Statement)}; if at least one tracer accepts, the driver records
+ * the timestamps of each stage of the request, and invokes {@link #onTrace(RequestTrace)} on the accepting tracers
+ * once the request completes.
+ * <p/>
+ * When no tracer is registered, or when all tracers decline a request, tracing has no cost beyond that check: no trace
+ * object is allocated, and no timestamp is taken. Implementations will therefore typically sample requests in
+ * {@link #shouldTrace(Statement)} (see {@link SamplingRequestTracer}).
+ */
+public interface RequestTracer {
+
+    /**
+     * Decides whether a request should be traced.
+     * <p/>
+     * This method is invoked on the client thread that executes the request, before it is sent. It should be as cheap as
+     * possible.
+     *
+     * @param statement the statement about to be executed.
+     * @return whether to trace the request.
+     */
+    boolean shouldTrace(Statement statement);
+
+    /**
+     * Invoked when a traced request completes (successfully or not).
+     * <p/>
+     * This method is invoked on the thread that completed the request, which is usually a Netty I/O thread; it must not
+     * block. Also, there is no guarantee that this method won't be called concurrently by multiple threads, so
+     * implementations should synchronize internally if need be.
+     *
+     * @param trace the timing breakdown of the request.
+     */
+    void onTrace(RequestTrace trace);
+
+    /**
+     * Gets invoked when the tracer is registered with a cluster.
+     *
+     * @param cluster the cluster that this tracer is registered with.
+     */
+    void onRegister(Cluster cluster);
+
+    /**
+     * Gets invoked when the tracer is unregistered from a cluster, or at cluster shutdown if the tracer was not
+     * unregistered.
+     *
+     * @param cluster the cluster that this tracer was registered with.
+     */
+    void onUnregister(Cluster cluster);
+}
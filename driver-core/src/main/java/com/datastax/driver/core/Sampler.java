@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deterministically selects a fraction of the events submitted to it: with a rate of 0.01, exactly one event out of
+ * 100 is selected.
+ */
+class Sampler {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Whether the next event is selected.
+     *
+     * @param samplingRate the fraction of events to select, between 0 and 1.
+     */
+    boolean sample(double samplingRate) {
+        if (samplingRate >= 1.0)
+            return true;
+        if (samplingRate <= 0.0)
+            return false;
+        // Pick the n-th event whenever n * rate crosses an integer; this is exact on average and only costs an
+        // atomic increment, unlike a shared random generator.
+        long n = counter.incrementAndGet();
+        return (long) (n * samplingRate) != (long) ((n - 1) * samplingRate);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+/**
+ * A base {@link RequestTracer} that traces a fixed fraction of the requests.
+ * <p/>
+ * Sampling is deterministic: with a rate of 0.01, exactly one request out of 100 is traced.
+ */
+public abstract class SamplingRequestTracer implements RequestTracer {
+
+    private final Sampler sampler = new Sampler();
+
+    private volatile double samplingRate;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param samplingRate the fraction of requests to trace.
+     * @throws IllegalArgumentException if {@code samplingRate < 0 || samplingRate > 1}.
+     */
+    protected SamplingRequestTracer(double samplingRate) {
+        setSamplingRate(samplingRate);
+    }
+
+    /**
+     * Returns the fraction of requests to trace.
+     *
+     * @return the fraction of requests to trace.
+     */
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * Sets the fraction of requests to trace.
+     *
+     * @param samplingRate the fraction of requests to trace.
+     * @throws IllegalArgumentException if {@code samplingRate < 0 || samplingRate > 1}.
+     */
+    public void setSamplingRate(double samplingRate) {
+        if (!(samplingRate >= 0.0 && samplingRate <= 1.0))
+            throw new IllegalArgumentException("Invalid samplingRate, should be >= 0 and <= 1, got " + samplingRate);
+        this.samplingRate = samplingRate;
+    }
+
+    @Override
+    public boolean shouldTrace(Statement statement) {
+        return sampler.sample(samplingRate);
+    }
+
+    @Override
+    public void onRegister(Cluster cluster) {
+        // nothing to do
+    }
+
+    @Override
+    public void onUnregister(Cluster cluster) {
+        // nothing to do
+    }
+}
@@ -13,6 +13,8 @@ import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 
@@ -24,6 +26,8 @@ abstract class SchemaParser {
 
     private static final TypeCodec<List<String>> LIST_OF_TEXT_CODEC = TypeCodec.list(TypeCodec.varchar());
 
+    private static final String SELECT_SCHEMA_VERSION = "SELECT schema_version FROM system.local WHERE key='local'";
+
     private static final SchemaParser V2_PARSER = new V2SchemaParser();
     private static final SchemaParser V3_PARSER = new V3SchemaParser();
 
@@ -32,11 +36,16 @@ abstract class SchemaParser {
         return V2_PARSER;
     }
 
-    abstract SystemRows fetchSystemRows(Cluster cluster,
-                                        SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature,
-                                        Connection connection, VersionNumber cassandraVersion)
+    /**
+     * @return the rows of each queried system table, indexed by table name.
+     */
+    abstract Map<String, List<Row>> fetchSystemRows(Cluster cluster,
+                                                    SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature,
+                                                    Connection connection, VersionNumber cassandraVersion)
             throws ConnectionException, BusyConnectionException, ExecutionException, InterruptedException;
 
+    abstract SystemRows toSystemRows(Map<String, List<Row>> rows, VersionNumber cassandraVersion);
+
     abstract String tableNameColumn();
 
     void refresh(Cluster cluster,
@@ -44,8 +53,32 @@ abstract class SchemaParser {
                  Connection connection, VersionNumber cassandraVersion)
             throws ConnectionException, BusyConnectionException, ExecutionException, InterruptedException {
 
-        SystemRows rows = fetchSystemRows(cluster, targetType, targetKeyspace, targetName, targetSignature, connection, cassandraVersion);
+        File snapshotFile = (targetType == null)
+                ? cluster.getConfiguration().getQueryOptions().getSchemaSnapshotFile()
+                : null;
+        // Query the schema version before the schema itself: if the schema changes in between, the snapshot will
+        // be labelled with an older version than its contents, which only means that it will be refreshed again.
+        ResultSetFuture versionFuture = (snapshotFile == null)
+                ? null
+                : queryAsync(SELECT_SCHEMA_VERSION, connection, cluster.manager.protocolVersion());
+
+        Map<String, List<Row>> rows = fetchSystemRows(cluster, targetType, targetKeyspace, targetName, targetSignature, connection, cassandraVersion);
+        update(cluster, toSystemRows(rows, cassandraVersion), targetType, targetKeyspace, targetName, cassandraVersion);
+
+        if (snapshotFile != null)
+            saveSnapshot(cluster, snapshotFile, versionFuture, rows, cassandraVersion);
+    }
+
+    /**
+     * Rebuilds the whole schema from a snapshot.
+     */
+    void refresh(Cluster cluster, SchemaSnapshot snapshot) {
+        update(cluster, toSystemRows(snapshot.rows, snapshot.cassandraVersion), null, null, null, snapshot.cassandraVersion);
+    }
 
+    private void update(Cluster cluster, SystemRows rows,
+                        SchemaElement targetType, String targetKeyspace, String targetName,
+                        VersionNumber cassandraVersion) {
         Metadata metadata = cluster.getMetadata();
         metadata.lock.lock();
         try {
@@ -386,7 +419,7 @@ abstract class SchemaParser {
         }
     }
 
-    static Map<String, List<Row>> groupByKeyspace(ResultSet rs) {
+    static Map<String, List<Row>> groupByKeyspace(Iterable<Row> rs) {
         if (rs == null)
             return Collections.emptyMap();
 
@@ -403,7 +436,7 @@ abstract class SchemaParser {
         return result;
     }
 
-    static Map<String, Map<String, List<Row>>> groupByKeyspaceAndCf(ResultSet rs, String tableName) {
+    static Map<String, Map<String, List<Row>>> groupByKeyspaceAndCf(Iterable<Row> rs, String tableName) {
         if (rs == null)
             return Collections.emptyMap();
 
@@ -426,7 +459,7 @@ abstract class SchemaParser {
         return result;
     }
 
-    static Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> groupByKeyspaceAndCf(ResultSet rs, VersionNumber cassandraVersion, String tableName) {
+    static Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> groupByKeyspaceAndCf(Iterable<Row> rs, VersionNumber cassandraVersion, String tableName) {
         if (rs == null)
             return Collections.emptyMap();
 
@@ -451,14 +484,63 @@ abstract class SchemaParser {
         return result;
     }
 
+    /**
+     * Returns the clause that restricts a full refresh to the keyspaces configured with
+     * {@link QueryOptions#setMetadataKeyspaces(Collection)}, or an empty string if there are none.
+     */
+    static String keyspaceFilter(Cluster cluster) {
+        Set<String> keyspaces = cluster.getConfiguration().getQueryOptions().getMetadataKeyspaces();
+        if (keyspaces.isEmpty())
+            return "";
+        StringBuilder sb = new StringBuilder(" WHERE keyspace_name IN (");
+        boolean first = true;
+        for (String keyspace : keyspaces) {
+            if (!first)
+                sb.append(", ");
+            sb.append('\'').append(keyspace).append('\'');
+            first = false;
+        }
+        return sb.append(')').toString();
+    }
+
+    private static void saveSnapshot(Cluster cluster, final File file, ResultSetFuture versionFuture,
+                                     Map<String, List<Row>> rows, VersionNumber cassandraVersion) throws InterruptedException {
+        Row versionRow;
+        try {
+            versionRow = versionFuture.get().one();
+        } catch (ExecutionException e) {
+            logger.debug("Could not fetch the schema version, not saving schema snapshot", e);
+            return;
+        }
+        if (versionRow == null || versionRow.isNull("schema_version"))
+            return;
+
+        final SchemaSnapshot snapshot = new SchemaSnapshot(versionRow.getUUID("schema_version"),
+                cassandraVersion, cluster.manager.protocolVersion(),
+                cluster.getConfiguration().getQueryOptions().getMetadataKeyspaces(), rows);
+        // Don't block the caller (which is possibly Cluster.init) on file I/O
+        cluster.manager.blockingExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    snapshot.write(file);
+                    logger.debug("Saved schema snapshot (version {}) to {}", snapshot.schemaVersion, file);
+                } catch (IOException e) {
+                    logger.warn(String.format("Error writing schema snapshot to %s", file), e);
+                }
+            }
+        });
+    }
+
     private static ResultSetFuture queryAsync(String query, Connection connection, ProtocolVersion protocolVersion) throws ConnectionException, BusyConnectionException {
         DefaultResultSetFuture future = new DefaultResultSetFuture(null, protocolVersion, new Requests.Query(query));
         connection.write(future);
         return future;
     }
 
-    private static ResultSet get(ResultSetFuture future) throws InterruptedException, ExecutionException {
-        return (future == null) ? null : future.get();
+    private static void put(Map<String, List<Row>> rows, String table, ResultSetFuture future) throws InterruptedException, ExecutionException {
+        if (future != null)
+            rows.put(table, future.get().all());
     }
 
     /**
@@ -466,7 +548,7 @@ abstract class SchemaParser {
      * The format of these rows depends on the Cassandra version, but our parsing code knows how to handle the differences.
      */
     private static class SystemRows {
-        final ResultSet keyspaces;
+        final List<Row> keyspaces;
         final Map<String, List<Row>> tables;
         final Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> columns;
         final Map<String, List<Row>> udts;
@@ -475,7 +557,7 @@ abstract class SchemaParser {
         final Map<String, List<Row>> views;
         final Map<String, Map<String, List<Row>>> indexes;
 
-        public SystemRows(ResultSet keyspaces, Map<String, List<Row>> tables, Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> columns, Map<String, List<Row>> udts, Map<String, List<Row>> functions,
+        public SystemRows(List<Row> keyspaces, Map<String, List<Row>> tables, Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> columns, Map<String, List<Row>> udts, Map<String, List<Row>> functions,
                           Map<String, List<Row>> aggregates, Map<String, List<Row>> views, Map<String, Map<String, List<Row>>> indexes) {
             this.keyspaces = keyspaces;
             this.tables = tables;
@@ -490,24 +572,31 @@ abstract class SchemaParser {
 
     private static class V2SchemaParser extends SchemaParser {
 
-        private static final String SELECT_KEYSPACES = "SELECT * FROM system.schema_keyspaces";
-        private static final String SELECT_COLUMN_FAMILIES = "SELECT * FROM system.schema_columnfamilies";
-        private static final String SELECT_COLUMNS = "SELECT * FROM system.schema_columns";
-        private static final String SELECT_USERTYPES = "SELECT * FROM system.schema_usertypes";
-        private static final String SELECT_FUNCTIONS = "SELECT * FROM system.schema_functions";
-        private static final String SELECT_AGGREGATES = "SELECT * FROM system.schema_aggregates";
+        private static final String KEYSPACES = "schema_keyspaces";
+        private static final String COLUMN_FAMILIES = "schema_columnfamilies";
+        private static final String COLUMNS = "schema_columns";
+        private static final String USERTYPES = "schema_usertypes";
+        private static final String FUNCTIONS = "schema_functions";
+        private static final String AGGREGATES = "schema_aggregates";
+
+        private static final String SELECT_KEYSPACES = "SELECT * FROM system." + KEYSPACES;
+        private static final String SELECT_COLUMN_FAMILIES = "SELECT * FROM system." + COLUMN_FAMILIES;
+        private static final String SELECT_COLUMNS = "SELECT * FROM system." + COLUMNS;
+        private static final String SELECT_USERTYPES = "SELECT * FROM system." + USERTYPES;
+        private static final String SELECT_FUNCTIONS = "SELECT * FROM system." + FUNCTIONS;
+        private static final String SELECT_AGGREGATES = "SELECT * FROM system." + AGGREGATES;
 
         private static final String CF_NAME = "columnfamily_name";
 
         @Override
-        SystemRows fetchSystemRows(Cluster cluster,
-                                   SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature,
-                                   Connection connection, VersionNumber cassandraVersion)
+        Map<String, List<Row>> fetchSystemRows(Cluster cluster,
+                                               SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature,
+                                               Connection connection, VersionNumber cassandraVersion)
                 throws ConnectionException, BusyConnectionException, ExecutionException, InterruptedException {
 
             boolean isSchemaOrKeyspace = (targetType == null || targetType == KEYSPACE);
 
-            String whereClause = "";
+            String whereClause = keyspaceFilter(cluster);
             if (targetType != null) {
                 whereClause = " WHERE keyspace_name = '" + targetKeyspace + '\'';
                 if (targetType == TABLE)
@@ -546,12 +635,24 @@ abstract class SchemaParser {
             if (isSchemaOrKeyspace && supportsUdfs(cassandraVersion) || targetType == AGGREGATE)
                 aggregatesFuture = queryAsync(SELECT_AGGREGATES + whereClause, connection, protocolVersion);
 
-            return new SystemRows(get(ksFuture),
-                    groupByKeyspace(get(cfFuture)),
-                    groupByKeyspaceAndCf(get(colsFuture), cassandraVersion, CF_NAME),
-                    groupByKeyspace(get(udtFuture)),
-                    groupByKeyspace(get(functionsFuture)),
-                    groupByKeyspace(get(aggregatesFuture)),
+            Map<String, List<Row>> rows = new HashMap<String, List<Row>>();
+            put(rows, KEYSPACES, ksFuture);
+            put(rows, COLUMN_FAMILIES, cfFuture);
+            put(rows, COLUMNS, colsFuture);
+            put(rows, USERTYPES, udtFuture);
+            put(rows, FUNCTIONS, functionsFuture);
+            put(rows, AGGREGATES, aggregatesFuture);
+            return rows;
+        }
+
+        @Override
+        SystemRows toSystemRows(Map<String, List<Row>> rows, VersionNumber cassandraVersion) {
+            return new SystemRows(rows.get(KEYSPACES),
+                    groupByKeyspace(rows.get(COLUMN_FAMILIES)),
+                    groupByKeyspaceAndCf(rows.get(COLUMNS), cassandraVersion, CF_NAME),
+                    groupByKeyspace(rows.get(USERTYPES)),
+                    groupByKeyspace(rows.get(FUNCTIONS)),
+                    groupByKeyspace(rows.get(AGGREGATES)),
                     // No views nor separate indexes table in Cassandra 2:
                     Collections.<String, List<Row>>emptyMap(),
                     Collections.<String, Map<String, List<Row>>>emptyMap());
@@ -574,19 +675,28 @@ abstract class SchemaParser {
 
     private static class V3SchemaParser extends SchemaParser {
 
-        private static final String SELECT_KEYSPACES = "SELECT * FROM system_schema.keyspaces";
-        private static final String SELECT_TABLES = "SELECT * FROM system_schema.tables";
-        private static final String SELECT_COLUMNS = "SELECT * FROM system_schema.columns";
-        private static final String SELECT_USERTYPES = "SELECT * FROM system_schema.types";
-        private static final String SELECT_FUNCTIONS = "SELECT * FROM system_schema.functions";
-        private static final String SELECT_AGGREGATES = "SELECT * FROM system_schema.aggregates";
-        private static final String SELECT_INDEXES = "SELECT * FROM system_schema.indexes";
-        private static final String SELECT_VIEWS = "SELECT * FROM system_schema.views";
+        private static final String KEYSPACES = "keyspaces";
+        private static final String TABLES = "tables";
+        private static final String COLUMNS = "columns";
+        private static final String USERTYPES = "types";
+        private static final String FUNCTIONS = "functions";
+        private static final String AGGREGATES = "aggregates";
+        private static final String INDEXES = "indexes";
+        private static final String VIEWS = "views";
+
+        private static final String SELECT_KEYSPACES = "SELECT * FROM system_schema." + KEYSPACES;
+        private static final String SELECT_TABLES = "SELECT * FROM system_schema." + TABLES;
+        private static final String SELECT_COLUMNS = "SELECT * FROM system_schema." + COLUMNS;
+        private static final String SELECT_USERTYPES = "SELECT * FROM system_schema." + USERTYPES;
+        private static final String SELECT_FUNCTIONS = "SELECT * FROM system_schema." + FUNCTIONS;
+        private static final String SELECT_AGGREGATES = "SELECT * FROM system_schema." + AGGREGATES;
+        private static final String SELECT_INDEXES = "SELECT * FROM system_schema." + INDEXES;
+        private static final String SELECT_VIEWS = "SELECT * FROM system_schema." + VIEWS;
 
         private static final String TABLE_NAME = "table_name";
 
         @Override
-        SystemRows fetchSystemRows(Cluster cluster, SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature, Connection connection, VersionNumber cassandraVersion)
+        Map<String, List<Row>> fetchSystemRows(Cluster cluster, SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature, Connection connection, VersionNumber cassandraVersion)
                 throws ConnectionException, BusyConnectionException, ExecutionException, InterruptedException {
 
             boolean isSchemaOrKeyspace = (targetType == null || targetType == KEYSPACE);
@@ -601,34 +711,49 @@ abstract class SchemaParser {
                     viewsFuture = null;
 
             ProtocolVersion protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
+            String keyspaceFilter = keyspaceFilter(cluster);
 
             if (isSchemaOrKeyspace)
-                ksFuture = queryAsync(SELECT_KEYSPACES + whereClause(targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                ksFuture = queryAsync(SELECT_KEYSPACES + whereClause(keyspaceFilter, targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
 
             if (isSchemaOrKeyspace || targetType == TYPE)
-                udtFuture = queryAsync(SELECT_USERTYPES + whereClause(targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                udtFuture = queryAsync(SELECT_USERTYPES + whereClause(keyspaceFilter, targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
 
             if (isSchemaOrKeyspace || targetType == TABLE) {
-                cfFuture = queryAsync(SELECT_TABLES + whereClause(targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
-                colsFuture = queryAsync(SELECT_COLUMNS + whereClause(targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
-                indexesFuture = queryAsync(SELECT_INDEXES + whereClause(targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
-                viewsFuture = queryAsync(SELECT_VIEWS + whereClause(targetType == TABLE ? VIEW : targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                cfFuture = queryAsync(SELECT_TABLES + whereClause(keyspaceFilter, targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                colsFuture = queryAsync(SELECT_COLUMNS + whereClause(keyspaceFilter, targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                indexesFuture = queryAsync(SELECT_INDEXES + whereClause(keyspaceFilter, targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                viewsFuture = queryAsync(SELECT_VIEWS + whereClause(keyspaceFilter, targetType == TABLE ? VIEW : targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
             }
 
             if (isSchemaOrKeyspace || targetType == FUNCTION)
-                functionsFuture = queryAsync(SELECT_FUNCTIONS + whereClause(targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                functionsFuture = queryAsync(SELECT_FUNCTIONS + whereClause(keyspaceFilter, targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
 
             if (isSchemaOrKeyspace || targetType == AGGREGATE)
-                aggregatesFuture = queryAsync(SELECT_AGGREGATES + whereClause(targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
+                aggregatesFuture = queryAsync(SELECT_AGGREGATES + whereClause(keyspaceFilter, targetType, targetKeyspace, targetName, targetSignature), connection, protocolVersion);
 
-            return new SystemRows(get(ksFuture),
-                    groupByKeyspace(get(cfFuture)),
-                    groupByKeyspaceAndCf(get(colsFuture), cassandraVersion, TABLE_NAME),
-                    groupByKeyspace(get(udtFuture)),
-                    groupByKeyspace(get(functionsFuture)),
-                    groupByKeyspace(get(aggregatesFuture)),
-                    groupByKeyspace(get(viewsFuture)),
-                    groupByKeyspaceAndCf(get(indexesFuture), TABLE_NAME));
+            Map<String, List<Row>> rows = new HashMap<String, List<Row>>();
+            put(rows, KEYSPACES, ksFuture);
+            put(rows, TABLES, cfFuture);
+            put(rows, COLUMNS, colsFuture);
+            put(rows, USERTYPES, udtFuture);
+            put(rows, FUNCTIONS, functionsFuture);
+            put(rows, AGGREGATES, aggregatesFuture);
+            put(rows, VIEWS, viewsFuture);
+            put(rows, INDEXES, indexesFuture);
+            return rows;
+        }
+
+        @Override
+        SystemRows toSystemRows(Map<String, List<Row>> rows, VersionNumber cassandraVersion) {
+            return new SystemRows(rows.get(KEYSPACES),
+                    groupByKeyspace(rows.get(TABLES)),
+                    groupByKeyspaceAndCf(rows.get(COLUMNS), cassandraVersion, TABLE_NAME),
+                    groupByKeyspace(rows.get(USERTYPES)),
+                    groupByKeyspace(rows.get(FUNCTIONS)),
+                    groupByKeyspace(rows.get(AGGREGATES)),
+                    groupByKeyspace(rows.get(VIEWS)),
+                    groupByKeyspaceAndCf(rows.get(INDEXES), TABLE_NAME));
         }
 
         @Override
@@ -636,8 +761,8 @@ abstract class SchemaParser {
             return TABLE_NAME;
         }
 
-        private String whereClause(SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature) {
-            String whereClause = "";
+        private String whereClause(String keyspaceFilter, SchemaElement targetType, String targetKeyspace, String targetName, List<String> targetSignature) {
+            String whereClause = keyspaceFilter;
             if (targetType != null) {
                 whereClause = " WHERE keyspace_name = '" + targetKeyspace + '\'';
                 if (targetType == TABLE)
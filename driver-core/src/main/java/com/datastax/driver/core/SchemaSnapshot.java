@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * A local copy of the rows of the schema system tables, that allows {@link Cluster#init()} to build
+ * the schema metadata without querying the whole schema.
+ * <p/>
+ * The snapshot stores the raw (serialized) rows, along with the schema version they correspond to;
+ * they are parsed exactly as if they had been fetched from the control host.
+ *
+ * @see QueryOptions#setSchemaSnapshotFile(File)
+ */
+class SchemaSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaSnapshot.class);
+
+    private static final int MAGIC = 0x44534553;
+    private static final int FORMAT_VERSION = 2;
+
+    final UUID schemaVersion;
+    final VersionNumber cassandraVersion;
+    final ProtocolVersion protocolVersion;
+    // the keyspaces the snapshot was restricted to (empty if all keyspaces)
+    final Set<String> keyspaces;
+    // system table name -> rows
+    final Map<String, List<Row>> rows;
+
+    SchemaSnapshot(UUID schemaVersion, VersionNumber cassandraVersion, ProtocolVersion protocolVersion,
+                   Set<String> keyspaces, Map<String, List<Row>> rows) {
+        this.schemaVersion = schemaVersion;
+        this.cassandraVersion = cassandraVersion;
+        this.protocolVersion = protocolVersion;
+        this.keyspaces = keyspaces;
+        this.rows = rows;
+    }
+
+    /**
+     * Reads a snapshot from the given file.
+     *
+     * @return the snapshot, or {@code null} if the file does not exist or can't be read.
+     */
+    static SchemaSnapshot read(File file, Cluster cluster) {
+        if (!file.isFile())
+            return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.debug("Ignoring schema snapshot {}: unknown format", file);
+                return null;
+            }
+            UUID schemaVersion = new UUID(in.readLong(), in.readLong());
+            VersionNumber cassandraVersion = VersionNumber.parse(in.readUTF());
+            ProtocolVersion protocolVersion = ProtocolVersion.fromInt(in.readInt());
+            int keyspaceCount = in.readInt();
+            Set<String> keyspaces = new LinkedHashSet<String>(keyspaceCount);
+            for (int i = 0; i < keyspaceCount; i++)
+                keyspaces.add(in.readUTF());
+            CodecRegistry codecRegistry = cluster.getConfiguration().getCodecRegistry();
+
+            int tableCount = in.readInt();
+            Map<String, List<Row>> rows = new HashMap<String, List<Row>>(tableCount);
+            for (int t = 0; t < tableCount; t++) {
+                String table = in.readUTF();
+                ColumnDefinitions.Definition[] definitions = new ColumnDefinitions.Definition[in.readInt()];
+                for (int i = 0; i < definitions.length; i++) {
+                    String keyspace = in.readUTF();
+                    String tableName = in.readUTF();
+                    String name = in.readUTF();
+                    DataType type = DataTypeCqlNameParser.parse(in.readUTF(), cluster, null, null, null, false, false);
+                    definitions[i] = new ColumnDefinitions.Definition(keyspace, tableName, name, type);
+                }
+                ColumnDefinitions metadata = new ColumnDefinitions(definitions, codecRegistry);
+
+                int rowCount = in.readInt();
+                List<Row> tableRows = new ArrayList<Row>(rowCount);
+                for (int r = 0; r < rowCount; r++) {
+                    List<ByteBuffer> data = new ArrayList<ByteBuffer>(definitions.length);
+                    for (int i = 0; i < definitions.length; i++) {
+                        int length = in.readInt();
+                        if (length < 0) {
+                            data.add(null);
+                        } else {
+                            byte[] bytes = new byte[length];
+                            in.readFully(bytes);
+                            data.add(ByteBuffer.wrap(bytes));
+                        }
+                    }
+                    tableRows.add(ArrayBackedRow.fromData(metadata, null, protocolVersion, data));
+                }
+                rows.put(table, tableRows);
+            }
+            return new SchemaSnapshot(schemaVersion, cassandraVersion, protocolVersion, keyspaces, rows);
+        } catch (Exception e) {
+            logger.warn(String.format("Error reading schema snapshot %s, ignoring it", file), e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Writes this snapshot to the given file.
+     * <p/>
+     * The snapshot is first written to a temporary file in the same directory, that then replaces
+     * the target file, so that a concurrent reader never sees a partially written snapshot.
+     */
+    void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(schemaVersion.getMostSignificantBits());
+            out.writeLong(schemaVersion.getLeastSignificantBits());
+            out.writeUTF(cassandraVersion.toString());
+            out.writeInt(protocolVersion.toInt());
+            out.writeInt(keyspaces.size());
+            for (String keyspace : keyspaces)
+                out.writeUTF(keyspace);
+
+            out.writeInt(rows.size());
+            for (Map.Entry<String, List<Row>> entry : rows.entrySet()) {
+                out.writeUTF(entry.getKey());
+                List<Row> tableRows = entry.getValue();
+                ColumnDefinitions metadata = tableRows.isEmpty()
+                        ? ColumnDefinitions.EMPTY
+                        : tableRows.get(0).getColumnDefinitions();
+                out.writeInt(metadata.size());
+                for (ColumnDefinitions.Definition definition : metadata) {
+                    out.writeUTF(definition.getKeyspace());
+                    out.writeUTF(definition.getTable());
+                    out.writeUTF(definition.getName());
+                    out.writeUTF(definition.getType().toString());
+                }
+                out.writeInt(tableRows.size());
+                for (Row row : tableRows) {
+                    for (int i = 0; i < metadata.size(); i++) {
+                        ByteBuffer bytes = row.getBytesUnsafe(i);
+                        if (bytes == null) {
+                            out.writeInt(-1);
+                        } else {
+                            out.writeInt(bytes.remaining());
+                            byte[] array = new byte[bytes.remaining()];
+                            bytes.duplicate().get(array);
+                            out.write(array);
+                        }
+                    }
+                }
+            }
+            out.close();
+            out = null;
+            // File.renameTo does not overwrite existing files on all platforms
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+                throw new IOException(String.format("Could not rename %s to %s", tmp, file));
+        } finally {
+            closeQuietly(out);
+            if (tmp.exists() && !tmp.delete())
+                logger.debug("Could not delete temporary schema snapshot {}", tmp);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
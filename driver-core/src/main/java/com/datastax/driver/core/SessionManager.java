@@ -15,6 +15,7 @@ import com.datastax.driver.core.policies.LoadBalancingPolicy;
 import com.datastax.driver.core.policies.ReconnectionPolicy;
 import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
 import com.datastax.driver.core.utils.MoreFutures;
+import com.datastax.driver.dse.IgnoreJDK6Requirement;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -27,21 +28,24 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Driver implementation of the Session interface.
  */
-class SessionManager extends AbstractSession {
+class SessionManager extends AbstractSession implements CompletionStageSession {
 
     private static final Logger logger = LoggerFactory.getLogger(Session.class);
 
     final Cluster cluster;
     final ConcurrentMap<Host, HostConnectionPool> pools;
     final HostConnectionPool.PoolState poolsState;
+    final AutoPrepareCache autoPrepareCache;
     private final AtomicReference<ListenableFuture<Session>> initFuture = new AtomicReference<ListenableFuture<Session>>();
     final AtomicReference<CloseFuture> closeFuture = new AtomicReference<CloseFuture>();
 
@@ -53,6 +57,17 @@ class SessionManager extends AbstractSession {
         this.cluster = cluster;
         this.pools = new ConcurrentHashMap<Host, HostConnectionPool>();
         this.poolsState = new HostConnectionPool.PoolState();
+        this.autoPrepareCache = new AutoPrepareCache(cluster.getConfiguration().getQueryOptions()) {
+            @Override
+            ListenableFuture<PreparedStatement> prepare(String query) {
+                return prepareAsync(query, null, false);
+            }
+
+            @Override
+            Metrics metrics() {
+                return SessionManager.this.cluster.manager.metrics;
+            }
+        };
     }
 
     @Override
@@ -120,8 +135,9 @@ class SessionManager extends AbstractSession {
     @Override
     public ResultSetFuture executeAsync(final Statement statement) {
         if (isInit) {
-            DefaultResultSetFuture future = new DefaultResultSetFuture(this, cluster.manager.protocolVersion(), makeRequestMessage(statement, null));
-            new RequestHandler(this, future, statement).sendRequest();
+            Statement toExecute = maybeAutoPrepare(statement);
+            DefaultResultSetFuture future = new DefaultResultSetFuture(this, cluster.manager.protocolVersion(), makeRequestMessage(toExecute, null));
+            new RequestHandler(this, future, toExecute).sendRequest();
             return future;
         } else {
             // If the session is not initialized, we can't call makeRequestMessage() synchronously, because it
@@ -131,8 +147,9 @@ class SessionManager extends AbstractSession {
             this.initAsync().addListener(new Runnable() {
                 @Override
                 public void run() {
-                    DefaultResultSetFuture actualFuture = new DefaultResultSetFuture(SessionManager.this, cluster.manager.protocolVersion(), makeRequestMessage(statement, null));
-                    execute(actualFuture, statement);
+                    Statement toExecute = maybeAutoPrepare(statement);
+                    DefaultResultSetFuture actualFuture = new DefaultResultSetFuture(SessionManager.this, cluster.manager.protocolVersion(), makeRequestMessage(toExecute, null));
+                    execute(actualFuture, toExecute);
                     chainedFuture.setSource(actualFuture);
                 }
             }, executor());
@@ -140,6 +157,37 @@ class SessionManager extends AbstractSession {
         }
     }
 
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<ResultSet> executeAsyncStage(Statement statement) {
+        return CompletionStages.executeAsync(this, statement, null);
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<ResultSet> executeAsyncStage(Statement statement, Executor executor) {
+        Preconditions.checkNotNull(executor, "Executor must not be null");
+        return CompletionStages.executeAsync(this, statement, executor);
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<ResultSet> executeAsyncStage(String query) {
+        return CompletionStages.executeAsync(this, new SimpleStatement(query), null);
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<PreparedStatement> prepareAsyncStage(String query) {
+        return CompletionStages.fromListenableFuture(prepareAsync(query));
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<PreparedStatement> prepareAsyncStage(RegularStatement statement) {
+        return CompletionStages.fromListenableFuture(prepareAsync(statement));
+    }
+
     @Override
     public ListenableFuture<AsyncContinuousPagingResult> executeContinuouslyAsync(final Statement statement,
                                                                                   final ContinuousPagingOptions options) {
@@ -181,11 +229,24 @@ class SessionManager extends AbstractSession {
 
     @Override
     protected ListenableFuture<PreparedStatement> prepareAsync(String query, Map<String, ByteBuffer> customPayload) {
+        return prepareAsync(query, customPayload, true);
+    }
+
+    private ListenableFuture<PreparedStatement> prepareAsync(String query, Map<String, ByteBuffer> customPayload, boolean warnIfAlreadyPrepared) {
         Requests.Prepare request = new Requests.Prepare(query);
         request.setCustomPayload(customPayload);
         Connection.Future future = new Connection.Future(request);
         execute(future, Statement.DEFAULT);
-        return toPreparedStatement(query, future);
+        return toPreparedStatement(query, future, warnIfAlreadyPrepared);
+    }
+
+    boolean isInit() {
+        return isInit;
+    }
+
+    Statement maybeAutoPrepare(Statement statement) {
+        return autoPrepareCache.maybeBind(statement, poolsState.keyspace,
+                cluster.manager.protocolVersion(), configuration().getCodecRegistry());
     }
 
     @Override
@@ -223,7 +284,7 @@ class SessionManager extends AbstractSession {
         return new State(this);
     }
 
-    private ListenableFuture<PreparedStatement> toPreparedStatement(final String query, final Connection.Future future) {
+    private ListenableFuture<PreparedStatement> toPreparedStatement(final String query, final Connection.Future future, final boolean warnIfAlreadyPrepared) {
         return GuavaCompatibility.INSTANCE.transformAsync(future, new AsyncFunction<Response, PreparedStatement>() {
             @Override
             public ListenableFuture<PreparedStatement> apply(Response response) {
@@ -234,7 +295,7 @@ class SessionManager extends AbstractSession {
                             case PREPARED:
                                 Responses.Result.Prepared pmsg = (Responses.Result.Prepared) rm;
                                 PreparedStatement stmt = DefaultPreparedStatement.fromMessage(pmsg, cluster, query, poolsState.keyspace);
-                                stmt = cluster.manager.addPrepared(stmt);
+                                stmt = cluster.manager.addPrepared(stmt, warnIfAlreadyPrepared);
                                 if (cluster.getConfiguration().getQueryOptions().isPrepareOnAllHosts()) {
                                     // All Sessions are connected to the same nodes so it's enough to prepare only the nodes of this session.
                                     // If that changes, we'll have to make sure this propagate to other sessions too.
@@ -616,7 +677,7 @@ class SessionManager extends AbstractSession {
             request = new Requests.Query(qString, options, statement.isTracing());
         } else if (statement instanceof BoundStatement) {
             BoundStatement bs = (BoundStatement) statement;
-            if (!cluster.manager.preparedQueries.containsKey(bs.statement.getPreparedId().id)) {
+            if (!cluster.manager.touchPrepared(bs)) {
                 throw new InvalidQueryException(String.format("Tried to execute unknown prepared query : %s. "
                         + "You may have used a PreparedStatement that was created with another Cluster instance.", bs.statement.getPreparedId().id));
             }
@@ -33,6 +33,7 @@ public class SocketOptions {
 
     private volatile int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
     private volatile int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+    private volatile int readTimeoutSweepIntervalMillis;
     private volatile Boolean keepAlive;
     private volatile Boolean reuseAddress;
     private volatile Integer soLinger;
@@ -124,6 +125,42 @@ public class SocketOptions {
         return this;
     }
 
+    /**
+     * The interval at which each connection checks its in-flight requests for read timeouts, or 0 if
+     * read timeouts are scheduled individually.
+     *
+     * @return the interval in milliseconds.
+     * @see #setReadTimeoutSweepIntervalMillis(int)
+     */
+    public int getReadTimeoutSweepIntervalMillis() {
+        return readTimeoutSweepIntervalMillis;
+    }
+
+    /**
+     * Sets the interval at which each connection checks its in-flight requests for read timeouts.
+     * <p/>
+     * By default (or if this is set to 0), the driver schedules a task on its internal timer for each request, in
+     * order to enforce the {@link #getReadTimeoutMillis() read timeout}. At very high throughputs, this means creating
+     * and cancelling a large number of timer tasks, and contention on the timer's internal queues.
+     * <p/>
+     * If this is set to a positive value, each connection instead keeps track of the deadlines of its in-flight
+     * requests, and checks them periodically from its I/O thread. This does not require any allocation per
+     * request, and spreads the work across I/O threads. Timeouts are detected up to one interval late, so values
+     * between 10 and 100 milliseconds are good candidates (the default mechanism has an accuracy of 100 milliseconds).
+     * <p/>
+     * This setting only applies to connections created after it was changed.
+     *
+     * @param readTimeoutSweepIntervalMillis the interval to set, or 0 to schedule read timeouts individually.
+     * @return this {@code SocketOptions}.
+     * @throws IllegalArgumentException if the interval is negative.
+     */
+    public SocketOptions setReadTimeoutSweepIntervalMillis(int readTimeoutSweepIntervalMillis) {
+        if (readTimeoutSweepIntervalMillis < 0)
+            throw new IllegalArgumentException("Invalid read timeout sweep interval, should be >= 0, got " + readTimeoutSweepIntervalMillis);
+        this.readTimeoutSweepIntervalMillis = readTimeoutSweepIntervalMillis;
+        return this;
+    }
+
     /**
      * Returns whether TCP keepalive is enabled.
      *
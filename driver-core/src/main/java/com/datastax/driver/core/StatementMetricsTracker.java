@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A {@link LatencyTracker} that records latencies, sizes and page counts separately for each statement.
+ * <p/>
+ * {@link BoundStatement}s are grouped by {@link PreparedId prepared statement}, and {@link RegularStatement}s by
+ * query string. Batches and other types of statements are not tracked.
+ * <p/>
+ * To keep the memory footprint bounded when the application executes many distinct statements, at most
+ * {@link Builder#withMaxStatements(int) a given number} of statements are tracked at any time. When a new statement
+ * comes in and the limit is reached, the least executed statements are evicted (about an eighth of the limit at
+ * once, so that the cost of picking them is amortized), and new statements inherit the highest evicted count (this
+ * is a variant of the "space-saving" heavy hitters algorithm). This guarantees that the most frequent statements are
+ * always tracked, with ranks that are overestimated by at most {@link StatementMetrics#getMaxOverestimation()}.
+ * <p/>
+ * Latencies are recorded with <a href="http://hdrhistogram.github.io/HdrHistogram/">HdrHistogram</a>, which must be
+ * present in the classpath.
+ * <p/>
+ * This tracker must be {@link Cluster#register(LatencyTracker) registered} with the cluster to be enabled:
+ * <pre>
+ * StatementMetricsTracker tracker = StatementMetricsTracker.builder(15000).build();
+ * cluster.register(tracker);
+ * ...
+ * for (StatementMetricsTracker.StatementMetrics metrics : tracker.getStatementMetrics()) {
+ *     Histogram latencies = metrics.getIntervalLatencies();
+ *     ...
+ * }
+ * </pre>
+ */
+public class StatementMetricsTracker implements LatencyTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementMetricsTracker.class);
+
+    private final long highestTrackableLatencyMicros;
+    private final int numberOfSignificantValueDigits;
+    private final int maxStatements;
+    // How many statements are evicted at once, below the limit
+    private final int evictionBatch;
+
+    private final ConcurrentMap<Object, StatementMetrics> statements;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // The highest count evicted so far, that new statements inherit
+    private volatile long evictedCount;
+
+    private StatementMetricsTracker(long highestTrackableLatencyMillis, int numberOfSignificantValueDigits, int maxStatements) {
+        this.highestTrackableLatencyMicros = MILLISECONDS.toMicros(highestTrackableLatencyMillis);
+        this.numberOfSignificantValueDigits = numberOfSignificantValueDigits;
+        this.maxStatements = maxStatements;
+        this.evictionBatch = maxStatements / 8;
+        this.statements = new ConcurrentHashMap<Object, StatementMetrics>(maxStatements * 4 / 3 + 1);
+    }
+
+    /**
+     * Returns a builder to create a new instance.
+     *
+     * @param highestTrackableLatencyMillis the highest expected latency. If a higher value is reported, it will be
+     *                                      ignored and a warning will be logged. A good rule of thumb is to set it
+     *                                      slightly higher than {@link SocketOptions#getReadTimeoutMillis()}.
+     * @return the builder.
+     */
+    public static Builder builder(long highestTrackableLatencyMillis) {
+        return new Builder(highestTrackableLatencyMillis);
+    }
+
+    @Override
+    public void update(Host host, Statement statement, Exception exception, long newLatencyNanos) {
+        update(host, statement, exception, newLatencyNanos, null);
+    }
+
+    void update(Host host, Statement statement, Exception exception, long newLatencyNanos, Message.Response response) {
+        if (statement instanceof StatementWrapper)
+            statement = ((StatementWrapper) statement).getWrappedStatement();
+        StatementMetrics metrics = getOrCreate(statement);
+        if (metrics != null)
+            metrics.record(statement, exception, newLatencyNanos, response);
+    }
+
+    /**
+     * Returns the metrics of the statements currently tracked, from the most to the least executed.
+     *
+     * @return the metrics (a snapshot: it won't reflect statements that are tracked or evicted later).
+     */
+    public List<StatementMetrics> getStatementMetrics() {
+        List<StatementMetrics> sorted = sortByCount(statements.values());
+        Collections.reverse(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the metrics of a given statement.
+     *
+     * @param statement the statement.
+     * @return the metrics, or {@code null} if the statement is not currently tracked.
+     */
+    public StatementMetrics getStatementMetrics(Statement statement) {
+        if (statement instanceof StatementWrapper)
+            statement = ((StatementWrapper) statement).getWrappedStatement();
+        Object key = computeKey(statement);
+        return key == null ? null : statements.get(key);
+    }
+
+    @Override
+    public void onRegister(Cluster cluster) {
+        // nothing to do
+    }
+
+    @Override
+    public void onUnregister(Cluster cluster) {
+        statements.clear();
+        size.set(0);
+    }
+
+    private static Object computeKey(Statement statement) {
+        if (statement instanceof BoundStatement)
+            return ((BoundStatement) statement).preparedStatement().getPreparedId();
+        if (statement instanceof RegularStatement)
+            return ((RegularStatement) statement).getQueryString();
+        return null;
+    }
+
+    private StatementMetrics getOrCreate(Statement statement) {
+        Object key = computeKey(statement);
+        if (key == null)
+            return null;
+        StatementMetrics metrics = statements.get(key);
+        if (metrics != null)
+            return metrics;
+        if (size.get() >= maxStatements)
+            evict();
+        metrics = new StatementMetrics(key, statement, evictedCount,
+                new Recorder(highestTrackableLatencyMicros, numberOfSignificantValueDigits));
+        StatementMetrics previous = statements.putIfAbsent(key, metrics);
+        if (previous != null)
+            return previous;
+        size.incrementAndGet();
+        return metrics;
+    }
+
+    // Evicts the least executed statements to make room for evictionBatch + 1 new ones. Concurrent misses don't wait
+    // for the eviction, so the limit might be exceeded by the number of threads that miss at the same time.
+    private void evict() {
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            int toEvict = size.get() - maxStatements + 1 + evictionBatch;
+            if (toEvict <= evictionBatch)
+                return;
+            for (StatementMetrics evicted : sortByCount(statements.values())) {
+                if (toEvict == 0)
+                    break;
+                if (statements.remove(evicted.key, evicted)) {
+                    size.decrementAndGet();
+                    toEvict -= 1;
+                    evictedCount = Math.max(evictedCount, evicted.estimatedCount());
+                    // Don't reuse the recorder for another statement: threads that looked up the evicted statement
+                    // just before its removal might still record into it.
+                    evicted.retire();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Sorts by ascending count; counts are snapshotted, since concurrent updates would break the sort contract
+    private static List<StatementMetrics> sortByCount(Collection<StatementMetrics> values) {
+        final List<StatementMetrics> metrics = new ArrayList<StatementMetrics>(values);
+        final long[] counts = new long[metrics.size()];
+        Integer[] order = new Integer[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = metrics.get(i).estimatedCount();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return counts[i1] < counts[i2] ? -1 : (counts[i1] == counts[i2] ? 0 : 1);
+            }
+        });
+        List<StatementMetrics> sorted = new ArrayList<StatementMetrics>(counts.length);
+        for (Integer i : order)
+            sorted.add(metrics.get(i));
+        return sorted;
+    }
+
+    /**
+     * The metrics of a particular statement.
+     */
+    public class StatementMetrics {
+
+        private final Object key;
+        private final String queryString;
+        private final String keyspace;
+        private final String table;
+        private final long overestimation;
+
+        private final Recorder latencies;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicLong pages = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+
+        // only accessed while holding the lock on this object, see getIntervalLatencies() and retire()
+        private Histogram intervalHistogram;
+        private boolean retired;
+
+        private StatementMetrics(Object key, Statement statement, long overestimation, Recorder latencies) {
+            this.key = key;
+            this.overestimation = overestimation;
+            this.latencies = latencies;
+            if (statement instanceof BoundStatement) {
+                PreparedStatement ps = ((BoundStatement) statement).preparedStatement();
+                ColumnDefinitions definitions = ps.getVariables();
+                if (definitions.size() == 0)
+                    definitions = ps.getPreparedId().resultSetMetadata;
+                this.queryString = ps.getQueryString();
+                if (definitions != null && definitions.size() > 0) {
+                    this.keyspace = definitions.getKeyspace(0);
+                    this.table = definitions.getTable(0);
+                } else {
+                    this.keyspace = ps.getQueryKeyspace();
+                    this.table = null;
+                }
+            } else {
+                this.queryString = (String) key;
+                this.keyspace = statement.getKeyspace();
+                this.table = null;
+            }
+        }
+
+        private void record(Statement statement, Exception exception, long latencyNanos, Message.Response response) {
+            count.incrementAndGet();
+            if (exception != null)
+                errors.incrementAndGet();
+            if (statement instanceof BoundStatement)
+                requestBytes.addAndGet(((BoundStatement) statement).valuesSize());
+            if (response != null) {
+                if (response.getSize() > 0)
+                    responseBytes.addAndGet(response.getSize());
+                if (response instanceof Responses.Result.Rows) {
+                    pages.incrementAndGet();
+                    rows.addAndGet(((Responses.Result.Rows) response).data.size());
+                }
+            }
+            long latencyMicros = NANOSECONDS.toMicros(latencyNanos);
+            try {
+                latencies.recordValue(latencyMicros);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                logger.warn("Got request with latency of {} microseconds, which exceeds the configured maximum trackable value {}",
+                        latencyMicros, highestTrackableLatencyMicros);
+            }
+        }
+
+        private long estimatedCount() {
+            return overestimation + count.get();
+        }
+
+        // Called when the statement gets evicted
+        private synchronized void retire() {
+            retired = true;
+            intervalHistogram = null;
+        }
+
+        /**
+         * Returns the query string of the statement.
+         *
+         * @return the query string.
+         */
+        public String getQueryString() {
+            return queryString;
+        }
+
+        /**
+         * Returns the prepared statement identifier, if the statement is a {@link BoundStatement}.
+         *
+         * @return the identifier, or {@code null} for a {@link RegularStatement}.
+         */
+        public PreparedId getPreparedId() {
+            return key instanceof PreparedId ? (PreparedId) key : null;
+        }
+
+        /**
+         * Returns the keyspace that the statement operates on, if known.
+         *
+         * @return the keyspace, or {@code null} if it is unknown.
+         */
+        public String getKeyspace() {
+            return keyspace;
+        }
+
+        /**
+         * Returns the table that the statement operates on, if known. This is only available for
+         * {@link BoundStatement}s that have bound variables or return rows.
+         *
+         * @return the table, or {@code null} if it is unknown.
+         */
+        public String getTable() {
+            return table;
+        }
+
+        /**
+         * Returns the number of requests sent for this statement since it started being tracked, including
+         * retries, speculative executions and requests for subsequent pages.
+         *
+         * @return the number of requests.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Returns the number of requests that were attributed to this statement when it started being tracked.
+         * <p/>
+         * When a statement evicts another one, it inherits its count for ranking purposes; therefore, the
+         * statement's rank among the tracked statements might be overestimated by at most this number of requests.
+         * This is 0 if the statement has been tracked since its first execution.
+         *
+         * @return the maximum overestimation.
+         */
+        public long getMaxOverestimation() {
+            return overestimation;
+        }
+
+        /**
+         * Returns the number of requests that failed.
+         *
+         * @return the number of errors.
+         */
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * Returns the total size in bytes of the values sent with the requests. This is only computed for
+         * {@link BoundStatement}s, since the values of other statements are not serialized at this stage.
+         *
+         * @return the number of bytes.
+         */
+        public long getRequestBytes() {
+            return requestBytes.get();
+        }
+
+        /**
+         * Returns the total size in bytes of the (uncompressed) response bodies.
+         *
+         * @return the number of bytes.
+         */
+        public long getResponseBytes() {
+            return responseBytes.get();
+        }
+
+        /**
+         * Returns the number of pages of rows received.
+         *
+         * @return the number of pages.
+         */
+        public long getPages() {
+            return pages.get();
+        }
+
+        /**
+         * Returns the number of rows received.
+         *
+         * @return the number of rows.
+         */
+        public long getRows() {
+            return rows.get();
+        }
+
+        /**
+         * Returns the latencies (in microseconds) recorded since the previous invocation of this method (or since
+         * the statement started being tracked).
+         * <p/>
+         * This is meant to be called periodically by a single reporter; concurrent callers would see disjoint
+         * intervals. Once the statement has been evicted, this returns an empty histogram.
+         *
+         * @return a histogram of the latencies over the interval.
+         */
+        public synchronized Histogram getIntervalLatencies() {
+            if (retired)
+                return new Histogram(highestTrackableLatencyMicros, numberOfSignificantValueDigits);
+            intervalHistogram = latencies.getIntervalHistogram(intervalHistogram);
+            return intervalHistogram.copy();
+        }
+    }
+
+    /**
+     * Helper class to build {@code StatementMetricsTracker} instances with a fluent interface.
+     */
+    public static class Builder {
+
+        /**
+         * The default value for {@link #withMaxStatements(int)}: {@value}.
+         */
+        public static final int DEFAULT_MAX_STATEMENTS = 100;
+
+        private final long highestTrackableLatencyMillis;
+        private int numberOfSignificantValueDigits = 3;
+        private int maxStatements = DEFAULT_MAX_STATEMENTS;
+
+        Builder(long highestTrackableLatencyMillis) {
+            checkArgument(highestTrackableLatencyMillis > 0,
+                    "Invalid highestTrackableLatencyMillis, should be > 0, got %s", highestTrackableLatencyMillis);
+            this.highestTrackableLatencyMillis = highestTrackableLatencyMillis;
+        }
+
+        /**
+         * Sets the number of significant decimal digits to which histograms will maintain value
+         * resolution and separation. This must be an integer between 0 and 5.
+         * <p/>
+         * If not set explicitly, this value defaults to 3.
+         * <p/>
+         * See <a href="http://hdrhistogram.github.io/HdrHistogram/JavaDoc/org/HdrHistogram/Histogram.html">the HdrHistogram Javadocs</a>
+         * for a more detailed explanation on how this parameter affects the resolution of recorded samples.
+         *
+         * @param numberOfSignificantValueDigits the new value.
+         * @return this builder.
+         */
+        public Builder withNumberOfSignificantValueDigits(int numberOfSignificantValueDigits) {
+            checkArgument(numberOfSignificantValueDigits >= 0 && numberOfSignificantValueDigits <= 5,
+                    "Invalid numberOfSignificantValueDigits, should be between 0 and 5, got %s", numberOfSignificantValueDigits);
+            this.numberOfSignificantValueDigits = numberOfSignificantValueDigits;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of statements tracked at any time.
+         * <p/>
+         * Each tracked statement holds a histogram, so this bounds the memory footprint of the tracker.
+         * If not set explicitly, this value defaults to {@link #DEFAULT_MAX_STATEMENTS}.
+         *
+         * @param maxStatements the new value.
+         * @return this builder.
+         */
+        public Builder withMaxStatements(int maxStatements) {
+            checkArgument(maxStatements > 0, "Invalid maxStatements, should be > 0, got %s", maxStatements);
+            this.maxStatements = maxStatements;
+            return this;
+        }
+
+        /**
+         * Builds the {@code StatementMetricsTracker} instance configured with this builder.
+         *
+         * @return the instance.
+         */
+        public StatementMetricsTracker build() {
+            return new StatementMetricsTracker(highestTrackableLatencyMillis, numberOfSignificantValueDigits, maxStatements);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.exceptions;
+
+/**
+ * Thrown when a request is rejected by the {@link com.datastax.driver.core.policies.RequestThrottler} before being
+ * sent, because the driver is already handling as many requests as it allows and its wait queue is full.
+ * <p/>
+ * This exception is a symptom that the application submits requests faster than the cluster can process them. It is
+ * not retried by the driver.
+ */
+public class RequestThrottlingException extends DriverException {
+
+    private static final long serialVersionUID = 0;
+
+    public RequestThrottlingException(String message) {
+        super(message);
+    }
+
+    private RequestThrottlingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public RequestThrottlingException copy() {
+        return new RequestThrottlingException(getMessage(), this);
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.LatencyTracker;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.*;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ConcurrencyLimitingRequestThrottler} that adjusts its limit to the latencies observed by the driver.
+ * <p/>
+ * The throttler registers a {@link LatencyTracker} with the cluster, and aggregates the latencies of successful
+ * requests in windows of a fixed number of samples. At the end of each window, it compares the window's average
+ * latency to a long-term average (the latency the cluster exhibits when it is not overloaded), and computes a new limit
+ * with a gradient, in the manner of TCP Vegas:
+ * <pre>
+ * gradient = max(0.5, min(1.0, tolerance * longTermLatency / windowLatency))
+ * newLimit = limit * gradient + sqrt(limit)
+ * </pre>
+ * In other words, the limit grows slowly while latencies are stable, and shrinks as soon as they increase beyond the
+ * tolerance, before requests start timing out. If a window contains a sign of overload (client or server timeout,
+ * overloaded coordinator, busy connection pool), the limit is instead multiplied by a backoff ratio. The limit does not
+ * grow while less than half of it is in use, and is always kept within {@code [minLimit, maxLimit]}.
+ * <p/>
+ * Samples are accumulated without locking; only the response that closes a window takes a lock to compute and apply
+ * the new limit, so that limits are always applied in the order they were computed. Samples that arrive while a window
+ * is being closed may be counted in the next window.
+ */
+public class AdaptiveConcurrencyLimitingRequestThrottler extends ConcurrencyLimitingRequestThrottler {
+
+    // how fast the long-term average follows the windows' averages (about 20 windows)
+    private static final double LONG_TERM_ALPHA = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+
+    private final Tracker tracker = new Tracker();
+
+    // Updated by every sample
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong windowLatencySum = new AtomicLong();
+    private final AtomicInteger windowSuccesses = new AtomicInteger();
+    private final AtomicBoolean windowOverloaded = new AtomicBoolean();
+
+    // Not a monitor: the lock is held while applying the new limit, which can start queued requests
+    private final ReentrantLock windowLock = new ReentrantLock();
+    // Guarded by windowLock, only accessed when a window closes
+    private double limit;
+    private double longTermLatency = Double.NaN;
+
+    private AdaptiveConcurrencyLimitingRequestThrottler(int initialLimit, int minLimit, int maxLimit, int maxQueueSize,
+                                                        int windowSize, double tolerance, double smoothing,
+                                                        double backoffRatio) {
+        super(initialLimit, maxQueueSize);
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return the builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        super.init(cluster);
+        cluster.register(tracker);
+    }
+
+    @VisibleForTesting
+    void onSample(Exception exception, long latencyNanos) {
+        if (exception == null) {
+            windowLatencySum.addAndGet(latencyNanos);
+            windowSuccesses.incrementAndGet();
+        } else if (isOverload(exception)) {
+            if (!windowOverloaded.get())
+                windowOverloaded.set(true);
+        } else {
+            // other errors (syntax errors, unavailable...) say nothing about the load
+            return;
+        }
+        // Exactly one sample closes each window: the one that brings the count to a multiple of the window size
+        if (samples.incrementAndGet() % windowSize != 0)
+            return;
+
+        // Read outside of our lock, this acquires the lock of the parent class
+        int concurrentRequests = getConcurrentRequests();
+        windowLock.lock();
+        try {
+            long latencySum = windowLatencySum.getAndSet(0);
+            int successes = windowSuccesses.getAndSet(0);
+            boolean overloaded = windowOverloaded.getAndSet(false);
+
+            double target;
+            if (overloaded) {
+                target = limit * backoffRatio;
+            } else if (successes == 0) {
+                // the samples of this window were all drained by the previous one
+                return;
+            } else {
+                double windowLatency = (double) latencySum / successes;
+                if (Double.isNaN(longTermLatency)) {
+                    longTermLatency = windowLatency;
+                } else {
+                    longTermLatency = longTermLatency * (1 - LONG_TERM_ALPHA) + windowLatency * LONG_TERM_ALPHA;
+                    // If latencies dropped a lot, let the long-term average catch up faster
+                    if (longTermLatency / windowLatency > 2)
+                        longTermLatency *= 0.95;
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, tolerance * longTermLatency / windowLatency));
+                target = limit * gradient + Math.sqrt(limit);
+                // Don't grow if the application doesn't use the current limit: we would have no feedback for it
+                if (target > limit && concurrentRequests < limit / 2)
+                    target = limit;
+                target = limit * (1 - smoothing) + target * smoothing;
+            }
+            limit = Math.max(minLimit, Math.min(maxLimit, target));
+            int newLimit = (int) limit;
+            // Applied under the lock, otherwise a limit computed by a previous window could overwrite this one
+            if (newLimit != getMaxConcurrentRequests())
+                setMaxConcurrentRequests(newLimit);
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    private static boolean isOverload(Exception exception) {
+        return exception instanceof OperationTimedOutException
+                || exception instanceof ReadTimeoutException
+                || exception instanceof WriteTimeoutException
+                || exception instanceof OverloadedException
+                || exception instanceof BusyPoolException
+                || exception instanceof BusyConnectionException;
+    }
+
+    private class Tracker implements LatencyTracker {
+
+        @Override
+        public void update(Host host, Statement statement, Exception exception, long newLatencyNanos) {
+            onSample(exception, newLatencyNanos);
+        }
+
+        @Override
+        public void onRegister(Cluster cluster) {
+            // nothing to do
+        }
+
+        @Override
+        public void onUnregister(Cluster cluster) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * A builder to create a new {@code AdaptiveConcurrencyLimitingRequestThrottler}.
+     */
+    public static class Builder {
+
+        private int initialLimit = 64;
+        private int minLimit = 8;
+        private int maxLimit = 1024;
+        private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+        private int windowSize = 100;
+        private double tolerance = 1.5;
+        private double smoothing = 0.2;
+        private double backoffRatio = 0.9;
+
+        /**
+         * Sets the limits of the number of concurrent requests.
+         * <p/>
+         * The default values are 64 (initial), 8 (minimum) and 1024 (maximum).
+         *
+         * @param initialLimit the limit when the throttler starts.
+         * @param minLimit     the minimum limit.
+         * @param maxLimit     the maximum limit.
+         * @return this builder.
+         * @throws IllegalArgumentException if {@code minLimit <= 0} or {@code minLimit <= initialLimit <= maxLimit}
+         *                                  does not hold.
+         */
+        public Builder withLimits(int initialLimit, int minLimit, int maxLimit) {
+            if (minLimit <= 0)
+                throw new IllegalArgumentException("Invalid minLimit, should be > 0, got " + minLimit);
+            if (initialLimit < minLimit || initialLimit > maxLimit)
+                throw new IllegalArgumentException(String.format(
+                        "Invalid initialLimit, should be between minLimit (%d) and maxLimit (%d), got %d",
+                        minLimit, maxLimit, initialLimit));
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests that can wait in the queue.
+         * <p/>
+         * The default value is {@link ConcurrencyLimitingRequestThrottler#DEFAULT_MAX_QUEUE_SIZE}.
+         *
+         * @param maxQueueSize the maximum number of requests that can wait in the queue.
+         * @return this builder.
+         * @throws IllegalArgumentException if {@code maxQueueSize < 0}.
+         */
+        public Builder withMaxQueueSize(int maxQueueSize) {
+            if (maxQueueSize < 0)
+                throw new IllegalArgumentException("Invalid maxQueueSize, should be >= 0, got " + maxQueueSize);
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of samples (responses or overload errors) after which the limit is recomputed.
+         * <p/>
+         * The default value is 100.
+         *
+         * @param windowSize the number of samples.
+         * @return this builder.
+         * @throws IllegalArgumentException if {@code windowSize <= 0}.
+         */
+        public Builder withWindowSize(int windowSize) {
+            if (windowSize <= 0)
+                throw new IllegalArgumentException("Invalid windowSize, should be > 0, got " + windowSize);
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Sets the ratio between the latency of a window and the long-term latency above which the limit decreases.
+         * <p/>
+         * The default value is 1.5.
+         *
+         * @param tolerance the tolerance.
+         * @return this builder.
+         * @throws IllegalArgumentException if {@code tolerance < 1}.
+         */
+        public Builder withTolerance(double tolerance) {
+            if (!(tolerance >= 1))
+                throw new IllegalArgumentException("Invalid tolerance, should be >= 1, got " + tolerance);
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Sets how much of the computed limit is applied at the end of each window (the rest comes from the previous
+         * limit).
+         * <p/>
+         * The default value is 0.2.
+         *
+         * @param smoothing the smoothing factor.
+         * @return this builder.
+         * @throws IllegalArgumentException if {@code smoothing <= 0 || smoothing > 1}.
+         */
+        public Builder withSmoothing(double smoothing) {
+            if (!(smoothing > 0 && smoothing <= 1))
+                throw new IllegalArgumentException("Invalid smoothing, should be > 0 and <= 1, got " + smoothing);
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        /**
+         * Sets the factor applied to the limit after a window that contained a sign of overload.
+         * <p/>
+         * The default value is 0.9.
+         *
+         * @param backoffRatio the backoff ratio.
+         * @return this builder.
+         * @throws IllegalArgumentException if {@code backoffRatio <= 0 || backoffRatio >= 1}.
+         */
+        public Builder withBackoffRatio(double backoffRatio) {
+            if (!(backoffRatio > 0 && backoffRatio < 1))
+                throw new IllegalArgumentException("Invalid backoffRatio, should be > 0 and < 1, got " + backoffRatio);
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Builds the throttler.
+         *
+         * @return the throttler.
+         */
+        public AdaptiveConcurrencyLimitingRequestThrottler build() {
+            return new AdaptiveConcurrencyLimitingRequestThrottler(initialLimit, minLimit, maxLimit, maxQueueSize,
+                    windowSize, tolerance, smoothing, backoffRatio);
+        }
+    }
+}
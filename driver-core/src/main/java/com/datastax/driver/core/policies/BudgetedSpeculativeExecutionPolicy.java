@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Statement;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link SpeculativeExecutionPolicy} that limits the speculative executions of another policy to a fraction of the
+ * overall traffic.
+ * <p/>
+ * The child policy decides when speculative executions are scheduled, but this policy maintains a cluster-wide token
+ * bucket: each request deposits {@code budgetRatio} tokens (up to {@code maxTokens}), and each speculative execution
+ * withdraws one token when it is about to start. If the bucket is empty, the speculative execution is skipped.
+ * <p/>
+ * Without such a budget, speculative executions increase the load on the cluster when it is already slow, which is
+ * exactly when it has the least capacity to handle it. With a budget of 10%, at most one in ten requests (on average,
+ * after the initial burst) will be hedged, no matter how slow the cluster gets.
+ * <p/>
+ * This policy can also send speculative executions to the least busy of the next hosts in the query plan, instead of
+ * the next host (see {@link Builder#withLoadAwareHostSelection(boolean)}).
+ * <p/>
+ * The number of speculative executions that were skipped, that won (completed the request) or that were wasted are
+ * reported in the cluster's {@link com.datastax.driver.core.Metrics.Errors metrics}.
+ */
+public class BudgetedSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+
+    // Tokens are stored as fixed-point numbers (in millionths of a token), so that fractional deposits can be done
+    // atomically.
+    private static final long TOKEN = 1000000;
+
+    private final SpeculativeExecutionPolicy childPolicy;
+    private final long deposit;
+    private final long maxTokens;
+    private final boolean loadAware;
+
+    private final AtomicLong tokens;
+
+    private BudgetedSpeculativeExecutionPolicy(SpeculativeExecutionPolicy childPolicy, double budgetRatio, int maxTokens, boolean loadAware) {
+        this.childPolicy = childPolicy;
+        this.deposit = Math.round(budgetRatio * TOKEN);
+        this.maxTokens = maxTokens * TOKEN;
+        this.loadAware = loadAware;
+        // Start full, so that a new client can hedge its first requests
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    /**
+     * Creates a new builder for this policy.
+     *
+     * @param childPolicy the policy that schedules speculative executions.
+     * @return the builder.
+     */
+    public static Builder builder(SpeculativeExecutionPolicy childPolicy) {
+        return new Builder(childPolicy);
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        childPolicy.init(cluster);
+    }
+
+    @Override
+    public SpeculativeExecutionPlan newPlan(String loggedKeyspace, Statement statement) {
+        deposit();
+        return new BudgetedPlan(childPolicy.newPlan(loggedKeyspace, statement));
+    }
+
+    @Override
+    public void close() {
+        childPolicy.close();
+    }
+
+    /**
+     * Returns the number of speculative executions that can currently start.
+     *
+     * @return the number of available tokens.
+     */
+    public double getAvailableTokens() {
+        return (double) tokens.get() / TOKEN;
+    }
+
+    private void deposit() {
+        while (true) {
+            long current = tokens.get();
+            if (current >= maxTokens)
+                return;
+            if (tokens.compareAndSet(current, Math.min(current + deposit, maxTokens)))
+                return;
+        }
+    }
+
+    private boolean withdraw() {
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN)
+                return false;
+            if (tokens.compareAndSet(current, current - TOKEN))
+                return true;
+        }
+    }
+
+    private class BudgetedPlan implements HedgingPlan {
+        private final SpeculativeExecutionPlan childPlan;
+
+        BudgetedPlan(SpeculativeExecutionPlan childPlan) {
+            this.childPlan = childPlan;
+        }
+
+        @Override
+        public long nextExecution(Host lastQueried) {
+            return childPlan.nextExecution(lastQueried);
+        }
+
+        @Override
+        public boolean acquirePermit() {
+            if (childPlan instanceof HedgingPlan && !((HedgingPlan) childPlan).acquirePermit())
+                return false;
+            return withdraw();
+        }
+
+        @Override
+        public boolean isLoadAware() {
+            return loadAware || (childPlan instanceof HedgingPlan && ((HedgingPlan) childPlan).isLoadAware());
+        }
+    }
+
+    /**
+     * Helper class to build the policy.
+     */
+    public static class Builder {
+
+        /**
+         * The default number of speculative executions allowed per request, on average.
+         */
+        public static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+        /**
+         * The default maximum number of tokens that the budget can accumulate.
+         */
+        public static final int DEFAULT_MAX_TOKENS = 100;
+
+        /**
+         * The smallest budget ratio that can be set, because tokens are only tracked down to a millionth.
+         */
+        public static final double MIN_BUDGET_RATIO = 1.0 / TOKEN;
+
+        private final SpeculativeExecutionPolicy childPolicy;
+
+        private double budgetRatio = DEFAULT_BUDGET_RATIO;
+        private int maxTokens = DEFAULT_MAX_TOKENS;
+        private boolean loadAware;
+
+        /**
+         * Creates a new builder given the child policy that the resulting policy wraps.
+         *
+         * @param childPolicy the policy that schedules speculative executions.
+         */
+        public Builder(SpeculativeExecutionPolicy childPolicy) {
+            if (childPolicy == null)
+                throw new IllegalArgumentException("Invalid child policy, should not be null");
+            this.childPolicy = childPolicy;
+        }
+
+        /**
+         * Sets the budget of the resulting policy.
+         * <p/>
+         * The defaults (if this method is not called) are a ratio of <b>0.1</b> and <b>100</b> tokens.
+         *
+         * @param budgetRatio the number of speculative executions allowed per request, on average (for example,
+         *                    {@code 0.1} allows speculative executions for 10% of the requests). Must be greater
+         *                    than or equal to {@link #MIN_BUDGET_RATIO}.
+         * @param maxTokens   the maximum number of tokens that the budget can accumulate, in other words the size of
+         *                    the largest burst of speculative executions. Must be strictly positive.
+         * @return this builder.
+         * @throws IllegalArgumentException if one of the arguments does not respect the preconditions above.
+         */
+        public Builder withBudget(double budgetRatio, int maxTokens) {
+            if (!(budgetRatio >= MIN_BUDGET_RATIO))
+                throw new IllegalArgumentException("Invalid budget ratio, should be >= " + MIN_BUDGET_RATIO + ", got " + budgetRatio);
+            if (maxTokens <= 0)
+                throw new IllegalArgumentException("Invalid max tokens, should be > 0, got " + maxTokens);
+            this.budgetRatio = budgetRatio;
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Sets whether speculative executions should be sent to the least busy of the next hosts in the query plan.
+         * <p/>
+         * When enabled, the driver compares the number of requests in flight to the next two hosts of the query plan,
+         * and sends the speculative execution to the least busy one (the other host remains in the query plan).
+         * Otherwise, speculative executions are sent to the next host in the query plan.
+         * <p/>
+         * This is disabled by default.
+         *
+         * @param loadAware whether to enable load-aware host selection.
+         * @return this builder.
+         */
+        public Builder withLoadAwareHostSelection(boolean loadAware) {
+            this.loadAware = loadAware;
+            return this;
+        }
+
+        /**
+         * Builds the policy.
+         *
+         * @return the policy.
+         */
+        public BudgetedSpeculativeExecutionPolicy build() {
+            return new BudgetedSpeculativeExecutionPolicy(childPolicy, budgetRatio, maxTokens, loadAware);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Metrics;
+import com.datastax.driver.core.exceptions.RequestThrottlingException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link RequestThrottler} that limits the number of requests executing concurrently.
+ * <p/>
+ * Requests beyond the limit wait in a FIFO queue; when the queue is full, new requests are rejected with a
+ * {@link RequestThrottlingException}.
+ * <p/>
+ * If metrics are enabled, this throttler exposes the following gauges in the cluster's
+ * {@link Metrics#getRegistry() registry}: {@code throttling-limit}, {@code throttling-in-flight},
+ * {@code throttling-queue-size} and {@code throttling-rejections}.
+ */
+public class ConcurrencyLimitingRequestThrottler implements RequestThrottler {
+
+    /**
+     * The default maximum number of requests that can wait in the queue.
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+
+    private final int maxQueueSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final Deque<Throttled> queue = new ArrayDeque<Throttled>();
+    // guarded by lock
+    private int concurrentRequests;
+    // guarded by lock
+    private boolean closed;
+
+    private volatile int maxConcurrentRequests;
+
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    // "work in progress" counter to make draining non-reentrant: a request that fails synchronously when it is
+    // dequeued signals its completion, which would otherwise drain the queue recursively.
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxConcurrentRequests the maximum number of requests that can execute concurrently.
+     * @param maxQueueSize          the maximum number of requests that can wait in the queue.
+     * @throws IllegalArgumentException if {@code maxConcurrentRequests <= 0} or {@code maxQueueSize < 0}.
+     */
+    public ConcurrencyLimitingRequestThrottler(int maxConcurrentRequests, int maxQueueSize) {
+        if (maxConcurrentRequests <= 0)
+            throw new IllegalArgumentException("Invalid maxConcurrentRequests, should be > 0, got " + maxConcurrentRequests);
+        if (maxQueueSize < 0)
+            throw new IllegalArgumentException("Invalid maxQueueSize, should be >= 0, got " + maxQueueSize);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * Creates a new instance with a queue size of {@link #DEFAULT_MAX_QUEUE_SIZE}.
+     *
+     * @param maxConcurrentRequests the maximum number of requests that can execute concurrently.
+     * @throws IllegalArgumentException if {@code maxConcurrentRequests <= 0}.
+     */
+    public ConcurrencyLimitingRequestThrottler(int maxConcurrentRequests) {
+        this(maxConcurrentRequests, DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        Metrics metrics = cluster.getMetrics();
+        if (metrics != null)
+            registerGauges(metrics.getRegistry());
+    }
+
+    /**
+     * Registers this throttler's gauges. Subclasses can override this method to add their own.
+     *
+     * @param registry the registry of the cluster's metrics.
+     */
+    protected void registerGauges(MetricRegistry registry) {
+        registry.register("throttling-limit", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getMaxConcurrentRequests();
+            }
+        });
+        registry.register("throttling-in-flight", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getConcurrentRequests();
+            }
+        });
+        registry.register("throttling-queue-size", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getQueueSize();
+            }
+        });
+        registry.register("throttling-rejections", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return getRejectedRequests();
+            }
+        });
+    }
+
+    @Override
+    public void register(Throttled request) {
+        boolean ready = false;
+        RequestThrottlingException error = null;
+        lock.lock();
+        try {
+            if (closed) {
+                error = new RequestThrottlingException("The throttler was closed");
+            } else if (concurrentRequests < maxConcurrentRequests && queue.isEmpty()) {
+                concurrentRequests += 1;
+                ready = true;
+            } else if (queue.size() < maxQueueSize) {
+                queue.add(request);
+            } else {
+                error = new RequestThrottlingException(String.format(
+                        "The session has reached its maximum capacity (concurrent requests: %d, queue size: %d)",
+                        maxConcurrentRequests, maxQueueSize));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ready) {
+            request.onThrottleReady(false);
+        } else if (error != null) {
+            rejectedRequests.incrementAndGet();
+            request.onThrottleFailure(error);
+        }
+    }
+
+    @Override
+    public void signalSuccess(Throttled request) {
+        onRequestDone();
+    }
+
+    @Override
+    public void signalError(Throttled request, Throwable error) {
+        onRequestDone();
+    }
+
+    @Override
+    public void signalCancel(Throttled request) {
+        boolean removed;
+        lock.lock();
+        try {
+            removed = queue.remove(request);
+        } finally {
+            lock.unlock();
+        }
+        if (!removed)
+            onRequestDone();
+    }
+
+    @Override
+    public void close() {
+        Throttled[] pending;
+        lock.lock();
+        try {
+            closed = true;
+            pending = queue.toArray(new Throttled[queue.size()]);
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (Throttled request : pending)
+            request.onThrottleFailure(new RequestThrottlingException("The throttler was closed"));
+    }
+
+    /**
+     * Returns the maximum number of requests that can execute concurrently.
+     *
+     * @return the maximum number of requests that can execute concurrently.
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Changes the maximum number of requests that can execute concurrently. If the limit increases, waiting requests
+     * are started immediately; if it decreases, requests that are already executing are not affected.
+     *
+     * @param maxConcurrentRequests the new limit.
+     * @throws IllegalArgumentException if {@code maxConcurrentRequests <= 0}.
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        if (maxConcurrentRequests <= 0)
+            throw new IllegalArgumentException("Invalid maxConcurrentRequests, should be > 0, got " + maxConcurrentRequests);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        drain();
+    }
+
+    /**
+     * Returns the number of requests currently executing.
+     *
+     * @return the number of requests currently executing.
+     */
+    public int getConcurrentRequests() {
+        lock.lock();
+        try {
+            return concurrentRequests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests currently waiting in the queue.
+     *
+     * @return the number of requests currently waiting in the queue.
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that were rejected since this throttler was created.
+     *
+     * @return the number of requests that were rejected.
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    private void onRequestDone() {
+        lock.lock();
+        try {
+            concurrentRequests -= 1;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0)
+            return;
+        int missed = 1;
+        do {
+            Throttled next;
+            while ((next = pollIfAllowed()) != null)
+                next.onThrottleReady(true);
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private Throttled pollIfAllowed() {
+        lock.lock();
+        try {
+            if (concurrentRequests >= maxConcurrentRequests)
+                return null;
+            Throttled next = queue.poll();
+            if (next != null)
+                concurrentRequests += 1;
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+
+/**
+ * A {@link RetryBudget} that allows all retries, and runs them immediately.
+ * <p/>
+ * This is the default: the number of retries is then only controlled by the {@link RetryPolicy}.
+ */
+public class NoRetryBudget implements RetryBudget {
+
+    /**
+     * The single instance (this class is stateless).
+     */
+    public static final NoRetryBudget INSTANCE = new NoRetryBudget();
+
+    private NoRetryBudget() {
+        // do nothing
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        // do nothing
+    }
+
+    @Override
+    public void onRequest() {
+        // do nothing
+    }
+
+    @Override
+    public boolean acquireRetry() {
+        return true;
+    }
+
+    @Override
+    public long getRetryDelayMillis(int retryCount) {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        // do nothing
+    }
+}
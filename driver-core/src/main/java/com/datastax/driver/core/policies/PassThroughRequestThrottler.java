@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+
+/**
+ * A {@link RequestThrottler} that lets all requests proceed immediately.
+ * <p/>
+ * This is the default throttler: admission is then only controlled by each host's connection pool (see
+ * {@link com.datastax.driver.core.PoolingOptions#setMaxQueueSize(int)}).
+ */
+public class PassThroughRequestThrottler implements RequestThrottler {
+
+    /**
+     * The single instance (this class is stateless).
+     */
+    public static final PassThroughRequestThrottler INSTANCE = new PassThroughRequestThrottler();
+
+    private PassThroughRequestThrottler() {
+        // do nothing
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        // do nothing
+    }
+
+    @Override
+    public void register(Throttled request) {
+        request.onThrottleReady(false);
+    }
+
+    @Override
+    public void signalSuccess(Throttled request) {
+        // do nothing
+    }
+
+    @Override
+    public void signalError(Throttled request, Throwable error) {
+        // do nothing
+    }
+
+    @Override
+    public void signalCancel(Throttled request) {
+        // do nothing
+    }
+
+    @Override
+    public void close() {
+        // do nothing
+    }
+}
@@ -27,6 +27,8 @@ public class Policies {
     private static final RetryPolicy DEFAULT_RETRY_POLICY = DefaultRetryPolicy.INSTANCE;
     private static final AddressTranslator DEFAULT_ADDRESS_TRANSLATOR = new IdentityTranslator();
     private static final SpeculativeExecutionPolicy DEFAULT_SPECULATIVE_EXECUTION_POLICY = NoSpeculativeExecutionPolicy.INSTANCE;
+    private static final RequestThrottler DEFAULT_REQUEST_THROTTLER = PassThroughRequestThrottler.INSTANCE;
+    private static final RetryBudget DEFAULT_RETRY_BUDGET = NoRetryBudget.INSTANCE;
 
     private final LoadBalancingPolicy loadBalancingPolicy;
     private final ReconnectionPolicy reconnectionPolicy;
@@ -34,19 +36,25 @@ public class Policies {
     private final AddressTranslator addressTranslator;
     private final TimestampGenerator timestampGenerator;
     private final SpeculativeExecutionPolicy speculativeExecutionPolicy;
+    private final RequestThrottler requestThrottler;
+    private final RetryBudget retryBudget;
 
     private Policies(LoadBalancingPolicy loadBalancingPolicy,
                      ReconnectionPolicy reconnectionPolicy,
                      RetryPolicy retryPolicy,
                      AddressTranslator addressTranslator,
                      TimestampGenerator timestampGenerator,
-                     SpeculativeExecutionPolicy speculativeExecutionPolicy) {
+                     SpeculativeExecutionPolicy speculativeExecutionPolicy,
+                     RequestThrottler requestThrottler,
+                     RetryBudget retryBudget) {
         this.loadBalancingPolicy = loadBalancingPolicy;
         this.reconnectionPolicy = reconnectionPolicy;
         this.retryPolicy = retryPolicy;
         this.addressTranslator = addressTranslator;
         this.timestampGenerator = timestampGenerator;
         this.speculativeExecutionPolicy = speculativeExecutionPolicy;
+        this.requestThrottler = requestThrottler;
+        this.retryBudget = retryBudget;
     }
 
     /**
@@ -123,6 +131,28 @@ public class Policies {
         return DEFAULT_SPECULATIVE_EXECUTION_POLICY;
     }
 
+    /**
+     * The default request throttler.
+     * <p/>
+     * The default request throttler is a {@link PassThroughRequestThrottler}.
+     *
+     * @return the default request throttler.
+     */
+    public static RequestThrottler defaultRequestThrottler() {
+        return DEFAULT_REQUEST_THROTTLER;
+    }
+
+    /**
+     * The default retry budget.
+     * <p/>
+     * The default retry budget is a {@link NoRetryBudget}.
+     *
+     * @return the default retry budget.
+     */
+    public static RetryBudget defaultRetryBudget() {
+        return DEFAULT_RETRY_BUDGET;
+    }
+
     /**
      * The load balancing policy in use.
      * <p/>
@@ -184,6 +214,29 @@ public class Policies {
         return speculativeExecutionPolicy;
     }
 
+    /**
+     * The request throttler in use.
+     * <p/>
+     * The request throttler limits the number of requests that the driver executes at any given time.
+     *
+     * @return the request throttler in use.
+     */
+    public RequestThrottler getRequestThrottler() {
+        return requestThrottler;
+    }
+
+    /**
+     * The retry budget in use.
+     * <p/>
+     * The retry budget limits the retries decided by the {@link #getRetryPolicy() retry policy} across all requests,
+     * and decides when they happen.
+     *
+     * @return the retry budget in use.
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
     /**
      * A builder to create a new {@code Policies} object.
      */
@@ -194,6 +247,8 @@ public class Policies {
         private AddressTranslator addressTranslator;
         private TimestampGenerator timestampGenerator;
         private SpeculativeExecutionPolicy speculativeExecutionPolicy;
+        private RequestThrottler requestThrottler;
+        private RetryBudget retryBudget;
 
         /**
          * Sets the load balancing policy.
@@ -261,6 +316,28 @@ public class Policies {
             return this;
         }
 
+        /**
+         * Sets the request throttler.
+         *
+         * @param requestThrottler see {@link #getRequestThrottler()}.
+         * @return this builder.
+         */
+        public Builder withRequestThrottler(RequestThrottler requestThrottler) {
+            this.requestThrottler = requestThrottler;
+            return this;
+        }
+
+        /**
+         * Sets the retry budget.
+         *
+         * @param retryBudget see {@link #getRetryBudget()}.
+         * @return this builder.
+         */
+        public Builder withRetryBudget(RetryBudget retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
         /**
          * Builds the final object from this builder.
          * <p/>
@@ -275,7 +352,9 @@ public class Policies {
                     retryPolicy == null ? defaultRetryPolicy() : retryPolicy,
                     addressTranslator == null ? defaultAddressTranslator() : addressTranslator,
                     timestampGenerator == null ? defaultTimestampGenerator() : timestampGenerator,
-                    speculativeExecutionPolicy == null ? defaultSpeculativeExecutionPolicy() : speculativeExecutionPolicy);
+                    speculativeExecutionPolicy == null ? defaultSpeculativeExecutionPolicy() : speculativeExecutionPolicy,
+                    requestThrottler == null ? defaultRequestThrottler() : requestThrottler,
+                    retryBudget == null ? defaultRetryBudget() : retryBudget);
         }
     }
 }
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Metrics;
+import com.datastax.driver.core.exceptions.RequestThrottlingException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link RequestThrottler} that limits the rate at which requests are started.
+ * <p/>
+ * This is a token bucket that refills continuously at {@code maxRequestsPerSecond}, and can hold up to one second's
+ * worth of requests (which allows short bursts). Requests that exceed the rate wait in a FIFO queue, which is drained
+ * by a background thread at regular intervals; when the queue is full, new requests are rejected with a
+ * {@link RequestThrottlingException}.
+ * <p/>
+ * If metrics are enabled, this throttler exposes the following gauges in the cluster's
+ * {@link Metrics#getRegistry() registry}: {@code throttling-limit} (the rate), {@code throttling-queue-size} and
+ * {@code throttling-rejections}.
+ */
+public class RateLimitingRequestThrottler implements RequestThrottler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitingRequestThrottler.class);
+
+    /**
+     * The default maximum number of requests that can wait in the queue.
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+
+    /**
+     * The default interval between two drains of the queue, in milliseconds.
+     */
+    public static final long DEFAULT_DRAIN_INTERVAL_MILLIS = 10;
+
+    private final int maxRequestsPerSecond;
+    private final int maxQueueSize;
+    private final long drainIntervalMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final Deque<Throttled> queue = new ArrayDeque<Throttled>();
+    // guarded by lock
+    private double permits;
+    // guarded by lock
+    private long lastRefillNanos;
+    // guarded by lock
+    private boolean drainScheduled;
+    // guarded by lock
+    private boolean closed;
+
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                logger.warn("Unexpected error while draining the request throttler's queue", e);
+            }
+        }
+    };
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests that can be started per second.
+     * @param maxQueueSize         the maximum number of requests that can wait in the queue.
+     * @param drainIntervalMillis  how often the queue is drained, in milliseconds.
+     * @throws IllegalArgumentException if {@code maxRequestsPerSecond <= 0}, {@code maxQueueSize < 0} or
+     *                                  {@code drainIntervalMillis <= 0}.
+     */
+    public RateLimitingRequestThrottler(int maxRequestsPerSecond, int maxQueueSize, long drainIntervalMillis) {
+        if (maxRequestsPerSecond <= 0)
+            throw new IllegalArgumentException("Invalid maxRequestsPerSecond, should be > 0, got " + maxRequestsPerSecond);
+        if (maxQueueSize < 0)
+            throw new IllegalArgumentException("Invalid maxQueueSize, should be >= 0, got " + maxQueueSize);
+        if (drainIntervalMillis <= 0)
+            throw new IllegalArgumentException("Invalid drainIntervalMillis, should be > 0, got " + drainIntervalMillis);
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxQueueSize = maxQueueSize;
+        this.drainIntervalMillis = drainIntervalMillis;
+        this.permits = maxRequestsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a new instance with a queue size of {@link #DEFAULT_MAX_QUEUE_SIZE} and a drain interval of
+     * {@link #DEFAULT_DRAIN_INTERVAL_MILLIS}.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests that can be started per second.
+     * @throws IllegalArgumentException if {@code maxRequestsPerSecond <= 0}.
+     */
+    public RateLimitingRequestThrottler(int maxRequestsPerSecond) {
+        this(maxRequestsPerSecond, DEFAULT_MAX_QUEUE_SIZE, DEFAULT_DRAIN_INTERVAL_MILLIS);
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(cluster.getClusterName() + "-request-throttler-%d")
+                .setDaemon(true)
+                .build());
+        Metrics metrics = cluster.getMetrics();
+        if (metrics != null)
+            registerGauges(metrics.getRegistry());
+    }
+
+    private void registerGauges(MetricRegistry registry) {
+        registry.register("throttling-limit", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return maxRequestsPerSecond;
+            }
+        });
+        registry.register("throttling-queue-size", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getQueueSize();
+            }
+        });
+        registry.register("throttling-rejections", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return getRejectedRequests();
+            }
+        });
+    }
+
+    @Override
+    public void register(Throttled request) {
+        boolean ready = false;
+        RequestThrottlingException error = null;
+        lock.lock();
+        try {
+            if (closed) {
+                error = new RequestThrottlingException("The throttler was closed");
+            } else {
+                refill(System.nanoTime());
+                if (queue.isEmpty() && permits >= 1) {
+                    permits -= 1;
+                    ready = true;
+                } else if (queue.size() < maxQueueSize) {
+                    queue.add(request);
+                    scheduleDrain();
+                } else {
+                    error = new RequestThrottlingException(String.format(
+                            "The session has reached its maximum capacity (requests per second: %d, queue size: %d)",
+                            maxRequestsPerSecond, maxQueueSize));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ready) {
+            request.onThrottleReady(false);
+        } else if (error != null) {
+            rejectedRequests.incrementAndGet();
+            request.onThrottleFailure(error);
+        }
+    }
+
+    @Override
+    public void signalSuccess(Throttled request) {
+        // nothing to do
+    }
+
+    @Override
+    public void signalError(Throttled request, Throwable error) {
+        // nothing to do
+    }
+
+    @Override
+    public void signalCancel(Throttled request) {
+        lock.lock();
+        try {
+            queue.remove(request);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        Throttled[] pending;
+        lock.lock();
+        try {
+            closed = true;
+            pending = queue.toArray(new Throttled[queue.size()]);
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+        if (scheduler != null)
+            scheduler.shutdown();
+        for (Throttled request : pending)
+            request.onThrottleFailure(new RequestThrottlingException("The throttler was closed"));
+    }
+
+    /**
+     * Returns the number of requests currently waiting in the queue.
+     *
+     * @return the number of requests currently waiting in the queue.
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests that were rejected since this throttler was created.
+     *
+     * @return the number of requests that were rejected.
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    // must be called while holding the lock
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            permits = Math.min(maxRequestsPerSecond, permits + elapsed * maxRequestsPerSecond / 1e9);
+            lastRefillNanos = now;
+        }
+    }
+
+    // must be called while holding the lock
+    private void scheduleDrain() {
+        if (!drainScheduled && scheduler != null) {
+            drainScheduled = true;
+            scheduler.schedule(drainTask, drainIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Throttled next;
+            lock.lock();
+            try {
+                drainScheduled = false;
+                if (closed)
+                    return;
+                refill(System.nanoTime());
+                if (queue.isEmpty())
+                    return;
+                if (permits < 1) {
+                    scheduleDrain();
+                    return;
+                }
+                permits -= 1;
+                next = queue.poll();
+            } finally {
+                lock.unlock();
+            }
+            next.onThrottleReady(true);
+        }
+    }
+}
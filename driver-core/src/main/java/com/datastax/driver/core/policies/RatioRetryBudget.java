@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RetryBudget} that allows retries up to a ratio of the requests, over a 1-minute sliding window.
+ * <p/>
+ * For example, with a ratio of 0.1, the driver retries at most one request out of ten: when the cluster fails a small
+ * fraction of the requests, they all get retried, but during a larger outage, retries can't add more than 10% to the
+ * load. A minimum number of retries is also allowed every second, on top of the ratio, so that a client with little
+ * traffic can still retry.
+ * <p/>
+ * This budget can also delay retries with an exponential backoff: the {@code n}-th retry of a request (starting at 0)
+ * is delayed by a random value between 0 and {@code min(maxDelay, baseDelay * 2^n)} ("full jitter", so that requests
+ * that failed at the same time don't get retried at the same time).
+ */
+public class RatioRetryBudget implements RetryBudget {
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // One generator per thread, so that computing delays does not contend on a shared seed
+    private static final FastThreadLocal<Random> RANDOM = new FastThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Clock clock;
+
+    private final RollingCount requests;
+    private final RollingCount retries;
+    // The retries allowed by minRetriesPerSecond in the current second: the second in the upper 32 bits, the number of
+    // retries in the lower 32 bits.
+    private final AtomicLong minRetries = new AtomicLong();
+
+    @VisibleForTesting
+    RatioRetryBudget(double ratio, int minRetriesPerSecond, long baseDelayMillis, long maxDelayMillis, Clock clock) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.clock = clock;
+        this.requests = new RollingCount(clock);
+        this.retries = new RollingCount(clock);
+        this.minRetries.set(pack(second(), 0));
+    }
+
+    /**
+     * Creates a new builder for this budget.
+     *
+     * @param ratio the number of retries allowed per request, on average (for example, {@code 0.1} allows one retry
+     *              every ten requests). Must be strictly positive.
+     * @return the builder.
+     */
+    public static Builder builder(double ratio) {
+        return new Builder(ratio);
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        // nothing to do
+    }
+
+    @Override
+    public void onRequest() {
+        requests.increment();
+    }
+
+    @Override
+    public boolean acquireRetry() {
+        // This is not atomic, concurrent retries might slightly exceed the ratio.
+        long allowed = (long) (requests.getIncludingCurrentInterval() * ratio);
+        if (retries.getIncludingCurrentInterval() < allowed) {
+            retries.increment();
+            return true;
+        }
+        // Retries allowed by the minimum are not counted against the ratio
+        return acquireMinRetry();
+    }
+
+    private boolean acquireMinRetry() {
+        if (minRetriesPerSecond == 0)
+            return false;
+        int second = second();
+        while (true) {
+            long current = minRetries.get();
+            int count = ((int) (current >>> 32) == second) ? (int) current : 0;
+            if (count >= minRetriesPerSecond)
+                return false;
+            if (minRetries.compareAndSet(current, pack(second, count + 1)))
+                return true;
+        }
+    }
+
+    // Truncated to 32 bits, this is only compared for equality
+    private int second() {
+        return (int) (clock.nanoTime() / SECOND_NANOS);
+    }
+
+    private static long pack(int second, int count) {
+        return ((long) second << 32) | (count & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public long getRetryDelayMillis(int retryCount) {
+        if (baseDelayMillis <= 0)
+            return 0;
+        // Cap the shift to avoid overflows, the max delay will apply anyway
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(retryCount, 30));
+        return (long) (RANDOM.get().nextDouble() * (ceiling + 1));
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+    /**
+     * Helper class to build the budget.
+     */
+    public static class Builder {
+
+        /**
+         * The default number of retries allowed every second, regardless of the ratio.
+         */
+        public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+
+        private final double ratio;
+        private int minRetriesPerSecond = DEFAULT_MIN_RETRIES_PER_SECOND;
+        private long baseDelayMillis;
+        private long maxDelayMillis;
+
+        Builder(double ratio) {
+            if (ratio <= 0)
+                throw new IllegalArgumentException("Invalid ratio, should be > 0, got " + ratio);
+            this.ratio = ratio;
+        }
+
+        /**
+         * Sets the number of retries per second that are allowed regardless of the ratio.
+         * <p/>
+         * This minimum is enforced for each second: unused retries do not carry over to the next seconds, so that a
+         * client that was idle can't retry a burst of requests beyond the ratio. Those retries are not counted against
+         * the ratio.
+         * <p/>
+         * The default (if this method is not called) is <b>10</b>.
+         *
+         * @param minRetriesPerSecond the minimum number of retries per second. Must be positive or zero.
+         * @return this builder.
+         * @throws IllegalArgumentException if {@code minRetriesPerSecond < 0}.
+         */
+        public Builder withMinRetriesPerSecond(int minRetriesPerSecond) {
+            if (minRetriesPerSecond < 0)
+                throw new IllegalArgumentException("Invalid min retries per second, should be >= 0, got " + minRetriesPerSecond);
+            this.minRetriesPerSecond = minRetriesPerSecond;
+            return this;
+        }
+
+        /**
+         * Enables exponential backoff with jitter for retries.
+         * <p/>
+         * By default (if this method is not called), retries happen immediately.
+         *
+         * @param baseDelay the maximum delay of the first retry. Must be strictly positive.
+         * @param maxDelay  the maximum delay of any retry. Must be greater than or equal to {@code baseDelay}.
+         * @param unit      the unit of the delays.
+         * @return this builder.
+         * @throws IllegalArgumentException if one of the arguments does not respect the preconditions above.
+         */
+        public Builder withBackoff(long baseDelay, long maxDelay, TimeUnit unit) {
+            if (baseDelay <= 0)
+                throw new IllegalArgumentException("Invalid base delay, should be > 0, got " + baseDelay);
+            if (maxDelay < baseDelay)
+                throw new IllegalArgumentException("Invalid max delay, should be >= base delay, got " + maxDelay);
+            this.baseDelayMillis = unit.toMillis(baseDelay);
+            this.maxDelayMillis = unit.toMillis(maxDelay);
+            return this;
+        }
+
+        /**
+         * Builds the budget.
+         *
+         * @return the budget.
+         */
+        public RatioRetryBudget build() {
+            return new RatioRetryBudget(ratio, minRetriesPerSecond, baseDelayMillis, maxDelayMillis, Clock.DEFAULT);
+        }
+    }
+}
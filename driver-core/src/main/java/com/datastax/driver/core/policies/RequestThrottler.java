@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.exceptions.RequestThrottlingException;
+
+/**
+ * Limits the number of requests that the driver executes at any given time, across all the sessions of a cluster.
+ * <p/>
+ * Every request (synchronous or asynchronous, including the fetching of subsequent result pages) is
+ * {@link #register(Throttled) registered} with the throttler before being sent. The throttler either lets it proceed
+ * right away, delays it until capacity becomes available, or rejects it with a {@link RequestThrottlingException}.
+ * Once a request that was allowed to proceed completes, the driver signals it back to the throttler with
+ * {@link #signalSuccess(Throttled)}, {@link #signalError(Throttled, Throwable)} or {@link #signalCancel(Throttled)}.
+ * <p/>
+ * Synchronous calls are built on top of asynchronous ones, so both kinds of callers share the same capacity and wait
+ * queue.
+ * <p/>
+ * Implementations must be thread-safe. The {@code Throttled} callbacks might be invoked from the thread that
+ * completes another request (typically a Netty I/O thread), so implementations must not invoke them while holding
+ * locks that other threads could need for a long time.
+ */
+public interface RequestThrottler {
+
+    /**
+     * A request managed by the throttler.
+     */
+    interface Throttled {
+
+        /**
+         * Invoked when the request is allowed to proceed.
+         *
+         * @param wasDelayed whether the request had to wait in the throttler's queue.
+         */
+        void onThrottleReady(boolean wasDelayed);
+
+        /**
+         * Invoked when the request is rejected. No further signal should be sent to the throttler for this request.
+         *
+         * @param error the error to complete the request with.
+         */
+        void onThrottleFailure(RequestThrottlingException error);
+    }
+
+    /**
+     * Gets invoked at cluster startup.
+     *
+     * @param cluster the cluster that this throttler is associated with.
+     */
+    void init(Cluster cluster);
+
+    /**
+     * Registers a new request to be throttled. The throttler must eventually invoke exactly one of the request's
+     * callbacks (possibly synchronously, from this method).
+     *
+     * @param request the request.
+     */
+    void register(Throttled request);
+
+    /**
+     * Signals that a request that was allowed to proceed has completed successfully.
+     *
+     * @param request the request.
+     */
+    void signalSuccess(Throttled request);
+
+    /**
+     * Signals that a request that was allowed to proceed has failed.
+     *
+     * @param request the request.
+     * @param error   the error.
+     */
+    void signalError(Throttled request, Throwable error);
+
+    /**
+     * Signals that the client cancelled a request. The request might still be waiting in the throttler's queue, in which
+     * case it must be removed from it; otherwise it must be accounted as completed.
+     *
+     * @param request the request.
+     */
+    void signalCancel(Throttled request);
+
+    /**
+     * Gets invoked at cluster shutdown.
+     * <p/>
+     * This gives the throttler the opportunity to perform some cleanup, for instance stop threads that it might have
+     * started.
+     */
+    void close();
+}
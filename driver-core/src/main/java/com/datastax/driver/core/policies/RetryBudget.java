@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+
+/**
+ * Limits the retries of the driver across all requests, and decides when they happen.
+ * <p/>
+ * The {@link RetryPolicy} decides whether each individual request should be retried, but it has no global view: during
+ * a partial outage, every request might get retried, and the load on the cluster multiplies by the number of retries.
+ * A budget caps this amplification: when the {@link RetryPolicy} decides to retry, the driver first asks the budget,
+ * and if the budget is exhausted, the request fails with the error that triggered the retry.
+ * <p/>
+ * This only applies to retries decided by the {@link RetryPolicy}; the driver's internal retries (for example, to
+ * re-prepare a statement on a node that doesn't know it) are not affected. Speculative executions are not retries,
+ * see {@link SpeculativeExecutionPolicy}.
+ * <p/>
+ * The budget is shared by all the sessions of a cluster, and can be called from multiple threads concurrently.
+ */
+public interface RetryBudget {
+
+    /**
+     * Gets invoked at cluster startup.
+     *
+     * @param cluster the cluster that this budget is associated with.
+     */
+    void init(Cluster cluster);
+
+    /**
+     * Invoked each time a request is sent for the first time (this excludes retries and speculative executions).
+     */
+    void onRequest();
+
+    /**
+     * Invoked when the {@link RetryPolicy} decided to retry a request.
+     *
+     * @return whether the retry can proceed. If {@code false}, the request fails.
+     */
+    boolean acquireRetry();
+
+    /**
+     * Returns how long the driver should wait before retrying a request.
+     * <p/>
+     * This is invoked after {@link #acquireRetry()} allowed the retry. Delayed retries are scheduled on the driver's
+     * internal timer, they don't block any thread.
+     *
+     * @param retryCount the number of retries that were already attempted for the request (0 for the first retry).
+     * @return the delay in milliseconds. If zero or negative, the retry happens immediately.
+     */
+    long getRetryDelayMillis(int retryCount);
+
+    /**
+     * Gets invoked at cluster shutdown.
+     * <p/>
+     * This gives the budget the opportunity to perform some cleanup, for instance stop threads that it might have
+     * started.
+     */
+    void close();
+}
@@ -49,6 +49,15 @@ class RollingCount {
         return state.get().totalCount;
     }
 
+    /**
+     * Same as {@link #get()}, but also includes the events of the interval that is currently being recorded. This is
+     * less stable, but reacts immediately to new events.
+     */
+    long getIncludingCurrentInterval() {
+        tickIfNecessary();
+        return state.get().totalCount + currentInterval.get();
+    }
+
     private void tickIfNecessary() {
         State oldState = state.get();
         long newTick = clock.nanoTime();
@@ -60,4 +60,32 @@ public interface SpeculativeExecutionPolicy {
          */
         long nextExecution(Host lastQueried);
     }
+
+    /**
+     * A {@link SpeculativeExecutionPlan} that gets a final say when a speculative execution is about to start, and
+     * can influence which host it is sent to.
+     * <p/>
+     * This allows policies to enforce limits that span multiple requests (for example, a cluster-wide budget), since
+     * the decision is made when the delay returned by {@link #nextExecution(Host)} has elapsed, instead of when the
+     * execution is scheduled.
+     */
+    interface HedgingPlan extends SpeculativeExecutionPlan {
+        /**
+         * Invoked when the delay returned by {@link #nextExecution(Host)} has elapsed, and the request has not
+         * completed yet.
+         *
+         * @return whether the speculative execution can start. If {@code false}, it is skipped, and no further
+         * speculative execution will be scheduled for this request.
+         */
+        boolean acquirePermit();
+
+        /**
+         * Whether speculative executions should be sent to the least busy of the next hosts in the query plan
+         * (according to the number of requests in flight in the driver's connection pools), rather than to the next
+         * host.
+         *
+         * @return whether host selection is load-aware.
+         */
+        boolean isLoadAware();
+    }
 }
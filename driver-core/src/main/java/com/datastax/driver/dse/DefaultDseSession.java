@@ -21,12 +21,14 @@ import org.slf4j.LoggerFactory;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * Default implementation of {@link DseSession} interface.
  */
-class DefaultDseSession extends AbstractSession implements DseSession, ContinuousPagingSession {
+class DefaultDseSession extends AbstractSession implements DseSession, ContinuousPagingSession, CompletionStageSession {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultDseSession.class);
 
@@ -258,6 +260,36 @@ class DefaultDseSession extends AbstractSession implements DseSession, Continuou
         return delegate.executeAsync(query, values);
     }
 
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<ResultSet> executeAsyncStage(Statement statement) {
+        return ((CompletionStageSession) delegate).executeAsyncStage(statement);
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<ResultSet> executeAsyncStage(Statement statement, Executor executor) {
+        return ((CompletionStageSession) delegate).executeAsyncStage(statement, executor);
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<ResultSet> executeAsyncStage(String query) {
+        return ((CompletionStageSession) delegate).executeAsyncStage(query);
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<PreparedStatement> prepareAsyncStage(String query) {
+        return ((CompletionStageSession) delegate).prepareAsyncStage(query);
+    }
+
+    @Override
+    @IgnoreJDK6Requirement
+    public CompletionStage<PreparedStatement> prepareAsyncStage(RegularStatement statement) {
+        return ((CompletionStageSession) delegate).prepareAsyncStage(statement);
+    }
+
     @Override
     public ListenableFuture<AsyncContinuousPagingResult> executeContinuouslyAsync(Statement statement, ContinuousPagingOptions options) {
         return ((ContinuousPagingSession) delegate).executeContinuouslyAsync(statement, options);
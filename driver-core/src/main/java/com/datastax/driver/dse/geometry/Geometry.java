@@ -87,7 +87,8 @@ public abstract class Geometry implements Serializable {
         }
     }
 
-    private final OGCGeometry ogcGeometry;
+    // null if the subclass builds it lazily, see buildOgcGeometry()
+    private volatile OGCGeometry ogcGeometry;
 
     Geometry(OGCGeometry ogcGeometry) {
         this.ogcGeometry = ogcGeometry;
@@ -95,6 +96,14 @@ public abstract class Geometry implements Serializable {
         validateOgcGeometry(ogcGeometry);
     }
 
+    /**
+     * For subclasses that hold a simpler representation of the geometry, and only build the
+     * {@link OGCGeometry} when it is needed (see {@link #buildOgcGeometry()}). The representation must
+     * be known to be valid.
+     */
+    Geometry() {
+    }
+
     private static void validateOgcGeometry(OGCGeometry geometry) {
         try {
             if (geometry.is3D()) {
@@ -122,11 +131,27 @@ public abstract class Geometry implements Serializable {
      * @return an {@link OGCGeometry} object.
      */
     OGCGeometry getOgcGeometry() {
-        return ogcGeometry;
+        OGCGeometry geometry = ogcGeometry;
+        if (geometry == null) {
+            // benign race: concurrent threads might build equivalent instances
+            geometry = buildOgcGeometry();
+            ogcGeometry = geometry;
+        }
+        return geometry;
+    }
+
+    /**
+     * Builds the {@link OGCGeometry} object that this object maps to, if it was not provided at construction
+     * time.
+     *
+     * @return an {@link OGCGeometry} object.
+     */
+    OGCGeometry buildOgcGeometry() {
+        throw new AssertionError("Subclasses that don't provide an OGC geometry at construction time must override this method");
     }
 
     com.esri.core.geometry.Geometry getEsriGeometry() {
-        return ogcGeometry.getEsriGeometry();
+        return getOgcGeometry().getEsriGeometry();
     }
 
     /**
@@ -136,7 +161,7 @@ public abstract class Geometry implements Serializable {
      * @return a Well-known Text representation of this object.
      */
     public String asWellKnownText() {
-        return ogcGeometry.asText();
+        return getOgcGeometry().asText();
     }
 
     /**
@@ -149,7 +174,7 @@ public abstract class Geometry implements Serializable {
      * @return a Well-known Binary representation of this object.
      */
     public ByteBuffer asWellKnownBinary() {
-        return WkbUtil.asLittleEndianBinary(ogcGeometry);
+        return WkbUtil.asLittleEndianBinary(getOgcGeometry());
     }
 
     /**
@@ -158,7 +183,7 @@ public abstract class Geometry implements Serializable {
      * @return a JSON representation of this object.
      */
     public String asGeoJson() {
-        return ogcGeometry.asGeoJson();
+        return getOgcGeometry().asGeoJson();
     }
 
     /**
@@ -10,17 +10,25 @@ import com.datastax.driver.core.exceptions.InvalidTypeException;
 import com.esri.core.geometry.ogc.OGCPoint;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * The driver-side representation of DSE's {@code PointType}.
  * <p/>
  * This is a zero-dimensional object that represents a specific (X,Y) location in a two-dimensional XY-plane.
  * In case of Geographic Coordinate Systems, the X coordinate is the longitude and the Y is the latitude.
+ * <p/>
+ * Points are stored as plain coordinates; the underlying ESRI representation is only built when an operation
+ * requires it (for example {@link #contains(Geometry)}, {@link #asWellKnownText()} or {@link #asGeoJson()}).
  */
 public class Point extends Geometry {
 
     private static final long serialVersionUID = 6329957740309318716L;
 
+    // WKB layout of a 2D point: byte order (1 byte), geometry type (4 bytes), X and Y (8 bytes each)
+    private static final int WKB_POINT_TYPE = 1;
+    private static final int WKB_POINT_SIZE = 21;
+
     /**
      * Creates a point from its <a href="https://en.wikipedia.org/wiki/Well-known_text">Well-known Text</a> (WKT)
      * representation.
@@ -44,7 +52,32 @@ public class Point extends Geometry {
      *                              representation.
      */
     public static Point fromWellKnownBinary(ByteBuffer source) {
-        return new Point(fromOgcWellKnownBinary(source, OGCPoint.class));
+        Point point = fromSimpleWellKnownBinary(source);
+        return point != null ? point : new Point(fromOgcWellKnownBinary(source, OGCPoint.class));
+    }
+
+    // Decodes the WKB of a non-empty 2D point directly. Returns null for anything else, in which case the
+    // ESRI parser must be used (it will handle other encodings, or report the appropriate error).
+    private static Point fromSimpleWellKnownBinary(ByteBuffer source) {
+        if (source.remaining() != WKB_POINT_SIZE)
+            return null;
+        int start = source.position();
+        ByteBuffer wkb = source.duplicate();
+        byte order = wkb.get(start);
+        if (order == 0)
+            wkb.order(ByteOrder.BIG_ENDIAN);
+        else if (order == 1)
+            wkb.order(ByteOrder.LITTLE_ENDIAN);
+        else
+            return null;
+        if (wkb.getInt(start + 1) != WKB_POINT_TYPE)
+            return null;
+        double x = wkb.getDouble(start + 5);
+        double y = wkb.getDouble(start + 13);
+        // NaN coordinates denote an empty point; leave this and infinite coordinates to the ESRI parser
+        if (!isFinite(x) || !isFinite(y))
+            return null;
+        return new Point(x, y);
     }
 
     /**
@@ -58,18 +91,43 @@ public class Point extends Geometry {
         return new Point(fromOgcGeoJson(source, OGCPoint.class));
     }
 
+    // the coordinates, or NaN if they must be read from the OGC geometry
+    private final double x;
+    private final double y;
+
     /**
      * Creates a new point.
      *
      * @param x the X coordinate.
      * @param y the Y coordinate.
+     * @throws InvalidTypeException if a coordinate is NaN or infinite.
      */
     public Point(double x, double y) {
-        this(new OGCPoint(new com.esri.core.geometry.Point(x, y), Geometry.SPATIAL_REFERENCE_4326));
+        // a 2D point with finite coordinates is always valid, there is no need to build the OGC geometry eagerly
+        super();
+        if (!isFinite(x) || !isFinite(y))
+            throw new InvalidTypeException(String.format("Invalid point coordinates, should be finite, got (%s, %s)", x, y));
+        this.x = x;
+        this.y = y;
+    }
+
+    private static boolean isFinite(double d) {
+        return !Double.isNaN(d) && !Double.isInfinite(d);
     }
 
     Point(OGCPoint point) {
         super(point);
+        this.x = Double.NaN;
+        this.y = Double.NaN;
+    }
+
+    @Override
+    OGCPoint buildOgcGeometry() {
+        return new OGCPoint(new com.esri.core.geometry.Point(x, y), Geometry.SPATIAL_REFERENCE_4326);
+    }
+
+    private boolean hasCoordinates() {
+        return !Double.isNaN(x) && !Double.isNaN(y);
     }
 
     @Override
@@ -83,7 +141,7 @@ public class Point extends Geometry {
      * @return the X coordinate.
      */
     public double X() {
-        return getOgcGeometry().X();
+        return hasCoordinates() ? x : getOgcGeometry().X();
     }
 
     /**
@@ -92,7 +150,18 @@ public class Point extends Geometry {
      * @return the Y coordinate.
      */
     public double Y() {
-        return getOgcGeometry().Y();
+        return hasCoordinates() ? y : getOgcGeometry().Y();
+    }
+
+    @Override
+    public ByteBuffer asWellKnownBinary() {
+        if (!hasCoordinates())
+            return super.asWellKnownBinary();
+        // same output as the ESRI library (see WkbUtil), without building the OGC geometry
+        ByteBuffer wkb = ByteBuffer.allocate(WKB_POINT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        wkb.put((byte) 1).putInt(WKB_POINT_TYPE).putDouble(x).putDouble(y);
+        wkb.flip();
+        return wkb;
     }
 
     /**
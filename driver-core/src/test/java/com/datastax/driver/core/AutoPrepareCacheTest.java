@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.datastax.driver.core.ProtocolVersion.V4;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AutoPrepareCacheTest {
+
+    private static final String QUERY = "SELECT * FROM ks.t WHERE k = ? AND c = ?";
+
+    private QueryOptions queryOptions;
+    private MockAutoPrepareCache cache;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        queryOptions = new QueryOptions().setAutoPrepareEnabled(true).setAutoPrepareThreshold(2);
+        cache = new MockAutoPrepareCache(queryOptions);
+    }
+
+    @Test(groups = "unit")
+    public void should_prepare_query_once_threshold_is_reached() {
+        SimpleStatement statement = new SimpleStatement(QUERY, 1, "foo");
+
+        assertThat(execute(statement)).isSameAs(statement);
+        assertThat(cache.prepared).isEmpty();
+
+        assertThat(execute(statement)).isSameAs(statement);
+        assertThat(execute(statement)).isSameAs(statement);
+        assertThat(cache.prepared).containsExactly(QUERY);
+    }
+
+    @Test(groups = "unit")
+    public void should_execute_bound_statement_once_query_is_prepared() {
+        cache.result = preparedStatement(null);
+        execute(new SimpleStatement(QUERY, 1, "foo"));
+        execute(new SimpleStatement(QUERY, 1, "foo"));
+
+        SimpleStatement statement = new SimpleStatement(QUERY, 2, "bar");
+        statement.setConsistencyLevel(ConsistencyLevel.QUORUM).setFetchSize(42).setIdempotent(true);
+        Statement actual = execute(statement);
+
+        assertThat(actual).isInstanceOf(BoundStatement.class);
+        BoundStatement bound = (BoundStatement) actual;
+        assertThat(bound.preparedStatement()).isSameAs(cache.result);
+        assertThat(bound.wrapper.values).isEqualTo(statement.getValues(V4, CodecRegistry.DEFAULT_INSTANCE));
+        assertThat(bound.getConsistencyLevel()).isEqualTo(ConsistencyLevel.QUORUM);
+        assertThat(bound.getFetchSize()).isEqualTo(42);
+        assertThat(bound.isIdempotent()).isTrue();
+        assertThat(cache.prepared).hasSize(1);
+    }
+
+    @Test(groups = "unit")
+    public void should_ignore_statements_without_positional_values() {
+        execute(new SimpleStatement("SELECT * FROM ks.t"));
+        execute(new SimpleStatement("SELECT * FROM ks.t"));
+        execute(new SimpleStatement("SELECT * FROM ks.t"));
+
+        assertThat(cache.prepared).isEmpty();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_do_anything_if_disabled() {
+        queryOptions.setAutoPrepareEnabled(false);
+        execute(new SimpleStatement(QUERY, 1, "foo"));
+        execute(new SimpleStatement(QUERY, 1, "foo"));
+        execute(new SimpleStatement(QUERY, 1, "foo"));
+
+        assertThat(cache.prepared).isEmpty();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_bind_if_value_count_does_not_match() {
+        cache.result = preparedStatement(null);
+        String query = "SELECT * FROM ks.t WHERE k = ? AND c IN ?";
+        execute(new SimpleStatement(query, 1, "foo", "bar"));
+        execute(new SimpleStatement(query, 1, "foo", "bar"));
+
+        SimpleStatement statement = new SimpleStatement(query, 1, "foo", "bar");
+        assertThat(execute(statement)).isSameAs(statement);
+    }
+
+    @Test(groups = "unit")
+    public void should_track_queries_per_keyspace() {
+        cache.result = preparedStatement("ks1");
+        SimpleStatement statement = new SimpleStatement(QUERY, 1, "foo");
+        cache.maybeBind(statement, "ks1", V4, CodecRegistry.DEFAULT_INSTANCE);
+        cache.maybeBind(statement, "ks1", V4, CodecRegistry.DEFAULT_INSTANCE);
+
+        assertThat(cache.maybeBind(statement, "ks2", V4, CodecRegistry.DEFAULT_INSTANCE)).isSameAs(statement);
+        assertThat(cache.maybeBind(statement, "ks1", V4, CodecRegistry.DEFAULT_INSTANCE)).isInstanceOf(BoundStatement.class);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_retry_failed_preparation() {
+        cache.failure = new RuntimeException("syntax error");
+        for (int i = 0; i < 5; i++)
+            execute(new SimpleStatement(QUERY, 1, "foo"));
+
+        assertThat(cache.prepared).containsExactly(QUERY);
+    }
+
+    @Test(groups = "unit")
+    public void should_evict_queries_when_cache_is_full() {
+        queryOptions.setAutoPrepareCacheSize(2);
+        for (int i = 0; i < 3; i++) {
+            execute(new SimpleStatement("SELECT * FROM ks.t WHERE k = ? LIMIT " + i, 1));
+            execute(new SimpleStatement("SELECT * FROM ks.t WHERE k = ? LIMIT " + i, 1));
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_track_queries_below_threshold() {
+        for (int i = 0; i < 3; i++)
+            execute(new SimpleStatement("SELECT * FROM ks.t WHERE k = ? LIMIT " + i, 1));
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.prepared).isEmpty();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_evict_frequent_query_for_burst_of_infrequent_queries() {
+        queryOptions.setAutoPrepareCacheSize(10).setAutoPrepareThreshold(3);
+        cache.result = preparedStatement(null);
+        SimpleStatement statement = new SimpleStatement(QUERY, 1, "foo");
+        for (int i = 0; i < 3; i++)
+            execute(statement);
+
+        for (int i = 0; i < 10000; i++)
+            execute(new SimpleStatement("SELECT * FROM ks.t WHERE k = ? LIMIT " + i, 1));
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(execute(statement)).isInstanceOf(BoundStatement.class);
+        assertThat(cache.prepared).containsExactly(QUERY);
+    }
+
+    @Test(groups = "unit")
+    public void should_apply_new_cache_size() {
+        for (int i = 0; i < 3; i++) {
+            execute(new SimpleStatement("SELECT * FROM ks.t WHERE k = ? LIMIT " + i, 1));
+            execute(new SimpleStatement("SELECT * FROM ks.t WHERE k = ? LIMIT " + i, 1));
+        }
+        assertThat(cache.size()).isEqualTo(3);
+
+        queryOptions.setAutoPrepareCacheSize(1);
+        execute(new SimpleStatement("SELECT * FROM ks.t WHERE k = ? LIMIT 0", 1));
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    private Statement execute(Statement statement) {
+        return cache.maybeBind(statement, null, V4, CodecRegistry.DEFAULT_INSTANCE);
+    }
+
+    private static PreparedStatement preparedStatement(String keyspace) {
+        ColumnDefinitions variables = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "t", "k", DataType.cint()),
+                new ColumnDefinitions.Definition("ks", "t", "c", DataType.text())
+        }, CodecRegistry.DEFAULT_INSTANCE);
+        final PreparedStatement prepared = mock(PreparedStatement.class);
+        when(prepared.getVariables()).thenReturn(variables);
+        when(prepared.getQueryString()).thenReturn(QUERY);
+        when(prepared.getQueryKeyspace()).thenReturn(keyspace);
+        when(prepared.getCodecRegistry()).thenReturn(CodecRegistry.DEFAULT_INSTANCE);
+        when(prepared.getPreparedId()).thenReturn(new PreparedId(MD5Digest.wrap(new byte[16]), variables, null, null, V4));
+        when(prepared.bind()).thenAnswer(new Answer<BoundStatement>() {
+            @Override
+            public BoundStatement answer(InvocationOnMock invocation) throws Throwable {
+                return new BoundStatement(prepared);
+            }
+        });
+        return prepared;
+    }
+
+    private static class MockAutoPrepareCache extends AutoPrepareCache {
+
+        final List<String> prepared = new ArrayList<String>();
+        PreparedStatement result;
+        RuntimeException failure;
+
+        MockAutoPrepareCache(QueryOptions queryOptions) {
+            super(queryOptions);
+        }
+
+        @Override
+        ListenableFuture<PreparedStatement> prepare(String query) {
+            prepared.add(query);
+            if (failure != null)
+                return Futures.immediateFailedFuture(failure);
+            return result == null
+                    ? Futures.<PreparedStatement>immediateCancelledFuture()
+                    : Futures.immediateFuture(result);
+        }
+
+        @Override
+        Metrics metrics() {
+            return null;
+        }
+    }
+}
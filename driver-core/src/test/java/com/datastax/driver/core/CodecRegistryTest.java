@@ -8,6 +8,7 @@ package com.datastax.driver.core;
 
 import com.datastax.driver.core.exceptions.CodecNotFoundException;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.testng.annotations.DataProvider;
@@ -18,6 +19,8 @@ import java.math.BigInteger;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.datastax.driver.core.Assertions.assertThat;
 import static com.datastax.driver.core.DataType.*;
@@ -471,6 +474,149 @@ public class CodecRegistryTest {
         stopCapturingLogs(logs);
     }
 
+    @Test(groups = "unit")
+    public void should_cache_value_lookups_with_many_registered_codecs() {
+        CodecRegistry registry = new CodecRegistry();
+        List<CountingCodec> codecs = new ArrayList<CountingCodec>();
+        for (int i = 0; i < 50; i++) {
+            CountingCodec codec = new CountingCodec(DataType.custom("com.example.Type" + i));
+            codecs.add(codec);
+            registry.register(codec);
+        }
+        DataType lastType = DataType.custom("com.example.Type49");
+        CountingCodec first = codecs.get(0);
+        first.cqlTypeChecks = 0;
+
+        assertThat(registry.codecFor(lastType, new StringBuilder("foo"))).isSameAs(codecs.get(49));
+        assertThat(first.cqlTypeChecks).isEqualTo(1);
+
+        // second lookup with a value of the same class doesn't scan the codecs
+        assertThat(registry.codecFor(lastType, new StringBuilder("bar"))).isSameAs(codecs.get(49));
+        assertThat(first.cqlTypeChecks).isEqualTo(1);
+
+        // registering a new codec invalidates the cache
+        registry.register(new CountingCodec(DataType.custom("com.example.Other")));
+        first.cqlTypeChecks = 0;
+        assertThat(registry.codecFor(lastType, new StringBuilder("baz"))).isSameAs(codecs.get(49));
+        assertThat(first.cqlTypeChecks).isEqualTo(1);
+    }
+
+    @Test(groups = "unit")
+    public void should_key_cached_collection_codecs_on_element_class() {
+        CodecRegistry registry = new CodecRegistry();
+        assertThat(registry.codecFor(newArrayList(1, 2))).accepts(listOf(Integer.class));
+        assertThat(registry.codecFor(newArrayList("a", "b"))).accepts(listOf(String.class));
+        assertThat(registry.codecFor(newArrayList(1))).accepts(listOf(Integer.class));
+        assertThat(registry.codecFor(newArrayList(newArrayList(1)))).accepts(listOf(listOf(Integer.class)));
+        assertThat(registry.codecFor(newArrayList(newArrayList("a")))).accepts(listOf(listOf(String.class)));
+    }
+
+    @Test(groups = "unit")
+    public void should_not_cache_value_lookups_if_a_codec_inspects_values() {
+        DataType cqlType = DataType.custom("com.example.Text");
+        TypeCodec<CharSequence> inspecting = new CountingCodec<CharSequence>(cqlType, CharSequence.class) {
+            @Override
+            public boolean accepts(Object value) {
+                return value instanceof CharSequence && ((CharSequence) value).length() % 2 == 0;
+            }
+        };
+        TypeCodec<String> fallback = new CountingCodec<String>(cqlType, String.class);
+        CodecRegistry registry = new CodecRegistry().register(inspecting, fallback);
+
+        assertThat(registry.codecFor(cqlType, "abc")).isSameAs(fallback);
+        assertThat(registry.codecFor(cqlType, "ab")).isSameAs(inspecting);
+        assertThat(registry.codecFor(cqlType, "abc")).isSameAs(fallback);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_cache_codec_computed_concurrently_with_registration() throws Exception {
+        final DataType eltType = DataType.custom("com.example.Element");
+        final DataType listType = DataType.list(eltType);
+        final CountDownLatch scanning = new CountDownLatch(1);
+        final CountDownLatch registered = new CountDownLatch(1);
+        final CodecRegistry registry = new CodecRegistry();
+        // pauses the first lookup in the middle of its scan of the registered codecs
+        registry.register(new CountingCodec(DataType.custom("com.example.Blocker")) {
+            private final AtomicBoolean paused = new AtomicBoolean();
+
+            @Override
+            public boolean accepts(DataType cqlType) {
+                if (cqlType.equals(listType) && paused.compareAndSet(false, true)) {
+                    scanning.countDown();
+                    Uninterruptibles.awaitUninterruptibly(registered);
+                }
+                return super.accepts(cqlType);
+            }
+        });
+        registry.register(new CountingCodec(eltType));
+
+        final List<StringBuilder> value = newArrayList(new StringBuilder("foo"));
+        FutureTask<TypeCodec<List<StringBuilder>>> lookup = new FutureTask<TypeCodec<List<StringBuilder>>>(
+                new Callable<TypeCodec<List<StringBuilder>>>() {
+                    @Override
+                    public TypeCodec<List<StringBuilder>> call() throws Exception {
+                        return registry.codecFor(listType, value);
+                    }
+                });
+        new Thread(lookup).start();
+        scanning.await(10, TimeUnit.SECONDS);
+        TypeCodec<List> listCodec = new CountingCodec<List>(listType, List.class);
+        registry.register(listCodec);
+        registered.countDown();
+
+        // the concurrent lookup did not see the new codec, and generated one
+        assertThat((Object) lookup.get(10, TimeUnit.SECONDS)).isNotSameAs(listCodec);
+        // but it must not have cached it
+        assertThat((Object) registry.codecFor(listType, value)).isSameAs(listCodec);
+    }
+
+    private static <E> ArrayList<E> newArrayList(E... elements) {
+        return new ArrayList<E>(Arrays.asList(elements));
+    }
+
+    /**
+     * A codec that counts how many times the registry checked its CQL type.
+     */
+    private static class CountingCodec<T> extends TypeCodec<T> {
+
+        int cqlTypeChecks;
+
+        @SuppressWarnings("unchecked")
+        CountingCodec(DataType cqlType) {
+            this(cqlType, (Class<T>) StringBuilder.class);
+        }
+
+        CountingCodec(DataType cqlType, Class<T> javaType) {
+            super(cqlType, javaType);
+        }
+
+        @Override
+        public boolean accepts(DataType cqlType) {
+            cqlTypeChecks += 1;
+            return super.accepts(cqlType);
+        }
+
+        @Override
+        public ByteBuffer serialize(T value, ProtocolVersion protocolVersion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public T deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public T parse(String value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String format(T value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private MemoryAppender startCapturingLogs() {
         Logger registryLogger = Logger.getLogger(CodecRegistry.class);
         registryLogger.setLevel(Level.WARN);
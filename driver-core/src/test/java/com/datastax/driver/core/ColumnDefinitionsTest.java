@@ -8,7 +8,9 @@ package com.datastax.driver.core;
 
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class ColumnDefinitionsTest {
 
@@ -60,4 +62,29 @@ public class ColumnDefinitionsTest {
 
         assertTrue(defs.getType("column").equals(DataType.text()));
     }
+
+    @Test(groups = "unit")
+    public void handleTest() {
+        ColumnDefinitions defs1 = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "cf", "k", DataType.cint()),
+                new ColumnDefinitions.Definition("ks", "cf", "aColumn", DataType.text())
+        }, CodecRegistry.DEFAULT_INSTANCE);
+        ColumnDefinitions defs2 = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "cf", "aColumn", DataType.text())
+        }, CodecRegistry.DEFAULT_INSTANCE);
+
+        ColumnDefinitions.Handle handle = ColumnDefinitions.handle("acolumn");
+        assertEquals(handle.getIndex(defs1), 1);
+        assertEquals(handle.getIndex(defs1), 1);
+        assertEquals(handle.getIndex(defs2), 0);
+        assertEquals(handle.getIndex(defs1), 1);
+
+        assertEquals(ColumnDefinitions.handle("\"aColumn\"").getIndex(defs1), 1);
+        try {
+            ColumnDefinitions.handle("\"acolumn\"").getIndex(defs1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
 }
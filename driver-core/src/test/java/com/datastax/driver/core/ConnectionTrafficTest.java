@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.codahale.metrics.Gauge;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ConnectionTrafficTest {
+
+    @Test(groups = "unit")
+    public void should_count_bytes_of_outgoing_frames() {
+        Metrics.Traffic clusterTraffic = mock(Metrics.Traffic.class);
+        ConnectionTraffic traffic = new ConnectionTraffic(clusterTraffic, new Metrics.HostTraffic());
+        EmbeddedChannel channel = new EmbeddedChannel(new Frame.Encoder(traffic));
+
+        ByteBuf body = Unpooled.wrappedBuffer(new byte[]{1, 2, 3, 4, 5});
+        channel.writeOutbound(Frame.create(ProtocolVersion.V4, Message.Request.Type.OPTIONS.opcode, 1,
+                EnumSet.noneOf(Frame.Header.Flag.class), body));
+
+        // 9-byte header + 5-byte body
+        assertThat(traffic.bytesSent()).isEqualTo(14);
+        verify(clusterTraffic).frameSent(14);
+        channel.finish();
+        releaseAll(channel);
+    }
+
+    @Test(groups = "unit")
+    public void should_count_bytes_of_incoming_frames() {
+        ConnectionTraffic traffic = new ConnectionTraffic(null, null);
+        EmbeddedChannel channel = new EmbeddedChannel(new Frame.Decoder(traffic));
+
+        // READY response, protocol v4, stream 1, empty body
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeByte(0x84).writeByte(0).writeShort(1).writeByte(Message.Response.Type.READY.opcode).writeInt(0);
+        channel.writeInbound(frame);
+
+        assertThat(traffic.bytesReceived()).isEqualTo(9);
+        Frame decoded = (Frame) channel.readInbound();
+        assertThat(decoded.header.opcode).isEqualTo(Message.Response.Type.READY.opcode);
+        decoded.body.release();
+        channel.finish();
+    }
+
+    @Test(groups = "unit")
+    public void should_sample_frame_sizes() {
+        Metrics.Traffic clusterTraffic = mock(Metrics.Traffic.class);
+        ConnectionTraffic traffic = new ConnectionTraffic(clusterTraffic, new Metrics.HostTraffic());
+
+        for (int i = 0; i < 2 * ConnectionTraffic.FRAME_SIZE_SAMPLING; i++)
+            traffic.frameReceived(10);
+
+        assertThat(traffic.bytesReceived()).isEqualTo(20 * ConnectionTraffic.FRAME_SIZE_SAMPLING);
+        verify(clusterTraffic, times(2)).frameReceived(10);
+    }
+
+    @Test(groups = "unit")
+    public void should_aggregate_open_and_closed_connections() {
+        Cluster cluster = Cluster.builder().addContactPoint("127.0.0.1").withoutJMXReporting().build();
+        try {
+            Metrics clusterMetrics = new Metrics(cluster.manager);
+            Metrics.Traffic metrics = clusterMetrics.getTrafficMetrics();
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", 9042);
+            Host host = mock(Host.class);
+            when(host.getSocketAddress()).thenReturn(address);
+
+            ConnectionTraffic connection1 = new ConnectionTraffic(metrics, metrics.forAddress(address));
+            ConnectionTraffic connection2 = new ConnectionTraffic(metrics, metrics.forAddress(address));
+            connection1.register();
+            connection2.register();
+            connection1.frameSent(10);
+            connection1.frameReceived(100);
+            connection2.frameSent(20);
+            connection2.frameReceived(50);
+
+            assertThat(metrics.getBytesSent().getValue()).isEqualTo(30);
+            assertThat(metrics.getBytesReceived().getValue()).isEqualTo(150);
+            assertThat(metrics.getLargestResponseFrame().getValue()).isEqualTo(100);
+            assertThat(metrics.getBytesSent(host)).isEqualTo(30);
+            Map<String, Gauge> gauges = clusterMetrics.getRegistry().getGauges();
+            assertThat(gauges.get("bytes-sent.127.0.0.1:9042").getValue()).isEqualTo(30L);
+            assertThat(gauges.get("bytes-received.127.0.0.1:9042").getValue()).isEqualTo(150L);
+
+            connection1.unregister();
+            connection2.frameSent(5);
+
+            assertThat(metrics.getBytesSent().getValue()).isEqualTo(35);
+            assertThat(metrics.getBytesReceived(host)).isEqualTo(150);
+            assertThat(metrics.getLargestResponseFrame().getValue()).isEqualTo(100);
+
+            metrics.removeHost(host);
+
+            assertThat(metrics.getBytesSent(host)).isEqualTo(0);
+            assertThat(clusterMetrics.getRegistry().getGauges()).doesNotContainKey("bytes-sent.127.0.0.1:9042");
+            assertThat(metrics.getBytesSent().getValue()).isEqualTo(35);
+        } finally {
+            cluster.close();
+        }
+    }
+
+    private static void releaseAll(EmbeddedChannel channel) {
+        Object message;
+        while ((message = channel.readOutbound()) != null) {
+            if (message instanceof ByteBuf)
+                ((ByteBuf) message).release();
+        }
+    }
+}
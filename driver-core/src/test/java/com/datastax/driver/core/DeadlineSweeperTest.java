@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeadlineSweeperTest {
+
+    @Test(groups = "unit")
+    public void should_expire_entries_in_deadline_order() {
+        DeadlineSweeper sweeper = new DeadlineSweeper(10);
+        TestEntry first = new TestEntry(), second = new TestEntry(), third = new TestEntry();
+        sweeper.add(first, 100, 0);
+        sweeper.add(second, 100, 10);
+        sweeper.add(third, 100, 20);
+
+        assertThat(sweeper.sweep(99)).isNull();
+        assertThat(sweeper.sweep(110)).containsExactly(first, second);
+        assertThat(sweeper.size()).isEqualTo(1);
+        assertThat(sweeper.sweep(1000)).containsExactly(third);
+        assertThat(sweeper.size()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_track_different_timeouts_separately() {
+        DeadlineSweeper sweeper = new DeadlineSweeper(10);
+        TestEntry slow = new TestEntry(), fast = new TestEntry();
+        sweeper.add(slow, 1000, 0);
+        sweeper.add(fast, 100, 10);
+
+        // the entry with the shorter timeout expires first, even though it was added last
+        assertThat(sweeper.sweep(200)).containsExactly(fast);
+        assertThat(sweeper.sweep(1000)).containsExactly(slow);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_expire_removed_entries() {
+        DeadlineSweeper sweeper = new DeadlineSweeper(10);
+        TestEntry first = new TestEntry(), second = new TestEntry(), third = new TestEntry();
+        sweeper.add(first, 100, 0);
+        sweeper.add(second, 100, 0);
+        sweeper.add(third, 100, 0);
+
+        assertThat(sweeper.remove(second)).isTrue();
+        assertThat(sweeper.remove(second)).isFalse();
+        assertThat(sweeper.sweep(100)).containsExactly(first, third);
+        // already expired
+        assertThat(sweeper.remove(first)).isFalse();
+
+        // entries can be tracked again after they were removed
+        sweeper.add(second, 100, 200);
+        assertThat(sweeper.sweep(300)).containsExactly(second);
+    }
+
+    @Test(groups = "unit")
+    public void should_handle_nano_time_overflow() {
+        DeadlineSweeper sweeper = new DeadlineSweeper(10);
+        TestEntry entry = new TestEntry();
+        sweeper.add(entry, 100, Long.MAX_VALUE - 10);
+
+        assertThat(sweeper.sweep(Long.MAX_VALUE)).isNull();
+        assertThat(sweeper.sweep(Long.MIN_VALUE + 89)).containsExactly(entry);
+    }
+
+    @Test(groups = "unit")
+    public void should_invoke_callbacks_from_event_loop() throws InterruptedException {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        EventLoop eventLoop = group.next();
+        DeadlineSweeper sweeper = new DeadlineSweeper(10);
+        try {
+            sweeper.start(eventLoop);
+            TestEntry entry = new TestEntry();
+            sweeper.add(entry, TimeUnit.MILLISECONDS.toNanos(20));
+
+            assertThat(entry.expired.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(entry.thread).isNotSameAs(Thread.currentThread());
+            assertThat(eventLoop.inEventLoop(entry.thread)).isTrue();
+        } finally {
+            sweeper.stop();
+            group.shutdownGracefully();
+        }
+    }
+
+    static class TestEntry extends DeadlineSweeper.Entry {
+        final CountDownLatch expired = new CountDownLatch(1);
+        volatile Thread thread;
+
+        @Override
+        void onExpired() {
+            thread = Thread.currentThread();
+            expired.countDown();
+        }
+    }
+}
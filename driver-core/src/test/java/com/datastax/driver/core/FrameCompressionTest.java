@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+
+import static com.datastax.driver.core.CompressionAdvisor.PROBE_INTERVAL;
+import static com.datastax.driver.core.CompressionAdvisor.WINDOW;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameCompressionTest {
+
+    private static final int EXECUTE = Message.Request.Type.EXECUTE.opcode;
+    private static final int QUERY = Message.Request.Type.QUERY.opcode;
+
+    @Test(groups = "unit")
+    public void should_not_compress_frames_below_threshold() {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new Frame.Compressor(new HalvingCompressor(), new ConnectionTraffic(null, null), 100, null));
+
+        channel.writeOutbound(newFrame(EXECUTE, 40));
+        channel.writeOutbound(newFrame(EXECUTE, 200));
+
+        Frame small = (Frame) channel.readOutbound();
+        assertThat(small.header.flags).doesNotContain(Frame.Header.Flag.COMPRESSED);
+        assertThat(small.body.readableBytes()).isEqualTo(40);
+        Frame large = (Frame) channel.readOutbound();
+        assertThat(large.header.flags).contains(Frame.Header.Flag.COMPRESSED);
+        assertThat(large.body.readableBytes()).isEqualTo(100);
+        small.body.release();
+        large.body.release();
+        channel.finish();
+    }
+
+    @Test(groups = "unit")
+    public void should_stop_compressing_opcode_with_poor_ratio() {
+        CompressionAdvisor advisor = new CompressionAdvisor();
+
+        for (int i = 0; i < WINDOW; i++) {
+            assertThat(advisor.shouldCompress(EXECUTE)).isTrue();
+            advisor.record(EXECUTE, 40, 44);
+            assertThat(advisor.shouldCompress(QUERY)).isTrue();
+            advisor.record(QUERY, 1000, 300);
+        }
+
+        assertThat(advisor.isDisabled(EXECUTE)).isTrue();
+        assertThat(advisor.isDisabled(QUERY)).isFalse();
+        assertThat(advisor.shouldCompress(EXECUTE)).isFalse();
+        assertThat(advisor.shouldCompress(QUERY)).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_probe_disabled_opcode_periodically() {
+        CompressionAdvisor advisor = new CompressionAdvisor();
+        for (int i = 0; i < WINDOW; i++)
+            advisor.record(EXECUTE, 40, 44);
+
+        for (int i = 0; i < PROBE_INTERVAL - 1; i++)
+            assertThat(advisor.shouldCompress(EXECUTE)).isFalse();
+        assertThat(advisor.shouldCompress(EXECUTE)).isTrue();
+
+        // the payloads are now compressible
+        for (int i = 0; i < WINDOW; i++)
+            advisor.record(EXECUTE, 1000, 300);
+        assertThat(advisor.isDisabled(EXECUTE)).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_skip_frames_disabled_by_advisor() {
+        CompressionAdvisor advisor = new CompressionAdvisor();
+        for (int i = 0; i < WINDOW; i++)
+            advisor.record(EXECUTE, 40, 44);
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new Frame.Compressor(new HalvingCompressor(), new ConnectionTraffic(null, null), 0, advisor));
+
+        channel.writeOutbound(newFrame(EXECUTE, 40));
+
+        Frame frame = (Frame) channel.readOutbound();
+        assertThat(frame.header.flags).doesNotContain(Frame.Header.Flag.COMPRESSED);
+        frame.body.release();
+        channel.finish();
+    }
+
+    private static Frame newFrame(int opcode, int bodySize) {
+        return Frame.create(ProtocolVersion.V4, opcode, 1, EnumSet.noneOf(Frame.Header.Flag.class),
+                Unpooled.wrappedBuffer(new byte[bodySize]));
+    }
+
+    /**
+     * A fake compressor that divides the size of the body by two.
+     */
+    private static class HalvingCompressor extends FrameCompressor {
+        @Override
+        public Frame compress(Frame frame) {
+            ByteBuf body = frame.body;
+            return frame.with(Unpooled.wrappedBuffer(new byte[body.readableBytes() / 2]));
+        }
+
+        @Override
+        public Frame decompress(Frame frame) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
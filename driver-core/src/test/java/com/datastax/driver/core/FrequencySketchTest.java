@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrequencySketchTest {
+
+    @Test(groups = "unit")
+    public void should_count_occurrences() {
+        FrequencySketch sketch = new FrequencySketch(100);
+
+        assertThat(sketch.frequency("foo")).isEqualTo(0);
+        assertThat(sketch.increment("foo")).isEqualTo(1);
+        assertThat(sketch.increment("foo")).isEqualTo(2);
+        assertThat(sketch.increment("bar")).isEqualTo(1);
+        assertThat(sketch.frequency("foo")).isEqualTo(2);
+    }
+
+    @Test(groups = "unit")
+    public void should_age_counts() {
+        FrequencySketch sketch = new FrequencySketch(8);
+        for (int i = 0; i < 20; i++)
+            sketch.increment("foo");
+
+        // 64 counters per row, so counts are halved every 32 increments
+        for (int i = 0; i < 32; i++)
+            sketch.increment(i);
+
+        assertThat(sketch.frequency("foo")).isLessThanOrEqualTo(10);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import org.scassandra.http.client.PrimingRequest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.datastax.driver.core.Assertions.assertThat;
+import static com.datastax.driver.core.ConditionChecker.check;
+import static com.datastax.driver.core.TestUtils.nonQuietClusterCloseOptions;
+import static org.scassandra.http.client.PrimingRequest.then;
+import static org.scassandra.http.client.Result.overloaded;
+
+/**
+ * Covers the interactions between {@link RequestHandler} and {@link SpeculativeExecutionPolicy.HedgingPlan}s.
+ */
+public class HedgingSpeculativeExecutionTest {
+
+    private static final long SPECULATIVE_EXECUTION_DELAY = 100;
+
+    ScassandraCluster scassandras;
+
+    Cluster cluster = null;
+    PinningLoadBalancingPolicy loadBalancingPolicy;
+    HedgingPolicy speculativeExecutionPolicy;
+    Metrics.Errors errors;
+    Host host1, host2, host3;
+    Session session;
+
+    @BeforeMethod(groups = "short")
+    public void beforeMethod() {
+        scassandras = ScassandraCluster.builder().withNodes(3).build();
+        scassandras.init();
+
+        loadBalancingPolicy = new PinningLoadBalancingPolicy();
+        speculativeExecutionPolicy = new HedgingPolicy();
+        cluster = Cluster.builder()
+                .addContactPoints(scassandras.address(2).getAddress())
+                .withPort(scassandras.getBinaryPort())
+                .withLoadBalancingPolicy(loadBalancingPolicy)
+                .withSpeculativeExecutionPolicy(speculativeExecutionPolicy)
+                .withQueryOptions(new QueryOptions().setDefaultIdempotence(true))
+                .withRetryPolicy(new SpeculativeExecutionTest.CustomRetryPolicy())
+                .withNettyOptions(nonQuietClusterCloseOptions)
+                .build();
+
+        session = cluster.connect();
+
+        host1 = TestUtils.findHost(cluster, 1);
+        host2 = TestUtils.findHost(cluster, 2);
+        host3 = TestUtils.findHost(cluster, 3);
+
+        errors = cluster.getMetrics().getErrorMetrics();
+    }
+
+    @AfterMethod(groups = "short", alwaysRun = true)
+    public void afterMethod() {
+        if (cluster != null)
+            cluster.close();
+        if (scassandras != null)
+            scassandras.stop();
+    }
+
+    @Test(groups = "short")
+    public void should_acquire_permit_when_speculative_execution_fires_and_count_it_as_won() {
+        primeQuery(1, "result1", 400);
+        primeQuery(2, "result2", 0);
+
+        ResultSet rs = session.execute("mock query");
+
+        assertThat(rs.one().getString("result")).isEqualTo("result2");
+        assertThat(speculativeExecutionPolicy.permitRequests.get()).isEqualTo(1);
+        assertThat(rs.getExecutionInfo().getQueriedHost()).isEqualTo(host2);
+        assertThat(rs.getExecutionInfo().getSpeculativeExecutions()).isEqualTo(1);
+        assertThat(errors.getSpeculativeExecutions().getCount()).isEqualTo(1);
+        assertThat(errors.getSpeculativeExecutionsWon().getCount()).isEqualTo(1);
+        assertThat(errors.getSpeculativeExecutionsWasted().getCount()).isEqualTo(0);
+        assertThat(errors.getSpeculativeExecutionsSkipped().getCount()).isEqualTo(0);
+    }
+
+    @Test(groups = "short")
+    public void should_count_speculative_execution_as_wasted_if_initial_execution_completes_first() {
+        primeQuery(1, "result1", 300);
+        primeQuery(2, "result2", 1000);
+
+        ResultSet rs = session.execute("mock query");
+
+        assertThat(rs.one().getString("result")).isEqualTo("result1");
+        assertThat(rs.getExecutionInfo().getQueriedHost()).isEqualTo(host1);
+        assertThat(errors.getSpeculativeExecutions().getCount()).isEqualTo(1);
+        assertThat(errors.getSpeculativeExecutionsWon().getCount()).isEqualTo(0);
+        assertThat(errors.getSpeculativeExecutionsWasted().getCount()).isEqualTo(1);
+    }
+
+    @Test(groups = "short")
+    public void should_not_acquire_permit_if_request_completes_before_delay() {
+        primeQuery(1, "result1", 0);
+
+        session.execute("mock query");
+
+        assertThat(speculativeExecutionPolicy.permitRequests.get()).isEqualTo(0);
+        assertThat(errors.getSpeculativeExecutions().getCount()).isEqualTo(0);
+        assertThat(errors.getSpeculativeExecutionsSkipped().getCount()).isEqualTo(0);
+    }
+
+    @Test(groups = "short")
+    public void should_skip_speculative_execution_if_permit_is_denied() {
+        speculativeExecutionPolicy.permit = false;
+        primeQuery(1, "result1", 400);
+        primeQuery(2, "result2", 0);
+
+        ResultSet rs = session.execute("mock query");
+
+        assertThat(rs.one().getString("result")).isEqualTo("result1");
+        assertThat(speculativeExecutionPolicy.permitRequests.get()).isEqualTo(1);
+        assertThat(rs.getExecutionInfo().getTriedHosts()).containsOnly(host1);
+        assertThat(rs.getExecutionInfo().getSpeculativeExecutions()).isEqualTo(0);
+        assertThat(errors.getSpeculativeExecutions().getCount()).isEqualTo(0);
+        assertThat(errors.getSpeculativeExecutionsSkipped().getCount()).isEqualTo(1);
+        assertThat(errors.getSpeculativeExecutionsWasted().getCount()).isEqualTo(0);
+    }
+
+    @Test(groups = "short")
+    public void should_send_speculative_execution_to_least_loaded_host() {
+        speculativeExecutionPolicy.loadAware = true;
+        loadHost2();
+        primeQuery(1, "result1", 400);
+        primeQuery(2, "result2", 0);
+        primeQuery(3, "result3", 0);
+
+        ResultSet rs = session.execute("mock query");
+
+        assertThat(rs.one().getString("result")).isEqualTo("result3");
+        assertThat(rs.getExecutionInfo().getQueriedHost()).isEqualTo(host3);
+        assertThat(rs.getExecutionInfo().getTriedHosts()).containsOnly(host3);
+        assertThat(errors.getSpeculativeExecutionsWon().getCount()).isEqualTo(1);
+    }
+
+    @Test(groups = "short")
+    public void should_keep_skipped_host_in_query_plan() {
+        speculativeExecutionPolicy.loadAware = true;
+        loadHost2();
+        primeQuery(1, "result1", 400);
+        primeQuery(2, "result2", 0);
+        // the speculative execution picks host3, which fails; the retry must go to host2, that was skipped
+        scassandras.node(3).primingClient().prime(PrimingRequest.queryBuilder()
+                .withQuery("mock query")
+                .withThen(then().withResult(overloaded))
+                .build());
+
+        ResultSet rs = session.execute("mock query");
+
+        assertThat(rs.one().getString("result")).isEqualTo("result2");
+        assertThat(rs.getExecutionInfo().getQueriedHost()).isEqualTo(host2);
+        assertThat(rs.getExecutionInfo().getTriedHosts()).containsExactly(host3, host2);
+    }
+
+    /**
+     * Sends requests that hang to host2, so that it is busier than host3.
+     */
+    private void loadHost2() {
+        scassandras.node(2).primingClient().prime(PrimingRequest.queryBuilder()
+                .withQuery("busy query")
+                .withThen(then().withRows(row("result", "busy")).withFixedDelay(5000L))
+                .build());
+        loadBalancingPolicy.pinned = host2;
+        for (int i = 0; i < 2; i++)
+            session.executeAsync(new SimpleStatement("busy query").setIdempotent(false));
+        loadBalancingPolicy.pinned = null;
+        final HostConnectionPool pool = ((SessionManager) session).pools.get(host2);
+        check().that(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return pool.totalInFlight.get() == 2;
+            }
+        }).before(5, TimeUnit.SECONDS).becomesTrue();
+    }
+
+    private void primeQuery(int node, String result, long delay) {
+        scassandras.node(node).primingClient().prime(PrimingRequest.queryBuilder()
+                .withQuery("mock query")
+                .withThen(then().withRows(row("result", result)).withFixedDelay(delay))
+                .build());
+    }
+
+    private static List<Map<String, ?>> row(String key, String value) {
+        return ImmutableList.<Map<String, ?>>of(ImmutableMap.of(key, value));
+    }
+
+    /**
+     * Schedules one speculative execution, with a controllable permit and host selection.
+     */
+    static class HedgingPolicy implements SpeculativeExecutionPolicy {
+        volatile boolean permit = true;
+        volatile boolean loadAware = false;
+        final AtomicInteger permitRequests = new AtomicInteger();
+
+        @Override
+        public void init(Cluster cluster) {
+        }
+
+        @Override
+        public SpeculativeExecutionPlan newPlan(String loggedKeyspace, Statement statement) {
+            return new HedgingPlan() {
+                private final AtomicInteger remaining = new AtomicInteger(1);
+
+                @Override
+                public long nextExecution(Host lastQueried) {
+                    return remaining.getAndDecrement() > 0 ? SPECULATIVE_EXECUTION_DELAY : -1;
+                }
+
+                @Override
+                public boolean acquirePermit() {
+                    permitRequests.incrementAndGet();
+                    return permit;
+                }
+
+                @Override
+                public boolean isLoadAware() {
+                    return loadAware;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * A {@link SortingLoadBalancingPolicy} that can send all requests to a single host.
+     */
+    static class PinningLoadBalancingPolicy extends SortingLoadBalancingPolicy {
+        volatile Host pinned;
+
+        @Override
+        public Iterator<Host> newQueryPlan(String loggedKeyspace, Statement statement) {
+            Host pinned = this.pinned;
+            return pinned == null ? super.newQueryPlan(loggedKeyspace, statement) : Iterators.singletonIterator(pinned);
+        }
+    }
+}
@@ -13,6 +13,8 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.*;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
 import org.scassandra.cql.PrimitiveType;
 import org.scassandra.http.client.PrimingRequest;
 import org.testng.annotations.BeforeClass;
@@ -1240,6 +1242,63 @@ public class HostConnectionPoolTest extends ScassandraTestBase.PerClassCluster {
         }
     }
 
+    /**
+     * Ensures that with event loop affinity, a pool spreads its connections across event loops, and that requests
+     * borrowed from an event loop use the connection owned by that loop.
+     *
+     * @test_category connection:connection_pool
+     */
+    @Test(groups = "short")
+    public void should_borrow_connection_of_current_event_loop_if_affinity_enabled() throws Exception {
+        Cluster cluster = createClusterBuilder()
+                .withPoolingOptions(new PoolingOptions().setEventLoopAffinity(true))
+                .withNettyOptions(new NettyOptions() {
+                    @Override
+                    public EventLoopGroup eventLoopGroup(ThreadFactory threadFactory) {
+                        return new NioEventLoopGroup(2, threadFactory);
+                    }
+                })
+                .build();
+        List<MockRequest> allRequests = newArrayList();
+        try {
+            final HostConnectionPool pool = createPool(cluster, 2, 2);
+            List<ScheduledExecutorService> eventLoops = cluster.getEventLoops();
+            assertThat(eventLoops).hasSize(2);
+
+            assertPoolSize(pool, 2);
+            for (ScheduledExecutorService eventLoop : eventLoops) {
+                int owned = 0;
+                for (Connection connection : pool.connections) {
+                    if (connection.isOwnedBy(((EventLoopExecutor) eventLoop).eventLoop))
+                        owned += 1;
+                }
+                assertThat(owned).isEqualTo(1);
+            }
+
+            for (ScheduledExecutorService eventLoop : eventLoops) {
+                MockRequest request = eventLoop.submit(new Callable<MockRequest>() {
+                    @Override
+                    public MockRequest call() throws Exception {
+                        return MockRequest.send(pool);
+                    }
+                }).get(5, TimeUnit.SECONDS);
+                allRequests.add(request);
+                assertThat(request.getConnection().isOwnedBy(((EventLoopExecutor) eventLoop).eventLoop)).isTrue();
+            }
+
+            // the application can't stop the driver's event loops
+            try {
+                eventLoops.get(0).shutdown();
+                fail("Expected an UnsupportedOperationException");
+            } catch (UnsupportedOperationException e) {
+                assertThat(eventLoops.get(0).isShutdown()).isFalse();
+            }
+        } finally {
+            MockRequest.completeAll(allRequests);
+            cluster.close();
+        }
+    }
+
     private HostConnectionPool createPool(Cluster cluster, int coreConnections, int maxConnections) {
         cluster.getConfiguration().getPoolingOptions()
                 .setNewConnectionThreshold(HostDistance.LOCAL, 100)
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.*;
+
+import static com.datastax.driver.core.Assertions.assertThat;
+import static org.scassandra.http.client.PrimingRequest.queryBuilder;
+import static org.scassandra.http.client.PrimingRequest.then;
+import static org.scassandra.http.client.Result.invalid;
+import static org.testng.Assert.fail;
+
+public class Jdk8CompletionStageSessionTest extends ScassandraTestBase.PerClassCluster {
+
+    private static final String QUERY = "SELECT foo FROM bar";
+
+    @BeforeMethod(groups = "short")
+    public void setup() {
+        primingClient.prime(queryBuilder()
+                .withQuery(QUERY)
+                .withThen(then().withRows(ImmutableMap.<String, Object>of("foo", "bar")))
+                .build());
+    }
+
+    @Test(groups = "short")
+    public void should_complete_stage_with_result_set() throws Exception {
+        CompletionStage<ResultSet> stage = ((CompletionStageSession) session).executeAsyncStage(QUERY);
+
+        ResultSet rs = stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertThat(rs.one().getString("foo")).isEqualTo("bar");
+        assertThat(rs.getExecutionInfo().getQueriedHost()).isEqualTo(host);
+    }
+
+    @Test(groups = "short")
+    public void should_complete_stage_exceptionally_on_error() throws Exception {
+        primingClient.prime(queryBuilder()
+                .withQuery("SELECT invalid")
+                .withThen(then().withResult(invalid))
+                .build());
+
+        CompletionStage<ResultSet> stage = ((CompletionStageSession) session).executeAsyncStage("SELECT invalid");
+
+        try {
+            stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(InvalidQueryException.class);
+        }
+    }
+
+    @Test(groups = "short")
+    public void should_complete_stage_on_provided_executor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Thread executorThread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() throws Exception {
+                    return Thread.currentThread();
+                }
+            }).get();
+            // Delay the response, to make sure that the dependent action is registered before the stage completes
+            primingClient.prime(queryBuilder()
+                    .withQuery("SELECT slow")
+                    .withThen(then().withFixedDelay(200L))
+                    .build());
+
+            CompletionStage<Thread> completingThread = ((CompletionStageSession) session)
+                    .executeAsyncStage(new SimpleStatement("SELECT slow"), executor)
+                    .thenApply(new java.util.function.Function<ResultSet, Thread>() {
+                        @Override
+                        public Thread apply(ResultSet rs) {
+                            return Thread.currentThread();
+                        }
+                    });
+
+            assertThat(completingThread.toCompletableFuture().get(5, TimeUnit.SECONDS)).isSameAs(executorThread);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(groups = "short")
+    public void should_propagate_cancellation_to_request() throws Exception {
+        primingClient.prime(queryBuilder()
+                .withQuery("SELECT slow")
+                .withThen(then().withFixedDelay(1000L))
+                .build());
+
+        CompletableFuture<ResultSet> future = ((CompletionStageSession) session)
+                .executeAsyncStage("SELECT slow").toCompletableFuture();
+        assertThat(future.cancel(true)).isTrue();
+
+        assertThat(future.isCancelled()).isTrue();
+        // The stream id should be released, and the connection not counted as busy anymore
+        final HostConnectionPool pool = ((SessionManager) session).pools.get(host);
+        ConditionChecker.check().before(5, TimeUnit.SECONDS).that(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return pool.totalInFlight.get() == 0;
+            }
+        }).becomesTrue();
+    }
+
+    @Test(groups = "short")
+    public void should_complete_prepare_stage() throws Exception {
+        PreparedStatement ps = ((CompletionStageSession) session).prepareAsyncStage(QUERY)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(ps.getQueryString()).isEqualTo(QUERY);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataKeyspacesTest {
+
+    @Test(groups = "unit")
+    public void should_include_all_keyspaces_by_default() {
+        QueryOptions queryOptions = new QueryOptions();
+
+        assertThat(queryOptions.getMetadataKeyspaces()).isEmpty();
+        assertThat(queryOptions.isMetadataKeyspace("ks1")).isTrue();
+        assertThat(queryOptions.isMetadataKeyspace("system")).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_restrict_to_configured_keyspaces() {
+        QueryOptions queryOptions = new QueryOptions().setMetadataKeyspaces(Lists.newArrayList("ks1", "Ks2"));
+
+        assertThat(queryOptions.isMetadataKeyspace("ks1")).isTrue();
+        assertThat(queryOptions.isMetadataKeyspace("Ks2")).isTrue();
+        assertThat(queryOptions.isMetadataKeyspace("ks2")).isFalse();
+        assertThat(queryOptions.isMetadataKeyspace("system")).isFalse();
+
+        queryOptions.setMetadataKeyspaces(null);
+        assertThat(queryOptions.isMetadataKeyspace("system")).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_build_keyspace_filter_clause() {
+        QueryOptions queryOptions = new QueryOptions();
+        Cluster cluster = Cluster.builder().addContactPoint("127.0.0.1").withQueryOptions(queryOptions).build();
+        try {
+            assertThat(SchemaParser.keyspaceFilter(cluster)).isEmpty();
+
+            queryOptions.setMetadataKeyspaces(Collections.singleton("ks1"));
+            assertThat(SchemaParser.keyspaceFilter(cluster)).isEqualTo(" WHERE keyspace_name IN ('ks1')");
+
+            queryOptions.setMetadataKeyspaces(Lists.newArrayList("ks1", "ks2"));
+            assertThat(SchemaParser.keyspaceFilter(cluster)).isEqualTo(" WHERE keyspace_name IN ('ks1', 'ks2')");
+        } finally {
+            cluster.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.datastax.driver.core.ProtocolVersion.V4;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PreparedStatementRegistryTest {
+
+    @Test(groups = "unit")
+    public void should_register_statement_once() {
+        PreparedStatementRegistry registry = new PreparedStatementRegistry(10);
+        PreparedStatement first = newStatement(1);
+        PreparedStatement second = newStatement(1);
+
+        assertThat(registry.putIfAbsent(first)).isNull();
+        assertThat(registry.putIfAbsent(second)).isSameAs(first);
+
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.get(id(1))).isSameAs(first);
+    }
+
+    @Test(groups = "unit")
+    public void should_evict_least_recently_used_statement() {
+        // A single entry per segment, so that eviction is exact
+        PreparedStatementRegistry registry = new PreparedStatementRegistry(1);
+        PreparedStatement s1 = newStatement(1);
+        PreparedStatement s2 = newStatement(2);
+
+        registry.putIfAbsent(s1);
+        registry.putIfAbsent(s2);
+
+        assertThat(registry.contains(id(1))).isFalse();
+        assertThat(registry.contains(id(2))).isTrue();
+        assertThat(registry.evictionCount()).isEqualTo(1);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_record_access_on_contains() {
+        PreparedStatementRegistry registry = new PreparedStatementRegistry(10);
+        DefaultPreparedStatement stmt = newStatement(1);
+        registry.putIfAbsent(stmt);
+        long registered = stmt.uses;
+
+        registry.contains(id(1));
+
+        assertThat(stmt.uses).isEqualTo(registered);
+    }
+
+    @Test(groups = "unit")
+    public void should_return_statements_most_used_first() {
+        PreparedStatementRegistry registry = new PreparedStatementRegistry(10);
+        DefaultPreparedStatement s1 = newStatement(1);
+        DefaultPreparedStatement s2 = newStatement(2);
+        DefaultPreparedStatement s3 = newStatement(3);
+        registry.putIfAbsent(s1);
+        registry.putIfAbsent(s2);
+        registry.putIfAbsent(s3);
+        registry.touch(s1);
+        registry.touch(s1);
+        registry.touch(s3);
+
+        assertThat(registry.valuesByUsage()).containsExactly(s1, s3, s2);
+
+        // an older but more used statement still comes first
+        registry.touch(s2);
+        registry.touch(s2);
+        registry.touch(s2);
+
+        assertThat(registry.valuesByUsage()).containsExactly(s2, s1, s3);
+    }
+
+    @Test(groups = "unit")
+    public void should_order_statements_used_as_often_most_recently_used_first() {
+        PreparedStatementRegistry registry = new PreparedStatementRegistry(10);
+        DefaultPreparedStatement s1 = newStatement(1);
+        DefaultPreparedStatement s2 = newStatement(2);
+        registry.putIfAbsent(s1);
+        registry.putIfAbsent(s2);
+        s1.lastUsed = 2;
+        s2.lastUsed = 1;
+
+        assertThat(registry.valuesByUsage()).containsExactly(s1, s2);
+    }
+
+    @Test(groups = "unit")
+    public void should_keep_statements_when_resized() {
+        PreparedStatementRegistry registry = new PreparedStatementRegistry(10);
+        PreparedStatement s1 = newStatement(1);
+        PreparedStatement s2 = newStatement(2);
+        registry.putIfAbsent(s1);
+        registry.putIfAbsent(s2);
+
+        registry.setMaximumSize(100);
+
+        assertThat(registry.get(id(1))).isSameAs(s1);
+        assertThat(registry.get(id(2))).isSameAs(s2);
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_fail_if_maximum_size_not_positive() {
+        new PreparedStatementRegistry(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_retain_statements_that_are_not_referenced_anymore() {
+        final PreparedStatementRegistry registry = new PreparedStatementRegistry(10);
+        registry.putIfAbsent(newStatement(1));
+        // Mockito keeps a thread-local reference to the last invocation on a mock, stub another mock to clear it
+        newStatement(2);
+
+        ConditionChecker.check().every(100).before(10, TimeUnit.SECONDS).that(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                System.gc();
+                return !registry.contains(id(1));
+            }
+        }).becomesTrue();
+    }
+
+    private static DefaultPreparedStatement newStatement(int id) {
+        DefaultPreparedStatement stmt = mock(DefaultPreparedStatement.class);
+        when(stmt.getPreparedId()).thenReturn(new PreparedId(id(id), null, null, null, V4));
+        return stmt;
+    }
+
+    private static MD5Digest id(int id) {
+        byte[] bytes = new byte[16];
+        bytes[0] = (byte) id;
+        return MD5Digest.wrap(bytes);
+    }
+}
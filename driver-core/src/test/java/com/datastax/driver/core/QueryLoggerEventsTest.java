@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.QueryLogger.QueryEvent;
+import com.datastax.driver.core.QueryLogger.QueryEventListener;
+import com.google.common.base.Predicate;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.datastax.driver.core.ConditionChecker.check;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class QueryLoggerEventsTest {
+
+    private Cluster cluster;
+    private Host host;
+    private Statement statement;
+    private RecordingListener listener;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        cluster = mock(Cluster.class);
+        when(cluster.getClusterName()).thenReturn("test");
+        host = mock(Host.class);
+        statement = new SimpleStatement("SELECT * FROM test").setConsistencyLevel(ConsistencyLevel.QUORUM);
+        listener = new RecordingListener();
+    }
+
+    @Test(groups = "unit")
+    public void should_report_structured_event() {
+        QueryLogger queryLogger = QueryLogger.builder().withEventListener(listener).build();
+        queryLogger.onRegister(cluster);
+
+        queryLogger.update(host, statement, null, TimeUnit.MILLISECONDS.toNanos(42));
+
+        assertThat(listener.events).hasSize(1);
+        QueryEvent event = listener.events.get(0);
+        assertThat(event.getHost()).isSameAs(host);
+        assertThat(event.getStatement()).isSameAs(statement);
+        assertThat(event.getException()).isNull();
+        assertThat(event.getLatency(TimeUnit.MILLISECONDS)).isEqualTo(42);
+        assertThat(event.getConsistencyLevel()).isEqualTo(ConsistencyLevel.QUORUM);
+        assertThat(event.getStatementId()).isNull();
+        assertThat(event.getValuesSize()).isEqualTo(-1);
+    }
+
+    @Test(groups = "unit")
+    public void should_sample_successful_queries_but_not_errors() {
+        QueryLogger queryLogger = QueryLogger.builder().withEventListener(listener).withSamplingRate(0.25).build();
+        queryLogger.onRegister(cluster);
+
+        for (int i = 0; i < 100; i++)
+            queryLogger.update(host, statement, null, 1000);
+        assertThat(listener.events).hasSize(25);
+
+        for (int i = 0; i < 10; i++)
+            queryLogger.update(host, statement, new RuntimeException(), 1000);
+        assertThat(listener.events).hasSize(35);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_sample_out_slow_queries() {
+        QueryLogger queryLogger = QueryLogger.builder()
+                .withConstantThreshold(100)
+                .withEventListener(listener)
+                .withSamplingRate(0)
+                .build();
+        queryLogger.onRegister(cluster);
+
+        queryLogger.update(host, statement, null, TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(listener.events).isEmpty();
+
+        queryLogger.update(host, statement, null, TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(listener.events).hasSize(1);
+        assertThat(listener.events.get(0).getLatency(TimeUnit.MILLISECONDS)).isEqualTo(200);
+    }
+
+    @Test(groups = "unit")
+    public void should_report_events_from_background_thread() {
+        QueryLogger queryLogger = QueryLogger.builder().withEventListener(listener).withAsynchronousLogging(16).build();
+        queryLogger.onRegister(cluster);
+        try {
+            for (int i = 0; i < 10; i++)
+                queryLogger.update(host, statement, null, 1000);
+
+            check().that(listener, hasEvents(10)).before(5, TimeUnit.SECONDS).becomesTrue();
+            assertThat(listener.threads).containsOnly("test-query-logger");
+        } finally {
+            queryLogger.onUnregister(cluster);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_drop_events_when_background_thread_lags_behind() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        QueryEventListener blockingListener = new QueryEventListener() {
+            @Override
+            public void onQuery(QueryEvent event) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                listener.onQuery(event);
+            }
+        };
+        QueryLogger queryLogger = QueryLogger.builder().withEventListener(blockingListener).withAsynchronousLogging(4).build();
+        queryLogger.onRegister(cluster);
+        try {
+            queryLogger.update(host, statement, null, 1000);
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // the first event is being processed, 4 can wait in the buffer
+            for (int i = 0; i < 10; i++)
+                queryLogger.update(host, statement, null, 1000);
+            assertThat(queryLogger.getDroppedEvents()).isEqualTo(6);
+
+            release.countDown();
+            check().that(listener, hasEvents(5)).before(5, TimeUnit.SECONDS).becomesTrue();
+        } finally {
+            queryLogger.onUnregister(cluster);
+        }
+    }
+
+    private static Predicate<RecordingListener> hasEvents(final int count) {
+        return new Predicate<RecordingListener>() {
+            @Override
+            public boolean apply(RecordingListener listener) {
+                return listener.events.size() == count;
+            }
+        };
+    }
+
+    private static class RecordingListener implements QueryEventListener {
+        final List<QueryEvent> events = new CopyOnWriteArrayList<QueryEvent>();
+        final List<String> threads = new CopyOnWriteArrayList<String>();
+
+        @Override
+        public void onQuery(QueryEvent event) {
+            events.add(event);
+            threads.add(Thread.currentThread().getName());
+        }
+    }
+}
@@ -63,7 +63,7 @@ public class QueryOptionsTest {
         // Prepare the statement
         String query = "select sansa_stark from the_known_world";
         PreparedStatement statement = session.prepare(query);
-        assertThat(cluster.manager.preparedQueries).containsValue(statement);
+        assertThat(cluster.manager.preparedQueries.get(statement.getPreparedId().id)).isSameAs(statement);
 
         // Ensure prepared properly based on expectation.
         List<PreparedStatementPreparation> preparationOne = scassandra.node(1).activityClient().retrievePreparedStatementPreparations();
@@ -223,6 +223,74 @@ public class QueryOptionsTest {
         valideReprepareOnUp(false);
     }
 
+    /**
+     * Validates that a prepared statement that was evicted from the registry because
+     * {@link QueryOptions#setMaxPreparedStatements(int)} was reached can still be executed,
+     * and gets registered again.
+     *
+     * @test_category prepared_statements:prepared
+     * @expected_result the evicted statement is registered again when executed.
+     */
+    @Test(groups = "short")
+    public void should_register_evicted_statement_again_when_executed() {
+        queryOptions.setMaxPreparedStatements(1);
+        PreparedStatement evicted = session.prepare("select sansa_stark from the_known_world");
+        PreparedStatement other = session.prepare("select arya_stark from the_known_world");
+        assertThat(cluster.manager.preparedQueries.contains(evicted.getPreparedId().id)).isFalse();
+        assertThat(cluster.manager.preparedQueries.contains(other.getPreparedId().id)).isTrue();
+
+        session.execute(evicted.bind());
+
+        assertThat(cluster.manager.preparedQueries.contains(evicted.getPreparedId().id)).isTrue();
+        assertThat(cluster.getMetrics().getPreparedStatementEvictions().getValue()).isGreaterThanOrEqualTo(1L);
+    }
+
+    /**
+     * Validates that a statement that is not in the registry anymore can still be re-prepared
+     * after an UNPREPARED response, using the statement being executed.
+     *
+     * @test_category prepared_statements:prepared
+     * @expected_result the statement executed is used to re-prepare.
+     */
+    @Test(groups = "short")
+    public void should_find_evicted_statement_from_executed_statement() {
+        queryOptions.setMaxPreparedStatements(1);
+        PreparedStatement evicted = session.prepare("select sansa_stark from the_known_world");
+        session.prepare("select arya_stark from the_known_world");
+        MD5Digest id = evicted.getPreparedId().id;
+        assertThat(cluster.manager.preparedQueries.contains(id)).isFalse();
+
+        assertThat(cluster.manager.findPrepared(id, new BatchStatement().add(evicted.bind()))).isSameAs(evicted);
+        assertThat(cluster.manager.preparedQueries.contains(id)).isTrue();
+        assertThat(cluster.manager.findPrepared(id, new SimpleStatement("select 1"))).isSameAs(evicted);
+    }
+
+    /**
+     * Validates that only the most used statements are re-prepared when a node comes back up
+     * when {@link QueryOptions#setMaxRepreparedStatementsOnUp(int)} is set.
+     *
+     * @test_category prepared_statements:prepared
+     * @expected_result only the most used statement is re-prepared on the restarted node (the most recent one,
+     * since both were used once).
+     */
+    @Test(groups = "short")
+    public void should_limit_statements_reprepared_on_up() {
+        queryOptions.setMaxRepreparedStatementsOnUp(1);
+        String query = "select sansa_stark from the_known_world";
+        session.prepare("select arya_stark from the_known_world");
+        session.prepare(query);
+        scassandra.node(1).activityClient().clearAllRecordedActivity();
+
+        scassandra.node(1).stop();
+        assertThat(cluster).host(1).goesDownWithin(10, TimeUnit.SECONDS);
+        scassandra.node(1).start();
+        assertThat(cluster).host(1).comesUpWithin(60, TimeUnit.SECONDS);
+
+        List<PreparedStatementPreparation> preparations = scassandra.node(1).activityClient().retrievePreparedStatementPreparations();
+        assertThat(preparations).hasSize(1);
+        assertThat(preparations.get(0).getPreparedStatementText()).isEqualTo(query);
+    }
+
     @AfterMethod(groups = "short", alwaysRun = true)
     public void afterMethod() {
         if (cluster != null)
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class RequestTraceTest {
+
+    private final Statement statement = new SimpleStatement("SELECT * FROM ks.foo");
+
+    @Test(groups = "unit")
+    public void should_not_create_trace_if_no_tracer_accepts() {
+        RecordingTracer tracer = new RecordingTracer(0.0);
+
+        assertThat(RequestTrace.start(ImmutableList.<RequestTracer>of(tracer), statement, System.nanoTime())).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_sample_requests() {
+        RecordingTracer tracer = new RecordingTracer(0.1);
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (tracer.shouldTrace(statement))
+                accepted += 1;
+        }
+        assertThat(accepted).isEqualTo(10);
+    }
+
+    @Test(groups = "unit")
+    public void should_record_attempts_and_report_to_accepting_tracers() {
+        RecordingTracer accepting = new RecordingTracer(1.0);
+        RecordingTracer declining = new RecordingTracer(0.0);
+        Host host1 = mock(Host.class);
+        Host host2 = mock(Host.class);
+
+        RequestTrace trace = RequestTrace.start(ImmutableList.<RequestTracer>of(accepting, declining), statement, System.nanoTime());
+        RequestTrace.Attempt first = trace.newAttempt(0, 0, host1);
+        first.connectionAcquired();
+        first.written();
+        first.failed(new OperationTimedOutException(null));
+        RequestTrace.Attempt second = trace.newAttempt(0, 1, host2);
+        second.connectionAcquired();
+        second.written();
+        second.responseReceived();
+        // a late error must not override the response
+        second.failed(new RuntimeException());
+        RequestTrace.Attempt speculative = trace.newAttempt(1, 0, host1);
+        trace.callbackStarted();
+        trace.complete(null);
+
+        assertThat(declining.traces).isEmpty();
+        assertThat(accepting.traces).containsExactly(trace);
+        assertThat(trace.getError()).isNull();
+        assertThat(trace.getDuration(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(trace.getCallbackDuration(TimeUnit.NANOSECONDS));
+        assertThat(trace.getAttempts()).containsExactly(first, second, speculative);
+
+        assertThat(first.getHost()).isSameAs(host1);
+        assertThat(first.getError()).isInstanceOf(OperationTimedOutException.class);
+        assertThat(second.getRetryCount()).isEqualTo(1);
+        assertThat(second.getError()).isNull();
+        assertThat(second.getConnectionWait(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(second.getWriteWait(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(second.getResponseWait(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(speculative.getExecution()).isEqualTo(1);
+        assertThat(speculative.getConnectionWait(TimeUnit.NANOSECONDS)).isEqualTo(-1);
+        assertThat(speculative.getEndNanos()).isEqualTo(0);
+    }
+
+    private static class RecordingTracer extends SamplingRequestTracer {
+        final List<RequestTrace> traces = new CopyOnWriteArrayList<RequestTrace>();
+
+        RecordingTracer(double samplingRate) {
+            super(samplingRate);
+        }
+
+        @Override
+        public void onTrace(RequestTrace trace) {
+            traces.add(trace);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.BusyPoolException;
+import com.datastax.driver.core.exceptions.DriverInternalError;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.scassandra.http.client.PrimingRequest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.datastax.driver.core.ConditionChecker.check;
+import static com.datastax.driver.core.TestUtils.nonQuietClusterCloseOptions;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.scassandra.http.client.PrimingRequest.then;
+import static org.scassandra.http.client.Result.overloaded;
+
+/**
+ * Covers how {@link RequestHandler} and {@link Connection} report the stages of a request to {@link RequestTracer}s.
+ */
+public class RequestTracerTest {
+
+    ScassandraCluster scassandras;
+
+    Cluster cluster = null;
+    HedgingSpeculativeExecutionTest.PinningLoadBalancingPolicy loadBalancingPolicy;
+    RecordingTracer tracer;
+    Host host1, host2;
+    Session session;
+
+    @BeforeMethod(groups = "short")
+    public void beforeMethod() {
+        scassandras = ScassandraCluster.builder().withNodes(2).build();
+        scassandras.init();
+
+        loadBalancingPolicy = new HedgingSpeculativeExecutionTest.PinningLoadBalancingPolicy();
+        tracer = new RecordingTracer();
+        cluster = Cluster.builder()
+                .addContactPoints(scassandras.address(1).getAddress())
+                .withPort(scassandras.getBinaryPort())
+                .withLoadBalancingPolicy(loadBalancingPolicy)
+                .withQueryOptions(new QueryOptions().setDefaultIdempotence(true))
+                .withRetryPolicy(new SpeculativeExecutionTest.CustomRetryPolicy())
+                // a single connection that accepts a single request, and no queueing: a busy host is skipped
+                .withPoolingOptions(new PoolingOptions()
+                        .setConnectionsPerHost(HostDistance.LOCAL, 1, 1)
+                        .setMaxRequestsPerConnection(HostDistance.LOCAL, 1)
+                        .setMaxQueueSize(0))
+                .withNettyOptions(nonQuietClusterCloseOptions)
+                .build();
+        cluster.register(tracer);
+
+        session = cluster.connect();
+
+        host1 = TestUtils.findHost(cluster, 1);
+        host2 = TestUtils.findHost(cluster, 2);
+    }
+
+    @AfterMethod(groups = "short", alwaysRun = true)
+    public void afterMethod() {
+        if (cluster != null)
+            cluster.close();
+        if (scassandras != null)
+            scassandras.stop();
+    }
+
+    @Test(groups = "short")
+    public void should_record_stages_of_successful_request() {
+        primeQuery(1, then().withRows(row("result", "result1")));
+
+        session.execute("mock query");
+
+        RequestTrace trace = tracer.lastTrace();
+        assertThat(trace.getError()).isNull();
+        assertThat(trace.getCallbackStartNanos()).isGreaterThan(0);
+        assertThat(trace.getEndNanos()).isGreaterThanOrEqualTo(trace.getCallbackStartNanos());
+        assertThat(trace.getAttempts()).hasSize(1);
+        RequestTrace.Attempt attempt = trace.getAttempts().get(0);
+        assertThat(attempt.getHost()).isEqualTo(host1);
+        assertThat(attempt.getExecution()).isEqualTo(0);
+        assertThat(attempt.getRetryCount()).isEqualTo(0);
+        assertThat(attempt.getError()).isNull();
+        assertThat(attempt.getConnectionWait(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(attempt.getWriteWait(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+        assertThat(attempt.getResponseWait(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test(groups = "short")
+    public void should_record_client_timeout_and_count_policy_retry() {
+        primeQuery(1, then().withRows(row("result", "result1")).withFixedDelay(2000L));
+        primeQuery(2, then().withRows(row("result", "result2")));
+
+        session.execute(new SimpleStatement("mock query").setReadTimeoutMillis(500));
+
+        RequestTrace trace = tracer.lastTrace();
+        assertThat(trace.getError()).isNull();
+        assertThat(trace.getAttempts()).hasSize(2);
+        RequestTrace.Attempt first = trace.getAttempts().get(0);
+        assertThat(first.getHost()).isEqualTo(host1);
+        assertThat(first.getRetryCount()).isEqualTo(0);
+        assertThat(first.getWrittenNanos()).isGreaterThan(0);
+        assertThat(first.getError()).isInstanceOf(OperationTimedOutException.class);
+        assertThat(first.getResponseWait(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(500);
+        RequestTrace.Attempt second = trace.getAttempts().get(1);
+        assertThat(second.getHost()).isEqualTo(host2);
+        assertThat(second.getRetryCount()).isEqualTo(1);
+        assertThat(second.getError()).isNull();
+        assertThat(second.getEndNanos()).isGreaterThan(0);
+    }
+
+    @Test(groups = "short")
+    public void should_not_count_skipped_busy_host_as_retry() {
+        primeQuery(1, then().withRows(row("result", "busy")).withFixedDelay(5000L));
+        primeQuery(2, then().withRows(row("result", "result2")));
+        // occupy the only connection to host1
+        loadBalancingPolicy.pinned = host1;
+        session.executeAsync("mock query");
+        loadBalancingPolicy.pinned = null;
+        final HostConnectionPool pool = ((SessionManager) session).pools.get(host1);
+        check().that(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return pool.totalInFlight.get() == 1;
+            }
+        }).before(5, TimeUnit.SECONDS).becomesTrue();
+        tracer.traces.clear();
+
+        session.execute("mock query");
+
+        RequestTrace trace = tracer.lastTrace();
+        assertThat(trace.getAttempts()).hasSize(2);
+        RequestTrace.Attempt first = trace.getAttempts().get(0);
+        assertThat(first.getHost()).isEqualTo(host1);
+        assertThat(first.getError()).isInstanceOf(BusyPoolException.class);
+        assertThat(first.getConnectionAcquiredNanos()).isEqualTo(0);
+        assertThat(first.getWrittenNanos()).isEqualTo(0);
+        RequestTrace.Attempt second = trace.getAttempts().get(1);
+        assertThat(second.getHost()).isEqualTo(host2);
+        assertThat(second.getRetryCount()).isEqualTo(0);
+        assertThat(second.getError()).isNull();
+    }
+
+    @Test(groups = "short")
+    public void should_report_final_error() {
+        primeQuery(1, then().withResult(overloaded));
+        primeQuery(2, then().withResult(overloaded));
+
+        try {
+            session.execute("mock query");
+            fail("Expected a NoHostAvailableException");
+        } catch (NoHostAvailableException e) {
+            RequestTrace trace = tracer.lastTrace();
+            // the synchronous call rethrows a copy of the error
+            assertThat(trace.getError()).isInstanceOf(NoHostAvailableException.class);
+            // error responses are still responses
+            for (RequestTrace.Attempt attempt : trace.getAttempts()) {
+                assertThat(attempt.getError()).isNull();
+                assertThat(attempt.getEndNanos()).isGreaterThan(0);
+            }
+        }
+    }
+
+    @Test(groups = "short")
+    public void should_report_error_if_callback_fails() throws InterruptedException {
+        primeQuery(1, then().withRows(row("result", "result1")));
+        SessionManager manager = (SessionManager) session;
+        Statement statement = new SimpleStatement("mock query");
+        DefaultResultSetFuture future = new DefaultResultSetFuture(manager, cluster.manager.protocolVersion(),
+                manager.makeRequestMessage(statement, null)) {
+            @Override
+            public void onSet(Connection connection, Message.Response response, ExecutionInfo info, Statement statement, long latency) {
+                throw new IllegalStateException("boom");
+            }
+        };
+
+        new RequestHandler(manager, future, statement).sendRequest();
+
+        try {
+            future.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(DriverInternalError.class);
+            RequestTrace trace = tracer.lastTrace();
+            assertThat(trace.getError()).isSameAs(e.getCause());
+            assertThat(trace.getAttempts().get(0).getError()).isNull();
+        }
+    }
+
+    private void primeQuery(int node, PrimingRequest.Then.ThenBuilder then) {
+        scassandras.node(node).primingClient().prime(PrimingRequest.queryBuilder()
+                .withQuery("mock query")
+                .withThen(then)
+                .build());
+    }
+
+    private static List<Map<String, ?>> row(String key, String value) {
+        return ImmutableList.<Map<String, ?>>of(ImmutableMap.of(key, value));
+    }
+
+    static class RecordingTracer extends SamplingRequestTracer {
+        final List<RequestTrace> traces = new CopyOnWriteArrayList<RequestTrace>();
+
+        RecordingTracer() {
+            super(1.0);
+        }
+
+        @Override
+        public void onTrace(RequestTrace trace) {
+            traces.add(trace);
+        }
+
+        RequestTrace lastTrace() {
+            // the trace is reported after the future completes, wait for it
+            check().that(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return !traces.isEmpty();
+                }
+            }).before(5, TimeUnit.SECONDS).becomesTrue();
+            return traces.get(traces.size() - 1);
+        }
+    }
+}
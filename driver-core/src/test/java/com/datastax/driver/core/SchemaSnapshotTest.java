@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static com.datastax.driver.core.ProtocolVersion.V4;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SchemaSnapshotTest {
+
+    private Cluster cluster;
+    private File dir;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        cluster = Cluster.builder().addContactPoint("127.0.0.1").build();
+        dir = Files.createTempDir();
+    }
+
+    @AfterMethod(groups = "unit", alwaysRun = true)
+    public void teardown() {
+        cluster.close();
+        for (File file : dir.listFiles())
+            file.delete();
+        dir.delete();
+    }
+
+    @Test(groups = "unit")
+    public void should_write_and_read_snapshot() throws Exception {
+        ColumnDefinitions metadata = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("system_schema", "keyspaces", "keyspace_name", DataType.text()),
+                new ColumnDefinitions.Definition("system_schema", "keyspaces", "durable_writes", DataType.cboolean()),
+                new ColumnDefinitions.Definition("system_schema", "keyspaces", "replication", DataType.frozenMap(DataType.text(), DataType.text()))
+        }, CodecRegistry.DEFAULT_INSTANCE);
+        Map<String, String> replication = ImmutableMap.of("class", "SimpleStrategy", "replication_factor", "1");
+        Row row = ArrayBackedRow.fromData(metadata, null, V4, Arrays.asList(
+                TypeCodec.varchar().serialize("ks", V4),
+                null,
+                TypeCodec.map(TypeCodec.varchar(), TypeCodec.varchar()).serialize(replication, V4)));
+        Map<String, List<Row>> rows = new HashMap<String, List<Row>>();
+        rows.put("keyspaces", Collections.singletonList(row));
+        rows.put("views", Collections.<Row>emptyList());
+        UUID schemaVersion = UUID.randomUUID();
+        File file = new File(dir, "schema.bin");
+
+        new SchemaSnapshot(schemaVersion, VersionNumber.parse("3.11.0"), V4, Collections.<String>emptySet(), rows).write(file);
+        SchemaSnapshot snapshot = SchemaSnapshot.read(file, cluster);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.schemaVersion).isEqualTo(schemaVersion);
+        assertThat(snapshot.cassandraVersion).isEqualTo(VersionNumber.parse("3.11.0"));
+        assertThat(snapshot.protocolVersion).isEqualTo(V4);
+        assertThat(snapshot.rows.get("views")).isEmpty();
+        assertThat(snapshot.rows.get("keyspaces")).hasSize(1);
+        Row actual = snapshot.rows.get("keyspaces").get(0);
+        assertThat(actual.getString("keyspace_name")).isEqualTo("ks");
+        assertThat(actual.isNull("durable_writes")).isTrue();
+        assertThat(actual.getMap("replication", String.class, String.class)).isEqualTo(replication);
+        assertThat(actual.getColumnDefinitions().getType("replication"))
+                .isEqualTo(DataType.frozenMap(DataType.text(), DataType.text()));
+        assertThat(new File(dir, "schema.bin.tmp")).doesNotExist();
+    }
+
+    @Test(groups = "unit")
+    public void should_ignore_missing_or_invalid_snapshot() throws Exception {
+        File file = new File(dir, "schema.bin");
+        assertThat(SchemaSnapshot.read(file, cluster)).isNull();
+
+        Files.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9}, file);
+        assertThat(SchemaSnapshot.read(file, cluster)).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_overwrite_existing_snapshot() throws Exception {
+        File file = new File(dir, "schema.bin");
+        Map<String, List<Row>> rows = Collections.emptyMap();
+        new SchemaSnapshot(UUID.randomUUID(), VersionNumber.parse("3.11.0"), V4, Collections.<String>emptySet(), rows).write(file);
+        UUID schemaVersion = UUID.randomUUID();
+        new SchemaSnapshot(schemaVersion, VersionNumber.parse("3.11.0"), V4, Collections.<String>emptySet(), rows).write(file);
+
+        assertThat(SchemaSnapshot.read(file, cluster).schemaVersion).isEqualTo(schemaVersion);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.StatementMetricsTracker.StatementMetrics;
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class StatementMetricsTrackerTest {
+
+    private final Host host = mock(Host.class);
+
+    @Test(groups = "unit")
+    public void should_track_each_statement_separately() {
+        StatementMetricsTracker tracker = StatementMetricsTracker.builder(1000).build();
+        Statement select = new SimpleStatement("SELECT * FROM ks.foo");
+        Statement insert = new SimpleStatement("INSERT INTO ks.foo (k) VALUES (1)");
+
+        tracker.update(host, select, null, MILLISECONDS.toNanos(10));
+        tracker.update(host, select, new RuntimeException(), MILLISECONDS.toNanos(20));
+        tracker.update(host, insert, null, MILLISECONDS.toNanos(5));
+
+        StatementMetrics selectMetrics = tracker.getStatementMetrics(select);
+        assertThat(selectMetrics.getQueryString()).isEqualTo("SELECT * FROM ks.foo");
+        assertThat(selectMetrics.getPreparedId()).isNull();
+        assertThat(selectMetrics.getCount()).isEqualTo(2);
+        assertThat(selectMetrics.getErrors()).isEqualTo(1);
+        assertThat(tracker.getStatementMetrics(insert).getCount()).isEqualTo(1);
+
+        List<StatementMetrics> all = tracker.getStatementMetrics();
+        assertThat(all).containsExactly(selectMetrics, tracker.getStatementMetrics(insert));
+    }
+
+    @Test(groups = "unit")
+    public void should_record_latencies_per_interval() {
+        StatementMetricsTracker tracker = StatementMetricsTracker.builder(1000).build();
+        Statement select = new SimpleStatement("SELECT * FROM ks.foo");
+        tracker.update(host, select, null, MILLISECONDS.toNanos(10));
+        tracker.update(host, select, null, MILLISECONDS.toNanos(30));
+
+        StatementMetrics metrics = tracker.getStatementMetrics(select);
+        Histogram histogram = metrics.getIntervalLatencies();
+        assertThat(histogram.getTotalCount()).isEqualTo(2);
+        assertThat(histogram.getMaxValue()).isBetween(29900L, 30100L);
+
+        assertThat(metrics.getIntervalLatencies().getTotalCount()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_evict_least_executed_statement_when_full() {
+        StatementMetricsTracker tracker = StatementMetricsTracker.builder(1000).withMaxStatements(2).build();
+        Statement frequent = new SimpleStatement("SELECT 1");
+        Statement rare = new SimpleStatement("SELECT 2");
+        Statement newcomer = new SimpleStatement("SELECT 3");
+        for (int i = 0; i < 10; i++)
+            tracker.update(host, frequent, null, 1000);
+        tracker.update(host, rare, null, 1000);
+
+        tracker.update(host, newcomer, null, 1000);
+
+        assertThat(tracker.getStatementMetrics(rare)).isNull();
+        StatementMetrics newcomerMetrics = tracker.getStatementMetrics(newcomer);
+        assertThat(newcomerMetrics.getCount()).isEqualTo(1);
+        assertThat(newcomerMetrics.getMaxOverestimation()).isEqualTo(1);
+        assertThat(tracker.getStatementMetrics(frequent).getCount()).isEqualTo(10);
+        assertThat(tracker.getStatementMetrics()).hasSize(2);
+    }
+
+    @Test(groups = "unit")
+    public void should_evict_statements_in_batches() {
+        StatementMetricsTracker tracker = StatementMetricsTracker.builder(1000).withMaxStatements(16).build();
+        for (int i = 0; i < 16; i++) {
+            Statement statement = new SimpleStatement("SELECT " + i);
+            for (int j = 0; j <= i; j++)
+                tracker.update(host, statement, null, 1000);
+        }
+        StatementMetrics leastExecuted = tracker.getStatementMetrics(new SimpleStatement("SELECT 0"));
+
+        tracker.update(host, new SimpleStatement("SELECT 16"), null, 1000);
+
+        // 16 / 8 = 2 statements are evicted in advance, in addition to the one that makes room for the newcomer
+        assertThat(tracker.getStatementMetrics()).hasSize(14);
+        assertThat(tracker.getStatementMetrics(new SimpleStatement("SELECT 0"))).isNull();
+        assertThat(tracker.getStatementMetrics(new SimpleStatement("SELECT 1"))).isNull();
+        assertThat(tracker.getStatementMetrics(new SimpleStatement("SELECT 2"))).isNull();
+        assertThat(tracker.getStatementMetrics(new SimpleStatement("SELECT 16")).getMaxOverestimation()).isEqualTo(3);
+        assertThat(leastExecuted.getIntervalLatencies().getTotalCount()).isEqualTo(0);
+
+        // no eviction until the limit is reached again
+        tracker.update(host, new SimpleStatement("SELECT 17"), null, 1000);
+        tracker.update(host, new SimpleStatement("SELECT 18"), null, 1000);
+        assertThat(tracker.getStatementMetrics()).hasSize(16);
+    }
+
+    @Test(groups = "unit")
+    public void should_read_response_reported_by_cluster() {
+        StatementMetricsTracker tracker = StatementMetricsTracker.builder(1000).build();
+        Statement insert = new SimpleStatement("INSERT INTO ks.foo (k) VALUES (1)");
+        Cluster cluster = Cluster.builder().addContactPoint("127.0.0.1").build();
+        try {
+            cluster.register(tracker);
+
+            cluster.manager.reportQuery(host, insert, null, 1000, new Responses.Result.Void().setSize(4));
+            tracker.update(host, insert, null, 1000);
+        } finally {
+            cluster.close();
+        }
+
+        StatementMetrics metrics = tracker.getStatementMetrics(insert);
+        assertThat(metrics.getCount()).isEqualTo(2);
+        assertThat(metrics.getResponseBytes()).isEqualTo(4);
+    }
+
+    @Test(groups = "unit")
+    public void should_record_response_sizes() {
+        StatementMetricsTracker tracker = StatementMetricsTracker.builder(1000).build();
+        Statement insert = new SimpleStatement("INSERT INTO ks.foo (k) VALUES (1)");
+
+        tracker.update(host, insert, null, 1000, new Responses.Result.Void().setSize(4));
+        tracker.update(host, insert, null, 1000, new Responses.Result.Void().setSize(4));
+
+        StatementMetrics metrics = tracker.getStatementMetrics(insert);
+        assertThat(metrics.getResponseBytes()).isEqualTo(8);
+        assertThat(metrics.getPages()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_ignore_batches() {
+        StatementMetricsTracker tracker = StatementMetricsTracker.builder(1000).build();
+        BatchStatement batch = new BatchStatement().add(new SimpleStatement("INSERT INTO ks.foo (k) VALUES (1)"));
+
+        tracker.update(host, batch, null, 1000);
+
+        assertThat(tracker.getStatementMetrics()).isEmpty();
+    }
+}
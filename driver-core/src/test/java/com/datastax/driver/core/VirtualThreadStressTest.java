@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.policies.ConcurrencyLimitingRequestThrottler;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.datastax.driver.core.Assertions.assertThat;
+
+/**
+ * Runs a very large number of concurrent synchronous callers, each on its own virtual thread.
+ * <p/>
+ * This requires JDK 21 or higher (the test is skipped otherwise). To check that the request path does not pin carrier
+ * threads, run it with {@code -Djdk.tracePinnedThreads=full}: no stack trace should be printed.
+ */
+@CCMConfig(numberOfNodes = 1)
+public class VirtualThreadStressTest extends CCMTestsSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadStressTest.class);
+
+    // Number of concurrent synchronous callers
+    private static final int CALLERS = 100000;
+
+    // The pool can't hold that many requests, let the throttler queue them
+    private static final int MAX_CONCURRENT_REQUESTS = 2048;
+
+    @Override
+    public Cluster.Builder createClusterBuilder() {
+        return Cluster.builder()
+                .withPoolingOptions(new PoolingOptions().setConnectionsPerHost(HostDistance.LOCAL, 2, 2))
+                .withRequestThrottler(new ConcurrencyLimitingRequestThrottler(MAX_CONCURRENT_REQUESTS, CALLERS));
+    }
+
+    @Override
+    public void onTestContextInitialized() {
+        execute("CREATE TABLE virtual_thread_stress (k int PRIMARY KEY, v int)");
+    }
+
+    /**
+     * Validates that {@code CALLERS} virtual threads can each execute a synchronous write followed by a synchronous
+     * read, with all requests in flight (or queued) at the same time.
+     *
+     * @test_category queries:async
+     * @expected_result all queries succeed.
+     */
+    @Test(groups = "stress")
+    public void should_handle_many_concurrent_synchronous_callers_on_virtual_threads() throws Exception {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        final PreparedStatement insert = session().prepare("INSERT INTO virtual_thread_stress (k, v) VALUES (?, ?)");
+        final PreparedStatement select = session().prepare("SELECT v FROM virtual_thread_stress WHERE k = ?");
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(CALLERS);
+        final AtomicInteger successes = new AtomicInteger();
+        final AtomicReference<Throwable> firstError = new AtomicReference<Throwable>();
+        try {
+            for (int i = 0; i < CALLERS; i++) {
+                final int k = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Uninterruptibles.awaitUninterruptibly(start);
+                            session().execute(insert.bind(k, k));
+                            Row row = session().execute(select.bind(k)).one();
+                            if (row != null && row.getInt("v") == k)
+                                successes.incrementAndGet();
+                        } catch (Throwable t) {
+                            firstError.compareAndSet(null, t);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            logger.info("{} synchronous callers completed {} reads and writes in {} ms",
+                    CALLERS, 2 * CALLERS, elapsedMillis);
+
+            if (firstError.get() != null)
+                throw new AssertionError("Caller failed", firstError.get());
+            assertThat(successes.get()).isEqualTo(CALLERS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // This code is compiled for older JDKs, so look up the JDK 21 API reflectively
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new SkipException("Virtual threads require JDK 21 or higher");
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -53,6 +53,8 @@ public class AbstractRetryPolicyIntegrationTest {
 
     protected RetryPolicy retryPolicy;
 
+    protected RetryBudget retryBudget = Policies.defaultRetryBudget();
+
     protected AbstractRetryPolicyIntegrationTest() {
     }
 
@@ -73,6 +75,7 @@ public class AbstractRetryPolicyIntegrationTest {
                 .addContactPoints(scassandras.address(1).getAddress())
                 .withPort(scassandras.getBinaryPort())
                 .withRetryPolicy(retryPolicy)
+                .withRetryBudget(retryBudget)
                 .withLoadBalancingPolicy(new SortingLoadBalancingPolicy())
                 .withPoolingOptions(new PoolingOptions()
                         .setCoreConnectionsPerHost(HostDistance.LOCAL, 1)
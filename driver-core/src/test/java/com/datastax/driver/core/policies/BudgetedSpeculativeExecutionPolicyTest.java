@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy.HedgingPlan;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy.SpeculativeExecutionPlan;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class BudgetedSpeculativeExecutionPolicyTest {
+
+    private final Statement statement = new SimpleStatement("SELECT * FROM foo");
+    private final Host host = mock(Host.class);
+
+    @Test(groups = "unit")
+    public void should_delegate_delays_to_child_policy() {
+        BudgetedSpeculativeExecutionPolicy policy = BudgetedSpeculativeExecutionPolicy
+                .builder(new ConstantSpeculativeExecutionPolicy(10, 2))
+                .build();
+
+        SpeculativeExecutionPlan plan = policy.newPlan(null, statement);
+
+        assertThat(plan).isInstanceOf(HedgingPlan.class);
+        assertThat(plan.nextExecution(host)).isEqualTo(10);
+        assertThat(plan.nextExecution(host)).isEqualTo(10);
+        assertThat(plan.nextExecution(host)).isEqualTo(-1);
+        assertThat(((HedgingPlan) plan).isLoadAware()).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_limit_speculative_executions_to_budget() {
+        BudgetedSpeculativeExecutionPolicy policy = BudgetedSpeculativeExecutionPolicy
+                .builder(new ConstantSpeculativeExecutionPolicy(10, 1))
+                .withBudget(0.25, 2)
+                .build();
+
+        // the initial burst
+        assertThat(((HedgingPlan) policy.newPlan(null, statement)).acquirePermit()).isTrue();
+        assertThat(((HedgingPlan) policy.newPlan(null, statement)).acquirePermit()).isTrue();
+        assertThat(((HedgingPlan) policy.newPlan(null, statement)).acquirePermit()).isFalse();
+
+        // then one in four requests
+        int permits = 0;
+        for (int i = 0; i < 100; i++) {
+            if (((HedgingPlan) policy.newPlan(null, statement)).acquirePermit())
+                permits += 1;
+        }
+        assertThat(permits).isEqualTo(25);
+    }
+
+    @Test(groups = "unit")
+    public void should_accumulate_small_budget_ratios() {
+        BudgetedSpeculativeExecutionPolicy policy = BudgetedSpeculativeExecutionPolicy
+                .builder(new ConstantSpeculativeExecutionPolicy(10, 1))
+                .withBudget(0.0001, 1)
+                .build();
+        assertThat(((HedgingPlan) policy.newPlan(null, statement)).acquirePermit()).isTrue();
+
+        int permits = 0;
+        for (int i = 0; i < 20000; i++) {
+            if (((HedgingPlan) policy.newPlan(null, statement)).acquirePermit())
+                permits += 1;
+        }
+        assertThat(permits).isEqualTo(2);
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_reject_budget_ratio_below_token_resolution() {
+        BudgetedSpeculativeExecutionPolicy.builder(new ConstantSpeculativeExecutionPolicy(10, 1))
+                .withBudget(BudgetedSpeculativeExecutionPolicy.Builder.MIN_BUDGET_RATIO / 2, 1);
+    }
+
+    @Test(groups = "unit")
+    public void should_cap_accumulated_tokens() {
+        BudgetedSpeculativeExecutionPolicy policy = BudgetedSpeculativeExecutionPolicy
+                .builder(new ConstantSpeculativeExecutionPolicy(10, 1))
+                .withBudget(0.5, 3)
+                .build();
+
+        for (int i = 0; i < 100; i++)
+            policy.newPlan(null, statement);
+
+        assertThat(policy.getAvailableTokens()).isEqualTo(3.0);
+    }
+
+    @Test(groups = "unit")
+    public void should_report_load_aware_host_selection() {
+        BudgetedSpeculativeExecutionPolicy policy = BudgetedSpeculativeExecutionPolicy
+                .builder(new ConstantSpeculativeExecutionPolicy(10, 1))
+                .withLoadAwareHostSelection(true)
+                .build();
+
+        assertThat(((HedgingPlan) policy.newPlan(null, statement)).isLoadAware()).isTrue();
+    }
+}
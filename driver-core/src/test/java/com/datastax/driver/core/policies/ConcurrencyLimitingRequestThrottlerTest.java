@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.RequestThrottlingException;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitingRequestThrottlerTest {
+
+    @Test(groups = "unit")
+    public void should_queue_requests_beyond_limit_and_reject_when_queue_full() {
+        ConcurrencyLimitingRequestThrottler throttler = new ConcurrencyLimitingRequestThrottler(2, 1);
+        MockRequest first = new MockRequest(), second = new MockRequest(), third = new MockRequest(), fourth = new MockRequest();
+
+        throttler.register(first);
+        throttler.register(second);
+        throttler.register(third);
+        throttler.register(fourth);
+
+        assertThat(first.state).isEqualTo("ready");
+        assertThat(second.state).isEqualTo("ready");
+        assertThat(third.state).isNull();
+        assertThat(fourth.state).isEqualTo("rejected");
+        assertThat(throttler.getConcurrentRequests()).isEqualTo(2);
+        assertThat(throttler.getQueueSize()).isEqualTo(1);
+        assertThat(throttler.getRejectedRequests()).isEqualTo(1);
+
+        throttler.signalSuccess(first);
+
+        assertThat(third.state).isEqualTo("delayed");
+        assertThat(throttler.getConcurrentRequests()).isEqualTo(2);
+        assertThat(throttler.getQueueSize()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_remove_cancelled_request_from_queue() {
+        ConcurrencyLimitingRequestThrottler throttler = new ConcurrencyLimitingRequestThrottler(1, 10);
+        MockRequest first = new MockRequest(), second = new MockRequest();
+        throttler.register(first);
+        throttler.register(second);
+
+        throttler.signalCancel(second);
+        assertThat(throttler.getQueueSize()).isEqualTo(0);
+        assertThat(throttler.getConcurrentRequests()).isEqualTo(1);
+
+        throttler.signalCancel(first);
+        assertThat(throttler.getConcurrentRequests()).isEqualTo(0);
+        assertThat(second.state).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_recurse_when_dequeued_requests_fail_synchronously() {
+        final ConcurrencyLimitingRequestThrottler throttler = new ConcurrencyLimitingRequestThrottler(1, 100000);
+        MockRequest first = new MockRequest();
+        throttler.register(first);
+        final List<MockRequest> failing = new ArrayList<MockRequest>();
+        for (int i = 0; i < 50000; i++) {
+            MockRequest request = new MockRequest() {
+                @Override
+                public void onThrottleReady(boolean wasDelayed) {
+                    super.onThrottleReady(wasDelayed);
+                    throttler.signalError(this, new RuntimeException());
+                }
+            };
+            failing.add(request);
+            throttler.register(request);
+        }
+
+        throttler.signalSuccess(first);
+
+        assertThat(throttler.getQueueSize()).isEqualTo(0);
+        assertThat(throttler.getConcurrentRequests()).isEqualTo(0);
+        assertThat(failing.get(failing.size() - 1).state).isEqualTo("delayed");
+    }
+
+    @Test(groups = "unit")
+    public void should_start_queued_requests_when_limit_increases() {
+        ConcurrencyLimitingRequestThrottler throttler = new ConcurrencyLimitingRequestThrottler(1, 10);
+        MockRequest first = new MockRequest(), second = new MockRequest();
+        throttler.register(first);
+        throttler.register(second);
+
+        throttler.setMaxConcurrentRequests(2);
+
+        assertThat(second.state).isEqualTo("delayed");
+    }
+
+    @Test(groups = "unit")
+    public void should_fail_queued_requests_on_close() {
+        ConcurrencyLimitingRequestThrottler throttler = new ConcurrencyLimitingRequestThrottler(1, 10);
+        MockRequest first = new MockRequest(), second = new MockRequest(), third = new MockRequest();
+        throttler.register(first);
+        throttler.register(second);
+
+        throttler.close();
+        throttler.register(third);
+
+        assertThat(second.state).isEqualTo("rejected");
+        assertThat(third.state).isEqualTo("rejected");
+    }
+
+    @Test(groups = "unit")
+    public void should_decrease_adaptive_limit_when_latency_increases() {
+        AdaptiveConcurrencyLimitingRequestThrottler throttler = AdaptiveConcurrencyLimitingRequestThrottler.builder()
+                .withLimits(100, 10, 1000)
+                .withWindowSize(10)
+                .build();
+
+        for (int i = 0; i < 100; i++)
+            throttler.onSample(null, MILLISECONDS.toNanos(10));
+        int stableLimit = throttler.getMaxConcurrentRequests();
+        // no request was in flight, so the limit could not grow
+        assertThat(stableLimit).isEqualTo(100);
+
+        for (int i = 0; i < 100; i++)
+            throttler.onSample(null, MILLISECONDS.toNanos(50));
+        assertThat(throttler.getMaxConcurrentRequests()).isLessThan(stableLimit);
+    }
+
+    @Test(groups = "unit")
+    public void should_back_off_adaptive_limit_on_timeouts() {
+        AdaptiveConcurrencyLimitingRequestThrottler throttler = AdaptiveConcurrencyLimitingRequestThrottler.builder()
+                .withLimits(100, 10, 1000)
+                .withWindowSize(10)
+                .withBackoffRatio(0.5)
+                .build();
+
+        for (int i = 0; i < 9; i++)
+            throttler.onSample(null, MILLISECONDS.toNanos(10));
+        // unrelated errors are ignored
+        throttler.onSample(new IllegalStateException(), MILLISECONDS.toNanos(10));
+        assertThat(throttler.getMaxConcurrentRequests()).isEqualTo(100);
+
+        throttler.onSample(new OperationTimedOutException(null), MILLISECONDS.toNanos(10));
+        assertThat(throttler.getMaxConcurrentRequests()).isEqualTo(50);
+
+        for (int i = 0; i < 100; i++)
+            throttler.onSample(new OperationTimedOutException(null), MILLISECONDS.toNanos(10));
+        assertThat(throttler.getMaxConcurrentRequests()).isEqualTo(10);
+    }
+
+    @Test(groups = "unit")
+    public void should_apply_adaptive_limits_in_order() throws InterruptedException {
+        final AdaptiveConcurrencyLimitingRequestThrottler throttler = AdaptiveConcurrencyLimitingRequestThrottler.builder()
+                .withLimits(1000, 10, 1000)
+                .withWindowSize(1)
+                .withBackoffRatio(0.99)
+                .build();
+
+        // every sample closes a window and lowers the limit, until it reaches the minimum
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++)
+                        throttler.onSample(new OperationTimedOutException(null), MILLISECONDS.toNanos(10));
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        // a stale limit computed by an earlier window must not have overwritten the last one
+        assertThat(throttler.getMaxConcurrentRequests()).isEqualTo(10);
+    }
+
+    static class MockRequest implements RequestThrottler.Throttled {
+        volatile String state;
+
+        @Override
+        public void onThrottleReady(boolean wasDelayed) {
+            state = wasDelayed ? "delayed" : "ready";
+        }
+
+        @Override
+        public void onThrottleFailure(RequestThrottlingException error) {
+            state = "rejected";
+        }
+    }
+}
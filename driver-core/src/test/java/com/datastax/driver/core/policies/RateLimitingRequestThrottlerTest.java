@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.policies.ConcurrencyLimitingRequestThrottlerTest.MockRequest;
+import com.google.common.base.Predicate;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.datastax.driver.core.ConditionChecker.check;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RateLimitingRequestThrottlerTest {
+
+    @Test(groups = "unit")
+    public void should_delay_requests_beyond_rate() {
+        Cluster cluster = mock(Cluster.class);
+        when(cluster.getClusterName()).thenReturn("test");
+        RateLimitingRequestThrottler throttler = new RateLimitingRequestThrottler(10, 2, 10);
+        throttler.init(cluster);
+        try {
+            MockRequest[] burst = new MockRequest[10];
+            for (int i = 0; i < burst.length; i++) {
+                burst[i] = new MockRequest();
+                throttler.register(burst[i]);
+                assertThat(burst[i].state).isEqualTo("ready");
+            }
+
+            MockRequest delayed = new MockRequest();
+            MockRequest queued = new MockRequest();
+            MockRequest rejected = new MockRequest();
+            throttler.register(delayed);
+            throttler.register(queued);
+            throttler.register(rejected);
+            assertThat(delayed.state).isNull();
+            assertThat(rejected.state).isEqualTo("rejected");
+            assertThat(throttler.getRejectedRequests()).isEqualTo(1);
+
+            // at 10 requests per second, a permit is available every 100 ms
+            check().that(delayed, isDelayed()).before(5, TimeUnit.SECONDS).becomesTrue();
+            check().that(queued, isDelayed()).before(5, TimeUnit.SECONDS).becomesTrue();
+            assertThat(throttler.getQueueSize()).isEqualTo(0);
+        } finally {
+            throttler.close();
+        }
+    }
+
+    private static Predicate<MockRequest> isDelayed() {
+        return new Predicate<MockRequest>() {
+            @Override
+            public boolean apply(MockRequest request) {
+                return "delayed".equals(request.state);
+            }
+        };
+    }
+}
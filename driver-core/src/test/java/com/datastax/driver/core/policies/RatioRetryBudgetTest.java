@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class RatioRetryBudgetTest {
+    @Mock
+    Clock clock;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test(groups = "unit")
+    public void should_allow_retries_up_to_ratio() {
+        RatioRetryBudget budget = new RatioRetryBudget(0.1, 0, 0, 0, clock);
+        for (int i = 0; i < 100; i++)
+            budget.onRequest();
+
+        for (int i = 0; i < 10; i++)
+            assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isFalse();
+
+        for (int i = 0; i < 10; i++)
+            budget.onRequest();
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_allow_min_retries_every_second_without_traffic() {
+        RatioRetryBudget budget = new RatioRetryBudget(0.1, 2, 0, 0, clock);
+
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isFalse();
+
+        setTime(1500, TimeUnit.MILLISECONDS);
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isFalse();
+
+        // unused retries don't carry over
+        setTime(10, TimeUnit.SECONDS);
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_count_min_retries_against_ratio() {
+        RatioRetryBudget budget = new RatioRetryBudget(0.1, 1, 0, 0, clock);
+        assertThat(budget.acquireRetry()).isTrue();
+
+        for (int i = 0; i < 10; i++)
+            budget.onRequest();
+
+        // the retry allowed by the ratio is still available
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_replenish_when_window_slides() {
+        RatioRetryBudget budget = new RatioRetryBudget(0.5, 0, 0, 0, clock);
+        budget.onRequest();
+        budget.onRequest();
+        assertThat(budget.acquireRetry()).isTrue();
+        assertThat(budget.acquireRetry()).isFalse();
+
+        // both requests and retries expire at the same time
+        setTime(70, TimeUnit.SECONDS);
+        budget.onRequest();
+        budget.onRequest();
+        assertThat(budget.acquireRetry()).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_delay_retries_without_backoff() {
+        RatioRetryBudget budget = RatioRetryBudget.builder(0.1).build();
+
+        assertThat(budget.getRetryDelayMillis(0)).isEqualTo(0);
+        assertThat(budget.getRetryDelayMillis(5)).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_compute_backoff_with_jitter() {
+        RatioRetryBudget budget = RatioRetryBudget.builder(0.1)
+                .withBackoff(10, 100, TimeUnit.MILLISECONDS)
+                .build();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(budget.getRetryDelayMillis(0)).isBetween(0L, 10L);
+            assertThat(budget.getRetryDelayMillis(2)).isBetween(0L, 40L);
+            assertThat(budget.getRetryDelayMillis(10)).isBetween(0L, 100L);
+            assertThat(budget.getRetryDelayMillis(Integer.MAX_VALUE)).isBetween(0L, 100L);
+        }
+    }
+
+    private void setTime(long time, TimeUnit unit) {
+        when(clock.nanoTime()).thenReturn(TimeUnit.NANOSECONDS.convert(time, unit));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.scassandra.http.client.Result.unavailable;
+
+public class RetryBudgetIntegrationTest extends AbstractRetryPolicyIntegrationTest {
+
+    public RetryBudgetIntegrationTest() {
+        super(DefaultRetryPolicy.INSTANCE);
+        retryBudget = new DenyingRetryBudget();
+    }
+
+    @Test(groups = "short")
+    public void should_not_count_retry_denied_by_budget() {
+        simulateError(1, unavailable);
+        simulateNormalResponse(2);
+
+        try {
+            query();
+            fail("expected an UnavailableException");
+        } catch (UnavailableException e) {/*expected*/}
+
+        assertOnUnavailableWasCalled(1);
+        assertThat(errors.getUnavailables().getCount()).isEqualTo(1);
+        assertThat(errors.getRetriesDenied().getCount()).isEqualTo(1);
+        assertThat(errors.getRetries().getCount()).isEqualTo(0);
+        assertThat(errors.getRetriesOnUnavailable().getCount()).isEqualTo(0);
+        assertQueried(1, 1);
+        assertQueried(2, 0);
+        assertQueried(3, 0);
+    }
+
+    private static class DenyingRetryBudget implements RetryBudget {
+
+        @Override
+        public void init(Cluster cluster) {
+        }
+
+        @Override
+        public void onRequest() {
+        }
+
+        @Override
+        public boolean acquireRetry() {
+            return false;
+        }
+
+        @Override
+        public long getRetryDelayMillis(int retryCount) {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -67,6 +67,35 @@ public class PointTest {
         assertThat(Point.fromWellKnownBinary(bb)).isEqualTo(point);
     }
 
+    @Test(groups = "unit")
+    public void should_load_from_big_endian_well_know_binary() {
+        ByteBuffer bb = ByteBuffer.allocate(21).order(ByteOrder.BIG_ENDIAN);
+        bb.put((byte) 0).putInt(1).putDouble(1.1).putDouble(2.2);
+        bb.flip();
+
+        Point actual = Point.fromWellKnownBinary(bb);
+        assertThat(actual.X()).isEqualTo(1.1);
+        assertThat(actual.Y()).isEqualTo(2.2);
+        assertThat(actual).isEqualTo(point);
+        assertThat(bb.position()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_produce_same_well_known_binary_as_ogc_geometry() {
+        Point ogcBacked = Point.fromWellKnownText(wkt);
+        assertThat(point.asWellKnownBinary()).isEqualTo(WkbUtil.asLittleEndianBinary(ogcBacked.getOgcGeometry()));
+        assertThat(point.hashCode()).isEqualTo(ogcBacked.hashCode());
+        assertThat(ogcBacked).isEqualTo(point);
+    }
+
+    @Test(groups = "unit")
+    public void should_build_ogc_geometry_lazily() {
+        Point lazy = new Point(3.3, 4.4);
+        assertThat(lazy.contains(new Point(3.3, 4.4))).isTrue();
+        assertThat(lazy.asWellKnownText()).isEqualTo("POINT (3.3 4.4)");
+        assertThat(lazy.asGeoJson()).isEqualTo("{\"type\":\"Point\",\"coordinates\":[3.3,4.4]}");
+    }
+
     @Test(groups = "unit")
     public void should_parse_valid_geo_json() {
         assertThat(Point.fromGeoJson(json)).isEqualTo(point);
@@ -115,6 +144,22 @@ public class PointTest {
         assertThat(point.getOgcGeometry().isEmpty()).isTrue();
     }
 
+    @Test(groups = "unit")
+    public void should_reject_non_finite_coordinates() {
+        double[][] invalid = {
+                {Double.NaN, 1}, {1, Double.NaN},
+                {Double.POSITIVE_INFINITY, 1}, {1, Double.NEGATIVE_INFINITY}
+        };
+        for (double[] coordinates : invalid) {
+            try {
+                new Point(coordinates[0], coordinates[1]);
+                fail("Should have thrown InvalidTypeException");
+            } catch (InvalidTypeException e) {
+                // expected
+            }
+        }
+    }
+
     private void assertInvalidWkt(String s) {
         try {
             Point.fromWellKnownText(s);
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.extras.codecs.arrays;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.utils.Bytes;
+
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Base class for codecs that map the CQL type {@code blob} to a Java primitive array, the blob
+ * containing the elements of the array packed one after the other, in big-endian order and
+ * without any size prefix.
+ * <p/>
+ * Compared to codecs that map a CQL {@code list} (see {@link AbstractPrimitiveArrayCodec}), this
+ * format takes less space and allows serializing and deserializing the whole array at once,
+ * through a typed view of the buffer (such as {@link java.nio.FloatBuffer}). It is well suited for
+ * large numerical vectors, such as embeddings or time series, that are always read and written as
+ * a whole.
+ *
+ * @param <T> The Java primitive array type this codec handles
+ */
+public abstract class AbstractPackedArrayCodec<T> extends TypeCodec<T> {
+
+    /**
+     * @param javaClass The Java type. Must be an array class with a primitive component type.
+     */
+    public AbstractPackedArrayCodec(Class<T> javaClass) {
+        super(DataType.blob(), javaClass);
+        checkArgument(javaClass.isArray() && javaClass.getComponentType().isPrimitive(),
+                "Expecting primitive array type, got %s", javaClass);
+    }
+
+    @Override
+    public ByteBuffer serialize(T array, ProtocolVersion protocolVersion) throws InvalidTypeException {
+        if (array == null)
+            return null;
+        ByteBuffer output = ByteBuffer.allocate(length(array) * sizeOfComponentType());
+        // writing through a view does not change the position of output
+        put(output, array);
+        return output;
+    }
+
+    @Override
+    public T deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) throws InvalidTypeException {
+        if (bytes == null || bytes.remaining() == 0)
+            return newInstance(0);
+        if (bytes.remaining() % sizeOfComponentType() != 0)
+            throw new InvalidTypeException(String.format("Invalid packed array: %d bytes is not a multiple of the element size (%d)",
+                    bytes.remaining(), sizeOfComponentType()));
+        T array = newInstance(bytes.remaining() / sizeOfComponentType());
+        // duplicate() resets the byte order to big-endian
+        get(bytes.duplicate(), array);
+        return array;
+    }
+
+    @Override
+    public String format(T array) throws InvalidTypeException {
+        if (array == null)
+            return "NULL";
+        return Bytes.toHexString(serialize(array, ProtocolVersion.NEWEST_SUPPORTED));
+    }
+
+    @Override
+    public T parse(String value) throws InvalidTypeException {
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("NULL"))
+            return null;
+        ByteBuffer bytes;
+        try {
+            bytes = Bytes.fromHexString(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTypeException(String.format("Cannot parse blob value from \"%s\"", value), e);
+        }
+        return deserialize(bytes, ProtocolVersion.NEWEST_SUPPORTED);
+    }
+
+    /**
+     * Return the size in bytes of the array component type.
+     *
+     * @return the size in bytes of the array component type.
+     */
+    protected abstract int sizeOfComponentType();
+
+    /**
+     * Return the length of the given array.
+     *
+     * @param array The array.
+     * @return the length of the array.
+     */
+    protected abstract int length(T array);
+
+    /**
+     * Create a new array instance with the given size.
+     *
+     * @param size The size of the array to instantiate.
+     * @return a new array instance with the given size.
+     */
+    protected abstract T newInstance(int size);
+
+    /**
+     * Write all the elements of {@code array} to {@code output}, starting at its current position.
+     * {@code output} has exactly enough remaining bytes for the whole array.
+     *
+     * @param output The ByteBuffer to write to.
+     * @param array  The array to read from.
+     */
+    protected abstract void put(ByteBuffer output, T array);
+
+    /**
+     * Read all the elements of {@code array} from {@code input}, starting at its current position.
+     * {@code input} has exactly enough remaining bytes to fill the whole array.
+     *
+     * @param input The ByteBuffer to read from.
+     * @param array The array to write to.
+     */
+    protected abstract void get(ByteBuffer input, T array);
+}
@@ -58,9 +58,19 @@ public abstract class AbstractPrimitiveArrayCodec<T> extends AbstractArrayCodec<
         int totalSize = sizeOfSize + length * sizeOfElement;
         ByteBuffer output = ByteBuffer.allocate(totalSize);
         CodecUtils.writeSize(output, length, protocolVersion);
-        for (int i = 0; i < length; i++) {
-            CodecUtils.writeSize(output, sizeOfComponentType(), protocolVersion);
-            serializeElement(output, array, i, protocolVersion);
+        // All elements have the same size: write it directly rather than going through
+        // CodecUtils.writeSize, which checks the protocol version for each element
+        int sizeOfComponentType = sizeOfComponentType();
+        if (isProtocolV3OrAbove) {
+            for (int i = 0; i < length; i++) {
+                output.putInt(sizeOfComponentType);
+                serializeElement(output, array, i, protocolVersion);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                output.putShort((short) sizeOfComponentType);
+                serializeElement(output, array, i, protocolVersion);
+            }
         }
         output.flip();
         return output;
@@ -74,9 +84,14 @@ public abstract class AbstractPrimitiveArrayCodec<T> extends AbstractArrayCodec<
         int sizeOfSize = isProtocolV3OrAbove ? 4 : 2;
         ByteBuffer input = bytes.duplicate();
         int size = CodecUtils.readSize(input, protocolVersion);
+        // Check the total size upfront, so that the loop below can skip the size of each element
+        // (it is always the size of the component type)
+        int sizeOfElement = sizeOfSize + sizeOfComponentType();
+        if (size < 0 || (long) size * sizeOfElement != input.remaining())
+            throw new InvalidTypeException(String.format("Invalid %s serialized value: expected %d elements of %d bytes, but got %d bytes",
+                    getCqlType(), size, sizeOfComponentType(), input.remaining()));
         T array = newInstance(size);
         for (int i = 0; i < size; i++) {
-            // Skip size (we know it will always be 4 since the elements are ints)
             input.position(input.position() + sizeOfSize);
             deserializeElement(input, array, i, protocolVersion);
         }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.extras.codecs.arrays;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A codec that maps the CQL type {@code blob} to the Java type {@code double[]}, the blob containing
+ * the elements of the array as packed 8-byte big-endian values.
+ * <p/>
+ * The whole array is copied at once through a {@link java.nio.DoubleBuffer DoubleBuffer} view,
+ * without any per-element overhead; see {@link AbstractPackedArrayCodec}.
+ * <p/>
+ * This is a compact alternative to {@link DoubleArrayCodec}.
+ */
+public class PackedDoubleArrayCodec extends AbstractPackedArrayCodec<double[]> {
+
+    public static final PackedDoubleArrayCodec instance = new PackedDoubleArrayCodec();
+
+    public PackedDoubleArrayCodec() {
+        super(double[].class);
+    }
+
+    @Override
+    protected int sizeOfComponentType() {
+        return 8;
+    }
+
+    @Override
+    protected int length(double[] array) {
+        return array.length;
+    }
+
+    @Override
+    protected double[] newInstance(int size) {
+        return new double[size];
+    }
+
+    @Override
+    protected void put(ByteBuffer output, double[] array) {
+        output.asDoubleBuffer().put(array);
+    }
+
+    @Override
+    protected void get(ByteBuffer input, double[] array) {
+        input.asDoubleBuffer().get(array);
+    }
+}
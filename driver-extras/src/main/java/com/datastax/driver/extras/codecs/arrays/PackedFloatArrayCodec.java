@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.extras.codecs.arrays;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A codec that maps the CQL type {@code blob} to the Java type {@code float[]}, the blob containing
+ * the elements of the array as packed 4-byte big-endian values.
+ * <p/>
+ * The whole array is copied at once through a {@link java.nio.FloatBuffer FloatBuffer} view,
+ * without any per-element overhead; see {@link AbstractPackedArrayCodec}.
+ * <p/>
+ * This is a compact alternative to {@link FloatArrayCodec} for storing vectors such as ML
+ * embeddings.
+ */
+public class PackedFloatArrayCodec extends AbstractPackedArrayCodec<float[]> {
+
+    public static final PackedFloatArrayCodec instance = new PackedFloatArrayCodec();
+
+    public PackedFloatArrayCodec() {
+        super(float[].class);
+    }
+
+    @Override
+    protected int sizeOfComponentType() {
+        return 4;
+    }
+
+    @Override
+    protected int length(float[] array) {
+        return array.length;
+    }
+
+    @Override
+    protected float[] newInstance(int size) {
+        return new float[size];
+    }
+
+    @Override
+    protected void put(ByteBuffer output, float[] array) {
+        output.asFloatBuffer().put(array);
+    }
+
+    @Override
+    protected void get(ByteBuffer input, float[] array) {
+        input.asFloatBuffer().get(array);
+    }
+}
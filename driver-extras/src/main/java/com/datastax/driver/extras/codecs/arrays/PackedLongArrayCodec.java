@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.extras.codecs.arrays;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A codec that maps the CQL type {@code blob} to the Java type {@code long[]}, the blob containing
+ * the elements of the array as packed 8-byte big-endian values.
+ * <p/>
+ * The whole array is copied at once through a {@link java.nio.LongBuffer LongBuffer} view,
+ * without any per-element overhead; see {@link AbstractPackedArrayCodec}.
+ * <p/>
+ * This is a compact alternative to {@link LongArrayCodec} for storing time series.
+ */
+public class PackedLongArrayCodec extends AbstractPackedArrayCodec<long[]> {
+
+    public static final PackedLongArrayCodec instance = new PackedLongArrayCodec();
+
+    public PackedLongArrayCodec() {
+        super(long[].class);
+    }
+
+    @Override
+    protected int sizeOfComponentType() {
+        return 8;
+    }
+
+    @Override
+    protected int length(long[] array) {
+        return array.length;
+    }
+
+    @Override
+    protected long[] newInstance(int size) {
+        return new long[size];
+    }
+
+    @Override
+    protected void put(ByteBuffer output, long[] array) {
+        output.asLongBuffer().put(array);
+    }
+
+    @Override
+    protected void get(ByteBuffer input, long[] array) {
+        input.asLongBuffer().get(array);
+    }
+}
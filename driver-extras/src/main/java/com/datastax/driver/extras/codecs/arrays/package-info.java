@@ -7,6 +7,7 @@
 /**
  * This package contains a collection of convenience
  * {@link com.datastax.driver.core.TypeCodec TypeCodec} instances useful for
- * serializing between CQL lists and Java arrays.
+ * serializing between CQL lists and Java arrays, or between CQL blobs and packed
+ * Java primitive arrays.
  */
 package com.datastax.driver.extras.codecs.arrays;
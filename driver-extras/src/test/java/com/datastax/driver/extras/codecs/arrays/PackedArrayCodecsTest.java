@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.extras.codecs.arrays;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.utils.Bytes;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.datastax.driver.core.ProtocolVersion.V2;
+import static com.datastax.driver.core.ProtocolVersion.V4;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackedArrayCodecsTest {
+
+    @DataProvider(name = "PackedArrayCodecsTest")
+    public static Object[][] parameters() {
+        return new Object[][]{
+                {PackedFloatArrayCodec.instance, new float[]{1.5f, -2, Float.NaN}, "0x3fc00000c00000007fc00000"},
+                {PackedDoubleArrayCodec.instance, new double[]{1.5, -2}, "0x3ff8000000000000c000000000000000"},
+                {PackedLongArrayCodec.instance, new long[]{1, Long.MIN_VALUE}, "0x00000000000000018000000000000000"}
+        };
+    }
+
+    @Test(groups = "unit", dataProvider = "PackedArrayCodecsTest")
+    public <T> void should_serialize_and_deserialize(TypeCodec<T> codec, T array, String hex) {
+        assertThat(codec.getCqlType()).isEqualTo(DataType.blob());
+        ByteBuffer bytes = codec.serialize(array, V4);
+        assertThat(Bytes.toHexString(bytes)).isEqualTo(hex);
+        assertThat(codec.deserialize(bytes, V4)).isEqualTo(array);
+        // the input buffer must not be consumed
+        assertThat(bytes.position()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit", dataProvider = "PackedArrayCodecsTest")
+    public <T> void should_format_and_parse(TypeCodec<T> codec, T array, String hex) {
+        assertThat(codec.format(array)).isEqualTo(hex);
+        assertThat(codec.parse(hex)).isEqualTo(array);
+        assertThat(codec.format(null)).isEqualTo("NULL");
+        assertThat(codec.parse("NULL")).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_deserialize_from_buffer_with_offset() {
+        ByteBuffer bytes = ByteBuffer.allocate(12);
+        bytes.putInt(42).putFloat(1).putFloat(2);
+        bytes.position(4);
+        assertThat(PackedFloatArrayCodec.instance.deserialize(bytes, V4)).containsExactly(1, 2);
+    }
+
+    @Test(groups = "unit")
+    public void should_deserialize_null_and_empty_as_empty_array() {
+        assertThat(PackedLongArrayCodec.instance.deserialize(null, V4)).isEmpty();
+        assertThat(PackedLongArrayCodec.instance.deserialize(ByteBuffer.allocate(0), V4)).isEmpty();
+        assertThat(PackedLongArrayCodec.instance.serialize(null, V4)).isNull();
+    }
+
+    @Test(groups = "unit", expectedExceptions = InvalidTypeException.class)
+    public void should_reject_truncated_value() {
+        PackedDoubleArrayCodec.instance.deserialize(ByteBuffer.allocate(12), V4);
+    }
+
+    @Test(groups = "unit")
+    public void should_round_trip_list_codecs() {
+        float[] floats = new float[768];
+        for (int i = 0; i < floats.length; i++)
+            floats[i] = i / 3f;
+        assertThat(FloatArrayCodec.instance.deserialize(FloatArrayCodec.instance.serialize(floats, V4), V4)).isEqualTo(floats);
+        assertThat(FloatArrayCodec.instance.deserialize(FloatArrayCodec.instance.serialize(floats, V2), V2)).isEqualTo(floats);
+        long[] longs = new long[]{1, 2, Long.MAX_VALUE};
+        assertThat(LongArrayCodec.instance.deserialize(LongArrayCodec.instance.serialize(longs, V4), V4)).isEqualTo(longs);
+    }
+
+    @Test(groups = "unit", expectedExceptions = InvalidTypeException.class)
+    public void should_reject_list_with_wrong_size() {
+        ByteBuffer bytes = IntArrayCodec.instance.serialize(new int[]{1, 2}, V4);
+        bytes.limit(bytes.limit() - 1);
+        IntArrayCodec.instance.deserialize(bytes, V4);
+    }
+}
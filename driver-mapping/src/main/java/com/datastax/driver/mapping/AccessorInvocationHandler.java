@@ -42,6 +42,13 @@ class AccessorInvocationHandler<T> implements InvocationHandler {
 
     @Override
     public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+        if (m.getDeclaringClass() != Object.class) {
+            MethodMapper method = methodMap.get(m);
+            if (method == null)
+                throw new UnsupportedOperationException();
+            return method.invoke(args == null ? NO_ARGS : args);
+        }
+
         if (m.equals(TO_STRING))
             return mapper.daoClass.getSimpleName() + " implementation generated by the Cassandra driver mapper";
 
@@ -53,10 +60,7 @@ class AccessorInvocationHandler<T> implements InvocationHandler {
         if (m.equals(HASH_CODE))
             return System.identityHashCode(proxy);
 
-        MethodMapper method = methodMap.get(m);
-        if (method == null)
-            throw new UnsupportedOperationException();
-        return method.invoke(args == null ? NO_ARGS : args);
+        throw new UnsupportedOperationException();
     }
 }
 
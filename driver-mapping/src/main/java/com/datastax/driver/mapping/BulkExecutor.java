@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes an asynchronous operation for each element of an iterator, with at most a given number
+ * of operations in flight.
+ * <p/>
+ * The iterator is consumed lazily: a new element is only pulled when a previous operation
+ * completes, so that the caller's source is never read faster than the cluster can absorb it.
+ * Elements are pulled from the thread that completed the previous operation, which is usually
+ * an I/O thread, so the iterator should not block.
+ * <p/>
+ * The first failure fails the whole execution; no new operations are started after that, but those
+ * already in flight are not cancelled.
+ *
+ * @param <E> the type of the input elements.
+ * @param <R> the type of the results.
+ */
+abstract class BulkExecutor<E, R> {
+
+    private final Iterator<? extends E> inputs;
+    private final int maxInFlight;
+    private final List<R> results;
+    private final SettableFuture<List<R>> future = SettableFuture.create();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // guards the iterator, see drain()
+    private final AtomicInteger wip = new AtomicInteger();
+    // only accessed from drain()
+    private int submitted;
+    private volatile boolean exhausted;
+
+    /**
+     * @param inputs         the elements to process.
+     * @param maxInFlight    the maximum number of concurrent operations.
+     * @param collectResults whether to collect the results (in the order of the inputs); if
+     *                       {@code false}, the returned list is always empty.
+     */
+    BulkExecutor(Iterator<? extends E> inputs, int maxInFlight, boolean collectResults) {
+        this.inputs = inputs;
+        this.maxInFlight = maxInFlight;
+        this.results = collectResults ? new ArrayList<R>() : null;
+    }
+
+    /**
+     * Starts the operation for an element.
+     */
+    abstract ListenableFuture<R> submit(E input);
+
+    /**
+     * Starts processing the elements.
+     *
+     * @return a future that completes when all operations have completed.
+     */
+    ListenableFuture<List<R>> start() {
+        drain();
+        return future;
+    }
+
+    private void drain() {
+        // Only one thread at a time pulls from the iterator; if another thread is already draining,
+        // it will loop once more on our behalf. This also prevents unbounded recursion when
+        // operations complete immediately.
+        if (wip.getAndIncrement() != 0)
+            return;
+        do {
+            while (!exhausted && !future.isDone() && inFlight.get() < maxInFlight) {
+                E input;
+                try {
+                    if (!inputs.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    input = inputs.next();
+                } catch (RuntimeException e) {
+                    future.setException(e);
+                    break;
+                }
+                final int index = submitted++;
+                if (results != null) {
+                    synchronized (results) {
+                        results.add(null);
+                    }
+                }
+                inFlight.incrementAndGet();
+                ListenableFuture<R> operation;
+                try {
+                    operation = submit(input);
+                } catch (RuntimeException e) {
+                    operation = Futures.immediateFailedFuture(e);
+                }
+                Futures.addCallback(operation, new FutureCallback<R>() {
+                    @Override
+                    public void onSuccess(R result) {
+                        if (results != null) {
+                            synchronized (results) {
+                                results.set(index, result);
+                            }
+                        }
+                        inFlight.decrementAndGet();
+                        drain();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        future.setException(t);
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+            if (exhausted && inFlight.get() == 0) {
+                if (results == null) {
+                    future.set(new ArrayList<R>(0));
+                } else {
+                    synchronized (results) {
+                        future.set(results);
+                    }
+                }
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+}
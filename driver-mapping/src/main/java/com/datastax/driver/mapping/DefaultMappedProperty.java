@@ -23,7 +23,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 class DefaultMappedProperty<T> implements MappedProperty<T> {
 
-    static <T> DefaultMappedProperty<T> create(Class<?> mappedClass, String propertyName, String mappedName, Field field, Method getter, Method setter, Map<Class<? extends Annotation>, Annotation> annotations) {
+    static <T> DefaultMappedProperty<T> create(Class<?> mappedClass, String propertyName, String mappedName, Field field, Method getter, Method setter, Map<Class<? extends Annotation>, Annotation> annotations, PropertyInvocationStrategy invocationStrategy) {
         @SuppressWarnings("unchecked")
         TypeToken<T> propertyType = (TypeToken<T>) inferType(field, getter);
         boolean partitionKey = annotations.containsKey(PartitionKey.class);
@@ -34,8 +34,8 @@ class DefaultMappedProperty<T> implements MappedProperty<T> {
         Class<? extends TypeCodec<T>> codecClass = (Class<? extends TypeCodec<T>>) getCustomCodecClass(annotations);
         return new DefaultMappedProperty<T>(
                 mappedClass, propertyName, mappedName, propertyType,
-                partitionKey, clusteringColumn, computed, position, codecClass, field, getter, setter);
-
+                partitionKey, clusteringColumn, computed, position, codecClass,
+                PropertyAccessor.create(invocationStrategy, field, getter, setter));
     }
 
     private final Class<?> mappedClass;
@@ -47,14 +47,12 @@ class DefaultMappedProperty<T> implements MappedProperty<T> {
     private final boolean computed;
     private final int position;
     private final TypeCodec<T> customCodec;
-    private final Field field;
-    private final Method getter;
-    private final Method setter;
+    private final PropertyAccessor accessor;
 
     private DefaultMappedProperty(
             Class<?> mappedClass, String propertyName, String mappedName, TypeToken<T> propertyType,
             boolean partitionKey, boolean clusteringColumn, boolean computed, int position,
-            Class<? extends TypeCodec<T>> codecClass, Field field, Method getter, Method setter) {
+            Class<? extends TypeCodec<T>> codecClass, PropertyAccessor accessor) {
         checkArgument(propertyName != null && !propertyName.isEmpty());
         checkArgument(mappedName != null && !mappedName.isEmpty());
         checkNotNull(propertyType);
@@ -67,9 +65,7 @@ class DefaultMappedProperty<T> implements MappedProperty<T> {
         this.computed = computed;
         this.position = position;
         this.customCodec = codecClass == null || codecClass.equals(Defaults.NoCodec.class) ? null : ReflectionUtils.newInstance(codecClass);
-        this.field = field;
-        this.getter = getter;
-        this.setter = setter;
+        this.accessor = accessor;
     }
 
     @Override
@@ -116,11 +112,7 @@ class DefaultMappedProperty<T> implements MappedProperty<T> {
     @Override
     public T getValue(Object entity) {
         try {
-            // try getter first, if available, otherwise direct field access
-            if (getter != null && getter.isAccessible())
-                return (T) getter.invoke(entity);
-            else
-                return (T) checkNotNull(field).get(entity);
+            return (T) accessor.get(entity);
         } catch (Exception e) {
             throw new IllegalArgumentException("Unable to read property '" + getPropertyName() + "' in " + entity.getClass(), e);
         }
@@ -129,11 +121,7 @@ class DefaultMappedProperty<T> implements MappedProperty<T> {
     @Override
     public void setValue(Object entity, T value) {
         try {
-            // try setter first, if available, otherwise direct field access
-            if (setter != null && setter.isAccessible())
-                setter.invoke(entity, value);
-            else
-                checkNotNull(field).set(entity, value);
+            accessor.set(entity, value);
         } catch (Exception e) {
             throw new IllegalArgumentException("Unable to write property '" + getPropertyName() + "' in " + entity.getClass(), e);
         }
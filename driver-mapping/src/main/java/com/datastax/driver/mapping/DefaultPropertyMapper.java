@@ -91,6 +91,8 @@ public class DefaultPropertyMapper implements PropertyMapper {
 
     private PropertyAccessStrategy propertyAccessStrategy = PropertyAccessStrategy.BOTH;
 
+    private PropertyInvocationStrategy propertyInvocationStrategy = PropertyInvocationStrategy.GENERATED;
+
     private PropertyTransienceStrategy propertyTransienceStrategy = PropertyTransienceStrategy.OPT_OUT;
 
     private HierarchyScanStrategy hierarchyScanStrategy = new DefaultHierarchyScanStrategy();
@@ -111,6 +113,18 @@ public class DefaultPropertyMapper implements PropertyMapper {
         return this;
     }
 
+    /**
+     * Sets the {@link PropertyInvocationStrategy property invocation strategy} to use.
+     * The default is {@link PropertyInvocationStrategy#GENERATED}.
+     *
+     * @param propertyInvocationStrategy the {@link PropertyInvocationStrategy property invocation strategy} to use; may not be {@code null}.
+     * @return this {@link DefaultPropertyMapper} instance (to allow for fluent builder pattern).
+     */
+    public DefaultPropertyMapper setPropertyInvocationStrategy(PropertyInvocationStrategy propertyInvocationStrategy) {
+        this.propertyInvocationStrategy = checkNotNull(propertyInvocationStrategy);
+        return this;
+    }
+
     /**
      * Sets the {@link PropertyTransienceStrategy property transience strategy} to use.
      * The default is {@link PropertyTransienceStrategy#OPT_OUT}.
@@ -418,7 +432,8 @@ public class DefaultPropertyMapper implements PropertyMapper {
     /**
      * Creates a {@link MappedProperty} instance.
      * <p>
-     * Instances returned by the implementation below will use the Java reflection API to read and write values.
+     * Instances returned by the implementation below will read and write values according to the
+     * {@link #setPropertyInvocationStrategy(PropertyInvocationStrategy) invocation strategy} configured on this mapper.
      * Subclasses may override this method if they are capable of accessing
      * properties without incurring the cost of reflection.
      *
@@ -434,7 +449,7 @@ public class DefaultPropertyMapper implements PropertyMapper {
      * @return a newly-allocated {@link MappedProperty} instance.
      */
     protected MappedProperty<?> createMappedProperty(Class<?> mappedClass, String propertyName, String mappedName, Field field, Method getter, Method setter, Map<Class<? extends Annotation>, Annotation> annotations) {
-        return DefaultMappedProperty.create(mappedClass, propertyName, mappedName, field, getter, setter, annotations);
+        return DefaultMappedProperty.create(mappedClass, propertyName, mappedName, field, getter, setter, annotations, propertyInvocationStrategy);
     }
 
     private static Map<String, Field> scanFields(List<Class<?>> classHierarchy) {
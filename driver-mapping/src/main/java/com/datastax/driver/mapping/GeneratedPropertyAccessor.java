@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.datastax.driver.dse.IgnoreJDK6Requirement;
+import com.google.common.primitives.Primitives;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A {@link PropertyAccessor} that calls the getter and setter of a property through classes spun at runtime by
+ * {@link LambdaMetafactory}, exactly like the JDK does for method references such as {@code Entity::getName}.
+ * <p/>
+ * Unlike reflective calls, these calls are not boxed into an argument array nor access-checked, and the JVM can
+ * inline them. Members that can't be called this way (fields, non-public members, or members whose types are not
+ * visible from the driver's class loader) are accessed through reflection.
+ * <p/>
+ * This class requires Java 8; {@link PropertyAccessor#create} only loads it reflectively, if it can be linked.
+ */
+@IgnoreJDK6Requirement
+@SuppressWarnings("Since15")
+class GeneratedPropertyAccessor extends PropertyAccessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedPropertyAccessor.class);
+
+    interface Getter {
+        Object get(Object entity);
+    }
+
+    interface Setter {
+        void set(Object entity, Object value);
+    }
+
+    private static final MethodType GETTER_FACTORY_TYPE = MethodType.methodType(Getter.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_FACTORY_TYPE = MethodType.methodType(Setter.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Invoked reflectively by {@link PropertyAccessor#create}.
+     *
+     * @return the new accessor, or {@code null} if neither the getter nor the setter can be called through a
+     * generated class.
+     */
+    static PropertyAccessor create(Field field, Method getter, Method setter) {
+        Getter generatedGetter = canGenerate(getter) ? generateGetter(getter) : null;
+        Setter generatedSetter = canGenerate(setter) ? generateSetter(setter) : null;
+        if (generatedGetter == null && generatedSetter == null)
+            return null;
+        return new GeneratedPropertyAccessor(generatedGetter, generatedSetter,
+                new ReflectionPropertyAccessor(field, getter, setter));
+    }
+
+    private final Getter getter;
+    private final Setter setter;
+    private final PropertyAccessor fallback;
+
+    private GeneratedPropertyAccessor(Getter getter, Setter setter, PropertyAccessor fallback) {
+        this.getter = getter;
+        this.setter = setter;
+        this.fallback = fallback;
+    }
+
+    @Override
+    Object get(Object entity) throws Exception {
+        return getter != null ? getter.get(entity) : fallback.get(entity);
+    }
+
+    @Override
+    void set(Object entity, Object value) throws Exception {
+        if (setter != null)
+            setter.set(entity, value);
+        else
+            fallback.set(entity, value);
+    }
+
+    private static Getter generateGetter(Method getter) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            // e.g. (Entity)Integer for an int getter, the generated class boxes the value
+            MethodType instantiatedType = MethodType.methodType(
+                    Primitives.wrap(getter.getReturnType()), getter.getDeclaringClass());
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "get", GETTER_FACTORY_TYPE,
+                    GETTER_TYPE, lookup.unreflect(getter), instantiatedType);
+            return (Getter) callSite.getTarget().invokeWithArguments();
+        } catch (Throwable t) {
+            LOGGER.debug("Could not generate an accessor for {}, falling back to reflection", getter, t);
+            return null;
+        }
+    }
+
+    private static Setter generateSetter(Method setter) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            // the return value of "relaxed" setters (see DefaultPropertyMapper#locateSetter) is discarded
+            MethodType instantiatedType = MethodType.methodType(void.class,
+                    setter.getDeclaringClass(), Primitives.wrap(setter.getParameterTypes()[0]));
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "set", SETTER_FACTORY_TYPE,
+                    SETTER_TYPE, lookup.unreflect(setter), instantiatedType);
+            return (Setter) callSite.getTarget().invokeWithArguments();
+        } catch (Throwable t) {
+            LOGGER.debug("Could not generate an accessor for {}, falling back to reflection", setter, t);
+            return null;
+        }
+    }
+
+    /**
+     * The generated classes are defined in the driver's class loader, so they can only call public methods of public
+     * classes, and every type in the method's signature must resolve to the same class from there.
+     */
+    private static boolean canGenerate(Method method) {
+        if (method == null
+                || !Modifier.isPublic(method.getModifiers())
+                || !Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                || !isVisible(method.getDeclaringClass())
+                || !isVisible(method.getReturnType()))
+            return false;
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isVisible(parameterType))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        if (type.isPrimitive())
+            return true;
+        try {
+            return Class.forName(type.getName(), false, GeneratedPropertyAccessor.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
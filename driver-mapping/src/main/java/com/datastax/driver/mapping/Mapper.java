@@ -18,11 +18,16 @@ import com.datastax.driver.mapping.annotations.Computed;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
 import com.google.common.util.concurrent.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -50,10 +55,30 @@ public class Mapper<T> {
     // Cache prepared statements for each type of query we use.
     private final ConcurrentMap<MapperQueryKey, ListenableFuture<PreparedStatement>> preparedQueries = new ConcurrentHashMap<MapperQueryKey, ListenableFuture<PreparedStatement>>();
 
+    // Save queries are compiled once per query string, see SavePlan.
+    private final ConcurrentMap<MapperQueryKey, SavePlan> savePlans = new ConcurrentHashMap<MapperQueryKey, SavePlan>();
+
+    /**
+     * The maximum number of statements prepared for a given save plan, when null fields are
+     * skipped with a protocol version that does not support unset values.
+     */
+    static final int MAX_SAVE_SHAPES = 64;
+
     private volatile EnumMap<Option.Type, Option> defaultSaveOptions;
     private volatile EnumMap<Option.Type, Option> defaultGetOptions;
     private volatile EnumMap<Option.Type, Option> defaultDeleteOptions;
 
+    // The plan for defaultSaveOptions, updated atomically with them
+    private volatile DefaultSave defaultSave;
+
+    /**
+     * The default value for {@link #getBulkConcurrency()}: {@value}.
+     */
+    public static final int DEFAULT_BULK_CONCURRENCY = 32;
+
+    private volatile int bulkConcurrency = DEFAULT_BULK_CONCURRENCY;
+    private volatile int bulkBatchSize = 1;
+
     private static final EnumMap<Option.Type, Option> NO_OPTIONS = new EnumMap<Option.Type, Option>(Option.Type.class);
 
     private final Function<ResultSet, T> mapOneFunction;
@@ -88,6 +113,7 @@ public class Mapper<T> {
         };
 
         this.defaultSaveOptions = NO_OPTIONS;
+        this.defaultSave = new DefaultSave(NO_OPTIONS, savePlan(NO_OPTIONS));
         this.defaultGetOptions = NO_OPTIONS;
         this.defaultDeleteOptions = NO_OPTIONS;
     }
@@ -97,12 +123,15 @@ public class Mapper<T> {
     }
 
     ListenableFuture<PreparedStatement> getPreparedQueryAsync(QueryType type, Set<AliasedMappedProperty> columns, EnumMap<Option.Type, Option> options) {
+        return getPreparedQueryAsync(preparedQueries, new MapperQueryKey(type, columns, options), type, columns, options);
+    }
 
-        final MapperQueryKey pqk = new MapperQueryKey(type, columns, options);
-        ListenableFuture<PreparedStatement> existingFuture = preparedQueries.get(pqk);
+    private <K> ListenableFuture<PreparedStatement> getPreparedQueryAsync(final ConcurrentMap<K, ListenableFuture<PreparedStatement>> cache, final K pqk,
+                                                                          QueryType type, Set<AliasedMappedProperty> columns, EnumMap<Option.Type, Option> options) {
+        ListenableFuture<PreparedStatement> existingFuture = cache.get(pqk);
         if (existingFuture == null) {
             final SettableFuture<PreparedStatement> future = SettableFuture.create();
-            ListenableFuture<PreparedStatement> old = preparedQueries.putIfAbsent(pqk, future);
+            ListenableFuture<PreparedStatement> old = cache.putIfAbsent(pqk, future);
             if (old != null) {
                 return old;
             } else {
@@ -121,7 +150,7 @@ public class Mapper<T> {
                     public void onFailure(Throwable t) {
                         future.setException(t);
                         // do not keep a failed future in the query cache
-                        preparedQueries.remove(pqk, future);
+                        cache.remove(pqk, future);
                         logger.error("Query preparation failed: " + queryString, t);
                     }
                 });
@@ -136,6 +165,43 @@ public class Mapper<T> {
         return getPreparedQueryAsync(type, Collections.<AliasedMappedProperty>emptySet(), options);
     }
 
+    /**
+     * Returns the save plan for the given options.
+     * <p/>
+     * Plans are shared by all option sets that produce the same query string (the option values
+     * are applied when the statement is bound).
+     */
+    private SavePlan savePlan(EnumMap<Option.Type, Option> options) {
+        MapperQueryKey key = new MapperQueryKey(QueryType.SAVE, Collections.<AliasedMappedProperty>emptySet(), options);
+        SavePlan plan = savePlans.get(key);
+        if (plan == null) {
+            SavePlan newPlan = new SavePlan(saveColumns());
+            plan = savePlans.putIfAbsent(key, newPlan);
+            if (plan == null)
+                plan = newPlan;
+        }
+        return plan;
+    }
+
+    private AliasedMappedProperty[] saveColumns() {
+        List<AliasedMappedProperty> columns = new ArrayList<AliasedMappedProperty>(mapper.allColumns.size());
+        for (AliasedMappedProperty col : mapper.allColumns) {
+            if (!col.mappedProperty.isComputed())
+                columns.add(col);
+        }
+        return columns.toArray(new AliasedMappedProperty[columns.size()]);
+    }
+
+    private ListenableFuture<PreparedStatement> saveStatement(SavePlan plan, BitSet shape, EnumMap<Option.Type, Option> options) {
+        ListenableFuture<PreparedStatement> existing = plan.get(shape);
+        if (existing != null)
+            return existing;
+        Set<AliasedMappedProperty> shapeColumns = new LinkedHashSet<AliasedMappedProperty>();
+        for (int i = shape.nextSetBit(0); i >= 0; i = shape.nextSetBit(i + 1))
+            shapeColumns.add(plan.columns[i]);
+        return getPreparedQueryAsync(plan.statements, shape, QueryType.SAVE, shapeColumns, options);
+    }
+
     Class<T> getMappedClass() {
         return klass;
     }
@@ -175,7 +241,7 @@ public class Mapper<T> {
     public Statement saveQuery(T entity) {
         checkNotInEventLoop();
         try {
-            return Uninterruptibles.getUninterruptibly(saveQueryAsync(entity, this.defaultSaveOptions));
+            return Uninterruptibles.getUninterruptibly(saveQueryAsync(entity, this.defaultSave));
         } catch (ExecutionException e) {
             throw DriverThrowables.propagateCause(e);
         }
@@ -211,27 +277,41 @@ public class Mapper<T> {
         }
     }
 
-    private ListenableFuture<BoundStatement> saveQueryAsync(T entity, final EnumMap<Option.Type, Option> options) {
-        final Map<AliasedMappedProperty, Object> columnToValue = new HashMap<AliasedMappedProperty, Object>();
-        final boolean useUnsetForNullValue = !shouldSaveNullFields(options) && manager.protocolVersionAsInt >= 4;
-        final boolean includeColumnsWithNullValue = shouldSaveNullFields(options) || useUnsetForNullValue;
+    private ListenableFuture<BoundStatement> saveQueryAsync(T entity, DefaultSave defaultSave) {
+        return saveQueryAsync(entity, defaultSave.options, defaultSave.plan);
+    }
 
-        for (AliasedMappedProperty col : mapper.allColumns) {
-            Object value = col.mappedProperty.getValue(entity);
-            if (!col.mappedProperty.isComputed() && (includeColumnsWithNullValue || value != null)) {
-                columnToValue.put(col, value);
+    private ListenableFuture<BoundStatement> saveQueryAsync(T entity, EnumMap<Option.Type, Option> options) {
+        return saveQueryAsync(entity, options, savePlan(options));
+    }
+
+    private ListenableFuture<BoundStatement> saveQueryAsync(T entity, final EnumMap<Option.Type, Option> options, SavePlan plan) {
+        boolean saveNullFields = shouldSaveNullFields(options);
+        final boolean useUnsetForNullValue = !saveNullFields && manager.protocolVersionAsInt >= 4;
+        final boolean skipNullValues = !saveNullFields && !useUnsetForNullValue;
+        final AliasedMappedProperty[] columns = plan.columns;
+        // read the values now, the entity might be modified before the statement is prepared
+        final Object[] values = new Object[columns.length];
+        BitSet shape = null;
+        for (int i = 0; i < columns.length; i++) {
+            Object value = columns[i].mappedProperty.getValue(entity);
+            values[i] = value;
+            if (value == null && skipNullValues) {
+                if (shape == null)
+                    shape = (BitSet) plan.allColumns.clone();
+                shape.clear(i);
             }
         }
 
-        return Futures.transform(getPreparedQueryAsync(QueryType.SAVE, columnToValue.keySet(), options), new Function<PreparedStatement, BoundStatement>() {
+        return Futures.transform(saveStatement(plan, shape == null ? plan.allColumns : shape, options), new Function<PreparedStatement, BoundStatement>() {
             @Override
             public BoundStatement apply(PreparedStatement input) {
                 BoundStatement bs = input.bind();
                 int i = 0;
-                for (Map.Entry<AliasedMappedProperty, Object> entry : columnToValue.entrySet()) {
-                    AliasedMappedProperty mapper = entry.getKey();
-                    Object value = entry.getValue();
-                    setObject(bs, i++, value, mapper, useUnsetForNullValue);
+                for (int c = 0; c < columns.length; c++) {
+                    Object value = values[c];
+                    if (value != null || !skipNullValues)
+                        setObject(bs, i++, value, columns[c], useUnsetForNullValue);
                 }
 
                 if (mapper.writeConsistency != null)
@@ -314,7 +394,7 @@ public class Mapper<T> {
      * @return a future on the completion of the save operation.
      */
     public ListenableFuture<Void> saveAsync(T entity) {
-        return submitVoidQueryAsync(saveQueryAsync(entity, this.defaultSaveOptions));
+        return submitVoidQueryAsync(saveQueryAsync(entity, this.defaultSave));
     }
 
     /**
@@ -734,6 +814,244 @@ public class Mapper<T> {
         return submitVoidQueryAsync(deleteQueryAsync(objects));
     }
 
+    /**
+     * Saves a collection of entities mapped by this mapper.
+     * <p/>
+     * This method is basically equivalent to calling {@link #save(Object, Option...)} for each
+     * entity, except that up to {@link #getBulkConcurrency()} saves are executed concurrently.
+     * See {@link #saveAllAsync(Iterable, Option...)} for details.
+     * <p/>
+     * Note: this method will block until all entities are saved.
+     *
+     * @param entities the entities to save.
+     * @param options  the options to use for each save operation.
+     */
+    public void saveAll(Iterable<? extends T> entities, Option... options) {
+        checkNotInEventLoop();
+        try {
+            Uninterruptibles.getUninterruptibly(saveAllAsync(entities, options));
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+
+    /**
+     * Saves a collection of entities mapped by this mapper asynchronously.
+     * <p/>
+     * At most {@link #getBulkConcurrency()} requests are in flight at any given time, and the
+     * entities are pulled from {@code entities} only as previous requests complete, so this method
+     * can be used with a lazy source (for example an {@code Iterable} reading from a file) without
+     * loading all entities in memory. The source is read from the driver's I/O threads, so its
+     * iterator should not block.
+     * <p/>
+     * If {@link #getBulkBatchSize()} is greater than 1, consecutive entities are grouped into chunks
+     * of that size, and the entities of a chunk that belong to the same partition are saved with a
+     * single {@link BatchStatement.Type#UNLOGGED unlogged} batch. Sorting the entities by partition
+     * key beforehand therefore maximizes the benefits of batching. Conditional saves (see
+     * {@link Option#ifNotExists(boolean)}) are never batched, each of them is executed individually.
+     * <p/>
+     * If an operation fails, the returned future fails with the same error, and no new operations
+     * are started; operations that were already in flight are not cancelled.
+     *
+     * @param entities the entities to save.
+     * @param options  the options to use for each save operation.
+     * @return a future on the completion of all save operations.
+     */
+    public ListenableFuture<Void> saveAllAsync(Iterable<? extends T> entities, Option... options) {
+        final EnumMap<Option.Type, Option> optionsMap = toMapWithDefaults(options, this.defaultSaveOptions);
+        final SavePlan plan = savePlan(optionsMap);
+        Option ifNotExists = optionsMap.get(Option.Type.IF_NOT_EXISTS);
+        // Lightweight transactions can't be grouped: a batch with conditions applies all of its statements or none
+        boolean conditional = ifNotExists != null && ((Option.IfNotExists) ifNotExists).ifNotExists;
+        return writeAllAsync(entities, new Function<T, ListenableFuture<BoundStatement>>() {
+            @Override
+            public ListenableFuture<BoundStatement> apply(T entity) {
+                return saveQueryAsync(entity, optionsMap, plan);
+            }
+        }, !conditional);
+    }
+
+    /**
+     * Deletes a collection of entities mapped by this mapper.
+     * <p/>
+     * This method is basically equivalent to calling {@link #delete(Object, Option...)} for each
+     * entity, except that up to {@link #getBulkConcurrency()} deletions are executed concurrently.
+     * See {@link #saveAllAsync(Iterable, Option...)} for details.
+     * <p/>
+     * Note: this method will block until all entities are deleted.
+     *
+     * @param entities the entities to delete.
+     * @param options  the options to use for each delete operation.
+     */
+    public void deleteAll(Iterable<? extends T> entities, Option... options) {
+        checkNotInEventLoop();
+        try {
+            Uninterruptibles.getUninterruptibly(deleteAllAsync(entities, options));
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+
+    /**
+     * Deletes a collection of entities mapped by this mapper asynchronously.
+     * <p/>
+     * Concurrency and batching work as described in {@link #saveAllAsync(Iterable, Option...)}.
+     *
+     * @param entities the entities to delete.
+     * @param options  the options to use for each delete operation.
+     * @return a future on the completion of all delete operations.
+     */
+    public ListenableFuture<Void> deleteAllAsync(Iterable<? extends T> entities, Option... options) {
+        final EnumMap<Option.Type, Option> optionsMap = toMapWithDefaults(options, defaultDeleteOptions);
+        return writeAllAsync(entities, new Function<T, ListenableFuture<BoundStatement>>() {
+            @Override
+            public ListenableFuture<BoundStatement> apply(T entity) {
+                return deleteQueryAsync(entity, optionsMap);
+            }
+        }, true);
+    }
+
+    /**
+     * Fetches a collection of entities based on their primary keys.
+     * <p/>
+     * This method is basically equivalent to calling {@link #get(Object...)} for each primary key,
+     * except that up to {@link #getBulkConcurrency()} reads are executed concurrently.
+     * <p/>
+     * Note: this method will block until all entities are fetched.
+     *
+     * @param primaryKeys the primary keys of the entities to fetch; each element holds the values
+     *                    for the columns of a primary key, in the order of the primary key.
+     * @param options     the options to use for each get operation.
+     * @return the fetched entities, in the order of {@code primaryKeys}. If an entity does not exist,
+     * the corresponding element is {@code null}.
+     */
+    public List<T> getAll(Iterable<? extends List<?>> primaryKeys, Option... options) {
+        checkNotInEventLoop();
+        try {
+            return Uninterruptibles.getUninterruptibly(getAllAsync(primaryKeys, options));
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+
+    /**
+     * Fetches a collection of entities based on their primary keys asynchronously.
+     * <p/>
+     * Reads are issued individually (one per partition), so that each of them is routed to a replica
+     * of its partition; at most {@link #getBulkConcurrency()} of them are in flight at any given time.
+     *
+     * @param primaryKeys the primary keys of the entities to fetch; each element holds the values
+     *                    for the columns of a primary key, in the order of the primary key.
+     * @param options     the options to use for each get operation.
+     * @return a future on the fetched entities, in the order of {@code primaryKeys}. If an entity
+     * does not exist, the corresponding element is {@code null}.
+     */
+    public ListenableFuture<List<T>> getAllAsync(Iterable<? extends List<?>> primaryKeys, Option... options) {
+        final EnumMap<Option.Type, Option> optionsMap = toMapWithDefaults(options, defaultGetOptions);
+        return new BulkExecutor<List<?>, T>(primaryKeys.iterator(), bulkConcurrency, true) {
+            @Override
+            ListenableFuture<T> submit(List<?> primaryKey) {
+                ListenableFuture<BoundStatement> bsFuture = getQueryAsync(new ArrayList<Object>(primaryKey), optionsMap);
+                ListenableFuture<ResultSet> rsFuture = GuavaCompatibility.INSTANCE.transformAsync(bsFuture, new AsyncFunction<BoundStatement, ResultSet>() {
+                    @Override
+                    public ListenableFuture<ResultSet> apply(BoundStatement bs) throws Exception {
+                        return session().executeAsync(bs);
+                    }
+                });
+                return Futures.transform(rsFuture, mapOneFunction);
+            }
+        }.start();
+    }
+
+    private ListenableFuture<Void> writeAllAsync(Iterable<? extends T> entities, final Function<T, ListenableFuture<BoundStatement>> toStatement, boolean groupByPartition) {
+        int batchSize = groupByPartition && manager.protocolVersionAsInt >= 2 ? bulkBatchSize : 1;
+        @SuppressWarnings("unchecked")
+        Iterator<T> iterator = (Iterator<T>) entities.iterator();
+        ListenableFuture<List<Void>> future = new BulkExecutor<List<T>, Void>(Iterators.partition(iterator, batchSize), bulkConcurrency, false) {
+            @Override
+            ListenableFuture<Void> submit(List<T> chunk) {
+                List<ListenableFuture<BoundStatement>> statements = new ArrayList<ListenableFuture<BoundStatement>>(chunk.size());
+                for (T entity : chunk)
+                    statements.add(toStatement.apply(entity));
+                return GuavaCompatibility.INSTANCE.transformAsync(Futures.allAsList(statements), new AsyncFunction<List<BoundStatement>, Void>() {
+                    @Override
+                    public ListenableFuture<Void> apply(List<BoundStatement> statements) throws Exception {
+                        return executeGroupedByPartition(statements);
+                    }
+                });
+            }
+        }.start();
+        return Futures.transform(future, TO_NULL);
+    }
+
+    private ListenableFuture<Void> executeGroupedByPartition(List<BoundStatement> statements) {
+        if (statements.size() == 1)
+            return Futures.transform(session().executeAsync(statements.get(0)), TO_NULL);
+
+        Configuration configuration = session().getCluster().getConfiguration();
+        List<Statement> toExecute = groupByPartition(statements,
+                configuration.getProtocolOptions().getProtocolVersion(), configuration.getCodecRegistry());
+        List<ListenableFuture<ResultSet>> futures = new ArrayList<ListenableFuture<ResultSet>>(toExecute.size());
+        for (Statement statement : toExecute)
+            futures.add(session().executeAsync(statement));
+        return Futures.transform(Futures.allAsList(futures), TO_NULL);
+    }
+
+    /**
+     * Groups statements that target the same partition into unlogged batches.
+     * <p/>
+     * Statements without a routing key, and statements that are alone in their partition, are returned as is.
+     * The statements are expected to share the same settings (they are generated with the same options): each
+     * batch gets the settings of its first statement.
+     */
+    static List<Statement> groupByPartition(List<? extends Statement> statements, ProtocolVersion protocolVersion, CodecRegistry codecRegistry) {
+        // LinkedHashMap to preserve the order of the entities within a partition
+        Map<ByteBuffer, List<Statement>> partitions = new LinkedHashMap<ByteBuffer, List<Statement>>();
+        List<Statement> toExecute = new ArrayList<Statement>(statements.size());
+        for (Statement statement : statements) {
+            ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+            if (routingKey == null) {
+                toExecute.add(statement);
+                continue;
+            }
+            List<Statement> partition = partitions.get(routingKey);
+            if (partition == null) {
+                partition = new ArrayList<Statement>();
+                partitions.put(routingKey, partition);
+            }
+            partition.add(statement);
+        }
+        for (List<Statement> partition : partitions.values()) {
+            Statement first = partition.get(0);
+            if (partition.size() == 1) {
+                toExecute.add(first);
+            } else {
+                BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                batch.addAll(partition);
+                copySettings(first, batch);
+                toExecute.add(batch);
+            }
+        }
+        return toExecute;
+    }
+
+    private static void copySettings(Statement from, Statement to) {
+        if (from.getConsistencyLevel() != null)
+            to.setConsistencyLevel(from.getConsistencyLevel());
+        if (from.getSerialConsistencyLevel() != null)
+            to.setSerialConsistencyLevel(from.getSerialConsistencyLevel());
+        if (from.isTracing())
+            to.enableTracing();
+        if (from.getRetryPolicy() != null)
+            to.setRetryPolicy(from.getRetryPolicy());
+        if (from.isIdempotent() != null)
+            to.setIdempotent(from.isIdempotent());
+        to.setDefaultTimestamp(from.getDefaultTimestamp());
+        if (from.getReadTimeoutMillis() != Integer.MIN_VALUE)
+            to.setReadTimeoutMillis(from.getReadTimeoutMillis());
+        to.setOutgoingPayload(from.getOutgoingPayload());
+    }
+
     /**
      * Maps the rows from a {@code ResultSet} into the class this is a mapper of.
      * <p/>
@@ -803,7 +1121,59 @@ public class Mapper<T> {
      * @param options the options to set. To reset, use {@link Mapper#resetDefaultSaveOptions}.
      */
     public void setDefaultSaveOptions(Option... options) {
-        this.defaultSaveOptions = toMap(options);
+        EnumMap<Option.Type, Option> optionsMap = toMap(options);
+        this.defaultSaveOptions = optionsMap;
+        this.defaultSave = new DefaultSave(optionsMap, savePlan(optionsMap));
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests issued by the bulk operations of this mapper
+     * ({@link #saveAllAsync(Iterable, Option...)}, {@link #deleteAllAsync(Iterable, Option...)} and
+     * {@link #getAllAsync(Iterable, Option...)}).
+     * <p/>
+     * The default is {@value #DEFAULT_BULK_CONCURRENCY}. The change only affects bulk operations
+     * started after this call.
+     *
+     * @param bulkConcurrency the maximum number of concurrent requests per bulk operation.
+     * @throws IllegalArgumentException if {@code bulkConcurrency <= 0}.
+     */
+    public void setBulkConcurrency(int bulkConcurrency) {
+        checkArgument(bulkConcurrency > 0, "Invalid bulk concurrency, should be > 0, got %s", bulkConcurrency);
+        this.bulkConcurrency = bulkConcurrency;
+    }
+
+    /**
+     * Returns the maximum number of concurrent requests issued by the bulk operations of this mapper.
+     *
+     * @return the maximum number of concurrent requests per bulk operation.
+     */
+    public int getBulkConcurrency() {
+        return bulkConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of consecutive entities that bulk write operations
+     * ({@link #saveAllAsync(Iterable, Option...)} and {@link #deleteAllAsync(Iterable, Option...)})
+     * may group into a single unlogged batch when they belong to the same partition.
+     * <p/>
+     * The default is 1, which disables batching. Batching requires native protocol v2 or above; with
+     * protocol v1, this setting is ignored.
+     *
+     * @param bulkBatchSize the maximum number of entities per batch.
+     * @throws IllegalArgumentException if {@code bulkBatchSize <= 0}.
+     */
+    public void setBulkBatchSize(int bulkBatchSize) {
+        checkArgument(bulkBatchSize > 0, "Invalid bulk batch size, should be > 0, got %s", bulkBatchSize);
+        this.bulkBatchSize = bulkBatchSize;
+    }
+
+    /**
+     * Returns the maximum number of entities that bulk write operations group into a single batch.
+     *
+     * @return the maximum number of entities per batch.
+     */
+    public int getBulkBatchSize() {
+        return bulkBatchSize;
     }
 
     /**
@@ -811,6 +1181,7 @@ public class Mapper<T> {
      */
     public void resetDefaultSaveOptions() {
         this.defaultSaveOptions = NO_OPTIONS;
+        this.defaultSave = new DefaultSave(NO_OPTIONS, savePlan(NO_OPTIONS));
     }
 
     /**
@@ -1326,7 +1697,88 @@ public class Mapper<T> {
         }
     }
 
-    private static class MapperQueryKey {
+    /**
+     * A save query compiled for a given query string: the mapped columns in the order of their bind
+     * markers, and the statement(s) prepared for them. Option values (TTL, timestamp, consistency...)
+     * are not part of the plan, they are applied to each bound statement.
+     * <p/>
+     * All columns are always bound, null values being sent as {@code unset} if null fields must not be
+     * saved, so that there is a single statement per plan. If the protocol version does not support
+     * unset values, null columns must be left out of the query instead: each combination of non-null
+     * columns (or "shape") then requires its own statement, and at most {@link #MAX_SAVE_SHAPES}
+     * of them are kept, the least recently used shapes being evicted first.
+     * <p/>
+     * An evicted statement is reused as long as it is still referenced elsewhere (for example by
+     * the cluster's registry of prepared statements, or by a statement being executed), so that it
+     * does not get prepared again.
+     */
+    static class SavePlan {
+        final AliasedMappedProperty[] columns;
+        final BitSet allColumns;
+        // shape -> statement
+        final ConcurrentMap<BitSet, ListenableFuture<PreparedStatement>> statements;
+        // shape -> evicted statement, until it gets garbage collected
+        final ConcurrentMap<BitSet, PreparedStatement> evicted =
+                CacheBuilder.newBuilder().weakValues().<BitSet, PreparedStatement>build().asMap();
+
+        SavePlan(AliasedMappedProperty[] columns) {
+            this.columns = columns;
+            this.allColumns = new BitSet(columns.length);
+            this.allColumns.set(0, columns.length);
+            RemovalListener<BitSet, ListenableFuture<PreparedStatement>> onEviction =
+                    new RemovalListener<BitSet, ListenableFuture<PreparedStatement>>() {
+                        @Override
+                        public void onRemoval(RemovalNotification<BitSet, ListenableFuture<PreparedStatement>> notification) {
+                            ListenableFuture<PreparedStatement> statement = notification.getValue();
+                            if (notification.wasEvicted() && statement.isDone()) {
+                                try {
+                                    PreparedStatement stmt = Uninterruptibles.getUninterruptibly(statement);
+                                    if (stmt != null)
+                                        evicted.put(notification.getKey(), stmt);
+                                } catch (ExecutionException e) {
+                                    // failed statements are not kept
+                                }
+                            }
+                        }
+                    };
+            // a single segment, so that eviction follows the exact access order
+            this.statements = CacheBuilder.newBuilder()
+                    .concurrencyLevel(1)
+                    .maximumSize(MAX_SAVE_SHAPES)
+                    .removalListener(onEviction)
+                    .build()
+                    .asMap();
+        }
+
+        /**
+         * Returns the statement for the given shape, or {@code null} if it must be prepared.
+         */
+        ListenableFuture<PreparedStatement> get(BitSet shape) {
+            ListenableFuture<PreparedStatement> statement = statements.get(shape);
+            if (statement == null) {
+                PreparedStatement stmt = evicted.remove(shape);
+                if (stmt != null) {
+                    ListenableFuture<PreparedStatement> revived = Futures.immediateFuture(stmt);
+                    statement = statements.putIfAbsent(shape, revived);
+                    if (statement == null)
+                        statement = revived;
+                }
+            }
+            return statement;
+        }
+    }
+
+    private static class DefaultSave {
+        final EnumMap<Option.Type, Option> options;
+        final SavePlan plan;
+
+        DefaultSave(EnumMap<Option.Type, Option> options, SavePlan plan) {
+            this.options = options;
+            this.plan = plan;
+        }
+    }
+
+    static class MapperQueryKey {
         private final QueryType queryType;
         private final Set<Object> optionKeys;
         private final Set<AliasedMappedProperty> columns;
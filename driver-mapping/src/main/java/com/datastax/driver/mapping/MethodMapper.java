@@ -16,6 +16,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Set;
 
 class MethodMapper {
@@ -53,6 +54,9 @@ class MethodMapper {
 
         validateParameters();
 
+        for (ParamMapper paramMapper : paramMappers)
+            paramMapper.prepare(ps.getVariables());
+
         Class<?> returnType = method.getReturnType();
         if (Void.TYPE.isAssignableFrom(returnType) || ResultSet.class.isAssignableFrom(returnType))
             return;
@@ -173,6 +177,9 @@ class MethodMapper {
         private final TypeToken<Object> paramType;
         private final TypeCodec<Object> codec;
 
+        // Resolved once the statement is prepared, see prepare()
+        private int[] indexes;
+
         @SuppressWarnings("unchecked")
         ParamMapper(String paramName, int paramIdx, TypeToken<?> paramType, Class<? extends TypeCodec<?>> codecClass) {
             this.paramName = paramName;
@@ -181,8 +188,38 @@ class MethodMapper {
             this.codec = codecClass == null || codecClass.equals(Defaults.NoCodec.class) ? null : (TypeCodec<Object>) ReflectionUtils.newInstance(codecClass);
         }
 
-        void setValue(BoundStatement boundStatement, Object arg) {
+        /**
+         * Resolves the bind variables of this parameter, so that binding it does not require a lookup
+         * by name. The codec is still obtained from the registry (which caches it) on each binding, so
+         * that codecs registered after the statement was prepared are taken into account.
+         */
+        void prepare(ColumnDefinitions variables) {
+            int first = paramName == null ? paramIdx : variables.getIndexOf(paramName);
+            if (first < 0 || first >= variables.size())
+                return; // invalid parameter, let setValue report the error
             if (paramName == null) {
+                indexes = new int[]{first};
+            } else {
+                // a named variable can appear multiple times in the query
+                int count = 0;
+                int[] all = new int[variables.size()];
+                for (int i = first; i < variables.size(); i++) {
+                    if (variables.getName(i).equals(variables.getName(first)))
+                        all[count++] = i;
+                }
+                indexes = Arrays.copyOf(all, count);
+            }
+        }
+
+        void setValue(BoundStatement boundStatement, Object arg) {
+            if (indexes != null) {
+                for (int index : indexes) {
+                    if (codec == null)
+                        boundStatement.set(index, arg, paramType);
+                    else
+                        boundStatement.set(index, arg, codec);
+                }
+            } else if (paramName == null) {
                 if (codec == null)
                     boundStatement.set(paramIdx, arg, paramType);
                 else
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads and writes the value of a mapped property.
+ *
+ * @see PropertyInvocationStrategy
+ */
+abstract class PropertyAccessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyAccessor.class);
+
+    // GeneratedPropertyAccessor depends on Java 8 APIs, so it must never be linked on older runtimes
+    private static final Method GENERATED_ACCESSOR_FACTORY = loadGeneratedAccessorFactory();
+
+    /**
+     * Creates an accessor for the given members, that uses the getter (resp. setter) if it is available,
+     * and the field otherwise.
+     */
+    static PropertyAccessor create(PropertyInvocationStrategy strategy, Field field, Method getter, Method setter) {
+        if (strategy == PropertyInvocationStrategy.GENERATED && GENERATED_ACCESSOR_FACTORY != null) {
+            try {
+                PropertyAccessor accessor = (PropertyAccessor) GENERATED_ACCESSOR_FACTORY.invoke(null, field, getter, setter);
+                if (accessor != null)
+                    return accessor;
+            } catch (Exception e) {
+                LOGGER.debug("Could not generate an accessor for {}, falling back to reflection", field == null ? getter : field, e);
+            }
+        }
+        return new ReflectionPropertyAccessor(field, getter, setter);
+    }
+
+    abstract Object get(Object entity) throws Exception;
+
+    abstract void set(Object entity, Object value) throws Exception;
+
+    private static Method loadGeneratedAccessorFactory() {
+        try {
+            Class.forName("java.lang.invoke.LambdaMetafactory");
+            return Class.forName("com.datastax.driver.mapping.GeneratedPropertyAccessor")
+                    .getDeclaredMethod("create", Field.class, Method.class, Method.class);
+        } catch (Exception e) {
+            // Java 7 or lower
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Uses the Java reflection API.
+     * <p/>
+     * The members to use are resolved once, when the property is mapped: the getter (resp. setter) if it is available
+     * and can be made accessible, and the field otherwise.
+     */
+    static class ReflectionPropertyAccessor extends PropertyAccessor {
+
+        private final Field field;
+        private final Method getter;
+        private final Method setter;
+
+        ReflectionPropertyAccessor(Field field, Method getter, Method setter) {
+            this.field = field;
+            this.getter = makeAccessible(getter);
+            this.setter = makeAccessible(setter);
+        }
+
+        @Override
+        Object get(Object entity) throws Exception {
+            return getter != null ? getter.invoke(entity) : checkNotNull(field).get(entity);
+        }
+
+        @Override
+        void set(Object entity, Object value) throws Exception {
+            if (setter != null)
+                setter.invoke(entity, value);
+            else
+                checkNotNull(field).set(entity, value);
+        }
+
+        /**
+         * Returns the member if it could be made accessible, or {@code null} so that the caller falls back to the field.
+         */
+        private static <T extends AccessibleObject> T makeAccessible(T member) {
+            if (member == null)
+                return null;
+            try {
+                member.setAccessible(true);
+                return member;
+            } catch (SecurityException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+/**
+ * A strategy to determine how the getters, setters and fields of mapped properties
+ * are invoked at runtime.
+ * <p/>
+ * This only affects performance: which members are accessed is determined by
+ * the {@link PropertyAccessStrategy property access strategy}.
+ */
+public enum PropertyInvocationStrategy {
+
+    /**
+     * Use {@code java.lang.reflect} ({@code Method.invoke}, {@code Field.get} and {@code Field.set}).
+     */
+    REFLECTION,
+
+    /**
+     * Generate, once per mapped property, a class that calls its getter and setter directly,
+     * which the JVM can inline into the calling code like any other method call.
+     * <p/>
+     * Accessor classes are spun at runtime with {@code java.lang.invoke.LambdaMetafactory},
+     * which requires Java 8 or higher. Only public getters and setters declared in public classes
+     * that are visible from the driver's class loader can be called this way;
+     * for fields, and on older runtimes, the driver falls back to {@link #REFLECTION}.
+     * This is the default invocation strategy.
+     */
+    GENERATED
+
+}
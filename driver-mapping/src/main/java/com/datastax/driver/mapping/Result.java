@@ -7,14 +7,22 @@
 package com.datastax.driver.mapping;
 
 import com.datastax.driver.core.*;
+import com.google.common.base.Defaults;
 import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.*;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * A result set whose rows are mapped to an entity class.
+ * <p/>
+ * Rows are mapped lazily, as they are consumed. For large results, you can avoid creating an entity
+ * per row by {@link #iterator(Object) reusing the same instance}, and have the next page fetched in
+ * the background while the current one is processed with {@link #setPrefetchEnabled(boolean)}.
+ * With Java 8 or above, {@link ResultStreams} exposes results as {@code java.util.stream.Stream}s.
  */
 public class Result<T> implements PagingIterable<Result<T>, T> {
 
@@ -22,6 +30,11 @@ public class Result<T> implements PagingIterable<Result<T>, T> {
     private final EntityMapper<T> mapper;
     private final boolean useAlias;
 
+    private volatile boolean prefetchEnabled;
+
+    // the column indexes computed for the last page's metadata, see columnIndexes()
+    private volatile ColumnIndexes lastColumnIndexes;
+
     Result(ResultSet rs, EntityMapper<T> mapper, boolean useAlias) {
         this.rs = rs;
         this.mapper = mapper;
@@ -29,28 +42,63 @@ public class Result<T> implements PagingIterable<Result<T>, T> {
     }
 
     private T map(Row row) {
-        T entity = mapper.newEntity();
-        for (AliasedMappedProperty c : mapper.allColumns) {
-            @SuppressWarnings("unchecked")
-            AliasedMappedProperty col = c;
-            String name = col.alias != null && this.useAlias ? col.alias : col.mappedProperty.getMappedName();
-            if (!row.getColumnDefinitions().contains(name))
+        return map(row, mapper.newEntity(), false);
+    }
+
+    /**
+     * Maps a row into the given entity.
+     * <p/>
+     * If {@code reused}, the entity holds the values of a previous row, so properties that are null
+     * (or empty collections) in this row must be reset instead of being skipped.
+     */
+    private T map(Row row, T entity, boolean reused) {
+        List<AliasedMappedProperty> columns = mapper.allColumns;
+        int[] indexes = columnIndexes(row.getColumnDefinitions());
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i];
+            if (index < 0)
                 continue;
+            AliasedMappedProperty col = columns.get(i);
 
             Object value;
             TypeCodec<Object> customCodec = col.mappedProperty.getCustomCodec();
             if (customCodec != null)
-                value = row.get(name, customCodec);
+                value = row.get(index, customCodec);
             else
-                value = row.get(name, col.mappedProperty.getPropertyType());
+                value = row.get(index, col.mappedProperty.getPropertyType());
 
             if (shouldSetValue(value)) {
                 col.mappedProperty.setValue(entity, value);
+            } else if (reused) {
+                col.mappedProperty.setValue(entity, value != null
+                        ? value
+                        : Defaults.defaultValue(col.mappedProperty.getPropertyType().getRawType()));
             }
         }
         return entity;
     }
 
+    /**
+     * Resolves the index of each mapped column in the given metadata (-1 if the column is not
+     * present). All the rows of a page share the same metadata, so this is only computed once per
+     * page at most.
+     */
+    private int[] columnIndexes(ColumnDefinitions definitions) {
+        ColumnIndexes cached = lastColumnIndexes;
+        if (cached != null && cached.definitions == definitions)
+            return cached.indexes;
+
+        List<AliasedMappedProperty> columns = mapper.allColumns;
+        int[] indexes = new int[columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            AliasedMappedProperty col = columns.get(i);
+            String name = col.alias != null && this.useAlias ? col.alias : col.mappedProperty.getMappedName();
+            indexes[i] = definitions.contains(name) ? definitions.getIndexOf(name) : -1;
+        }
+        lastColumnIndexes = new ColumnIndexes(definitions, indexes);
+        return indexes;
+    }
+
     @SuppressWarnings("SimplifiableIfStatement")
     private static boolean shouldSetValue(Object value) {
         if (value == null)
@@ -85,24 +133,90 @@ public class Result<T> implements PagingIterable<Result<T>, T> {
 
     @Override
     public Iterator<T> iterator() {
-        return new Iterator<T>() {
-            private final Iterator<Row> rowIterator = rs.iterator();
+        return new MappingIterator(null);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return rowIterator.hasNext();
-            }
+    /**
+     * Returns an iterator that maps every row into the same, caller-provided instance, instead of
+     * creating a new entity for each row.
+     * <p/>
+     * This avoids allocating an entity per row when processing large results, but the returned
+     * instance is overwritten by each call to {@code next()}: it must not be retained (or added to a
+     * collection) across iterations. Properties that are null in a row are reset to their default
+     * value ({@code null}, or zero / {@code false} for primitive types); properties that are not
+     * part of the result set are left untouched.
+     *
+     * @param entity the instance to map each row into.
+     * @return an iterator that returns {@code entity} for each row.
+     */
+    public Iterator<T> iterator(T entity) {
+        return new MappingIterator(checkNotNull(entity));
+    }
 
-            @Override
-            public T next() {
-                return map(rowIterator.next());
-            }
+    /**
+     * Enables or disables automatic prefetching when iterating over this result.
+     * <p/>
+     * When enabled, once half of the rows available without fetching have been consumed by one of
+     * this result's iterators, the next page is requested in the background (see
+     * {@link #fetchMoreResults()}), so that it is usually ready by the time the current page is
+     * exhausted. This is disabled by default.
+     *
+     * @param prefetchEnabled whether to enable prefetching.
+     * @return this result (to allow for fluent builder pattern).
+     */
+    public Result<T> setPrefetchEnabled(boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+        return this;
+    }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
+    /**
+     * Whether automatic prefetching is enabled for this result.
+     *
+     * @return whether automatic prefetching is enabled.
+     * @see #setPrefetchEnabled(boolean)
+     */
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    private class MappingIterator implements Iterator<T> {
+        private final Iterator<Row> rowIterator = rs.iterator();
+        private final T entity;
+        private int lastAvailable = -1;
+        private int prefetchThreshold;
+
+        MappingIterator(T entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rowIterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            Row row = rowIterator.next();
+            if (prefetchEnabled)
+                maybePrefetch();
+            return entity == null ? map(row) : map(row, entity, true);
+        }
+
+        private void maybePrefetch() {
+            int available = rs.getAvailableWithoutFetching();
+            // a new page was appended: prefetch again when half of it is consumed
+            if (available > lastAvailable)
+                prefetchThreshold = available / 2;
+            lastAvailable = available;
+            // no-op if a fetch is already in progress
+            if (available <= prefetchThreshold && !rs.isFullyFetched())
+                rs.fetchMoreResults();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 
     @Override
@@ -135,4 +249,14 @@ public class Result<T> implements PagingIterable<Result<T>, T> {
         return rs.getAvailableWithoutFetching();
     }
 
+    private static class ColumnIndexes {
+        final ColumnDefinitions definitions;
+        final int[] indexes;
+
+        ColumnIndexes(ColumnDefinitions definitions, int[] indexes) {
+            this.definitions = definitions;
+            this.indexes = indexes;
+        }
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.datastax.driver.dse.IgnoreJDK6Requirement;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Exposes mapped {@link Result}s as Java 8 {@link Stream}s.
+ * <p/>
+ * Rows are mapped lazily as the stream is consumed, and pages are fetched as needed (see
+ * {@link Result#setPrefetchEnabled(boolean)} to fetch them ahead of time). Size estimates are based
+ * on {@link Result#getAvailableWithoutFetching()}, and are exact once the result is fully fetched; the
+ * spliterators never report {@link Spliterator#SIZED}, since their characteristics must not change over
+ * time.
+ * <p/>
+ * This class requires Java 8 or above.
+ */
+@IgnoreJDK6Requirement
+@SuppressWarnings("Since15")
+public final class ResultStreams {
+
+    private ResultStreams() {
+    }
+
+    /**
+     * Returns a sequential stream over the entities of a result.
+     *
+     * @param result the result.
+     * @return a stream of mapped entities.
+     */
+    public static <T> Stream<T> stream(Result<T> result) {
+        return StreamSupport.stream(spliterator(result), false);
+    }
+
+    /**
+     * Returns a sequential stream that maps every row of a result into the same, caller-provided
+     * instance (see {@link Result#iterator(Object)}).
+     * <p/>
+     * The elements of the returned stream must not be retained beyond the processing of the
+     * current element: operations that buffer elements (such as {@code sorted()} or
+     * {@code collect()}) will not work as expected.
+     *
+     * @param result the result.
+     * @param entity the instance to map each row into.
+     * @return a stream that returns {@code entity} for each row.
+     */
+    public static <T> Stream<T> stream(Result<T> result, T entity) {
+        return StreamSupport.stream(new ResultSpliterator<T>(result, result.iterator(checkNotNull(entity)), false), false);
+    }
+
+    /**
+     * Returns a spliterator over the entities of a result.
+     *
+     * @param result the result.
+     * @return a spliterator of mapped entities.
+     */
+    public static <T> Spliterator<T> spliterator(Result<T> result) {
+        return new ResultSpliterator<T>(result, result.iterator(), true);
+    }
+
+    @IgnoreJDK6Requirement
+    private static class ResultSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final Result<T> result;
+        private final Iterator<T> iterator;
+        private final boolean splittable;
+
+        ResultSpliterator(Result<T> result, Iterator<T> iterator, boolean splittable) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.result = result;
+            this.iterator = iterator;
+            this.splittable = splittable;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!iterator.hasNext())
+                return false;
+            action.accept(iterator.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (iterator.hasNext())
+                action.accept(iterator.next());
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            // splitting buffers elements, which does not work with a reused instance
+            return splittable ? super.trySplit() : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return result.getAvailableWithoutFetching();
+        }
+    }
+}
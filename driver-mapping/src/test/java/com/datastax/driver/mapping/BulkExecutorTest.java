@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BulkExecutorTest {
+
+    @Test(groups = "unit")
+    public void should_limit_operations_in_flight_and_preserve_order() throws Exception {
+        final List<SettableFuture<String>> pending = new ArrayList<SettableFuture<String>>();
+        CountingIterator inputs = new CountingIterator(10);
+        ListenableFuture<List<String>> future = new BulkExecutor<Integer, String>(inputs, 3, true) {
+            @Override
+            ListenableFuture<String> submit(Integer input) {
+                SettableFuture<String> operation = SettableFuture.create();
+                pending.add(operation);
+                return operation;
+            }
+        }.start();
+
+        assertThat(pending).hasSize(3);
+        assertThat(inputs.pulled).isEqualTo(3);
+
+        // complete out of order
+        pending.get(1).set("1");
+        assertThat(pending).hasSize(4);
+        pending.get(0).set("0");
+        pending.get(2).set("2");
+        assertThat(pending).hasSize(6);
+        assertThat(future.isDone()).isFalse();
+
+        for (int i = 3; i < 10; i++)
+            pending.get(i).set(Integer.toString(i));
+
+        assertThat(future.get()).containsExactly("0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
+    }
+
+    @Test(groups = "unit")
+    public void should_handle_operations_that_complete_immediately() throws Exception {
+        ListenableFuture<List<Integer>> future = new BulkExecutor<Integer, Integer>(new CountingIterator(100000), 8, false) {
+            @Override
+            ListenableFuture<Integer> submit(Integer input) {
+                return Futures.immediateFuture(input);
+            }
+        }.start();
+
+        assertThat(future.get()).isEmpty();
+    }
+
+    @Test(groups = "unit")
+    public void should_complete_immediately_if_no_inputs() throws Exception {
+        ListenableFuture<List<Integer>> future = new BulkExecutor<Integer, Integer>(new CountingIterator(0), 8, true) {
+            @Override
+            ListenableFuture<Integer> submit(Integer input) {
+                throw new AssertionError("should not be called");
+            }
+        }.start();
+
+        assertThat(future.get()).isEmpty();
+    }
+
+    @Test(groups = "unit")
+    public void should_stop_on_first_failure() throws Exception {
+        CountingIterator inputs = new CountingIterator(10);
+        final IllegalStateException error = new IllegalStateException("boom");
+        ListenableFuture<List<Integer>> future = new BulkExecutor<Integer, Integer>(inputs, 2, true) {
+            @Override
+            ListenableFuture<Integer> submit(Integer input) {
+                return input == 3
+                        ? Futures.<Integer>immediateFailedFuture(error)
+                        : Futures.immediateFuture(input);
+            }
+        }.start();
+
+        try {
+            future.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isSameAs(error);
+        }
+        assertThat(inputs.pulled).isLessThan(10);
+    }
+
+    @Test(groups = "unit")
+    public void should_fail_if_submit_throws() throws Exception {
+        ListenableFuture<List<Integer>> future = new BulkExecutor<Integer, Integer>(Lists.newArrayList(1, 2).iterator(), 2, true) {
+            @Override
+            ListenableFuture<Integer> submit(Integer input) {
+                throw new IllegalArgumentException("bad input");
+            }
+        }.start();
+
+        try {
+            future.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static class CountingIterator implements Iterator<Integer> {
+        private final int size;
+        int pulled;
+
+        CountingIterator(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pulled < size;
+        }
+
+        @Override
+        public Integer next() {
+            return pulled++;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.datastax.driver.mapping.PropertyAccessorTest.Entity;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static com.datastax.driver.mapping.PropertyAccessorTest.field;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class Jdk8GeneratedPropertyAccessorTest {
+
+    @Test(groups = "unit")
+    public void should_generate_accessor_for_public_getter_and_setter() throws Exception {
+        PropertyAccessor accessor = generated(field("count"),
+                Entity.class.getMethod("getCount"), Entity.class.getMethod("setCount", int.class));
+        Entity entity = new Entity();
+
+        accessor.set(entity, 42);
+
+        assertThat(accessor).isInstanceOf(GeneratedPropertyAccessor.class);
+        assertThat(entity.getCount()).isEqualTo(42);
+        assertThat(accessor.get(entity)).isEqualTo(42);
+    }
+
+    @Test(groups = "unit")
+    public void should_generate_relaxed_setter_and_read_field() throws Exception {
+        PropertyAccessor accessor = generated(field("name"),
+                null, Entity.class.getMethod("setName", String.class));
+        Entity entity = new Entity();
+
+        accessor.set(entity, "foo");
+
+        assertThat(accessor).isInstanceOf(GeneratedPropertyAccessor.class);
+        assertThat(accessor.get(entity)).isEqualTo("foo");
+    }
+
+    @Test(groups = "unit")
+    public void should_fall_back_to_reflection_for_fields() throws Exception {
+        PropertyAccessor accessor = generated(field("name"), null, null);
+        Entity entity = new Entity();
+
+        accessor.set(entity, "foo");
+
+        assertThat(accessor).isInstanceOf(PropertyAccessor.ReflectionPropertyAccessor.class);
+        assertThat(accessor.get(entity)).isEqualTo("foo");
+    }
+
+    @Test(groups = "unit")
+    public void should_fall_back_to_reflection_for_non_public_class() throws Exception {
+        PropertyAccessor accessor = generated(PrivateEntity.class.getDeclaredField("value"),
+                PrivateEntity.class.getMethod("getValue"), PrivateEntity.class.getMethod("setValue", String.class));
+        PrivateEntity entity = new PrivateEntity();
+
+        accessor.set(entity, "foo");
+
+        assertThat(accessor).isInstanceOf(PropertyAccessor.ReflectionPropertyAccessor.class);
+        assertThat(accessor.get(entity)).isEqualTo("foo");
+    }
+
+    @Test(groups = "unit")
+    public void should_fail_to_set_null_primitive() throws Exception {
+        PropertyAccessor accessor = generated(field("count"),
+                Entity.class.getMethod("getCount"), Entity.class.getMethod("setCount", int.class));
+        try {
+            accessor.set(new Entity(), null);
+            fail("Expected an exception");
+        } catch (NullPointerException e) {
+            // expected, DefaultMappedProperty rethrows it as an IllegalArgumentException
+        }
+    }
+
+    private static PropertyAccessor generated(Field field, Method getter, Method setter) {
+        return PropertyAccessor.create(PropertyInvocationStrategy.GENERATED, field, getter, setter);
+    }
+
+    @SuppressWarnings("unused")
+    static class PrivateEntity {
+
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+}
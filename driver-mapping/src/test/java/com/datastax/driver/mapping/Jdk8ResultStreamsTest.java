@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.util.Spliterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+public class Jdk8ResultStreamsTest {
+
+    @Test(groups = "unit")
+    public void should_report_same_characteristics_whether_fully_fetched_or_not() {
+        Result<String> result = mock(Result.class);
+        when(result.iterator()).thenReturn(Lists.newArrayList("a", "b").iterator());
+        when(result.getAvailableWithoutFetching()).thenReturn(2);
+        when(result.isFullyFetched()).thenReturn(false);
+        Spliterator<String> spliterator = ResultStreams.spliterator(result);
+        int characteristics = spliterator.characteristics();
+
+        when(result.isFullyFetched()).thenReturn(true);
+
+        assertThat(spliterator.characteristics()).isEqualTo(characteristics);
+        assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED)).isTrue();
+        assertThat(spliterator.hasCharacteristics(Spliterator.NONNULL)).isTrue();
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED)).isFalse();
+        assertThat(spliterator.hasCharacteristics(Spliterator.SUBSIZED)).isFalse();
+        assertThat(spliterator.estimateSize()).isEqualTo(2);
+    }
+}
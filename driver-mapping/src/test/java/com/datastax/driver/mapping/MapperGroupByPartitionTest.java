@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.datastax.driver.core.*;
+import com.datastax.driver.core.policies.FallthroughRetryPolicy;
+import com.datastax.driver.core.utils.Bytes;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MapperGroupByPartitionTest {
+
+    private static final ProtocolVersion V4 = ProtocolVersion.V4;
+    private static final CodecRegistry CODEC_REGISTRY = new CodecRegistry();
+
+    @Test(groups = "unit")
+    public void should_group_statements_by_routing_key() {
+        Statement s1 = statement(1);
+        Statement s2 = statement(2);
+        Statement s3 = statement(1);
+        Statement s4 = statement(2);
+
+        List<Statement> grouped = Mapper.groupByPartition(Arrays.asList(s1, s2, s3, s4), V4, CODEC_REGISTRY);
+
+        assertThat(grouped).hasSize(2);
+        assertThat(((BatchStatement) grouped.get(0)).getStatements()).containsExactly(s1, s3);
+        assertThat(((BatchStatement) grouped.get(1)).getStatements()).containsExactly(s2, s4);
+        assertThat(grouped.get(0).getRoutingKey(V4, CODEC_REGISTRY)).isEqualTo(routingKey(1));
+    }
+
+    @Test(groups = "unit")
+    public void should_execute_statements_without_routing_key_individually() {
+        Statement s1 = new SimpleStatement("INSERT 1");
+        Statement s2 = new SimpleStatement("INSERT 2");
+
+        List<Statement> grouped = Mapper.groupByPartition(Arrays.asList(s1, s2), V4, CODEC_REGISTRY);
+
+        assertThat(grouped).containsExactly(s1, s2);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_batch_single_statement_partitions() {
+        Statement s1 = statement(1);
+        Statement s2 = statement(2);
+        Statement s3 = statement(2);
+
+        List<Statement> grouped = Mapper.groupByPartition(Arrays.asList(s1, s2, s3), V4, CODEC_REGISTRY);
+
+        assertThat(grouped).hasSize(2);
+        assertThat(grouped.get(0)).isSameAs(s1);
+        assertThat(((BatchStatement) grouped.get(1)).getStatements()).containsExactly(s2, s3);
+    }
+
+    @Test(groups = "unit")
+    public void should_copy_statement_settings_to_batch() {
+        Map<String, ByteBuffer> payload = ImmutableMap.of("key", Bytes.fromHexString("0xcafe"));
+        Statement s1 = statement(1);
+        Statement s2 = statement(1);
+        for (Statement s : Arrays.asList(s1, s2)) {
+            s.setConsistencyLevel(ConsistencyLevel.QUORUM)
+                    .setSerialConsistencyLevel(ConsistencyLevel.LOCAL_SERIAL)
+                    .enableTracing()
+                    .setRetryPolicy(FallthroughRetryPolicy.INSTANCE)
+                    .setIdempotent(true)
+                    .setDefaultTimestamp(42)
+                    .setReadTimeoutMillis(1234)
+                    .setOutgoingPayload(payload);
+        }
+
+        List<Statement> grouped = Mapper.groupByPartition(Arrays.asList(s1, s2), V4, CODEC_REGISTRY);
+
+        assertThat(grouped).hasSize(1);
+        Statement batch = grouped.get(0);
+        assertThat(batch.getConsistencyLevel()).isEqualTo(ConsistencyLevel.QUORUM);
+        assertThat(batch.getSerialConsistencyLevel()).isEqualTo(ConsistencyLevel.LOCAL_SERIAL);
+        assertThat(batch.isTracing()).isTrue();
+        assertThat(batch.getRetryPolicy()).isSameAs(FallthroughRetryPolicy.INSTANCE);
+        assertThat(batch.isIdempotent()).isTrue();
+        assertThat(batch.getDefaultTimestamp()).isEqualTo(42);
+        assertThat(batch.getReadTimeoutMillis()).isEqualTo(1234);
+        assertThat(batch.getOutgoingPayload()).isEqualTo(payload);
+    }
+
+    private static Statement statement(int partition) {
+        return new SimpleStatement("INSERT " + partition).setRoutingKey(routingKey(partition));
+    }
+
+    private static ByteBuffer routingKey(int partition) {
+        ByteBuffer bb = ByteBuffer.allocate(4);
+        bb.putInt(0, partition);
+        return bb;
+    }
+}
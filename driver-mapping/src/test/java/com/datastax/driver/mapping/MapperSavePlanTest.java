@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.annotations.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+
+import static com.datastax.driver.mapping.Mapper.MAX_SAVE_SHAPES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MapperSavePlanTest {
+
+    @Test(groups = "unit")
+    public void should_share_plan_between_options_with_same_query_string() {
+        assertThat(saveKey(Mapper.Option.ttl(1), Mapper.Option.timestamp(1)))
+                .isEqualTo(saveKey(Mapper.Option.ttl(2), Mapper.Option.timestamp(2)));
+        assertThat(saveKey(Mapper.Option.consistencyLevel(ConsistencyLevel.ONE), Mapper.Option.saveNullFields(true)))
+                .isEqualTo(saveKey(Mapper.Option.consistencyLevel(ConsistencyLevel.QUORUM), Mapper.Option.saveNullFields(false)));
+    }
+
+    @Test(groups = "unit")
+    public void should_not_share_plan_between_options_with_different_query_strings() {
+        assertThat(saveKey(Mapper.Option.ttl(1)))
+                .isNotEqualTo(saveKey())
+                .isNotEqualTo(saveKey(Mapper.Option.timestamp(1)))
+                .isNotEqualTo(saveKey(Mapper.Option.ttl(1), Mapper.Option.ifNotExists(true)));
+        assertThat(saveKey(Mapper.Option.ifNotExists(true))).isNotEqualTo(saveKey(Mapper.Option.ifNotExists(false)));
+    }
+
+    @Test(groups = "unit")
+    public void should_evict_least_recently_used_shape_when_full() {
+        Mapper.SavePlan plan = new Mapper.SavePlan(new AliasedMappedProperty[10]);
+        for (int i = 0; i < MAX_SAVE_SHAPES; i++)
+            plan.statements.put(shape(i), statement());
+        // use the oldest shape again
+        assertThat(plan.get(shape(0))).isNotNull();
+
+        plan.statements.put(shape(MAX_SAVE_SHAPES), statement());
+
+        assertThat(plan.statements).hasSize(MAX_SAVE_SHAPES);
+        assertThat(plan.statements).containsKey(shape(0));
+        assertThat(plan.statements).doesNotContainKey(shape(1));
+    }
+
+    @Test(groups = "unit")
+    public void should_reuse_evicted_statement_that_is_still_referenced() throws Exception {
+        Mapper.SavePlan plan = new Mapper.SavePlan(new AliasedMappedProperty[10]);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        plan.statements.put(shape(0), Futures.immediateFuture(stmt));
+        for (int i = 1; i <= MAX_SAVE_SHAPES; i++)
+            plan.statements.put(shape(i), statement());
+        assertThat(plan.statements).doesNotContainKey(shape(0));
+
+        ListenableFuture<PreparedStatement> revived = plan.get(shape(0));
+
+        assertThat(revived).isNotNull();
+        assertThat(revived.get()).isSameAs(stmt);
+        assertThat(plan.statements).containsKey(shape(0));
+    }
+
+    @Test(groups = "unit")
+    public void should_not_revive_unknown_shape() {
+        Mapper.SavePlan plan = new Mapper.SavePlan(new AliasedMappedProperty[10]);
+
+        assertThat(plan.get(shape(0))).isNull();
+    }
+
+    private static Mapper.MapperQueryKey saveKey(Mapper.Option... options) {
+        EnumMap<Mapper.Option.Type, Mapper.Option> map = new EnumMap<Mapper.Option.Type, Mapper.Option>(Mapper.Option.Type.class);
+        for (Mapper.Option option : options)
+            map.put(option.type, option);
+        return new Mapper.MapperQueryKey(QueryType.SAVE, Collections.<AliasedMappedProperty>emptySet(), map);
+    }
+
+    // A shape (the columns whose bits are set in i, i < 2^10)
+    private static BitSet shape(int i) {
+        BitSet shape = new BitSet();
+        for (int bit = 0; bit < 10; bit++) {
+            if ((i & (1 << bit)) != 0)
+                shape.set(bit);
+        }
+        return shape;
+    }
+
+    private static ListenableFuture<PreparedStatement> statement() {
+        return Futures.immediateFuture(mock(PreparedStatement.class));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.datastax.driver.core.*;
+import com.google.common.reflect.TypeToken;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ParamMapperTest {
+
+    private ColumnDefinitions variables;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        // SELECT * FROM t WHERE k = :k AND c1 > :c AND c2 < :c
+        variables = mock(ColumnDefinitions.class);
+        when(variables.size()).thenReturn(3);
+        when(variables.getName(0)).thenReturn("k");
+        when(variables.getName(1)).thenReturn("c");
+        when(variables.getName(2)).thenReturn("c");
+        when(variables.getIndexOf("k")).thenReturn(0);
+        when(variables.getIndexOf("c")).thenReturn(1);
+        when(variables.getIndexOf("unknown")).thenReturn(-1);
+        when(variables.getType(0)).thenReturn(DataType.text());
+        when(variables.getType(1)).thenReturn(DataType.cint());
+        when(variables.getType(2)).thenReturn(DataType.cint());
+    }
+
+    @Test(groups = "unit")
+    @SuppressWarnings("unchecked")
+    public void should_bind_positional_parameter_by_index() {
+        MethodMapper.ParamMapper mapper = new MethodMapper.ParamMapper(null, 0, TypeToken.of(String.class), null);
+        mapper.prepare(variables);
+        BoundStatement bs = mock(BoundStatement.class);
+
+        mapper.setValue(bs, "foo");
+
+        verify(bs).set(0, "foo", TypeToken.of(String.class));
+    }
+
+    @Test(groups = "unit")
+    @SuppressWarnings("unchecked")
+    public void should_bind_all_occurrences_of_named_parameter() {
+        MethodMapper.ParamMapper mapper = new MethodMapper.ParamMapper("c", -1, TypeToken.of(Integer.class), null);
+        mapper.prepare(variables);
+        BoundStatement bs = mock(BoundStatement.class);
+
+        mapper.setValue(bs, 42);
+
+        verify(bs).set(1, 42, TypeToken.of(Integer.class));
+        verify(bs).set(2, 42, TypeToken.of(Integer.class));
+        verify(bs, never()).set(anyString(), any(), any(TypeToken.class));
+    }
+
+    @Test(groups = "unit")
+    @SuppressWarnings("unchecked")
+    public void should_resolve_codec_when_binding() {
+        // there is no codec for int <-> text when the statement is prepared, but one could be registered later
+        MethodMapper.ParamMapper mapper = new MethodMapper.ParamMapper(null, 0, TypeToken.of(Integer.class), null);
+        mapper.prepare(variables);
+        BoundStatement bs = mock(BoundStatement.class);
+
+        mapper.setValue(bs, 42);
+
+        verify(bs).set(0, 42, TypeToken.of(Integer.class));
+    }
+
+    @Test(groups = "unit")
+    @SuppressWarnings("unchecked")
+    public void should_fall_back_to_generic_binding_if_name_not_found() {
+        MethodMapper.ParamMapper mapper = new MethodMapper.ParamMapper("unknown", -1, TypeToken.of(Integer.class), null);
+        mapper.prepare(variables);
+        BoundStatement bs = mock(BoundStatement.class);
+
+        mapper.setValue(bs, 42);
+
+        verify(bs).set("unknown", 42, TypeToken.of(Integer.class));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class PropertyAccessorTest {
+
+    @Test(groups = "unit")
+    public void should_access_private_field() throws Exception {
+        PropertyAccessor accessor = reflection(field("name"), null, null);
+        Entity entity = new Entity();
+
+        accessor.set(entity, "foo");
+
+        assertThat(entity.name).isEqualTo("foo");
+        assertThat(accessor.get(entity)).isEqualTo("foo");
+    }
+
+    @Test(groups = "unit")
+    public void should_access_primitive_property_through_getter_and_setter() throws Exception {
+        PropertyAccessor accessor = reflection(field("count"),
+                Entity.class.getMethod("getCount"), Entity.class.getMethod("setCount", int.class));
+        Entity entity = new Entity();
+
+        accessor.set(entity, 42);
+
+        assertThat(entity.count).isEqualTo(42);
+        assertThat(entity.setterCalled).isTrue();
+        assertThat(accessor.get(entity)).isEqualTo(42);
+    }
+
+    @Test(groups = "unit")
+    public void should_use_relaxed_setter() throws Exception {
+        PropertyAccessor accessor = reflection(field("name"),
+                null, Entity.class.getMethod("setName", String.class));
+        Entity entity = new Entity();
+
+        accessor.set(entity, "foo");
+
+        assertThat(entity.name).isEqualTo("foo");
+        assertThat(entity.setterCalled).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_fail_to_set_null_primitive() throws Exception {
+        PropertyAccessor accessor = reflection(field("count"), null, null);
+        try {
+            accessor.set(new Entity(), null);
+            fail("Expected an exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_not_generate_accessor_with_reflection_strategy() throws Exception {
+        PropertyAccessor accessor = reflection(field("count"),
+                Entity.class.getMethod("getCount"), Entity.class.getMethod("setCount", int.class));
+
+        assertThat(accessor).isInstanceOf(PropertyAccessor.ReflectionPropertyAccessor.class);
+    }
+
+    private static PropertyAccessor reflection(Field field, Method getter, Method setter) {
+        return PropertyAccessor.create(PropertyInvocationStrategy.REFLECTION, field, getter, setter);
+    }
+
+    static Field field(String name) throws NoSuchFieldException {
+        Field field = Entity.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    @SuppressWarnings("unused")
+    public static class Entity {
+
+        private String name;
+        private int count;
+        private boolean setterCalled;
+
+        public Entity setName(String name) {
+            this.name = name;
+            this.setterCalled = true;
+            return this;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+            this.setterCalled = true;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012-2017 DataStax Inc.
+ *
+ * This software can be used solely with DataStax Enterprise. Please consult the license at
+ * http://www.datastax.com/terms/datastax-dse-driver-license-terms
+ */
+package com.datastax.driver.mapping;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ResultTest {
+
+    private EntityMapper<Entity> mapper;
+    private ColumnDefinitions definitions;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() throws Exception {
+        mapper = new EntityMapper<Entity>(Entity.class, "ks", "entity", null, null);
+        List<AliasedMappedProperty> columns = Lists.newArrayList(column("name"), column("count"));
+        mapper.addColumns(Collections.<AliasedMappedProperty>emptyList(), Collections.<AliasedMappedProperty>emptyList(), columns);
+
+        definitions = mock(ColumnDefinitions.class);
+        when(definitions.contains("name")).thenReturn(true);
+        when(definitions.getIndexOf("name")).thenReturn(0);
+        when(definitions.contains("count")).thenReturn(true);
+        when(definitions.getIndexOf("count")).thenReturn(1);
+    }
+
+    @Test(groups = "unit")
+    public void should_map_each_row_to_a_new_entity() {
+        ResultSet rs = resultSet(row("a", 1), row("b", 2));
+        Iterator<Entity> iterator = new Result<Entity>(rs, mapper, false).iterator();
+
+        Entity first = iterator.next();
+        Entity second = iterator.next();
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.name).isEqualTo("a");
+        assertThat(first.count).isEqualTo(1);
+        assertThat(second.name).isEqualTo("b");
+        assertThat(second.count).isEqualTo(2);
+        // column indexes are resolved once for all the rows sharing the same metadata
+        verify(definitions, times(1)).getIndexOf("name");
+    }
+
+    @Test(groups = "unit")
+    public void should_reuse_entity_and_reset_null_properties() {
+        ResultSet rs = resultSet(row("a", 1), row(null, null));
+        Entity entity = new Entity();
+        Iterator<Entity> iterator = new Result<Entity>(rs, mapper, false).iterator(entity);
+
+        assertThat(iterator.next()).isSameAs(entity);
+        assertThat(entity.name).isEqualTo("a");
+        assertThat(entity.count).isEqualTo(1);
+
+        assertThat(iterator.next()).isSameAs(entity);
+        assertThat(entity.name).isNull();
+        assertThat(entity.count).isEqualTo(0);
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_prefetch_when_half_of_the_page_is_consumed() {
+        ResultSet rs = resultSet(row("a", 1), row("b", 2), row("c", 3), row("d", 4));
+        when(rs.getAvailableWithoutFetching()).thenReturn(3, 2, 1, 0);
+        when(rs.isFullyFetched()).thenReturn(false);
+        Iterator<Entity> iterator = new Result<Entity>(rs, mapper, false).setPrefetchEnabled(true).iterator();
+
+        iterator.next();
+        iterator.next();
+        verify(rs, never()).fetchMoreResults();
+
+        iterator.next();
+        verify(rs, times(1)).fetchMoreResults();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_prefetch_by_default() {
+        ResultSet rs = resultSet(row("a", 1), row("b", 2));
+        when(rs.getAvailableWithoutFetching()).thenReturn(1, 0);
+        when(rs.isFullyFetched()).thenReturn(false);
+        Iterator<Entity> iterator = new Result<Entity>(rs, mapper, false).iterator();
+
+        iterator.next();
+        iterator.next();
+
+        verify(rs, never()).fetchMoreResults();
+    }
+
+    private Row row(String name, Integer count) {
+        Row row = mock(Row.class);
+        when(row.getColumnDefinitions()).thenReturn(definitions);
+        when(row.get(eq(0), any(TypeToken.class))).thenReturn(name);
+        when(row.get(eq(1), any(TypeToken.class))).thenReturn(count);
+        return row;
+    }
+
+    private static ResultSet resultSet(Row... rows) {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.iterator()).thenReturn(Lists.newArrayList(rows).iterator());
+        return rs;
+    }
+
+    private static AliasedMappedProperty column(String name) throws Exception {
+        Field field = Entity.class.getDeclaredField(name);
+        field.setAccessible(true);
+        DefaultMappedProperty<Object> property = DefaultMappedProperty.create(Entity.class, name, name,
+                field, null, null, Collections.<Class<? extends Annotation>, Annotation>emptyMap(),
+                PropertyInvocationStrategy.GENERATED);
+        return new AliasedMappedProperty(property, null);
+    }
+
+    @SuppressWarnings("unused")
+    public static class Entity {
+        private String name;
+        private int count;
+    }
+}